@@ -0,0 +1,119 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari;
+
+import org.cooperari.core.scheduling.CYieldPoint;
+
+/**
+ * Information for a distinct data race found during the execution of a test.
+ * 
+ * <p>
+ * A race is identified by the data at stake (a field, or an array type)
+ * and the pair of yield points for the conflicting accesses.
+ * </p>
+ * 
+ * @see CTestResult#getRaces()
+ * @since 0.4
+ */
+public final class CRace {
+
+  /**
+   * Data description.
+   */
+  private final String _data;
+
+  /**
+   * First yield point.
+   */
+  private final CYieldPoint _first;
+
+  /**
+   * Second yield point.
+   */
+  private final CYieldPoint _second;
+
+  /**
+   * Number of occurrences.
+   */
+  private final int _count;
+
+  /**
+   * Trial of first occurrence.
+   */
+  private final int _firstTrial;
+
+  /**
+   * Constructor.
+   * @param data Data description.
+   * @param first Yield point for one of the accesses, or <code>null</code> if unknown.
+   * @param second Yield point for the other access.
+   * @param count Number of occurrences.
+   * @param firstTrial Trial of first occurrence (starting at 1).
+   */
+  public CRace(String data, CYieldPoint first, CYieldPoint second, int count, int firstTrial) {
+    _data = data;
+    _first = first;
+    _second = second;
+    _count = count;
+    _firstTrial = firstTrial;
+  }
+
+  /**
+   * Get data description.
+   * @return Qualified field name for field races, or array type followed by <code>[]</code> for array races.
+   */
+  public String getData() {
+    return _data;
+  }
+
+  /**
+   * Get yield point for one of the racing accesses.
+   * @return A yield point, or <code>null</code> if unknown.
+   */
+  public CYieldPoint getFirstYieldPoint() {
+    return _first;
+  }
+
+  /**
+   * Get yield point for the other racing access.
+   * @return A yield point, or <code>null</code> if unknown.
+   */
+  public CYieldPoint getSecondYieldPoint() {
+    return _second;
+  }
+
+  /**
+   * Get number of occurrences.
+   * @return Number of times the race was reported, over all trials.
+   */
+  public int getCount() {
+    return _count;
+  }
+
+  /**
+   * Get trial of first occurrence.
+   * @return Trial number, starting at 1.
+   */
+  public int getFirstTrial() {
+    return _firstTrial;
+  }
+
+  @Override
+  public String toString() {
+    return String.format("%s | %s | %s | count=%d first=%d", _data, _first, _second, _count, _firstTrial);
+  }
+}
@@ -134,6 +134,18 @@ public final class CSystem {
     return AgentFacade.INSTANCE.produceCoverageReport();
   }
 
+  /**
+   * Append global coverage information to the persistent coverage store in the workspace,
+   * such that it can later be merged with coverage information from other runs
+   * (e.g., using <code>cinfo coverage</code>).
+   * @return {@link File} object indicating the coverage store.
+   * @throws IOException If an I/O error occurs.
+   * @since 0.4
+   */
+  public static File saveGlobalCoverageInfo() throws IOException {
+    return AgentFacade.INSTANCE.appendToCoverageStore();
+  }
+
   /**
    * Check if the system is in cooperative mode.
    * @return <code>true</code> if cooperative semantics are enabled.
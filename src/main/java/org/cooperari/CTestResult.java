@@ -17,6 +17,7 @@
 package org.cooperari;
 
 import java.io.File;
+import java.util.List;
 
 import org.cooperari.config.CSometimes;
 
@@ -61,6 +62,34 @@ public interface CTestResult extends CCoverage {
    * @return Time taken for the execution of the test (all trials).
    */
   public long getExecutionTime();
+
+  /**
+   * Get number of interleaving pairs covered.
+   * 
+   * <p>
+   * An interleaving pair is a pair of yield points <code>(A, B)</code>
+   * such that a step of one thread at <code>A</code> was immediately followed 
+   * by a step of another thread at <code>B</code> in some test trial.
+   * </p>
+   * 
+   * @return Number of interleaving pairs covered by all test trials.
+   * @since 0.4
+   */
+  public int getCoveredInterleavingPairs();
+
+  /**
+   * Get distinct races found by race detection.
+   * 
+   * <p>
+   * Races are aggregated over all test trials, and identified by the data at stake 
+   * and the pair of yield points for the conflicting accesses.
+   * The list is empty if race detection is not enabled (see {@link org.cooperari.config.CRaceDetection}).
+   * </p>
+   * 
+   * @return List of races, ordered by trial of first occurrence.
+   * @since 0.4
+   */
+  public List<CRace> getRaces();
   
  
 
@@ -26,6 +26,7 @@ package org.cooperari.config;
 @CScheduling()
 @CMaxTrials()
 @CRaceDetection(false)
+@CDetectAtomicityViolations(false)
 @CDetectResourceDeadlocks()
 @CTimeLimit()
 @CGenerateCoverageReports()
@@ -33,6 +34,7 @@ package org.cooperari.config;
 @CNever({}) 
 @CSometimes({})
 @CTraceOptions()
+@CInterleavingCoverage()
 public final class CBaseConfiguration {
   
   /**
@@ -0,0 +1,52 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.cooperari.errors.CAtomicityViolationError;
+
+/**
+ * Annotation to enable detection of atomicity violations.
+ * 
+ * <p>
+ * An atomicity violation is flagged when two consecutive accesses by a thread 
+ * to the same data are interleaved by an access of another thread, such that 
+ * the interleaving is not serializable (read-write-read, write-write-read, 
+ * write-read-write, or read-write-write).
+ * </p>
+ * 
+ * @since 0.4
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface CDetectAtomicityViolations {
+  /**
+   * @return Boolean value enabling atomicity violation detection. 
+   * If enabled (the default) violations will be logged to execution trace reports.
+   */
+  boolean value() default true;
+
+  /**
+   * @return Boolean value indicating if {@link CAtomicityViolationError} should be thrown when a violation is detected.
+   * If enabled (the default) the violation makes the test trial fail.
+   */
+  boolean throwErrors() default true;
+}
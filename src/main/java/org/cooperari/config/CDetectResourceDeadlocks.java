@@ -27,5 +27,15 @@ import java.lang.annotation.Target;
 @Retention(RetentionPolicy.RUNTIME)
 @Target({ElementType.METHOD, ElementType.TYPE})
 public @interface CDetectResourceDeadlocks {
-   
+
+  /**
+   * @return Boolean value enabling predictive deadlock detection. 
+   * If enabled, a lock-order graph is accumulated over all trials of a test, 
+   * and a {@link org.cooperari.feature.monitor.CPotentialDeadlockError} is thrown 
+   * when a thread acquires monitors in an order that forms a cycle in that graph with 
+   * the order used by other threads, even if no deadlock actually occurs.
+   * Disabled by default.
+   * @since 0.4
+   */
+  boolean predictive() default false;
 }
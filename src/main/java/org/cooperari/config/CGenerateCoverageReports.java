@@ -24,6 +24,11 @@ import java.lang.annotation.Target;
 /**
  * Configure the generation of coverage reports per test.
  * 
+ * <p>
+ * Along with the coverage report, a heatmap report is generated 
+ * with per-yield point hit, preemption and blocking counters (since 0.4).
+ * </p>
+ * 
  * @since 0.2
  */
 @Retention(RetentionPolicy.RUNTIME)
@@ -58,10 +58,38 @@ public @interface CInstrument {
    */
   String[] packages() default {};
   
+  /**
+   * @return Whether to instrument array element accesses (loads and stores) in woven classes, 
+   *         making them yield points and data accesses subject to race detection.
+   *         Accesses to arrays that are allocated by a method and do not escape from it are not instrumented.
+   *         The default is <code>false</code>, in which case array accesses are only considered
+   *         when made through {@link org.cooperari.CArray}.
+   * @since 0.4
+   */
+  boolean arrays() default false;
+
+  /**
+   * @return Whether to model calls to concurrent collections in <code>java.util.concurrent</code> made
+   *         by woven classes (e.g., <code>ConcurrentHashMap</code>, <code>ConcurrentLinkedQueue</code>
+   *         or <code>LinkedBlockingQueue</code>) as single cooperative operations, with blocking 
+   *         queue operations waiting cooperatively.
+   *         The default is <code>false</code>, in which case these calls are not yield points.
+   * @since 0.4
+   */
+  boolean concurrentCollections() default false;
+
   /**
    * @return Whether to dump bytecode during load-time weaving (used for debugging).
    */
   boolean ltwDump() default true;
+
+  /**
+   * @return Whether to enable verbose load-time weaving messages, and log all weaving 
+   *         messages in the workspace (used for debugging). 
+   *         Yield points are identified during weaving regardless of this setting.
+   * @since 0.4
+   */
+  boolean ltwVerbose() default false;
   
   /**
    * @return Extra load-time weaving options (used for debugging).
@@ -0,0 +1,47 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.config;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Configure the use of interleaving pair coverage as a stopping criterion for test trials.
+ * 
+ * <p>
+ * An interleaving pair is a pair of yield points <code>(A, B)</code> such that
+ * a step of one thread at <code>A</code> is immediately followed by a step of another thread at <code>B</code>.
+ * If a saturation threshold <code>N</code> is set, further execution of test trials is prevented once
+ * <code>N</code> consecutive trials execute without covering new interleaving pairs.
+ * 
+ * This configuration works in conjunction with {@link CMaxTrials} and {@link CTimeLimit}.
+ * </p>
+ * 
+ * @see org.cooperari.CTestResult#getCoveredInterleavingPairs()
+ * @since 0.4
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.METHOD, ElementType.TYPE })
+public @interface CInterleavingCoverage {
+  /**
+   * @return Number of consecutive trials without new interleaving pairs 
+   * after which no more trials are executed. The setting is ignored if lower or equal than 0.
+   */
+  int saturation() default 0;
+}
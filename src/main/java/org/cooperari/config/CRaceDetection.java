@@ -41,4 +41,37 @@ public @interface CRaceDetection {
    * If disabled (the default) races are merely reported.
    */
   boolean throwErrors() default false;
-}
\ No newline at end of file
+
+  /**
+   * @return Boolean value selecting happens-before race detection. If enabled, races
+   * are detected between accesses that are not ordered by synchronization 
+   * (monitors, thread start/join, and atomic operations), even if they occur in different steps of the execution. 
+   * If disabled (the default) races are only detected between accesses that overlap in time.
+   * @since 0.4
+   */
+  boolean happensBefore() default false;
+
+  /**
+   * @return Boolean value enabling sampling race detection. If enabled, only a sample 
+   * of data accesses is checked for races, according to adaptive per-site sampling rates that start at 100%
+   * and back off for sites that are executed often without races being found (see {@link #samplingRate()} and {@link #samplingBudget()}). 
+   * This bounds the overhead of race detection for large tests, at the cost of possibly missing races.
+   * Disabled by default.
+   * @since 0.4
+   */
+  boolean sampling() default false;
+
+  /**
+   * @return Minimum sampling rate per site, a value in the <code>(0,1]</code> interval, 
+   * when {@link #sampling()} is enabled. The default is <code>0.001</code> (0.1%).
+   * @since 0.4
+   */
+  double samplingRate() default 0.001;
+
+  /**
+   * @return Sampling budget, i.e., number of checks of a site without races being found before the 
+   * sampling rate for the site is halved, when {@link #sampling()} is enabled. The default value is <code>100</code>.
+   * @since 0.4
+   */
+  int samplingBudget() default 100;
+}
@@ -31,7 +31,8 @@ import java.lang.annotation.Target;
 public @interface CTraceOptions {
   
   /**
-   * @return The limit for the size of the trace (unbounded trace if lower or equal than 0).
+   * @return The limit for the size of the trace in steps (unbounded trace if lower or equal than 0).
+   * When the limit is exceeded, the oldest steps are discarded.
    */
   int limit() default 0;
   
@@ -40,4 +41,20 @@ public @interface CTraceOptions {
    * By default the setting is off, meaning that only failure traces will be written.
    */
   boolean logEveryTrace() default false;
+
+  /**
+   * @return Flag indicating if trace files should be written in compact form, i.e., 
+   * using the encoded representation of steps rather than one line per step.
+   * By default the setting is off.
+   * @since 0.4
+   */
+  boolean compact() default false;
+
+  /**
+   * @return Flag indicating if trace files should also be exported in Chrome trace-event 
+   * format (a JSON file that may be loaded by timeline viewers such as <code>chrome://tracing</code> or Perfetto).
+   * By default the setting is off.
+   * @since 0.4
+   */
+  boolean chromeTrace() default false;
 }
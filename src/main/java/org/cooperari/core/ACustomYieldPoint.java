@@ -16,10 +16,15 @@
 
 package org.cooperari.core;
 
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.annotation.Pointcut;
+import org.cooperari.feature.data.RaceDetector;
 
 /**
  * Abstract aspect for generic yield points.
@@ -29,6 +34,15 @@ import org.aspectj.lang.annotation.Pointcut;
  * [using the technique documented <a href="https://eclipse.org/aspectj/doc/next/devguide/ltw-configuration.html">here</a>].
  * </p>
  * 
+ * <p>
+ * For the purpose of happens-before race detection, a call at a custom yield point is treated
+ * as a synchronization operation if the target is an atomic object, i.e., an instance of a class in 
+ * <code>java.util.concurrent.atomic</code>. The synchronization is on the target object itself,
+ * or on the object whose field is updated for field updaters. 
+ * Calls on other targets (e.g., the <code>sun.misc.Unsafe</code> singleton) 
+ * do not synchronize, since all threads would be ordered through a single shared object.
+ * </p>
+ * 
  * @since 0.2 
  *
  */
@@ -50,6 +64,38 @@ public abstract class ACustomYieldPoint {
     CThread t = CThread.intercept(thisJoinPoint);
     if (t != null) {
       t.cYield(new CustomYieldPointOperation());
+      Object syncObject = atomicSyncObject(thisJoinPoint);
+      if (syncObject != null) {
+        RaceDetector rd = CRuntime.getRuntime().get(RaceDetector.class);
+        if (rd != null) {
+          rd.onSynchronize(t, syncObject);
+        }
+      }
     }
   } 
+
+  /**
+   * Package of atomic object classes.
+   */
+  private static final String ATOMIC_PACKAGE = "java.util.concurrent.atomic.";
+
+  @SuppressWarnings("javadoc")
+  private static Object atomicSyncObject(JoinPoint jp) {
+    Object target = jp.getTarget();
+    if (target == null) {
+      return null;
+    }
+    if (target instanceof AtomicIntegerFieldUpdater
+        || target instanceof AtomicLongFieldUpdater
+        || target instanceof AtomicReferenceFieldUpdater) {
+      Object[] args = jp.getArgs();
+      return args.length > 0 ? args[0] : null;
+    }
+    for (Class<?> c = target.getClass(); c != null; c = c.getSuperclass()) {
+      if (c.getName().startsWith(ATOMIC_PACKAGE)) {
+        return target;
+      }
+    }
+    return null;
+  }
 }
@@ -18,41 +18,74 @@ package org.cooperari.core;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
 
 import org.cooperari.CCoverage;
 import org.cooperari.core.scheduling.CYieldPoint;
 import org.cooperari.core.util.CReport;
+import org.cooperari.core.util.LongSet;
 
 /**
  * Coverage log.
  *
  * An object of this kind maintains a log of yield point coverage.
  * 
+ * <p>
+ * Implementation note: yield points are represented by their identifiers 
+ * in the global yield point table ({@link CYieldPointTable}), and 
+ * the log is kept using bit sets indexed by these identifiers.
+ * Marking a yield point as covered has constant cost.
+ * A sorted view of the yield points is built only when a report is generated.
+ * </p>
+ * 
+ * <p>
+ * The log also records interleaving pairs, i.e., pairs of yield points 
+ * <code>(A, B)</code> such that a step of one thread at <code>A</code> is immediately 
+ * followed by a step of another thread at <code>B</code>. Each pair is stored
+ * as a single <code>long</code> value combining the identifiers of <code>A</code> and <code>B</code>.
+ * </p>
+ * 
  * @since 0.2
  *
  */
 public final class CCoverageLog implements CCoverage {
 
   /**
-   * Yield point coverage info.
+   * Yield points defined in the log.
+   */
+  private final BitSet _allYieldPoints = new BitSet();
+
+  /**
+   * Yield points covered.
    */
-  private final TreeMap<CYieldPoint, Boolean> _allYieldPoints = new TreeMap<>();
+  private final BitSet _covered = new BitSet();
+
+  /**
+   * Number of yield points defined (attribute that avoids 
+   * traversal of the bit set for the purpose of knowing
+   * how many yield points are defined).
+   */
+  private int _totalYieldPoints = 0;
 
   /**
    * Number of covered yield points  (attribute that avoids
-   * traversal of the map for the purpose of knowing how many
+   * traversal of the bit set for the purpose of knowing how many
    * yield points were covered)
    */
   private int _coveredYieldPoints = 0;
 
   /**
-   * Set of files associated to yield points in the log.
+   * Set of files associated to yield points in the log (by source file identifier).
    */
-  private final HashSet<String> _sourceFiles = new HashSet<>();
+  private final BitSet _sourceFiles = new BitSet();
+
+  /**
+   * Covered interleaving pairs.
+   */
+  private final LongSet _pairs = new LongSet();
 
   /**
    * Constructs a new coverage log.
@@ -66,7 +99,7 @@ public final class CCoverageLog implements CCoverage {
    */
   @Override
   public int getTotalYieldPoints() {
-    return _allYieldPoints.size();
+    return _totalYieldPoints;
   }
 
   /**
@@ -79,6 +112,15 @@ public final class CCoverageLog implements CCoverage {
     return _coveredYieldPoints;
   }
 
+  /**
+   * Get number of interleaving pairs covered.
+   * @return Number of covered interleaving pairs.
+   * @since 0.4
+   */
+  public int getCoveredInterleavingPairs() {
+    return _pairs.size();
+  }
+
   /**
    * Record definition of yield point.
    * The yield point is not marked as covered. 
@@ -86,11 +128,7 @@ public final class CCoverageLog implements CCoverage {
    * @param yp Yield point.
    */
   public void recordDefinition(CYieldPoint yp) {
-    if (!_allYieldPoints.containsKey(yp)) {
-      assert CWorkspace.debug("DEF %s", yp);
-      _allYieldPoints.put(yp, false);
-      _sourceFiles.add(yp.getSourceFile());
-    }
+    recordDefinition(idOf(yp));
   }
 
   /**
@@ -98,15 +136,18 @@ public final class CCoverageLog implements CCoverage {
    * @param yp Yield point.
    */
   public void markAsCovered(CYieldPoint yp) {
-    Boolean b = _allYieldPoints.put(yp, true);
-    if ( b == null) { 
-      _coveredYieldPoints++;
-      _sourceFiles.add(yp.getSourceFile());
-      assert CWorkspace.debug("COVERED %s", yp);
-    } else if (b == false) {
-      _coveredYieldPoints++;
-      assert CWorkspace.debug("COVERED %s", yp);
-    }
+    markAsCovered(idOf(yp));
+  }
+
+  /**
+   * Mark an interleaving pair as covered.
+   * @param first Yield point for a step of one thread.
+   * @param second Yield point for the step of another thread that immediately followed.
+   * @return <code>true</code> if the pair had not been covered before.
+   * @since 0.4
+   */
+  public boolean markInterleavingPair(CYieldPoint first, CYieldPoint second) {
+    return markInterleavingPair(idOf(first), idOf(second));
   }
 
   /**
@@ -127,6 +168,9 @@ public final class CCoverageLog implements CCoverage {
    * it is marked as covered in the other log;
    * </li>
    * </ul>
+   * <li>If {@code ignoreStatus} is {@code false}, the interleaving pairs covered in the other
+   * log are also marked as covered in this log, provided both of their yield points are defined
+   * in this log (after enrichment). Other pairs are ignored.</li>
    * </ul>
    * 
    * @param otherLog The other log.
@@ -134,24 +178,101 @@ public final class CCoverageLog implements CCoverage {
    */
   public void enrich(CCoverageLog otherLog, boolean ignoreCoverageStatus) {
     assert CWorkspace.debug("ENRICHING log %d %s :: %d %d", otherLog.getTotalYieldPoints(), ignoreCoverageStatus,  getTotalYieldPoints(), getCoveredYieldPoints());
-    for (String sf : _sourceFiles) {
-      CYieldPointImpl lowerBound = new CYieldPointImpl("", sf, -1);
-      // Note: extra char so that view iterates until the last possible entry
-      CYieldPointImpl upperBound = new CYieldPointImpl("", sf + '*', -1);
-      Map<CYieldPoint,Boolean> view = otherLog._allYieldPoints.subMap(lowerBound, upperBound);
-      for (Map.Entry<CYieldPoint,Boolean> entry : view.entrySet()) {
-        CYieldPoint yp = entry.getKey();
-        if (ignoreCoverageStatus || !entry.getValue()) {
-          recordDefinition(yp);
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    BitSet other = otherLog._allYieldPoints;
+    for (int id = other.nextSetBit(0); id >= 0; id = other.nextSetBit(id + 1)) {
+      if (_sourceFiles.get(table.fileOf(id))) {
+        if (ignoreCoverageStatus || !otherLog._covered.get(id)) {
+          recordDefinition(id);
         } else {
-          markAsCovered(yp);
+          markAsCovered(id);
         }
       }
     }
+    if (!ignoreCoverageStatus) {
+      otherLog._pairs.forEach(p -> {
+        if (_allYieldPoints.get((int) (p >>> 32)) && _allYieldPoints.get((int) p)) {
+          _pairs.add(p);
+        }
+      });
+    }
     assert CWorkspace.debug("ENRICHED log :: %d %d", getTotalYieldPoints(), getCoveredYieldPoints());
   }
 
-  
+  /**
+   * Merge another log into this one.
+   * 
+   * <p>
+   * Unlike {@link #enrich(CCoverageLog, boolean)}, all yield points and interleaving
+   * pairs in the other log are taken into account, regardless of the source files they relate to.
+   * The merge amounts to a bitwise OR of the yield point bit sets.
+   * </p>
+   * 
+   * @param otherLog The other log.
+   * @since 0.4
+   */
+  public void merge(CCoverageLog otherLog) {
+    _allYieldPoints.or(otherLog._allYieldPoints);
+    _covered.or(otherLog._covered);
+    _sourceFiles.or(otherLog._sourceFiles);
+    _pairs.addAll(otherLog._pairs);
+    _totalYieldPoints = _allYieldPoints.cardinality();
+    _coveredYieldPoints = _covered.cardinality();
+  }
+
+  /**
+   * Get identifiers of the yield points defined in the log.
+   * @return A bit set indexed by yield point identifier (not to be modified).
+   * @since 0.4
+   */
+  BitSet definedIds() {
+    return _allYieldPoints;
+  }
+
+  /**
+   * Check if the yield point with the given identifier is covered.
+   * @param id Yield point identifier.
+   * @return <code>true</code> if the yield point is covered.
+   * @since 0.4
+   */
+  boolean isCovered(int id) {
+    return _covered.get(id);
+  }
+
+  /**
+   * Get the covered interleaving pairs.
+   * @return The set of pairs (not to be modified).
+   * @since 0.4
+   */
+  LongSet interleavingPairs() {
+    return _pairs;
+  }
+
+  /**
+   * Record definition of yield point given its identifier.
+   * @param id Yield point identifier.
+   * @param covered Also mark the yield point as covered.
+   * @since 0.4
+   */
+  void record(int id, boolean covered) {
+    if (covered) {
+      markAsCovered(id);
+    } else {
+      recordDefinition(id);
+    }
+  }
+
+  /**
+   * Mark an interleaving pair given the identifiers of its yield points.
+   * @param first First yield point identifier.
+   * @param second Second yield point identifier.
+   * @return <code>true</code> if the pair had not been covered before.
+   * @since 0.4
+   */
+  boolean markInterleavingPair(int first, int second) {
+    return _pairs.add(((long) first << 32) | second);
+  }
+
   /**
    * Generate a coverage report.
    * @param dirName Directory name inside workspace.
@@ -165,14 +286,70 @@ public final class CCoverageLog implements CCoverage {
     r.writeEntry(getTotalYieldPoints(), getCoveredYieldPoints(),
         getCoverageRate());
     r.beginSection("YIELD POINTS", "COVERED", "SOURCE FILE", "LINE", "SIGNATURE");
-    for (Entry<CYieldPoint, Boolean> e : _allYieldPoints.entrySet()) {
-      r.writeEntry(e.getValue() ? 'Y' : 'N', 
-                   e.getKey().getSourceFile(), 
-                   e.getKey().getSourceLine(), 
-                   e.getKey().getSignature());
+    for (CYieldPoint yp : sortedYieldPoints()) {
+      r.writeEntry(_covered.get(idOf(yp)) ? 'Y' : 'N', 
+                   yp.getSourceFile(), 
+                   yp.getSourceLine(), 
+                   yp.getSignature());
+    }
+    r.beginSection("INTERLEAVING PAIR COVERAGE", "COVERED");
+    r.writeEntry(getCoveredInterleavingPairs());
+    r.beginSection("INTERLEAVING PAIRS", 
+                   "FIRST SOURCE FILE", "FIRST LINE", "FIRST SIGNATURE",
+                   "SECOND SOURCE FILE", "SECOND LINE", "SECOND SIGNATURE");
+    for (CYieldPoint[] pair : sortedPairs()) {
+      r.writeEntry(pair[0].getSourceFile(), pair[0].getSourceLine(), pair[0].getSignature(),
+                   pair[1].getSourceFile(), pair[1].getSourceLine(), pair[1].getSignature());
     }
     r.close();
     return r.getFile();
   }
 
+  @SuppressWarnings("javadoc")
+  private ArrayList<CYieldPoint> sortedYieldPoints() {
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    ArrayList<CYieldPoint> list = new ArrayList<>(_totalYieldPoints);
+    for (int id = _allYieldPoints.nextSetBit(0); id >= 0; id = _allYieldPoints.nextSetBit(id + 1)) {
+      list.add(table.get(id));
+    }
+    Collections.sort(list);
+    return list;
+  }
+
+  @SuppressWarnings("javadoc")
+  private ArrayList<CYieldPoint[]> sortedPairs() {
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    ArrayList<CYieldPoint[]> list = new ArrayList<>(_pairs.size());
+    _pairs.forEach(p -> list.add(new CYieldPoint[] { table.get((int) (p >>> 32)), table.get((int) p) }));
+    Comparator<CYieldPoint[]> cmp = (a, b) -> a[0].compareTo(b[0]);
+    list.sort(cmp.thenComparing((a, b) -> a[1].compareTo(b[1])));
+    return list;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int idOf(CYieldPoint yp) {
+    return yp instanceof CYieldPointImpl ? 
+        ((CYieldPointImpl) yp).getId() : CYieldPointTable.INSTANCE.idOf(yp);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void recordDefinition(int id) {
+    if (!_allYieldPoints.get(id)) {
+      assert CWorkspace.debug("DEF %s", CYieldPointTable.INSTANCE.get(id));
+      _allYieldPoints.set(id);
+      _totalYieldPoints++;
+      _sourceFiles.set(CYieldPointTable.INSTANCE.fileOf(id));
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void markAsCovered(int id) {
+    if (!_covered.get(id)) {
+      _covered.set(id);
+      _coveredYieldPoints++;
+      recordDefinition(id);
+      assert CWorkspace.debug("COVERED %s", CYieldPointTable.INSTANCE.get(id));
+    }
+  }
+
 }
@@ -0,0 +1,227 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.cooperari.core.scheduling.CYieldPoint;
+
+/**
+ * Persistent coverage store.
+ * 
+ * <p>
+ * A coverage store is an append-only binary file holding a sequence of segments, 
+ * each segment containing the contents of a coverage log: the definitions of yield points 
+ * (source file, line, signature), their coverage status, and the covered interleaving pairs.
+ * Several processes may append to the same store, since each segment is written 
+ * in a single operation while holding an exclusive lock on the file.
+ * </p>
+ * 
+ * <p>
+ * Yield point identifiers are only valid within a JVM (see {@link CYieldPointTable}), hence 
+ * yield points are identified within a segment by their position in the segment. 
+ * Interleaving pairs are stored only if both of their yield points are defined in the log.
+ * When a store is loaded, the yield points of each segment are interned once, 
+ * and the segment contents are then merged using the resulting identifiers.
+ * A trailing segment that is incomplete (e.g. due to an abnormal termination of the writer) is ignored.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class CCoverageStore {
+
+  /**
+   * Default file name for a store in the workspace.
+   */
+  public static final String FILE_NAME = "coverage.cdb";
+
+  /**
+   * Magic number for the store file header.
+   */
+  private static final int MAGIC = 0x43434442;
+
+  /**
+   * Format version.
+   */
+  private static final int VERSION = 1;
+
+  /**
+   * Private constructor to avoid instantiation.
+   */
+  private CCoverageStore() {
+
+  }
+
+  /**
+   * Append a coverage log as a new segment to the store in the workspace.
+   * @param log Coverage log.
+   * @return File object for the store.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static File append(CCoverageLog log) throws IOException {
+    File f = new File(CWorkspace.INSTANCE.getRootDirectory(), FILE_NAME);
+    append(f, log);
+    return f;
+  }
+
+  /**
+   * Append a coverage log as a new segment to a store.
+   * The store file is created if it does not exist.
+   * @param f Store file.
+   * @param log Coverage log.
+   * @throws IOException If an I/O error occurs.
+   */
+  public static void append(File f, CCoverageLog log) throws IOException {
+    byte[] segment = encode(log);
+    try (RandomAccessFile raf = new RandomAccessFile(f, "rw"); 
+         FileChannel channel = raf.getChannel()) {
+      FileLock lock = channel.lock();
+      try {
+        write(channel, segment);
+      } finally {
+        lock.release();
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void write(FileChannel channel, byte[] segment) throws IOException {
+    ByteBuffer buf;
+    if (channel.size() == 0) {
+      buf = ByteBuffer.allocate(12 + segment.length);
+      buf.putInt(MAGIC).putInt(VERSION);
+    } else {
+      buf = ByteBuffer.allocate(4 + segment.length);
+    }
+    buf.putInt(segment.length).put(segment).flip();
+    channel.position(channel.size());
+    while (buf.hasRemaining()) {
+      channel.write(buf);
+    }
+    channel.force(false);
+  }
+
+  /**
+   * Load a store, merging all its segments into a coverage log.
+   * @param f Store file.
+   * @param log Coverage log to merge into.
+   * @return Number of segments loaded.
+   * @throws IOException If an I/O error occurs or the file is not a coverage store.
+   */
+  public static int load(File f, CCoverageLog log) throws IOException {
+    int segments = 0;
+    try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(f), 1 << 16))) {
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        throw new IOException("Invalid coverage store: " + f.getAbsolutePath());
+      }
+      while (true) {
+        byte[] segment;
+        try {
+          segment = new byte[in.readInt()];
+          in.readFully(segment);
+        } catch (EOFException e) {
+          break;
+        }
+        decode(segment, log);
+        segments++;
+      }
+    } 
+    return segments;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static byte[] encode(CCoverageLog log) throws IOException {
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    BitSet ids = log.definedIds();
+    int[] position = new int[ids.length()];
+    Arrays.fill(position, -1);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(log.getTotalYieldPoints());
+    int n = 0;
+    for (int id = ids.nextSetBit(0); id >= 0; id = ids.nextSetBit(id + 1)) {
+      CYieldPoint yp = table.get(id);
+      out.writeUTF(yp.getSourceFile());
+      out.writeInt(yp.getSourceLine());
+      out.writeUTF(yp.getSignature());
+      out.writeBoolean(log.isCovered(id));
+      position[id] = n++;
+    }
+    long[] pairs = log.interleavingPairs().toSortedArray();
+    int validPairs = 0;
+    for (int i = 0; i < pairs.length; i++) {
+      int first = positionOf(position, (int) (pairs[i] >>> 32)), second = positionOf(position, (int) pairs[i]);
+      if (first >= 0 && second >= 0) {
+        pairs[validPairs++] = ((long) first << 32) | second;
+      }
+    }
+    out.writeInt(validPairs);
+    for (int i = 0; i < validPairs; i++) {
+      out.writeInt((int) (pairs[i] >>> 32));
+      out.writeInt((int) pairs[i]);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  /**
+   * Get the position of a yield point in a segment.
+   * @param position Positions indexed by yield point identifier.
+   * @param id Yield point identifier.
+   * @return The position, or <code>-1</code> if the yield point is not defined in the segment.
+   */
+  private static int positionOf(int[] position, int id) {
+    return id < position.length ? position[id] : -1;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void decode(byte[] segment, CCoverageLog log) throws IOException {
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    CCoverageLog segmentLog = new CCoverageLog();
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(segment));
+    int[] ids = new int[in.readInt()];
+    for (int i = 0; i < ids.length; i++) {
+      String file = in.readUTF();
+      int line = in.readInt();
+      String signature = in.readUTF();
+      ids[i] = table.idOf(new CYieldPointImpl(signature, file, line));
+      segmentLog.record(ids[i], in.readBoolean());
+    }
+    for (int n = in.readInt(); n > 0; n--) {
+      int first = in.readInt(), second = in.readInt();
+      if (first < 0 || first >= ids.length || second < 0 || second >= ids.length) {
+        throw new IOException("Invalid interleaving pair in coverage store segment: " + first + ", " + second);
+      }
+      segmentLog.markInterleavingPair(ids[first], ids[second]);
+    }
+    log.merge(segmentLog);
+  }
+}
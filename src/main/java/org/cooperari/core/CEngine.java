@@ -78,6 +78,11 @@ public class CEngine extends Thread {
    */
   private final CTrace _trace;
 
+  /**
+   * Yield point counters.
+   */
+  private final CYieldPointCounters _counters;
+
   /**
    * Virtual preemption count.
    */
@@ -108,6 +113,7 @@ public class CEngine extends Thread {
     _runtime.register(this);
     _runtime.register(new CThreadMappings());
     _trace = _runtime.get(CTrace.class);
+    _counters = _runtime.get(CYieldPointCounters.class);
     setUncaughtExceptionHandler(_uncaughtExceptionHandler);
 
     for (Runnable r : runnables) {
@@ -212,6 +218,7 @@ public class CEngine extends Thread {
       if (running != null && !running.isRunning()) {
         // Running thread either (1) yielded or (2) terminated
         _trace.recordStep(running);
+        _counters.hit(running.getLocation().getYieldPoint());
         handleNewThreads();
         if (running.isTerminated()) {
           _threads.remove(running.getCID());
@@ -233,6 +240,10 @@ public class CEngine extends Thread {
               readyThreads.add(t); 
               break;
             case CBLOCKED:
+              _counters.blocked(t.getLocation().getYieldPoint());
+              cannotProgressCount ++;
+              blockedThreads.add(t);
+              break;
             case CWAITING:
               cannotProgressCount ++;
             case CTIMED_WAITING:
@@ -258,8 +269,12 @@ public class CEngine extends Thread {
           if (running == null || !running.isReady()) {
             throw new CInternalError("Scheduler made a wrong decision!");
           }
-          if (running != lastRunning)
+          if (running != lastRunning) {
             _virtualPreemptions++;
+            if (lastRunning != null && lastRunning.isReady()) {
+              _counters.preempted(lastRunning.getLocation().getYieldPoint());
+            }
+          }
           _schedulingSteps++;
           assert CWorkspace.debug("%s will now run", running.getCID());
           running.cResume();
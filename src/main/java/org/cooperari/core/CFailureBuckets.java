@@ -0,0 +1,215 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+
+import org.cooperari.CTest;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.core.util.CReport;
+
+/**
+ * Failure buckets.
+ * 
+ * <p>
+ * Test failures are grouped in buckets according to a fingerprint 
+ * that combines the exception type, a normalized stack trace
+ * (method frames without line numbers, excluding frames for Cooperari, AspectJ, JUnit and reflection),
+ * and the last yield points in the failure trace. 
+ * A failure trace is only written if it is shorter than the trace of its bucket, 
+ * and then becomes the trace of the bucket. Traces are never deleted, 
+ * since each written trace is reported in the result of the failing test.
+ * </p>
+ * 
+ * <p>
+ * Note that only a singleton instance of this type exists ({@link #INSTANCE}).
+ * </p>
+ * 
+ * @since 0.4
+ */
+public enum CFailureBuckets {
+  /**
+   * Singleton instance.
+   */
+  INSTANCE;
+
+  /**
+   * Number of stack frames considered for fingerprints.
+   */
+  private static final int STACK_FRAMES = 8;
+
+  /**
+   * Number of yield points considered for fingerprints.
+   */
+  private static final int YIELD_POINTS = 5;
+
+  /**
+   * Prefixes of classes ignored in stack traces.
+   */
+  private static final String[] IGNORED_FRAMES = {
+    "org.cooperari.", 
+    "org.aspectj.", 
+    "org.junit.", 
+    "junit.", 
+    "sun.reflect.", 
+    "java.lang.reflect.", 
+    "java.lang.Thread"
+  };
+
+  /**
+   * Report id.
+   */
+  private static final String REPORT_ID = "failure_buckets";
+
+  /**
+   * Buckets indexed by fingerprint.
+   */
+  private final LinkedHashMap<String, Bucket> _buckets = new LinkedHashMap<>();
+
+  /**
+   * Record a failure, and save its trace if it is the shortest one in its bucket.
+   * 
+   * @param test Test.
+   * @param trialNumber Trial number.
+   * @param trace Failure trace.
+   * @param failure Failure.
+   * @return The trace file kept for the bucket of the failure.
+   */
+  public synchronized File recordFailure(CTest test, int trialNumber, CTrace trace, Throwable failure) {
+    String fingerprint = fingerprint(failure, trace);
+    Bucket b = _buckets.get(fingerprint);
+    if (b == null) {
+      b = new Bucket(Integer.toHexString(fingerprint.hashCode()), failure.getClass().getCanonicalName());
+      _buckets.put(fingerprint, b);
+    }
+    b._failures++;
+    b._tests.add(test.getSuiteName() + '.' + test.getName());
+    int steps = trace.size();
+    if (b._traceFile == null || steps < b._traceSteps) {
+      File previous = b._traceFile;
+      b._traceFile = CTraceWriter.save(test, trialNumber, trace, Optional.of(failure));
+      b._traceSteps = steps;
+      if (previous != null) {
+        // The previous trace was handed out for an earlier failure, hence it is kept.
+        CWorkspace.log("Trace '%s' superseded by shorter trace '%s' (failure bucket %s).", 
+            previous.getAbsolutePath(), b._traceFile.getAbsolutePath(), b._id);
+      }
+    } else {
+      trace.reset();
+      CWorkspace.log("Trace for trial %d of %s not written, failure bucket %s already has a trace with %d steps: '%s'.", 
+          trialNumber, test.getName(), b._id, b._traceSteps, b._traceFile.getAbsolutePath());
+    }
+    return b._traceFile;
+  }
+
+  /**
+   * Discard all buckets.
+   */
+  public synchronized void reset() {
+    _buckets.clear();
+  }
+
+  /**
+   * Get number of buckets.
+   * @return The number of failure buckets.
+   */
+  public synchronized int size() {
+    return _buckets.size();
+  }
+
+  /**
+   * Get a summary of the failure buckets, one line per bucket.
+   * @return A list of strings.
+   */
+  public synchronized List<String> getSummary() {
+    ArrayList<String> summary = new ArrayList<>();
+    for (Bucket b : _buckets.values()) {
+      summary.add(String.format("%s: %s - %d failure(s) in %d test(s) - trace: '%s' (%d steps)",
+          b._id, b._exceptionType, b._failures, b._tests.size(), 
+          b._traceFile.getAbsolutePath(), b._traceSteps));
+    }
+    return Collections.unmodifiableList(summary);
+  }
+
+  /**
+   * Produce failure bucket report.
+   * @return File object for the report.
+   * @throws IOException If an I/O error occurs.
+   */
+  public synchronized File produceReport() throws IOException {
+    CReport r = CWorkspace.INSTANCE.createReport(".", REPORT_ID);
+    r.beginSection("FAILURE BUCKETS", "ID", "EXCEPTION", "FAILURES", "STEPS", "TRACE", "TESTS");
+    for (Bucket b : _buckets.values()) {
+      r.writeEntry(b._id, b._exceptionType, b._failures, b._traceSteps,
+          b._traceFile.getAbsolutePath(), String.join(" ", b._tests));
+    }
+    r.close();
+    return r.getFile();
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String fingerprint(Throwable failure, CTrace trace) {
+    StringBuilder sb = new StringBuilder(failure.getClass().getName());
+    int frames = 0;
+    for (StackTraceElement e : failure.getStackTrace()) {
+      if (frames == STACK_FRAMES) {
+        break;
+      }
+      if (!ignoreFrame(e.getClassName())) {
+        sb.append('|').append(e.getClassName()).append('.').append(e.getMethodName());
+        frames++;
+      }
+    }
+    for (CYieldPoint yp : trace.getLastYieldPoints(YIELD_POINTS)) {
+      sb.append('|').append(yp.getSourceFile()).append(':').append(yp.getSourceLine())
+        .append(':').append(yp.getSignature());
+    }
+    return sb.toString();
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean ignoreFrame(String className) {
+    for (String prefix : IGNORED_FRAMES) {
+      if (className.startsWith(prefix)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static final class Bucket {
+    final String _id;
+    final String _exceptionType;
+    final LinkedHashSet<String> _tests = new LinkedHashSet<>();
+    int _failures;
+    File _traceFile;
+    int _traceSteps;
+
+    Bucket(String id, String exceptionType) {
+      _id = id;
+      _exceptionType = exceptionType;
+    }
+  }
+}
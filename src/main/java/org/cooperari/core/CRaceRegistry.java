@@ -0,0 +1,171 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+import org.cooperari.CRace;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.core.util.CReport;
+
+/**
+ * Registry of distinct races found over all trials of a test.
+ * 
+ * <p>
+ * Races are keyed by data identifier and the (unordered) pair of yield points 
+ * for the conflicting accesses. For each race, the number of occurrences 
+ * and the trial of first occurrence are kept.
+ * This allows a single exploration to surface every distinct race, 
+ * rather than only the first one.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class CRaceRegistry {
+
+  /**
+   * Entries.
+   */
+  private final HashMap<Entry, Entry> _entries = new HashMap<>();
+
+  /**
+   * Current trial.
+   */
+  private int _trial;
+
+  /**
+   * Constructs an empty registry.
+   */
+  public CRaceRegistry() {
+
+  }
+
+  /**
+   * Signal the start of a test trial.
+   */
+  public void startTestTrial() {
+    _trial++;
+  }
+
+  /**
+   * Record a race.
+   * @param dataId Data identifier.
+   * @param data Data description, used if the race is new.
+   * @param siteA Yield point identifier for one of the accesses (<code>-1</code> if unknown).
+   * @param siteB Yield point identifier for the other access (<code>-1</code> if unknown).
+   * @return <code>true</code> if this is the first occurrence of the race.
+   */
+  public boolean record(int dataId, String data, int siteA, int siteB) {
+    Entry key = new Entry(dataId, Math.min(siteA, siteB), Math.max(siteA, siteB));
+    Entry e = _entries.get(key);
+    if (e == null) {
+      key._data = data;
+      key._firstTrial = _trial;
+      key._count = 1;
+      _entries.put(key, key);
+      return true;
+    } 
+    e._count++;
+    return false;
+  }
+
+  /**
+   * Get number of distinct races.
+   * @return Number of distinct races.
+   */
+  public int size() {
+    return _entries.size();
+  }
+
+  /**
+   * Get races, ordered by trial of first occurrence and then by decreasing number of occurrences.
+   * @return List of races.
+   */
+  public List<CRace> getRaces() {
+    ArrayList<Entry> entries = new ArrayList<>(_entries.values());
+    entries.sort((a, b) -> {
+      int cmp = Integer.compare(a._firstTrial, b._firstTrial);
+      return cmp != 0 ? cmp : Integer.compare(b._count, a._count);
+    });
+    ArrayList<CRace> list = new ArrayList<>(entries.size());
+    for (Entry e : entries) {
+      list.add(new CRace(e._data, yieldPoint(e._siteA), yieldPoint(e._siteB), e._count, e._firstTrial));
+    }
+    return list;
+  }
+
+  /**
+   * Produce race report.
+   * @param dirName Directory name.
+   * @param reportId Report id.
+   * @return Report file.
+   * @throws IOException If an I/O error occurs.
+   */
+  public File produceReport(String dirName, String reportId) throws IOException {
+    CReport r = CWorkspace.INSTANCE.createReport(dirName, reportId + ".races");
+    r.beginSection("RACES", "DATA", "COUNT", "FIRST TRIAL", 
+                   "SOURCE FILE A", "LINE A", "SIGNATURE A", 
+                   "SOURCE FILE B", "LINE B", "SIGNATURE B");
+    for (CRace race : getRaces()) {
+      CYieldPoint a = race.getFirstYieldPoint(), b = race.getSecondYieldPoint();
+      r.writeEntry(race.getData(), race.getCount(), race.getFirstTrial(),
+                   a != null ? a.getSourceFile() : "-", a != null ? a.getSourceLine() : 0, a != null ? a.getSignature() : "-",
+                   b != null ? b.getSourceFile() : "-", b != null ? b.getSourceLine() : 0, b != null ? b.getSignature() : "-");
+    }
+    r.close();
+    return r.getFile();
+  }
+
+  @SuppressWarnings("javadoc")
+  private static CYieldPoint yieldPoint(int site) {
+    return site >= 0 ? CYieldPointTable.INSTANCE.get(site) : null;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static final class Entry {
+    final int _dataId;
+    final int _siteA;
+    final int _siteB;
+    String _data;
+    int _count;
+    int _firstTrial;
+
+    Entry(int dataId, int siteA, int siteB) {
+      _dataId = dataId;
+      _siteA = siteA;
+      _siteB = siteB;
+    }
+
+    @Override
+    public int hashCode() {
+      return (_dataId * 31 + _siteA) * 31 + _siteB;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry other = (Entry) o;
+      return _dataId == other._dataId && _siteA == other._siteA && _siteB == other._siteB;
+    }
+  }
+}
@@ -267,6 +267,22 @@ public class CRuntime {
     }
   }
 
+  /**
+   * Signal the start of a test trial to features.
+   * 
+   * @see CFeature#startTestTrial(CRuntime)
+   * @see CFeature
+   * @since 0.4
+   */
+  public void startTestTrial() {
+    boolean cMode = CSystem.inCooperativeMode();
+    for (CFeature fh : CAllFeatures.getFeatures()) {
+      if (cMode || !fh.cooperativeSemanticsRequired()) {
+        fh.startTestTrial(this);
+      }
+    }
+  }
+
   /**
    * Shutdown features.
    * 
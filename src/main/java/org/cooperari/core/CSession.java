@@ -18,19 +18,21 @@ package org.cooperari.core;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Optional;
+import java.util.Collections;
+import java.util.List;
 
+import org.cooperari.CRace;
 import org.cooperari.CSystem;
 import org.cooperari.CTest;
 import org.cooperari.CTestResult;
 import org.cooperari.config.CGenerateCoverageReports;
+import org.cooperari.config.CInterleavingCoverage;
 import org.cooperari.config.CMaxTrials;
 import org.cooperari.config.CScheduling;
 import org.cooperari.config.CTimeLimit;
 import org.cooperari.config.CTraceOptions;
 import org.cooperari.core.aspectj.AgentFacade;
 import org.cooperari.core.scheduling.CScheduler;
-import org.cooperari.core.util.CReport;
 import org.cooperari.errors.CCheckedExceptionError;
 import org.cooperari.errors.CConfigurationError;
 import org.cooperari.errors.CHotspotError;
@@ -167,6 +169,8 @@ public final class CSession {
     int trials = 0;
     Throwable failure;
     long timeLimit = _currentRuntime.getConfiguration(CTimeLimit.class).value() * 1000L;
+    int pairSaturation = _currentRuntime.getConfiguration(CInterleavingCoverage.class).saturation();
+    int trialsWithoutNewPairs = 0;
 
     HotspotHandler hHandler = new HotspotHandler(_currentRuntime);
     _currentRuntime.register(hHandler);
@@ -177,43 +181,76 @@ public final class CSession {
     CCoverageLog clog = new CCoverageLog();
     CTrace trace = new CTrace(clog, traceOptions);
     _currentRuntime.register(trace);
+    CYieldPointCounters counters = new CYieldPointCounters();
+    _currentRuntime.register(counters);
+    CRaceRegistry races = new CRaceRegistry();
+    _currentRuntime.register(races);
+    CTraceWriter traceWriter = traceOptions.logEveryTrace() ? new CTraceWriter(test) : null;
+    Throwable abortCause = null;
 
-    do {
-      failure = null;
-      trials++;
-      trace.reset();
-      hHandler.startTestTrial();
-      scheduler.onTestStarted();
-      CEngine s = new CEngine(_currentRuntime, scheduler, test);
-      s.start();
-      try {
-        s.join();
-      } catch (InterruptedException e) {
-        throw new CInternalError(e);
-      }
-      scheduler.onTestFinished();
-      try {
-        s.rethrowExceptionsIfAny();
-        hHandler.endTestTrial();
+    try {
+      do {
+        failure = null;
+        trials++;
+        int pairsBefore = clog.getCoveredInterleavingPairs();
+        trace.reset();
+        races.startTestTrial();
+        _currentRuntime.startTestTrial();
+        hHandler.startTestTrial();
+        scheduler.onTestStarted();
+        CEngine s = new CEngine(_currentRuntime, scheduler, test);
+        s.start();
         try {
-          test.onNormalCompletion();
+          s.join();
+        } catch (InterruptedException e) {
+          throw new CInternalError(e);
+        }
+        scheduler.onTestFinished();
+        try {
+          s.rethrowExceptionsIfAny();
+          hHandler.endTestTrial();
+          try {
+            test.onNormalCompletion();
+          } catch (Throwable e) {
+            failure = e;
+          }
         } catch (Throwable e) {
-          failure = e;
+          assert CWorkspace.debug(Thread.currentThread(), e);
+          if (test.ignoreException(e) == false) {
+            failure = e;
+          }
         }
-      } catch (Throwable e) {
-        assert CWorkspace.debug(Thread.currentThread(), e);
-        if (test.ignoreException(e) == false) {
-          failure = e;
+        if (failure == null && traceWriter != null) {
+          traceWriter.submit(trials, trace.detach());
+        }
+        if (clog.getCoveredInterleavingPairs() > pairsBefore) {
+          trialsWithoutNewPairs = 0;
+        } else {
+          trialsWithoutNewPairs++;
+        }
+        done = failure != null
+            || !scheduler.continueTrials()
+            || (pairSaturation > 0 && trialsWithoutNewPairs >= pairSaturation)
+            || trials >= maxTrials.value()
+            || (timeLimit > 0 && System.currentTimeMillis() - startTime >= timeLimit);
+      } while (!done);
+    } catch (Throwable e) {
+      abortCause = e;
+      throw e;
+    } finally {
+      // Flush pending traces, also if the session is aborted by an error.
+      // In that case, a failure to write traces must not hide the error at stake.
+      if (traceWriter != null) {
+        try {
+          traceWriter.close();
+        } catch (Throwable e) {
+          if (abortCause == null) {
+            throw e;
+          }
+          abortCause.addSuppressed(e);
         }
       }
-      if (failure == null && traceOptions.logEveryTrace()) {
-        saveTrace(test, trials, trace, Optional.empty());
-      }
-      done = failure != null
-          || !scheduler.continueTrials()
-          || trials >= maxTrials.value()
-          || (timeLimit > 0 && System.currentTimeMillis() - startTime >= timeLimit);
-    } while (!done);
+    }
 
     if (failure != null) {
       if (failure instanceof CCheckedExceptionError) {
@@ -229,7 +266,7 @@ public final class CSession {
     File traceFile = null;
     
     if (failure != null) {
-      traceFile = saveTrace(test, trials, trace, Optional.of(failure));
+      traceFile = CFailureBuckets.INSTANCE.recordFailure(test, trials, trace, failure);
     }
     long timeElapsed = System.currentTimeMillis() - startTime;
 
@@ -244,12 +281,21 @@ public final class CSession {
     if (_currentRuntime.getConfiguration(CGenerateCoverageReports.class).value()) {
       try {
         clog.produceCoverageReport(test.getSuiteName(), test.getName());
+        counters.produceReport(test.getSuiteName(), test.getName());
       } 
       catch(IOException e) {
         throw new CInternalError(e);  
       }
     }
-    return new CTestResultImpl(trials, timeElapsed, clog, failure, traceFile);
+    if (races.size() > 0) {
+      try {
+        races.produceReport(test.getSuiteName(), test.getName());
+      } 
+      catch(IOException e) {
+        throw new CInternalError(e);  
+      }
+    }
+    return new CTestResultImpl(trials, timeElapsed, clog, failure, traceFile, races.getRaces());
   }
 
   /**
@@ -282,6 +328,7 @@ public final class CSession {
       assert CWorkspace.debug("== TRIAL %d of %s ==", trials, test.getName());
       failure = null;
       trials++;
+      _currentRuntime.startTestTrial();
       hHandler.startTestTrial();
 
       try {
@@ -317,28 +364,7 @@ public final class CSession {
       failure = failure.getCause();
     }
 
-    return new CTestResultImpl(trials, timeElapsed, null, failure, null);
-  }
-
-  @SuppressWarnings("javadoc")
-  private static File saveTrace(CTest test, int trialNumber, CTrace trace, Optional<Throwable> failure) {
-    try {
-      CReport report = CWorkspace.INSTANCE.createReport(test.getSuiteName(), test.getName() + "." + trialNumber + ".trace");
-      try { 
-        trace.save(report, failure);
-        CWorkspace.log("Trace for trial %d of %s written to '%s'.", trialNumber, test.getName(),
-            report.getFile().getAbsolutePath());
-        return report.getFile();
-      } finally {
-        trace.reset();
-        report.close();
-      }
-    } catch (Throwable e) {
-      CWorkspace.log("Error generating trace file for %s: %s", 
-          test.getName(), e.getMessage());
-      CWorkspace.log(e);
-      throw new CInternalError(e);
-    } 
+    return new CTestResultImpl(trials, timeElapsed, null, failure, null, Collections.emptyList());
   }
 
   @SuppressWarnings("javadoc")
@@ -347,17 +373,21 @@ public final class CSession {
     final long _executionTime;
     final int _yieldPoints;
     final int _yieldPointsCovered;
+    final int _pairsCovered;
     final Throwable _failure;
     final File _failureTrace;
+    final List<CRace> _races;
 
     CTestResultImpl(int trials, long timeElapsed, CCoverageLog clog,
-        Throwable failure, File failureTrace) {
+        Throwable failure, File failureTrace, List<CRace> races) {
       _trials = trials;
       _executionTime = timeElapsed;
       _yieldPoints = clog != null ? clog.getTotalYieldPoints() : 0;
       _yieldPointsCovered = clog != null ? clog.getCoveredYieldPoints() : 0;
+      _pairsCovered = clog != null ? clog.getCoveredInterleavingPairs() : 0;
       _failure = failure;
       _failureTrace = failureTrace;
+      _races = Collections.unmodifiableList(races);
     }
 
     @Override
@@ -395,6 +425,16 @@ public final class CSession {
     public int getTotalYieldPoints() {
       return _yieldPoints;
     }
+
+    @Override 
+    public int getCoveredInterleavingPairs() {
+      return _pairsCovered;
+    }
+
+    @Override 
+    public List<CRace> getRaces() {
+      return _races;
+    }
   }
 
 }
@@ -111,6 +111,11 @@ public final class CThread extends Thread implements CThreadHandle {
    */
   private CYieldPoint _yieldPoint;
 
+  /**
+   * AspectJ join point last intercepted, if the current yield point is one.
+   */
+  private JoinPoint _joinPoint;
+
   /**
    * Thread's yield point.
    */
@@ -262,6 +267,31 @@ public final class CThread extends Thread implements CThreadHandle {
     return _atYieldPoint;
   }
 
+  /**
+   * Get identifier of the yield point last intercepted for this thread.
+   * 
+   * @return Yield point identifier, or <code>-1</code> if no yield point was intercepted.
+   * @see CYieldPointImpl#getId()
+   * @since 0.4
+   */
+  public int getYieldPointId() {
+    if (_yieldPoint == null) {
+      return -1;
+    }
+    return _yieldPoint instanceof CYieldPointImpl ? 
+        ((CYieldPointImpl) _yieldPoint).getId() : CYieldPointTable.INSTANCE.idOf(_yieldPoint);
+  }
+
+  /**
+   * Get the AspectJ join point for the yield point last intercepted for this thread.
+   * 
+   * @return The join point, or <code>null</code> if the yield point is not an AspectJ join point.
+   * @since 0.4
+   */
+  public JoinPoint getJoinPoint() {
+    return _joinPoint;
+  }
+
   /**
    * Intercept thread, if a CThread.
    * 
@@ -272,7 +302,26 @@ public final class CThread extends Thread implements CThreadHandle {
   public static CThread intercept(JoinPoint jp) {
     CThread ct = self();
     if (ct != null) {
-      ct._yieldPoint = new CYieldPointImpl(jp.getStaticPart());
+      ct._yieldPoint = CYieldPointImpl.of(jp.getStaticPart());
+      ct._joinPoint = jp;
+    }
+    return ct;
+  }
+
+  /**
+   * Intercept thread at a given yield point, if a CThread.
+   * This is used for yield points that are not AspectJ join points.
+   * 
+   * @param yp Yield point.
+   * @return A <code>CThread</code> if current thread is cooperative,
+   *         <code>null</code> otherwise.
+   * @since 0.4
+   */
+  public static CThread intercept(CYieldPoint yp) {
+    CThread ct = self();
+    if (ct != null) {
+      ct._yieldPoint = yp;
+      ct._joinPoint = null;
     }
     return ct;
   }
@@ -519,6 +568,16 @@ public final class CThread extends Thread implements CThreadHandle {
     }
   }
 
+  /**
+   * Test if the thread has been ordered to stop.
+   * 
+   * @return <code>true</code> if {@link #cStop(Throwable)} has been called for the thread.
+   * @since 0.4
+   */
+  public boolean isDying() {
+    return _dying;
+  }
+
   // EVENT HANDLING
   /**
    * Create new event and increment logical clock for events.
@@ -46,12 +46,7 @@ public final class CThreadMappings {
    * @throws CInternalError If no  <code>t</code> has no association to a cooperative thread.
    */
   public CThread getCThread(Thread t) throws CInternalError {
-    CThread ct; 
-    if (t instanceof CThread) {
-      ct = (CThread) t; 
-    } else {
-      ct = _map.get(t);
-    }
+    CThread ct = findCThread(t);
     if (ct == null) {
       throw new CInternalError(
           String.format("No cooperative thread associated to thread '%s' of type '%s'.",
@@ -60,6 +55,16 @@ public final class CThreadMappings {
     return ct;
   }
   
+  /**
+   * Gets the {@link CThread} instance that renders the execution of a given {@link Thread}, if any.
+   * @param t Thread.
+   * @return {@link CThread} instance, or <code>null</code> if <code>t</code> has no association to a cooperative thread.
+   * @since 0.4
+   */
+  public CThread findCThread(Thread t) {
+    return t instanceof CThread ? (CThread) t : _map.get(t);
+  }
+
   /**
    * Create a {@link Thread}-to-{@link CThread} association.
    * @param t Thread.
@@ -17,8 +17,12 @@
 package org.cooperari.core;
 
 import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Optional;
 
@@ -26,10 +30,25 @@ import org.cooperari.config.CTraceOptions;
 import org.cooperari.core.scheduling.CThreadLocation;
 import org.cooperari.core.scheduling.CYieldPoint;
 import org.cooperari.core.util.CReport;
+import org.cooperari.core.util.LongIntMap;
 
 /**
  * Cooperative execution trace.
  * 
+ * <p>
+ * Steps are kept in encoded form. Consecutive steps of the same thread are
+ * grouped in chunks, each chunk being a sequence of thread locations 
+ * stored in a dictionary, such that chunks with the same contents are shared.
+ * A new chunk begins when a thread returns to a location already in 
+ * the current chunk (typically, a new loop iteration), and consecutive
+ * repetitions of the same chunk by the same thread are run-length encoded.
+ * Locations themselves are also dictionary-encoded.
+ * The size limit of the trace (see {@link CTraceOptions#limit()}) 
+ * applies to the number of steps: when it is exceeded, the oldest steps are discarded,
+ * splitting the first run if necessary, and the dictionaries are compacted 
+ * once they hold many entries no longer referred to.
+ * </p>
+ * 
  * @since 0.2
  *
  */
@@ -44,6 +63,11 @@ public final class CTrace {
      * Race condition.
      */
     RACE('R'),
+    /**
+     * Atomicity violation.
+     * @since 0.4
+     */
+    ATOMICITY_VIOLATION('A'),
     /**
      * Deadlock
      */
@@ -72,19 +96,99 @@ public final class CTrace {
   };
 
   /**
-   * Size limit.
+   * Marker for steps that are not associated to an event.
+   */
+  private static final char NO_EVENT = '-';
+
+  /**
+   * Maximum number of steps in a chunk.
+   */
+  private static final int MAX_CHUNK_LENGTH = 256;
+
+  /**
+   * Size limit, in steps.
    */
   private final int _sizeLimit;
 
   /**
-   * Trace steps.
+   * Compact output flag.
+   */
+  private final boolean _compactOutput;
+
+  /**
+   * Chrome trace output flag.
+   */
+  private final boolean _chromeTrace;
+
+  /**
+   * Encoded trace steps.
+   */
+  private ArrayDeque<Run> _runs = new ArrayDeque<>();
+
+  /**
+   * Number of steps in {@link #_runs}.
+   */
+  private int _steps;
+
+  /**
+   * Location dictionary, keyed by yield point identifier and stage (see {@link #locationKey}).
+   */
+  private LongIntMap _locationIds = new LongIntMap();
+
+  /**
+   * Locations indexed by their dictionary id.
+   */
+  private ArrayList<CThreadLocation> _locations = new ArrayList<>();
+
+  /**
+   * Chunk dictionary.
+   */
+  private HashMap<Chunk, Chunk> _chunks = new HashMap<>();
+
+  /**
+   * Thread id for current (open) chunk, <code>-1</code> if there is no open chunk.
+   */
+  private int _openThreadId = -1;
+
+  /**
+   * First thread step for current (open) chunk.
    */
-  private final ArrayDeque<TraceItem> _traceElements = new ArrayDeque<>();
+  private int _openFirstStep;
+
+  /**
+   * Locations for the current chunk.
+   */
+  private int[] _openLocations = new int[16];
+
+  /**
+   * Length of current chunk.
+   */
+  private int _openLength;
+
+  /**
+   * Serial number of current chunk.
+   */
+  private int _openSerial;
+
+  /**
+   * Serial number of the last chunk that included each location, indexed by location id.
+   */
+  private int[] _chunkMarks = new int[16];
+
+  /**
+   * Thread id for the last recorded step.
+   */
+  private int _lastThreadId = -1;
+
+  /**
+   * Yield point for the last recorded step (<code>null</code> if internal).
+   */
+  private CYieldPoint _lastYieldPoint;
 
   /**
    * Map of thread identifiers to names.
    */
-  private final HashMap<Integer,ThreadInfo> _threadNames = new HashMap<>();
+  private HashMap<Integer,ThreadInfo> _threadNames = new HashMap<>();
   
 
   /**
@@ -100,8 +204,55 @@ public final class CTrace {
   public CTrace(CCoverageLog clog, CTraceOptions options) {
     _clog = clog;
     _sizeLimit = options.limit();
+    _compactOutput = options.compact();
+    _chromeTrace = options.chromeTrace();
+  }
+
+  /**
+   * Constructor for detached traces.
+   * @param source Source trace.
+   * @see #detach()
+   */
+  private CTrace(CTrace source) {
+    _clog = source._clog;
+    _sizeLimit = source._sizeLimit;
+    _compactOutput = source._compactOutput;
+    _chromeTrace = source._chromeTrace;
+    source.closeChunk();
+    _runs = source._runs;
+    _steps = source._steps;
+    _locationIds = source._locationIds;
+    _locations = source._locations;
+    _chunks = source._chunks;
+    _threadNames = source._threadNames;
   }
 
+  /**
+   * Detach the current contents of this trace.
+   * 
+   * <p>
+   * The recorded steps are handed over to a new trace object without being copied,
+   * and this trace is left empty, as after a call to {@link #reset()}.
+   * The returned trace may then be saved asynchronously while this one is 
+   * reused for further recording.
+   * </p>
+   * 
+   * @return A trace object holding the previous contents of this trace.
+   */
+  public CTrace detach() {
+    CTrace snapshot = new CTrace(this);
+    _runs = new ArrayDeque<>();
+    _steps = 0;
+    _locationIds = new LongIntMap();
+    _locations = new ArrayList<>();
+    _chunks = new HashMap<>();
+    _threadNames = new HashMap<>();
+    _chunkMarks = new int[16];
+    _openSerial = 0;
+    _lastThreadId = -1;
+    _lastYieldPoint = null;
+    return snapshot;
+  }
 
   /**
    * Record existence of thread. 
@@ -126,16 +277,81 @@ public final class CTrace {
    * @param type event type
    */
   public void record(CThread t, EventType type) {
-    CYieldPoint yp = t.getLocation().getYieldPoint();
+    record(t.getCID(), t.getStep(), t.getLocation(), type);
+  }
+
+  /**
+   * Record an event for one thread, given the thread's id, step and location.
+   * @param tid Thread id.
+   * @param step Thread step.
+   * @param location Thread location.
+   * @param type Event type (<code>null</code> for a plain step).
+   * @since 0.4
+   */
+  public void record(int tid, int step, CThreadLocation location, EventType type) {
+    CYieldPoint yp = location.getYieldPoint();
     if (yp.getSourceFile() != CYieldPointImpl.INTERNAL) {
       _clog.markAsCovered(yp);
+      if (type == null && tid != _lastThreadId && _lastYieldPoint != null) {
+        _clog.markInterleavingPair(_lastYieldPoint, yp);
+      }
+      _lastYieldPoint = yp;
+    } else {
+      _lastYieldPoint = null;
+    }
+    _lastThreadId = tid;
+    int locId = locationId(location);
+    if (type != null) {
+      closeChunk();
+      addRun(tid, step, intern(new int[] { locId }), type.getTraceMarker());
+    } else {
+      if (tid != _openThreadId 
+          || step != _openFirstStep + _openLength 
+          || _openLength == MAX_CHUNK_LENGTH
+          || _chunkMarks[locId] == _openSerial) {
+        closeChunk();
+        _openThreadId = tid;
+        _openFirstStep = step;
+        _openSerial++;
+      } 
+      if (_openLength == _openLocations.length) {
+        _openLocations = Arrays.copyOf(_openLocations, _openLength * 2);
+      }
+      _openLocations[_openLength++] = locId;
+      _chunkMarks[locId] = _openSerial;
     }
-    _traceElements.addLast(new TraceItem(t, type));
-    if (_sizeLimit > 0 && _traceElements.size() == _sizeLimit) {
-      _traceElements.removeFirst();
+    if (_sizeLimit > 0 && size() > _sizeLimit) {
+      trim(size() - _sizeLimit);
     }
   }
 
+  /**
+   * Get number of steps in the trace.
+   * @return The number of steps.
+   */
+  public int size() {
+    return _steps + _openLength;
+  }
+
+  /**
+   * Get the most recent yield points in the trace, excluding internal ones.
+   * @param n Maximum number of yield points.
+   * @return An array with at most <code>n</code> yield points, in execution order.
+   */
+  public CYieldPoint[] getLastYieldPoints(int n) {
+    ArrayDeque<CYieldPoint> last = new ArrayDeque<>(n + 1);
+    forEachStep((tid, step, marker, location) -> {
+      CYieldPoint yp = location.getYieldPoint();
+      if (yp.getSourceFile() != CYieldPointImpl.INTERNAL) {
+        last.addLast(yp);
+        if (last.size() > n) {
+          last.removeFirst();
+        }
+      }
+    });
+    return last.toArray(new CYieldPoint[last.size()]);
+  }
+
   /**
    * Write trace to a output file.
    * @param report Output file.
@@ -149,43 +365,413 @@ public final class CTrace {
       ThreadInfo ti = entry.getValue();
       report.writeEntry(entry.getKey(), ti.getName(), ti.getClassName());
     }
-    // Write step info
-    int stepId = 0;  
-    report.beginSection("EXECUTION TRACE", 
-                        "#", 
-                        "TID", 
-                        "STEP", 
-                        "EVENT",
+    if (_compactOutput) {
+      saveCompact(report);
+    } else {
+      // Write step info
+      report.beginSection("EXECUTION TRACE", 
+                          "#", 
+                          "TID", 
+                          "STEP", 
+                          "EVENT",
+                          "SOURCE FILE", 
+                          "LINE", 
+                          "YIELD POINT", 
+                          "STAGE"); 
+      int[] stepId = { 0 };
+      forEachStep((tid, step, marker, location) -> {
+        CYieldPoint yp = location.getYieldPoint();
+        report.writeEntry(stepId[0], 
+                          tid, 
+                          step, 
+                          marker,
+                          yp.getSourceFile(), 
+                          yp.getSourceLine(), 
+                          yp.getSignature(), 
+                          location.getStage());
+        stepId[0]++;
+      });
+    }
+    if (failure.isPresent()) {
+      report.beginSection("STACK TRACE FOR FAILURE");
+      report.dumpStackTrace(failure.get());
+    }
+  }
+  
+  /**
+   * Check if the trace should also be exported in Chrome trace-event format.
+   * @return <code>true</code> if Chrome trace output is enabled.
+   * @see CTraceOptions#chromeTrace()
+   * @see #saveAsChromeTrace(Writer)
+   */
+  boolean chromeTraceEnabled() {
+    return _chromeTrace;
+  }
+
+  /**
+   * Write trace in Chrome trace-event (JSON) format.
+   * 
+   * <p>
+   * Each thread is represented by a track, and each step by a slice 
+   * on that track. Time is measured in logical units: step <code>n</code> 
+   * of the trace starts at timestamp <code>n</code> and lasts one unit. 
+   * Events (e.g., races or deadlocks) are represented by instant markers.
+   * The output is streamed, i.e., no intermediate representation is built
+   * for the trace as a whole.
+   * </p>
+   * 
+   * @param out Output writer.
+   * @throws IOException If an I/O error occurs.
+   */
+  public void saveAsChromeTrace(Writer out) throws IOException {
+    out.write("{\"displayTimeUnit\":\"ns\",\"traceEvents\":[\n");
+    boolean first = true;
+    for (Map.Entry<Integer, ThreadInfo> entry : _threadNames.entrySet()) {
+      if (!first) {
+        out.write(",\n");
+      }
+      first = false;
+      out.write("{\"name\":\"thread_name\",\"ph\":\"M\",\"pid\":0,\"tid\":");
+      out.write(Integer.toString(entry.getKey()));
+      out.write(",\"args\":{\"name\":");
+      writeJSONString(out, entry.getValue().getName());
+      out.write("}}");
+    }
+    int[] ts = { 0 };
+    boolean[] needsComma = { !first };
+    forEachStep((tid, step, marker, location) -> {
+      if (needsComma[0]) {
+        out.write(",\n");
+      }
+      needsComma[0] = true;
+      CYieldPoint yp = location.getYieldPoint();
+      if (marker == NO_EVENT) {
+        out.write("{\"ph\":\"X\",\"cat\":\"step\",\"name\":");
+        writeJSONString(out, yp.getSignature());
+        out.write(",\"dur\":1");
+      } else {
+        out.write("{\"ph\":\"i\",\"s\":\"t\",\"cat\":\"event\",\"name\":");
+        writeJSONString(out, eventName(marker));
+      }
+      out.write(",\"ts\":");
+      out.write(Integer.toString(ts[0]));
+      out.write(",\"pid\":0,\"tid\":");
+      out.write(Integer.toString(tid));
+      out.write(",\"args\":{\"step\":");
+      out.write(Integer.toString(step));
+      out.write(",\"file\":");
+      writeJSONString(out, yp.getSourceFile());
+      out.write(",\"line\":");
+      out.write(Integer.toString(yp.getSourceLine()));
+      out.write(",\"stage\":");
+      out.write(Integer.toString(location.getStage()));
+      out.write("}}");
+      ts[0]++;
+    });
+    out.write("\n]}\n");
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String eventName(char marker) {
+    for (EventType e : EventType.values()) {
+      if (e.getTraceMarker() == marker) {
+        return e.name();
+      }
+    }
+    return String.valueOf(marker);
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void writeJSONString(Writer out, String s) throws IOException {
+    out.write('"');
+    for (int i = 0; i < s.length(); i++) {
+      char c = s.charAt(i);
+      switch (c) {
+        case '"':
+          out.write("\\\"");
+          break;
+        case '\\':
+          out.write("\\\\");
+          break;
+        case '\n':
+          out.write("\\n");
+          break;
+        case '\t':
+          out.write("\\t");
+          break;
+        default:
+          if (c < 0x20) {
+            out.write(String.format("\\u%04x", (int) c));
+          } else {
+            out.write(c);
+          }
+      }
+    }
+    out.write('"');
+  }
+
+  /**
+   * Write trace steps in compact form.
+   * @param report Output file.
+   */
+  private void saveCompact(CReport report) {
+    closeChunk();
+    report.beginSection("LOCATIONS", 
+                        "ID", 
                         "SOURCE FILE", 
                         "LINE", 
                         "YIELD POINT", 
-                        "STAGE"); 
-    for (TraceItem traceItem : _traceElements) {
-      CThreadLocation location = traceItem.getLocation();
+                        "STAGE");
+    int locId = 0;
+    for (CThreadLocation location : _locations) {
       CYieldPoint yp = location.getYieldPoint();
-      report.writeEntry(stepId, 
-                        traceItem.getThreadId(), 
-                        traceItem.getThreadStep(), 
-                        traceItem.getEventMarker(),
+      report.writeEntry(locId, 
                         yp.getSourceFile(), 
                         yp.getSourceLine(), 
                         yp.getSignature(), 
                         location.getStage());
-      stepId++;
+      locId++;
     }
-    
-    if (failure.isPresent()) {
-      report.beginSection("STACK TRACE FOR FAILURE");
-      report.dumpStackTrace(failure.get());
+    IdentityHashMap<Chunk,Integer> chunkIds = new IdentityHashMap<>();
+    report.beginSection("CHUNKS", "ID", "LOCATIONS");
+    for (Run run : _runs) {
+      if (!chunkIds.containsKey(run._chunk)) {
+        int chunkId = chunkIds.size();
+        chunkIds.put(run._chunk, chunkId);
+        StringBuilder sb = new StringBuilder();
+        for (int id : run._chunk._locations) {
+          if (sb.length() > 0) {
+            sb.append(' ');
+          }
+          sb.append(id);
+        }
+        report.writeEntry(chunkId, sb);
+      }
+    }
+    report.beginSection("COMPACT EXECUTION TRACE", 
+                        "#", 
+                        "TID", 
+                        "STEP", 
+                        "EVENT", 
+                        "CHUNK", 
+                        "REPEAT");
+    int stepId = 0;
+    for (Run run : _runs) {
+      report.writeEntry(stepId, 
+                        run._threadId, 
+                        run._firstStep, 
+                        run._eventMarker, 
+                        chunkIds.get(run._chunk), 
+                        run._repeat);
+      stepId += run.steps();
     }
   }
-  
+
   /**
    * Reset.
    */
   public void reset() {
-    _traceElements.clear();
+    _runs.clear();
+    _steps = 0;
+    _locationIds.clear();
+    _locations.clear();
+    _chunks.clear();
     _threadNames.clear();
+    _openThreadId = -1;
+    _openLength = 0;
+    _openSerial = 0;
+    Arrays.fill(_chunkMarks, 0);
+    _lastThreadId = -1;
+    _lastYieldPoint = null;
+  }
+
+  /**
+   * Iterate over all steps in the trace.
+   * @param c Consumer for steps.
+   */
+  private <E extends Exception> void forEachStep(StepConsumer<E> c) throws E {
+    for (Run run : _runs) {
+      int step = run._firstStep;
+      for (int r = 0; r < run._repeat; r++) {
+        for (int locId : run._chunk._locations) {
+          c.accept(run._threadId, step, run._eventMarker, _locations.get(locId));
+          step++;
+        }
+      }
+    }
+    for (int i = 0; i < _openLength; i++) {
+      c.accept(_openThreadId, _openFirstStep + i, NO_EVENT, _locations.get(_openLocations[i]));
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private int locationId(CThreadLocation location) {
+    long key = locationKey(location);
+    int id = _locationIds.get(key, -1);
+    if (id < 0) {
+      id = _locations.size();
+      _locations.add(location);
+      _locationIds.put(key, id);
+      if (id == _chunkMarks.length) {
+        _chunkMarks = Arrays.copyOf(_chunkMarks, id * 2);
+      }
+      _chunkMarks[id] = -1;
+    }
+    return id;
+  }
+
+  /**
+   * Get the dictionary key for a location, packing the yield point identifier and the stage.
+   * Locations are created anew for each step, hence the key avoids hashing and comparing 
+   * them as objects.
+   * @param location Location.
+   * @return The key.
+   */
+  private static long locationKey(CThreadLocation location) {
+    CYieldPoint yp = location.getYieldPoint();
+    int ypId = yp instanceof CYieldPointImpl ? 
+        ((CYieldPointImpl) yp).getId() : CYieldPointTable.INSTANCE.idOf(yp);
+    return ((long) ypId << 32) | (location.getStage() & 0xFFFFFFFFL);
+  }
+
+  @SuppressWarnings("javadoc")
+  private Chunk intern(int[] locations) {
+    Chunk c = new Chunk(locations);
+    Chunk existing = _chunks.putIfAbsent(c, c);
+    return existing != null ? existing : c;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void closeChunk() {
+    if (_openLength > 0) {
+      Chunk c = intern(Arrays.copyOf(_openLocations, _openLength));
+      Run last = _runs.peekLast();
+      if (last != null 
+          && last._chunk == c 
+          && last._threadId == _openThreadId 
+          && last._eventMarker == NO_EVENT
+          && last._firstStep + last.steps() == _openFirstStep) {
+        last._repeat++;
+        _steps += c._locations.length;
+      } else {
+        addRun(_openThreadId, _openFirstStep, c, NO_EVENT);
+      }
+      _openLength = 0;
+    }
+    _openThreadId = -1;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void addRun(int tid, int firstStep, Chunk chunk, char marker) {
+    _runs.addLast(new Run(tid, firstStep, chunk, marker));
+    _steps += chunk._locations.length;
+  }
+
+  /**
+   * Discard the oldest steps in the trace.
+   * 
+   * <p>
+   * Runs are discarded or shortened from the start of the trace. The location
+   * and chunk dictionaries are rebuilt when they hold many more entries than the 
+   * remaining runs may refer to, hence the memory used by a limited trace is
+   * proportional to the size limit.
+   * </p>
+   * 
+   * @param n Number of steps to discard.
+   */
+  private void trim(int n) {
+    if (n > _steps) {
+      // Only possible if the limit is shorter than the open chunk.
+      closeChunk();
+    }
+    while (n > 0) {
+      Run first = _runs.peekFirst();
+      int len = first._chunk._locations.length;
+      if (first.steps() <= n) {
+        _runs.removeFirst();
+        _steps -= first.steps();
+        n -= first.steps();
+      } else {
+        int reps = n / len;
+        first._repeat -= reps;
+        first._firstStep += reps * len;
+        _steps -= reps * len;
+        n -= reps * len;
+        if (n > 0) {
+          // Split first repetition of chunk.
+          Run head = new Run(first._threadId, first._firstStep + n, 
+                             intern(Arrays.copyOfRange(first._chunk._locations, n, len)), 
+                             first._eventMarker);
+          first._repeat--;
+          first._firstStep += len;
+          if (first._repeat == 0) {
+            _runs.removeFirst();
+          }
+          _runs.addFirst(head);
+          _steps -= n;
+          n = 0;
+        }
+      }
+    }
+    if (_chunks.size() > 2 * _runs.size() + MAX_CHUNK_LENGTH
+        || _locations.size() > 2 * _sizeLimit + MAX_CHUNK_LENGTH) {
+      compactDictionaries();
+    }
+  }
+
+  /**
+   * Rebuild the location and chunk dictionaries, keeping only entries
+   * referred to by the current runs or by the open chunk.
+   */
+  private void compactDictionaries() {
+    ArrayList<CThreadLocation> oldLocations = _locations;
+    int[] newIds = new int[oldLocations.size()];
+    Arrays.fill(newIds, -1);
+    _locations = new ArrayList<>();
+    _locationIds = new LongIntMap();
+    _chunks = new HashMap<>();
+    IdentityHashMap<Chunk,Chunk> remapped = new IdentityHashMap<>();
+    for (Run run : _runs) {
+      Chunk c = remapped.get(run._chunk);
+      if (c == null) {
+        c = intern(remap(run._chunk._locations, run._chunk._locations.length, oldLocations, newIds));
+        remapped.put(run._chunk, c);
+      }
+      run._chunk = c;
+    }
+    _openLocations = Arrays.copyOf(remap(_openLocations, _openLength, oldLocations, newIds), _openLocations.length);
+    _chunkMarks = new int[Math.max(16, _locations.size())];
+    Arrays.fill(_chunkMarks, -1);
+    for (int i = 0; i < _openLength; i++) {
+      _chunkMarks[_openLocations[i]] = _openSerial;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private int[] remap(int[] ids, int n, ArrayList<CThreadLocation> oldLocations, int[] newIds) {
+    int[] result = new int[n];
+    for (int i = 0; i < n; i++) {
+      int id = newIds[ids[i]];
+      if (id < 0) {
+        CThreadLocation location = oldLocations.get(ids[i]);
+        id = _locations.size();
+        _locations.add(location);
+        _locationIds.put(locationKey(location), id);
+        newIds[ids[i]] = id;
+      }
+      result[i] = id;
+    }
+    return result;
+  }
+
+  /**
+   * Consumer of trace steps.
+   * @param <E> Type of exception that may be thrown by the consumer.
+   */
+  @FunctionalInterface
+  private interface StepConsumer<E extends Exception> {
+    @SuppressWarnings("javadoc")
+    void accept(int threadId, int threadStep, char eventMarker, CThreadLocation location) throws E;
   }
 
   /**
@@ -227,71 +813,93 @@ public final class CTrace {
       return _className;
     }
   }
+
   /**
-   * Inner class representing an item of a trace.
+   * Inner class representing a sequence of locations, stored in the chunk dictionary.
    */
-  private static final class TraceItem {
+  private static final class Chunk {
     /**
-     * Thread id.
+     * Location ids.
      */
-    private final int _threadId;
+    final int[] _locations;
 
     /**
-     * Thread step.
+     * Hash code.
      */
-    private final int _threadStep;
+    private final int _hash;
 
     /**
-     * Type.
+     * Constructor.
+     * @param locations Location ids.
      */
-    private final char _eventMarker;
-    
+    Chunk(int[] locations) {
+      _locations = locations;
+      _hash = Arrays.hashCode(locations);
+    }
+
+    @SuppressWarnings("javadoc")
+    @Override
+    public int hashCode() {
+      return _hash;
+    }
+
+    @SuppressWarnings("javadoc")
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Chunk && Arrays.equals(_locations, ((Chunk) o)._locations);
+    }
+  }
+
+  /**
+   * Inner class representing a run of trace steps: 
+   * one or more consecutive repetitions of a chunk by the same thread.
+   */
+  private static final class Run {
     /**
-     * Yield point for thread.
+     * Thread id.
      */
-    private final CThreadLocation _location;
+    final int _threadId;
 
     /**
-     * Constructs a new trace element.
-     * @param t Thread.
-     * @param type Type of element.
+     * Thread step for the first step in the run.
      */
-    TraceItem(CThread t, EventType type)  {
-      this._threadId = t.getCID();
-      this._threadStep = t.getStep();
-      this._eventMarker = type != null ? type.getTraceMarker() : '-';
-      this._location = t.getLocation();
-    }
-    
+    int _firstStep;
+
     /**
-     * Get thread id.
-     * @return The thread id for this step.
+     * Chunk.
      */
-    int getThreadId() {
-      return _threadId;
-    }
+    Chunk _chunk;
 
     /**
-     * Get thread step.
-     * @return The thread step counter for this step.
+     * Event marker.
      */
-    int getThreadStep() {
-      return _threadStep;
-    }
-    
+    final char _eventMarker;
+
     /**
-     * Get event type.
-     * @return Type of event.
+     * Number of chunk repetitions.
      */
-    char getEventMarker() {
-      return _eventMarker;
+    int _repeat = 1;
+
+    /**
+     * Constructor.
+     * @param threadId Thread id.
+     * @param firstStep Thread step for first step in the run.
+     * @param chunk Chunk.
+     * @param eventMarker Event marker.
+     */
+    Run(int threadId, int firstStep, Chunk chunk, char eventMarker) {
+      _threadId = threadId;
+      _firstStep = firstStep;
+      _chunk = chunk;
+      _eventMarker = eventMarker;
     }
+
     /**
-     * Get yield point.
-     * @return The thread step counter for this step.
+     * Get number of steps in the run.
+     * @return Number of steps.
      */
-    CThreadLocation getLocation() {
-      return _location;
+    int steps() {
+      return _repeat * _chunk._locations.length;
     }
   }
 }
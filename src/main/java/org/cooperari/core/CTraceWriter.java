@@ -0,0 +1,202 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import org.cooperari.CTest;
+import org.cooperari.core.util.CReport;
+import org.cooperari.errors.CInternalError;
+
+/**
+ * Asynchronous trace writer.
+ * 
+ * <p>
+ * Traces submitted to the writer are saved by a background daemon thread, 
+ * such that trace I/O may overlap with the execution of further test trials.
+ * The queue of pending traces is bounded: when it is full, a call to 
+ * {@link #submit(int, CTrace)} blocks until the background thread catches up.
+ * A call to {@link #close()} returns only after all submitted traces have been written,
+ * hence trace files may be reported after that call.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class CTraceWriter {
+
+  /**
+   * Maximum number of pending traces.
+   */
+  private static final int QUEUE_CAPACITY = 4;
+
+  /**
+   * End-of-stream marker.
+   */
+  private static final Job END = new Job(0, null);
+
+  /**
+   * Test at stake.
+   */
+  private final CTest _test;
+
+  /**
+   * Pending traces.
+   */
+  private final BlockingQueue<Job> _queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+  /**
+   * Background thread.
+   */
+  private final Thread _thread;
+
+  /**
+   * First error raised by the background thread, if any.
+   */
+  private volatile Throwable _error;
+
+  /**
+   * Constructor.
+   * @param test Test at stake.
+   */
+  public CTraceWriter(CTest test) {
+    _test = test;
+    _thread = new Thread(this::run, "cooperari-trace-writer");
+    _thread.setDaemon(true);
+    _thread.start();
+  }
+
+  /**
+   * Submit a trace for writing.
+   * The trace should not be modified after this call, see {@link CTrace#detach()}.
+   * @param trialNumber Trial number.
+   * @param trace Trace.
+   * @throws CInternalError If a previous trace could not be written.
+   */
+  public void submit(int trialNumber, CTrace trace) {
+    checkForErrors();
+    enqueue(new Job(trialNumber, trace));
+  }
+
+  /**
+   * Wait for all pending traces to be written and terminate the background thread.
+   * @throws CInternalError If a trace could not be written.
+   */
+  public void close() {
+    enqueue(END);
+    try {
+      _thread.join();
+    } catch (InterruptedException e) {
+      throw new CInternalError(e);
+    }
+    checkForErrors();
+  }
+
+  /**
+   * Save a trace synchronously.
+   * @param test Test.
+   * @param trialNumber Trial number.
+   * @param trace Trace.
+   * @param failure Optional failure.
+   * @return The trace file.
+   * @throws CInternalError If the trace could not be written.
+   */
+  public static File save(CTest test, int trialNumber, CTrace trace, Optional<Throwable> failure) {
+    try {
+      CReport report = CWorkspace.INSTANCE.createReport(test.getSuiteName(), test.getName() + "." + trialNumber + ".trace");
+      try { 
+        trace.save(report, failure);
+        if (trace.chromeTraceEnabled()) {
+          saveAsChromeTrace(test, trialNumber, trace);
+        }
+      } finally {
+        trace.reset();
+        report.close();
+      }
+      // Report the file only once it is closed.
+      CWorkspace.log("Trace for trial %d of %s written to '%s'.", trialNumber, test.getName(),
+          report.getFile().getAbsolutePath());
+      return report.getFile();
+    } catch (Throwable e) {
+      CWorkspace.log("Error generating trace file for %s: %s", 
+          test.getName(), e.getMessage());
+      CWorkspace.log(e);
+      throw new CInternalError(e);
+    } 
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void saveAsChromeTrace(CTest test, int trialNumber, CTrace trace) throws IOException {
+    File file = CWorkspace.INSTANCE.createFile(test.getSuiteName() + '/' + test.getName() + "." + trialNumber + ".trace.json");
+    try (Writer out = Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
+      trace.saveAsChromeTrace(out);
+    }
+    CWorkspace.log("Chrome trace for trial %d of %s written to '%s'.", trialNumber, test.getName(),
+        file.getAbsolutePath());
+  }
+
+  @SuppressWarnings("javadoc")
+  private void enqueue(Job job) {
+    try {
+      _queue.put(job);
+    } catch (InterruptedException e) {
+      throw new CInternalError(e);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void checkForErrors() {
+    if (_error != null) {
+      throw new CInternalError(_error);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void run() {
+    try {
+      Job job;
+      while ((job = _queue.take()) != END) {
+        if (_error == null) {
+          try {
+            save(_test, job._trialNumber, job._trace, Optional.empty());
+          } catch (Throwable e) {
+            _error = e;
+          }
+        }
+      }
+    } catch (InterruptedException e) {
+      _error = e;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static final class Job {
+    final int _trialNumber;
+    final CTrace _trace;
+
+    Job(int trialNumber, CTrace trace) {
+      _trialNumber = trialNumber;
+      _trace = trace;
+    }
+  }
+}
@@ -0,0 +1,161 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.core.util.CReport;
+
+/**
+ * Per-yield point counters.
+ * 
+ * <p>
+ * For each yield point, the following counters are maintained, accumulated over all trials of a test:
+ * </p>
+ * <ul>
+ * <li><b>hits</b> - number of steps by which a thread reached the yield point;</li>
+ * <li><b>preemptions</b> - number of times a thread was ready at the yield point but another thread was scheduled instead;</li>
+ * <li><b>blocked</b> - number of scheduling steps in which a thread was blocked at the yield point 
+ * (e.g. waiting to acquire a monitor, including re-acquisition after a wait operation).</li>
+ * </ul>
+ * 
+ * <p>
+ * Counters are kept in primitive arrays indexed by yield point identifier 
+ * (see {@link CYieldPointTable}). Internal yield points are not considered.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class CYieldPointCounters {
+
+  /**
+   * Hit counters.
+   */
+  private int[] _hits = new int[0];
+
+  /**
+   * Preemption counters.
+   */
+  private int[] _preemptions = new int[0];
+
+  /**
+   * Blocked counters.
+   */
+  private int[] _blocked = new int[0];
+
+  /**
+   * Constructs a new set of counters.
+   */
+  public CYieldPointCounters() {
+
+  }
+
+  /**
+   * Record a step reaching a yield point.
+   * @param yp Yield point.
+   */
+  public void hit(CYieldPoint yp) {
+    int id = idOf(yp);
+    if (id >= 0) {
+      _hits[id]++;
+    }
+  }
+
+  /**
+   * Record a preemption at a yield point.
+   * @param yp Yield point.
+   */
+  public void preempted(CYieldPoint yp) {
+    int id = idOf(yp);
+    if (id >= 0) {
+      _preemptions[id]++;
+    }
+  }
+
+  /**
+   * Record a scheduling step with a thread blocked at a yield point.
+   * @param yp Yield point.
+   */
+  public void blocked(CYieldPoint yp) {
+    int id = idOf(yp);
+    if (id >= 0) {
+      _blocked[id]++;
+    }
+  }
+
+  /**
+   * Generate a heatmap report, listing yield points in descending order of 
+   * the sum of their counters.
+   * @param dirName Directory name inside workspace.
+   * @param reportId Report id.
+   * @throws IOException if an I/O error occurs.
+   * @return File object for the report.
+   */
+  public File produceReport(String dirName, String reportId) throws IOException {
+    CYieldPointTable table = CYieldPointTable.INSTANCE;
+    ArrayList<Integer> ids = new ArrayList<>();
+    long hits = 0, preemptions = 0, blocked = 0;
+    for (int id = 0; id < _hits.length; id++) {
+      if (total(id) > 0) {
+        ids.add(id);
+        hits += _hits[id];
+        preemptions += _preemptions[id];
+        blocked += _blocked[id];
+      }
+    }
+    ids.sort((a, b) -> {
+      int cmp = Long.compare(total(b), total(a));
+      return cmp != 0 ? cmp : table.get(a).compareTo(table.get(b));
+    });
+    CReport r = CWorkspace.INSTANCE.createReport(dirName, reportId + ".heatmap");
+    r.beginSection("YIELD POINT COUNTERS", "HITS", "PREEMPTIONS", "BLOCKED");
+    r.writeEntry(hits, preemptions, blocked);
+    r.beginSection("YIELD POINT HEATMAP", "HITS", "PREEMPTIONS", "BLOCKED", "SOURCE FILE", "LINE", "SIGNATURE");
+    for (int id : ids) {
+      CYieldPoint yp = table.get(id);
+      r.writeEntry(_hits[id], _preemptions[id], _blocked[id], 
+                   yp.getSourceFile(), yp.getSourceLine(), yp.getSignature());
+    }
+    r.close();
+    return r.getFile();
+  }
+
+  @SuppressWarnings("javadoc")
+  private long total(int id) {
+    return (long) _hits[id] + _preemptions[id] + _blocked[id];
+  }
+
+  @SuppressWarnings("javadoc")
+  private int idOf(CYieldPoint yp) {
+    if (yp.getSourceFile() == CYieldPointImpl.INTERNAL) {
+      return -1;
+    }
+    int id = yp instanceof CYieldPointImpl ? 
+        ((CYieldPointImpl) yp).getId() : CYieldPointTable.INSTANCE.idOf(yp);
+    if (id >= _hits.length) {
+      int n = Math.max(id + 1, 2 * _hits.length);
+      _hits = Arrays.copyOf(_hits, n);
+      _preemptions = Arrays.copyOf(_preemptions, n);
+      _blocked = Arrays.copyOf(_blocked, n);
+    }
+    return id;
+  }
+}
@@ -16,6 +16,8 @@
 
 package org.cooperari.core;
 
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.aspectj.lang.JoinPoint;
 import org.cooperari.core.scheduling.CYieldPoint;
 
@@ -46,6 +48,12 @@ public final class CYieldPointImpl implements CYieldPoint {
    */
   public static final CYieldPoint THREAD_TERMINATED_YIELD_POINT = new CYieldPointImpl(CYieldPoint.THREAD_TERMINATED_SIGNATURE, INTERNAL, 0);
   
+  /**
+   * Yield points for AspectJ join points, 
+   * so that these are only derived once per join point.
+   */
+  private static final ConcurrentHashMap<JoinPoint.StaticPart, CYieldPointImpl> JOIN_POINT_CACHE = new ConcurrentHashMap<>();
+
   /**
    * Signature.
    */
@@ -65,6 +73,11 @@ public final class CYieldPointImpl implements CYieldPoint {
    */
   private final int _hash;
 
+  /**
+   * Identifier in the global yield point table, computed lazily.
+   */
+  private int _id = -1;
+
   /**
    * Constructs a yield point from supplied signature, file, and line.
    * @param signature Signature.
@@ -86,6 +99,39 @@ public final class CYieldPointImpl implements CYieldPoint {
     this(deriveSignature(jpsp), jpsp.getSourceLocation().getFileName(), jpsp.getSourceLocation().getLine());
   }
   
+  /**
+   * Get yield point for supplied AspectJ join point information.
+   * The yield point object is created only once per join point.
+   * @param jpsp Join point information.
+   * @return Yield point object.
+   */
+  static CYieldPointImpl of(JoinPoint.StaticPart jpsp) {
+    CYieldPointImpl yp = JOIN_POINT_CACHE.get(jpsp);
+    if (yp == null) {
+      yp = new CYieldPointImpl(jpsp);
+      CYieldPointImpl other = JOIN_POINT_CACHE.putIfAbsent(jpsp, yp);
+      if (other != null) {
+        yp = other;
+      }
+    }
+    return yp;
+  }
+
+  /**
+   * Get the identifier of this yield point in the global yield point table.
+   * @return Yield point identifier.
+   * @see CYieldPointTable
+   * @since 0.4
+   */
+  public int getId() {
+    int id = _id;
+    if (id < 0) {
+      id = CYieldPointTable.INSTANCE.idOf(this);
+      _id = id;
+    }
+    return id;
+  }
+
   @SuppressWarnings("javadoc")
   private static String deriveSignature(JoinPoint.StaticPart jpsp) {
     String kind = jpsp.getKind(); // note that String is internalized
@@ -0,0 +1,115 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import org.cooperari.core.scheduling.CYieldPoint;
+
+/**
+ * Global yield point table.
+ * 
+ * <p>
+ * The table assigns dense integer identifiers to yield points, and to the source files they relate to,
+ * such that yield point sets can be represented using bit sets (see {@link CCoverageLog}).
+ * Identifiers are assigned on a first-come first-served basis and are valid for the lifetime of the JVM.
+ * </p>
+ * 
+ * <p>
+ * Note that only a singleton instance of this type exists ({@link #INSTANCE}).
+ * </p>
+ * 
+ * @since 0.4
+ */
+public enum CYieldPointTable {
+  /**
+   * Singleton instance.
+   */
+  INSTANCE;
+
+  /**
+   * Map of yield points to identifiers.
+   */
+  private final HashMap<CYieldPoint, Integer> _ids = new HashMap<>();
+
+  /**
+   * Yield points indexed by identifier.
+   */
+  private final ArrayList<CYieldPoint> _yieldPoints = new ArrayList<>();
+
+  /**
+   * Map of source files to identifiers.
+   */
+  private final HashMap<String, Integer> _fileIds = new HashMap<>();
+
+  /**
+   * Source file identifier for each yield point identifier.
+   */
+  private int[] _fileOf = new int[1024];
+
+  /**
+   * Get identifier for a yield point, assigning a new one if necessary.
+   * @param yp Yield point.
+   * @return Identifier for the yield point.
+   */
+  public synchronized int idOf(CYieldPoint yp) {
+    Integer id = _ids.get(yp);
+    if (id == null) {
+      id = _yieldPoints.size();
+      _yieldPoints.add(yp);
+      _ids.put(yp, id);
+      Integer fileId = _fileIds.get(yp.getSourceFile());
+      if (fileId == null) {
+        fileId = _fileIds.size();
+        _fileIds.put(yp.getSourceFile(), fileId);
+      }
+      if (id == _fileOf.length) {
+        _fileOf = Arrays.copyOf(_fileOf, 2 * id);
+      }
+      _fileOf[id] = fileId;
+    }
+    return id;
+  }
+
+  /**
+   * Get yield point for the given identifier.
+   * @param id Identifier.
+   * @return The yield point with the given identifier.
+   */
+  public synchronized CYieldPoint get(int id) {
+    return _yieldPoints.get(id);
+  }
+
+  /**
+   * Get source file identifier for the given yield point identifier.
+   * @param id Yield point identifier.
+   * @return Source file identifier.
+   */
+  public synchronized int fileOf(int id) {
+    return _fileOf[id];
+  }
+
+  /**
+   * Get number of yield points in the table.
+   * @return The number of yield points.
+   */
+  public synchronized int size() {
+    return _yieldPoints.size();
+  }
+}
@@ -18,9 +18,9 @@ package org.cooperari.core.aspectj;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.HashSet;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.Properties;
 
 import org.aspectj.bridge.IMessage;
 import org.aspectj.lang.JoinPoint;
@@ -29,7 +29,9 @@ import org.cooperari.core.CWorkspace;
 import org.cooperari.core.CYieldPointImpl;
 import org.cooperari.core.scheduling.CYieldPoint;
 import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CCoverageStore;
 import org.cooperari.core.util.CLog;
+import org.cooperari.errors.CInternalError;
 
 /**
  * Facade for the load-time weaving agent.
@@ -85,10 +87,14 @@ public enum AgentFacade {
 
 
   /**
-   * Compiled regular expression for {@link IMessage#WEAVEINFO} messages.
+   * Prefix for {@link IMessage#WEAVEINFO} messages regarding join points.
    */
-  private static final Pattern WI_MSG_PATTERN = Pattern
-      .compile("^Join point '([^\\(]+)\\([^ ]+ (.+)\\)' in Type '.+' \\((.+):([0-9]+)\\).+");
+  private static final String WI_MSG_PREFIX = "Join point '";
+
+  /**
+   * Separator between join point description and type in {@link IMessage#WEAVEINFO} messages.
+   */
+  private static final String WI_MSG_TYPE_SEPARATOR = ")' in Type '";
 
   /**
    * Log id.
@@ -103,11 +109,18 @@ public enum AgentFacade {
   /**
    * Handle weaver agent message.
    * 
+   * <p>
+   * {@link IMessage#WEAVEINFO} messages are only written to the agent log if <code>logWeaveInfo</code>
+   * is set, since there may be a very large number of them.
+   * </p>
+   * 
    * @param msg Message object.
+   * @param logWeaveInfo Write {@link IMessage#WEAVEINFO} messages to the agent log.
    */
-  void handleMessage(IMessage msg) {
+  void handleMessage(IMessage msg, boolean logWeaveInfo) {
+    boolean weaveInfo = msg.getKind() == IMessage.WEAVEINFO;
 
-    if (CWorkspace.INSTANCE.isInitialized()) {
+    if ((logWeaveInfo || !weaveInfo) && CWorkspace.INSTANCE.isInitialized()) {
       if (_agentLog == null) {
         try {
           _agentLog = 
@@ -119,29 +132,10 @@ public enum AgentFacade {
       _agentLog.message(msg.toString());
     }
 
-    if (msg.getKind() == IMessage.WEAVEINFO) {
+    if (weaveInfo) {
       try {
-        Matcher matcher = WI_MSG_PATTERN.matcher(msg.getMessage());
-        if (matcher.find()) {
-          String kind = matcher.group(1);
-          String desc = matcher.group(2);
-          String signature;
-          if (kind.equals(JoinPoint.SYNCHRONIZATION_LOCK)) {
-            signature = CYieldPoint.MONITOR_ENTER_SIGNATURE;
-          } else if (kind.equals(JoinPoint.SYNCHRONIZATION_UNLOCK)) {
-            signature = CYieldPoint.MONITOR_EXIT_SIGNATURE;
-          } else if (kind.equals(JoinPoint.METHOD_CALL)) {
-            signature = uniformize(desc);
-          } else {
-            signature = kind + "(" + uniformize(desc) + ")";
-          }
-          if (_ignoreSet.contains(signature)) {
-            return;
-          }
-          String fileInfo = matcher.group(3);
-          int lineInfo = Integer.parseInt(matcher.group(4));
-          CYieldPointImpl yp = 
-              new CYieldPointImpl(signature, fileInfo, lineInfo);
+        CYieldPointImpl yp = parseWeaveInfo(msg.getMessage());
+        if (yp != null) {
           synchronized (this) {
             _globalCoverageLog.recordDefinition(yp);
           }
@@ -150,9 +144,55 @@ public enum AgentFacade {
         handleError(e);
       }
     }
-    // else {
-    //
-    // }
+  }
+
+  /**
+   * Derive a yield point from a {@link IMessage#WEAVEINFO} message.
+   * 
+   * <p>
+   * The message has the form 
+   * <code>Join point 'kind(type desc)' in Type 'class' (file:line) advised by ...</code>.
+   * It is parsed by plain string scanning, 
+   * as this method is called for every join point that is woven.
+   * </p>
+   * 
+   * @param msg Message text.
+   * @return A yield point, or <code>null</code> if the message does 
+   *   not regard a yield point. 
+   */
+  private CYieldPointImpl parseWeaveInfo(String msg) {
+    if (!msg.startsWith(WI_MSG_PREFIX)) {
+      return null;
+    }
+    int kindEnd = msg.indexOf('(', WI_MSG_PREFIX.length());
+    int descEnd = msg.indexOf(WI_MSG_TYPE_SEPARATOR, kindEnd);
+    int descStart = msg.indexOf(' ', kindEnd) + 1;
+    if (kindEnd < 0 || descEnd < 0 || descStart <= 0 || descStart > descEnd) {
+      return null;
+    }
+    int locStart = msg.indexOf(" (", descEnd + WI_MSG_TYPE_SEPARATOR.length()) + 2;
+    int locEnd = msg.indexOf(')', locStart);
+    int lineStart = msg.lastIndexOf(':', locEnd) + 1;
+    if (locStart < 2 || locEnd < 0 || lineStart <= locStart) {
+      return null;
+    }
+    String kind = msg.substring(WI_MSG_PREFIX.length(), kindEnd);
+    String signature;
+    if (kind.equals(JoinPoint.SYNCHRONIZATION_LOCK)) {
+      signature = CYieldPoint.MONITOR_ENTER_SIGNATURE;
+    } else if (kind.equals(JoinPoint.SYNCHRONIZATION_UNLOCK)) {
+      signature = CYieldPoint.MONITOR_EXIT_SIGNATURE;
+    } else if (kind.equals(JoinPoint.METHOD_CALL)) {
+      signature = uniformize(msg.substring(descStart, descEnd));
+    } else {
+      signature = kind + "(" + uniformize(msg.substring(descStart, descEnd)) + ")";
+    }
+    if (_ignoreSet.contains(signature)) {
+      return null;
+    }
+    return new CYieldPointImpl(signature, 
+                               msg.substring(locStart, lineStart - 1), 
+                               Integer.parseInt(msg.substring(lineStart, locEnd)));
   }
 
   @SuppressWarnings("javadoc")
@@ -187,12 +227,62 @@ public enum AgentFacade {
     }
   }
 
+  /**
+   * Record the definition of a yield point that is not identified through weaving messages, 
+   * e.g., an array access instrumented by {@link ArrayAccessTransformer}.
+   * @param yp Yield point.
+   */
+  synchronized void recordDefinition(CYieldPointImpl yp) {
+    _globalCoverageLog.recordDefinition(yp);
+  }
+
+  /**
+   * Resource for instrumentation settings that complement load-time weaving, 
+   * saved along with the weaving configuration.
+   * @see WeavingConfiguration#saveAsJAR(File, File)
+   */
+  static final String SETTINGS_RESOURCE = "META-INF/cooperari.properties";
+
+  /**
+   * Setting for array access instrumentation.
+   * @see ArrayAccessTransformer
+   */
+  static final String ARRAYS_SETTING = "instrument.arrays";
+
+  /**
+   * Install instrumentation that complements load-time weaving, 
+   * according to the settings found in the class path.
+   * 
+   * <p>
+   * At the moment this regards array access instrumentation
+   * (see {@link org.cooperari.config.CInstrument#arrays()}), 
+   * for which {@link CAgent} is loaded at runtime.
+   * This method should be called before application classes are loaded, 
+   * since classes that are already loaded are not instrumented.
+   * </p>
+   * @since 0.4
+   */
+  public void installExtraInstrumentation() {
+    Properties settings = new Properties();
+    try (InputStream in = ClassLoader.getSystemResourceAsStream(SETTINGS_RESOURCE)) {
+      if (in == null) {
+        return;
+      }
+      settings.load(in);
+    } catch (IOException e) {
+      throw new CInternalError(e);
+    }
+    if (Boolean.parseBoolean(settings.getProperty(ARRAYS_SETTING))) {
+      CAgent.load(CAgent.ARRAYS_OPTION);
+    }
+  }
+
   /**
    * Handle an error.
    * 
    * @param e Exception object.
    */
-  private void handleError(Throwable e) {
+  void handleError(Throwable e) {
     // Do nothing for now.
   }
 
@@ -213,6 +303,20 @@ public enum AgentFacade {
     }
   }
 
+  /**
+   * Append the global coverage log to the persistent coverage store in the workspace.
+   * 
+   * @throws IOException if an I/O error occurs.
+   * @return File object for the coverage store.
+   * @see CCoverageStore
+   * @since 0.4
+   */
+  public File appendToCoverageStore() throws IOException {
+    synchronized (this) {
+      return CCoverageStore.append(_globalCoverageLog);
+    }
+  }
+
   /**
    * Get global coverage log.
    * @return The global coverage log.
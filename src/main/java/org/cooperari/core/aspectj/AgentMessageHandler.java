@@ -16,6 +16,10 @@
 
 package org.cooperari.core.aspectj;
 
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.aspectj.bridge.IMessage;
 import org.aspectj.bridge.IMessage.Kind;
 import org.aspectj.bridge.IMessageHandler;
@@ -29,30 +33,43 @@ import org.aspectj.bridge.IMessageHandler;
  * property to the name of this class, as described in the 
  * <a href="https://eclipse.org/aspectj/doc/next/devguide/ltw-configuration.html">load-time weaving configuration for AspectJ</a>.
  * 
+ * <p>
+ * Informational and debug messages are ignored unless enabled by the weaver 
+ * (through the <code>-verbose</code> and <code>-debug</code> weaver options).
+ * Since the weaver checks {@link #isIgnoring(Kind)} before building a message, 
+ * these messages then have no cost.
+ * </p>
  * 
  * @since 0.2
  */
 public class AgentMessageHandler implements IMessageHandler {
 
+  /**
+   * Message kinds being ignored.
+   */
+  private final Set<Kind> _ignored = Collections.newSetFromMap(new ConcurrentHashMap<>());
+
   /**
    * Constructs a new message handler.
    * The method calls {@link AgentFacade#signalActivation()} for {@link AgentFacade#INSTANCE}
    * to signal that the weaver agent is active.
    */
   public AgentMessageHandler() {
+    _ignored.add(IMessage.INFO);
+    _ignored.add(IMessage.DEBUG);
     AgentFacade.INSTANCE.signalActivation(); 
   }
 
   /**
    * Callback method to check for message types being ignored.
    * @param kind Message kind.
-   * @return Always <code>false</code>, as the handler will take all messages.
+   * @return <code>true</code> if messages of the given kind are being ignored.
    * @see IMessageHandler#isIgnoring(Kind)
    * 
    */
   @Override
   public boolean isIgnoring(Kind kind) {
-    return false;
+    return _ignored.contains(kind);
   }
 
   /**
@@ -62,7 +79,7 @@ public class AgentMessageHandler implements IMessageHandler {
    */
   @Override
   public void ignore(Kind kind) {
-    // Does nothing.
+    _ignored.add(kind);
   }
 
   /**
@@ -72,19 +89,22 @@ public class AgentMessageHandler implements IMessageHandler {
    */
   @Override
   public void dontIgnore(Kind kind) {
-    // Does nothing.
+    _ignored.remove(kind);
   }
 
   /**
    * Handle message.
    * The method redirects the message to {@link AgentFacade#INSTANCE} object
-   * through {@link AgentFacade#handleMessage}.
+   * through {@link AgentFacade#handleMessage}, unless messages of that kind are being ignored.
+   * {@link IMessage#WEAVEINFO} messages are only logged if informational messages are enabled.
    * @return <code>true</code> since the handler will handle all messages.
    * @see IMessageHandler#handleMessage(org.aspectj.bridge.IMessage)
    */
   @Override
   public boolean handleMessage(IMessage msg)  {
-    AgentFacade.INSTANCE.handleMessage(msg);
+    if (!_ignored.contains(msg.getKind())) {
+      AgentFacade.INSTANCE.handleMessage(msg, !_ignored.contains(IMessage.INFO));
+    }
     return true;
   }
 }
\ No newline at end of file
@@ -0,0 +1,763 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core.aspectj;
+
+import java.lang.instrument.ClassFileTransformer;
+import java.security.ProtectionDomain;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import org.cooperari.core.CYieldPointImpl;
+
+import aj.org.objectweb.asm.ClassReader;
+import aj.org.objectweb.asm.ClassVisitor;
+import aj.org.objectweb.asm.ClassWriter;
+import aj.org.objectweb.asm.Handle;
+import aj.org.objectweb.asm.Label;
+import aj.org.objectweb.asm.MethodVisitor;
+import aj.org.objectweb.asm.Opcodes;
+import aj.org.objectweb.asm.Type;
+
+/**
+ * Class file transformer for array element accesses.
+ * 
+ * <p>
+ * AspectJ provides no join points for array loads and stores. This transformer
+ * complements load-time weaving by inserting a call to 
+ * {@link org.cooperari.feature.data.ArrayAccesses#load} or {@link org.cooperari.feature.data.ArrayAccesses#store} 
+ * before each array load or store instruction in classes that have been woven with Cooperari aspects.
+ * The transformer must be installed after the AspectJ weaver (see {@link CAgent}), 
+ * so that it processes woven bytecode.
+ * It uses the ASM library bundled (and repackaged) with the AspectJ weaver.
+ * </p>
+ * 
+ * <p>
+ * Accesses to arrays that are provably thread-local are not instrumented. 
+ * A simple intra-procedural analysis identifies local variables that only hold arrays 
+ * allocated by the method itself, and whose values are only used as 
+ * the array operand of array loads, stores, and length queries, hence do not escape from the method.
+ * Accesses to such arrays, and to freshly allocated arrays still on the operand stack 
+ * (e.g. in array initializers), are not instrumented.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class ArrayAccessTransformer implements ClassFileTransformer {
+
+  /**
+   * Owner class of hook methods.
+   */
+  private static final String HOOK_OWNER = "org/cooperari/feature/data/ArrayAccesses";
+
+  /**
+   * Descriptor of hook methods.
+   */
+  private static final String HOOK_DESC = "(Ljava/lang/Object;II)V";
+
+  /**
+   * Prefix of Cooperari classes, used to identify woven classes.
+   */
+  private static final String COOPERARI_PREFIX = "org/cooperari/";
+
+  /**
+   * Prefix of AspectJ runtime library classes.
+   */
+  private static final String ASPECTJ_RUNTIME_PREFIX = "org/aspectj/runtime/";
+
+  /**
+   * Name infix of around advice closure classes generated by AspectJ.
+   */
+  private static final String ASPECTJ_CLOSURE_INFIX = "$AjcClosure";
+
+  /**
+   * Element type names for array load instructions, indexed by <code>opcode - IALOAD</code>.
+   * The same names apply to store instructions, indexed by <code>opcode - IASTORE</code>.
+   * Note that <code>baload</code> and <code>bastore</code> are used for both <code>byte</code> and <code>boolean</code> arrays.
+   */
+  private static final String[] ELEMENT_TYPES = { 
+    "int", "long", "float", "double", "Object", "byte", "char", "short"  
+  };
+
+  /**
+   * Constructor.
+   */
+  public ArrayAccessTransformer() {
+
+  }
+
+  @Override
+  public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+      ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+    if (loader == null || className == null || classBeingRedefined != null) {
+      return null;
+    }
+    try {
+      ClassReader cr = new ClassReader(classfileBuffer);
+      ClassAnalysis analysis = new ClassAnalysis();
+      cr.accept(analysis, 0);
+      if (!analysis._woven || analysis._instrumentedAccesses == 0) {
+        return null;
+      }
+      ClassWriter cw = new ClassWriter(cr, ClassWriter.COMPUTE_MAXS);
+      cr.accept(new ClassInstrumenter(cw, analysis), 0);
+      return cw.toByteArray();
+    } catch (Throwable e) {
+      AgentFacade.INSTANCE.handleError(e);
+      return null;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean isArrayLoad(int opcode) {
+    return opcode >= Opcodes.IALOAD && opcode <= Opcodes.SALOAD;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean isArrayStore(int opcode) {
+    return opcode >= Opcodes.IASTORE && opcode <= Opcodes.SASTORE;
+  }
+
+  /**
+   * First pass: determine if class was woven and analyze methods.
+   */
+  private static final class ClassAnalysis extends ClassVisitor {
+    /** Woven class flag. */
+    boolean _woven;
+    /** Number of accesses to instrument. */
+    int _instrumentedAccesses;
+    /** Method analyses by name and descriptor. */
+    final HashMap<String, MethodAnalysis> _methods = new HashMap<>();
+
+    @SuppressWarnings("javadoc")
+    ClassAnalysis() {
+      super(Opcodes.ASM5);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      MethodAnalysis ma = new MethodAnalysis(this, access, desc);
+      _methods.put(name + desc, ma);
+      return ma;
+    }
+  }
+
+  /**
+   * Intra-procedural analysis of array accesses for a method.
+   * 
+   * <p>
+   * The operand stack is modeled by words, each word tagged as a reference loaded from a local variable 
+   * (the tag is the variable index), a freshly allocated array ({@link #FRESH}), or 
+   * anything else ({@link #OTHER}). The model is propagated along forward jumps; 
+   * where models disagree at a label, local variable references on the stack are conservatively 
+   * considered to escape. If a backward jump carries a model that differs from the one assumed 
+   * at its target, the analysis gives up and all array accesses in the method are instrumented.
+   * Arguments passed to the AspectJ runtime library or to around advice closures 
+   * (e.g. to build join point objects) are not considered to escape.
+   * </p>
+   */
+  private static final class MethodAnalysis extends MethodVisitor {
+    /** Tag for values that are not tracked. */
+    static final int OTHER = -1;
+    /** Tag for freshly allocated arrays. */
+    static final int FRESH = -2;
+
+    /** Owner analysis. */
+    final ClassAnalysis _owner;
+    /** Number of local variable slots used by parameters (including <code>this</code>). */
+    final int _parameterSlots;
+    /** Variables that were assigned. */
+    final BitSet _assigned = new BitSet();
+    /** Variables that were assigned something other than a fresh array. */
+    final BitSet _notFresh = new BitSet();
+    /** Variables whose value may escape. */
+    final BitSet _escaped = new BitSet();
+    /** Array operand tags for each array access, in order of occurrence. */
+    int[] _accessTags = new int[16];
+    /** Number of array accesses. */
+    int _accesses;
+    /** Operand stack model. */
+    int[] _stack = new int[16];
+    /** Operand stack size (in words). */
+    int _sp;
+    /** Indicates if current instruction is reachable from the previous one. */
+    boolean _reachable = true;
+    /** Indicates that the analysis is imprecise and all accesses should be instrumented. */
+    boolean _imprecise;
+    /** Stack models for forward jump targets (<code>null</code> for conflicting models). */
+    final HashMap<Label, int[]> _incoming = new HashMap<>();
+    /** Stack models assumed at visited labels. */
+    final HashMap<Label, int[]> _assumed = new HashMap<>();
+    /** Exception handler labels. */
+    final HashSet<Label> _handlers = new HashSet<>();
+
+    @SuppressWarnings("javadoc")
+    MethodAnalysis(ClassAnalysis owner, int access, String desc) {
+      super(Opcodes.ASM5);
+      _owner = owner;
+      _parameterSlots = (Type.getArgumentsAndReturnSizes(desc) >> 2) - ((access & Opcodes.ACC_STATIC) != 0 ? 1 : 0);
+    }
+
+    /**
+     * Test if array access should be instrumented.
+     * @param index Index of array access in method.
+     * @return <code>true</code> if the array may not be thread-local.
+     */
+    boolean instrument(int index) {
+      if (_imprecise) {
+        return true;
+      }
+      int tag = _accessTags[index];
+      return tag != FRESH && !isLocalArray(tag);
+    }
+
+    @SuppressWarnings("javadoc")
+    private boolean isLocalArray(int tag) {
+      return tag >= _parameterSlots 
+          && _assigned.get(tag) && !_notFresh.get(tag) && !_escaped.get(tag);
+    }
+
+    @SuppressWarnings("javadoc")
+    private void push(int tag) {
+      if (_sp == _stack.length) {
+        _stack = Arrays.copyOf(_stack, 2 * _sp);
+      }
+      _stack[_sp++] = tag;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void push(int tag, int words) {
+      for (int i = 0; i < words; i++) {
+        push(tag);
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private int pop() {
+      return _sp > 0 ? _stack[--_sp] : OTHER;
+    }
+
+    @SuppressWarnings("javadoc")
+    private void consume(int words) {
+      for (int i = 0; i < words; i++) {
+        int tag = pop();
+        if (tag >= 0) {
+          _escaped.set(tag);
+        }
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private static void retag(int[] model, int size, int var) {
+      for (int i = 0; i < size; i++) {
+        if (model[i] == FRESH) {
+          model[i] = var;
+        }
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private void boundary() {
+      consume(_sp);
+      _reachable = false;
+    }
+
+    @SuppressWarnings("javadoc")
+    private int[] snapshot() {
+      return Arrays.copyOf(_stack, _sp);
+    }
+
+    @SuppressWarnings("javadoc")
+    private void escapeAll(int[] model) {
+      for (int tag : model) {
+        if (tag >= 0) {
+          _escaped.set(tag);
+        }
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private void jumpTo(Label target) {
+      int[] model = snapshot();
+      if (_assumed.containsKey(target)) {
+        if (!Arrays.equals(model, _assumed.get(target))) {
+          _imprecise = true;
+        }
+      } else if (!_incoming.containsKey(target)) {
+        _incoming.put(target, model);
+      } else {
+        int[] other = _incoming.get(target);
+        if (other != null && !Arrays.equals(model, other)) {
+          escapeAll(model);
+          escapeAll(other);
+          _incoming.put(target, null);
+        } else if (other == null) {
+          escapeAll(model);
+        }
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private void arrayAccess(int arrayTag) {
+      if (_accesses == _accessTags.length) {
+        _accessTags = Arrays.copyOf(_accessTags, 2 * _accesses);
+      }
+      _accessTags[_accesses++] = arrayTag;
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      if (isArrayLoad(opcode)) {
+        consume(1);
+        arrayAccess(pop());
+        push(OTHER, opcode == Opcodes.LALOAD || opcode == Opcodes.DALOAD ? 2 : 1);
+        return;
+      }
+      if (isArrayStore(opcode)) {
+        consume(opcode == Opcodes.LASTORE || opcode == Opcodes.DASTORE ? 2 : 1);
+        consume(1);
+        arrayAccess(pop());
+        return;
+      }
+      int w1, w2, w3, w4;
+      switch (opcode) {
+        case Opcodes.NOP:
+          break;
+        case Opcodes.ACONST_NULL:
+        case Opcodes.ICONST_M1: case Opcodes.ICONST_0: case Opcodes.ICONST_1: case Opcodes.ICONST_2:
+        case Opcodes.ICONST_3: case Opcodes.ICONST_4: case Opcodes.ICONST_5:
+        case Opcodes.FCONST_0: case Opcodes.FCONST_1: case Opcodes.FCONST_2:
+          push(OTHER);
+          break;
+        case Opcodes.LCONST_0: case Opcodes.LCONST_1: case Opcodes.DCONST_0: case Opcodes.DCONST_1:
+          push(OTHER, 2);
+          break;
+        case Opcodes.POP:
+          pop();
+          break;
+        case Opcodes.POP2:
+          pop();
+          pop();
+          break;
+        case Opcodes.DUP:
+          w1 = pop();
+          push(w1); push(w1);
+          break;
+        case Opcodes.DUP_X1:
+          w1 = pop(); w2 = pop();
+          push(w1); push(w2); push(w1);
+          break;
+        case Opcodes.DUP_X2:
+          w1 = pop(); w2 = pop(); w3 = pop();
+          push(w1); push(w3); push(w2); push(w1);
+          break;
+        case Opcodes.DUP2:
+          w1 = pop(); w2 = pop();
+          push(w2); push(w1); push(w2); push(w1);
+          break;
+        case Opcodes.DUP2_X1:
+          w1 = pop(); w2 = pop(); w3 = pop();
+          push(w2); push(w1); push(w3); push(w2); push(w1);
+          break;
+        case Opcodes.DUP2_X2:
+          w1 = pop(); w2 = pop(); w3 = pop(); w4 = pop();
+          push(w2); push(w1); push(w4); push(w3); push(w2); push(w1);
+          break;
+        case Opcodes.SWAP:
+          w1 = pop(); w2 = pop();
+          push(w1); push(w2);
+          break;
+        case Opcodes.ARRAYLENGTH:
+          pop();
+          push(OTHER);
+          break;
+        case Opcodes.IRETURN: case Opcodes.LRETURN: case Opcodes.FRETURN: 
+        case Opcodes.DRETURN: case Opcodes.ARETURN: case Opcodes.RETURN: 
+        case Opcodes.ATHROW:
+          boundary();
+          break;
+        default:
+          arithmetic(opcode);
+      }
+    }
+
+    @SuppressWarnings("javadoc")
+    private void arithmetic(int opcode) {
+      int in, out;
+      if (opcode >= Opcodes.IADD && opcode <= Opcodes.DREM) {
+        boolean wide = ((opcode - Opcodes.IADD) & 1) != 0;
+        in = wide ? 4 : 2;
+        out = wide ? 2 : 1;
+      } else if (opcode >= Opcodes.INEG && opcode <= Opcodes.DNEG) {
+        in = out = ((opcode - Opcodes.INEG) & 1) != 0 ? 2 : 1;
+      } else if (opcode >= Opcodes.ISHL && opcode <= Opcodes.LUSHR) {
+        boolean wide = ((opcode - Opcodes.ISHL) & 1) != 0;
+        in = wide ? 3 : 2;
+        out = wide ? 2 : 1;
+      } else if (opcode >= Opcodes.IAND && opcode <= Opcodes.LXOR) {
+        boolean wide = ((opcode - Opcodes.IAND) & 1) != 0;
+        in = wide ? 4 : 2;
+        out = wide ? 2 : 1;
+      } else {
+        switch (opcode) {
+          case Opcodes.I2F: case Opcodes.F2I: 
+          case Opcodes.I2B: case Opcodes.I2C: case Opcodes.I2S:
+            in = 1; out = 1; break;
+          case Opcodes.I2L: case Opcodes.I2D: case Opcodes.F2L: case Opcodes.F2D:
+            in = 1; out = 2; break;
+          case Opcodes.L2I: case Opcodes.L2F: case Opcodes.D2I: case Opcodes.D2F:
+            in = 2; out = 1; break;
+          case Opcodes.L2D: case Opcodes.D2L:
+            in = 2; out = 2; break;
+          case Opcodes.LCMP: case Opcodes.DCMPL: case Opcodes.DCMPG:
+            in = 4; out = 1; break;
+          case Opcodes.FCMPL: case Opcodes.FCMPG:
+            in = 2; out = 1; break;
+          case Opcodes.MONITORENTER: case Opcodes.MONITOREXIT:
+            in = 1; out = 0; break;
+          default:
+            // Unknown instruction.
+            _imprecise = true;
+            return;
+        }
+      }
+      consume(in);
+      push(OTHER, out);
+    }
+
+    @Override
+    public void visitIntInsn(int opcode, int operand) {
+      if (opcode == Opcodes.NEWARRAY) {
+        consume(1);
+        push(FRESH);
+      } else {
+        push(OTHER);
+      }
+    }
+
+    @Override
+    public void visitVarInsn(int opcode, int var) {
+      switch (opcode) {
+        case Opcodes.ILOAD: case Opcodes.FLOAD:
+          push(OTHER);
+          break;
+        case Opcodes.LLOAD: case Opcodes.DLOAD:
+          push(OTHER, 2);
+          break;
+        case Opcodes.ALOAD:
+          push(var);
+          break;
+        case Opcodes.ISTORE: case Opcodes.FSTORE:
+          consume(1);
+          break;
+        case Opcodes.LSTORE: case Opcodes.DSTORE:
+          consume(2);
+          break;
+        case Opcodes.ASTORE: {
+          int tag = pop();
+          _assigned.set(var);
+          if (tag != FRESH) {
+            _notFresh.set(var);
+          } else {
+            // Other copies of the fresh array (e.g. as in "f = (a = new int[n])")
+            // now stand for the variable, so that it escapes if they do.
+            retag(_stack, _sp, var);
+            for (int[] model : _incoming.values()) {
+              if (model != null) {
+                retag(model, model.length, var);
+              }
+            }
+          }
+          if (tag >= 0) {
+            _escaped.set(tag);
+          }
+          break;
+        }
+        default: // RET
+          _imprecise = true;
+          boundary();
+      }
+    }
+
+    @Override
+    public void visitTypeInsn(int opcode, String type) {
+      switch (opcode) {
+        case Opcodes.NEW:
+          push(OTHER);
+          break;
+        case Opcodes.ANEWARRAY:
+          consume(1);
+          push(FRESH);
+          break;
+        case Opcodes.CHECKCAST:
+          break;
+        default: // INSTANCEOF
+          pop();
+          push(OTHER);
+      }
+    }
+
+    @Override
+    public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+      int size = Type.getType(desc).getSize();
+      switch (opcode) {
+        case Opcodes.GETSTATIC:
+          push(OTHER, size);
+          break;
+        case Opcodes.PUTSTATIC:
+          consume(size);
+          break;
+        case Opcodes.GETFIELD:
+          consume(1);
+          push(OTHER, size);
+          break;
+        default: // PUTFIELD
+          consume(size + 1);
+      }
+    }
+
+    @Override
+    public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean itf) {
+      if (opcode == Opcodes.INVOKESTATIC && name.equals("aspectOf") && owner.startsWith(COOPERARI_PREFIX)) {
+        _owner._woven = true;
+      }
+      if (owner.startsWith(ASPECTJ_RUNTIME_PREFIX) || owner.contains(ASPECTJ_CLOSURE_INFIX)) {
+        int sizes = Type.getArgumentsAndReturnSizes(desc);
+        _sp = Math.max(0, _sp - (sizes >> 2) + 1 - (opcode != Opcodes.INVOKESTATIC ? 1 : 0));
+        push(OTHER, sizes & 3);
+      } else {
+        invoke(desc, opcode != Opcodes.INVOKESTATIC);
+      }
+    }
+
+    @Override
+    public void visitInvokeDynamicInsn(String name, String desc, Handle bsm, Object... bsmArgs) {
+      invoke(desc, false);
+    }
+
+    @SuppressWarnings("javadoc")
+    private void invoke(String desc, boolean hasReceiver) {
+      int sizes = Type.getArgumentsAndReturnSizes(desc);
+      consume((sizes >> 2) - 1 + (hasReceiver ? 1 : 0));
+      push(OTHER, sizes & 3);
+    }
+
+    @Override
+    public void visitJumpInsn(int opcode, Label label) {
+      if (opcode >= Opcodes.IF_ICMPEQ && opcode <= Opcodes.IF_ACMPNE) {
+        pop(); 
+        pop();
+      } else if (opcode == Opcodes.JSR) {
+        _imprecise = true;
+        return;
+      } else if (opcode != Opcodes.GOTO) {
+        pop();
+      }
+      jumpTo(label);
+      if (opcode == Opcodes.GOTO) {
+        boundary();
+      }
+    }
+
+    @Override
+    public void visitTryCatchBlock(Label start, Label end, Label handler, String type) {
+      _handlers.add(handler);
+    }
+
+    @Override
+    public void visitLabel(Label label) {
+      if (_handlers.contains(label)) {
+        if (_reachable) {
+          _imprecise = true;
+        }
+        _sp = 0;
+        push(OTHER);
+      } else if (_incoming.containsKey(label)) {
+        int[] model = _incoming.remove(label);
+        if (!_reachable) {
+          _sp = 0;
+          if (model == null) {
+            _imprecise = true;
+          } else {
+            for (int tag : model) {
+              push(tag);
+            }
+          }
+        } else if (model == null || !Arrays.equals(model, snapshot())) {
+          if (model != null) {
+            escapeAll(model);
+          }
+          int depth = _sp;
+          consume(depth);
+          push(OTHER, depth);
+        }
+      } else if (!_reachable) {
+        // Only reachable by backward jumps (if at all).
+        _sp = 0;
+      }
+      _reachable = true;
+      _assumed.put(label, snapshot());
+    }
+
+    @Override
+    public void visitLdcInsn(Object cst) {
+      push(OTHER, cst instanceof Long || cst instanceof Double ? 2 : 1);
+    }
+
+    @Override
+    public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+      switchTo(dflt, labels);
+    }
+
+    @Override
+    public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+      switchTo(dflt, labels);
+    }
+
+    @SuppressWarnings("javadoc")
+    private void switchTo(Label dflt, Label[] labels) {
+      pop();
+      jumpTo(dflt);
+      for (Label l : labels) {
+        jumpTo(l);
+      }
+      boundary();
+    }
+
+    @Override
+    public void visitMultiANewArrayInsn(String desc, int dims) {
+      consume(dims);
+      push(FRESH);
+    }
+
+    @Override
+    public void visitEnd() {
+      for (int i = 0; i < _accesses; i++) {
+        if (instrument(i)) {
+          _owner._instrumentedAccesses++;
+        }
+      }
+    }
+  }
+
+  /**
+   * Second pass: instrument array accesses.
+   */
+  private static final class ClassInstrumenter extends ClassVisitor {
+    /** Analysis from first pass. */
+    final ClassAnalysis _analysis;
+    /** Source file. */
+    String _sourceFile = "?";
+    /** Yield point identifiers for accesses in this class, by signature and line. */
+    final HashMap<String, Integer> _sites = new HashMap<>();
+
+    @SuppressWarnings("javadoc")
+    ClassInstrumenter(ClassVisitor cv, ClassAnalysis analysis) {
+      super(Opcodes.ASM5, cv);
+      _analysis = analysis;
+    }
+
+    @Override
+    public void visitSource(String source, String debug) {
+      if (source != null) {
+        _sourceFile = source;
+      }
+      super.visitSource(source, debug);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+      MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+      MethodAnalysis ma = _analysis._methods.get(name + desc);
+      return mv == null || ma == null || ma._accesses == 0 ? mv : new MethodInstrumenter(mv, this, ma);
+    }
+
+    @SuppressWarnings("javadoc")
+    int siteFor(String signature, int line) {
+      String key = signature + ':' + line;
+      Integer id = _sites.get(key);
+      if (id == null) {
+        CYieldPointImpl yp = new CYieldPointImpl(signature, _sourceFile, line);
+        id = yp.getId();
+        AgentFacade.INSTANCE.recordDefinition(yp);
+        _sites.put(key, id);
+      }
+      return id;
+    }
+  }
+
+  /**
+   * Method instrumenter.
+   */
+  private static final class MethodInstrumenter extends MethodVisitor {
+    /** Class instrumenter. */
+    final ClassInstrumenter _ci;
+    /** Analysis for method. */
+    final MethodAnalysis _analysis;
+    /** Current source line. */
+    int _line;
+    /** Index of next array access. */
+    int _access;
+
+    @SuppressWarnings("javadoc")
+    MethodInstrumenter(MethodVisitor mv, ClassInstrumenter ci, MethodAnalysis analysis) {
+      super(Opcodes.ASM5, mv);
+      _ci = ci;
+      _analysis = analysis;
+    }
+
+    @Override
+    public void visitLineNumber(int line, Label start) {
+      _line = line;
+      super.visitLineNumber(line, start);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+      if (isArrayLoad(opcode)) {
+        if (_analysis.instrument(_access++)) {
+          // ..., array, index -> ..., array, index, array, index
+          super.visitInsn(Opcodes.DUP2);
+          hook("load", "array-load(" + ELEMENT_TYPES[opcode - Opcodes.IALOAD] + "[])");
+        }
+      } else if (isArrayStore(opcode)) {
+        if (_analysis.instrument(_access++)) {
+          if (opcode == Opcodes.LASTORE || opcode == Opcodes.DASTORE) {
+            // ..., array, index, value(2) -> ..., array, index, value(2), array, index
+            super.visitInsn(Opcodes.DUP2_X2);
+            super.visitInsn(Opcodes.POP2);
+            super.visitInsn(Opcodes.DUP2_X2);
+          } else {
+            // ..., array, index, value -> ..., array, index, value, array, index
+            super.visitInsn(Opcodes.DUP_X2);
+            super.visitInsn(Opcodes.POP);
+            super.visitInsn(Opcodes.DUP2_X1);
+          }
+          hook("store", "array-store(" + ELEMENT_TYPES[opcode - Opcodes.IASTORE] + "[])");
+        }
+      }
+      super.visitInsn(opcode);
+    }
+
+    @SuppressWarnings("javadoc")
+    private void hook(String method, String signature) {
+      super.visitLdcInsn(_ci.siteFor(signature, _line));
+      super.visitMethodInsn(Opcodes.INVOKESTATIC, HOOK_OWNER, method, HOOK_DESC, false);
+    }
+  }
+}
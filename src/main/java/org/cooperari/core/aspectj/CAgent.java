@@ -16,20 +16,43 @@
 
 package org.cooperari.core.aspectj;
 
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
 import java.lang.instrument.Instrumentation;
+import java.util.jar.Attributes;
+import java.util.jar.JarOutputStream;
+import java.util.jar.Manifest;
+
+import org.cooperari.core.util.AgentLoader;
+import org.cooperari.errors.CInternalError;
 
 /**
  * Cooperari agent.
  * 
- * The agent is loaded programmatically at runtime to perform load-time
- * weaving. It is a wrapper to the AspectJ load-time weaving agent.
+ * The agent is loaded programmatically at runtime to install 
+ * bytecode instrumentation that complements AspectJ load-time weaving.
+ * Since it is loaded after the AspectJ load-time weaving agent, 
+ * its class file transformers process woven bytecode.
  * 
  * @since 0.2
  * @see org.cooperari.core.util.AgentLoader
+ * @see AgentFacade#installExtraInstrumentation()
  *
  */
 public final class CAgent {
 
+  /**
+   * Agent option for array access instrumentation.
+   * @see ArrayAccessTransformer
+   */
+  static final String ARRAYS_OPTION = "arrays";
+
+  /**
+   * Separator for agent options.
+   */
+  static final String OPTIONS_SEPARATOR = ",";
+
   /**
    * "Pre-main" hook.
    * @param args Arguments.
@@ -47,10 +70,56 @@ public final class CAgent {
    * @throws Throwable any error during agent execution.
    */
   public static void agentmain(String args, Instrumentation inst) throws Throwable {
- 
-    
+    if (hasOption(args, ARRAYS_OPTION)) {
+      inst.addTransformer(new ArrayAccessTransformer());
+    }
   }
-  
+
+  /**
+   * Check if an option is set in the agent arguments.
+   * @param args Agent arguments, a list of options separated by {@link #OPTIONS_SEPARATOR} (may be <code>null</code>).
+   * @param option Option.
+   * @return <code>true</code> iff <code>option</code> is one of the options in <code>args</code>.
+   */
+  static boolean hasOption(String args, String option) {
+    if (args != null) {
+      for (String arg : args.split(OPTIONS_SEPARATOR)) {
+        if (arg.trim().equals(option)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Load the agent at runtime.
+   * 
+   * <p>
+   * A JAR file containing only a manifest that designates this class as the agent class
+   * is created for the purpose, since the class itself is already in the class path.
+   * </p>
+   * 
+   * @param options Agent options, separated by {@link #OPTIONS_SEPARATOR}.
+   * @since 0.4
+   */
+  static void load(String options) {
+    try {
+      File jarFile = File.createTempFile("cooperari-agent", ".jar");
+      jarFile.deleteOnExit();
+      Manifest manifest = new Manifest();
+      Attributes attrs = manifest.getMainAttributes();
+      attrs.put(Attributes.Name.MANIFEST_VERSION, "1.0");
+      attrs.putValue("Agent-Class", CAgent.class.getName());
+      new JarOutputStream(new FileOutputStream(jarFile), manifest).close();
+      AgentLoader.load(jarFile.getAbsolutePath(), options);
+    } catch (IOException e) {
+      throw new CInternalError(e);
+    } catch (Throwable e) {
+      throw new CInternalError("Error loading Cooperari agent", e);
+    }
+  }
+
   /**
    * Private constructor to prevent instantiation.
    */
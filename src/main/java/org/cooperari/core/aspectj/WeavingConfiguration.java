@@ -24,6 +24,7 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Enumeration;
 import java.util.List;
+import java.util.Properties;
 import java.util.jar.Attributes;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
@@ -91,6 +92,12 @@ public final class WeavingConfiguration {
    */
   private final Element _weaverElem;
 
+  /**
+   * Instrumentation settings complementary to load-time weaving.
+   * @see AgentFacade#installExtraInstrumentation()
+   */
+  private final Properties _settings = new Properties();
+
   /**
    * Constructs a new weaving configuration.
    * 
@@ -104,9 +111,7 @@ public final class WeavingConfiguration {
     _rootElem.appendChild(_aspectsElem);
     _rootElem.appendChild(_weaverElem);
     _xmlDoc.appendChild(_rootElem);
-    addWeaverOption("-verbose");
     addWeaverOption("-showWeaveInfo");
-    addWeaverOption("-debug");
   }
 
   @SuppressWarnings("javadoc")
@@ -251,6 +256,16 @@ public final class WeavingConfiguration {
     parent.appendChild(e);
   }
 
+  /**
+   * Enable or disable the instrumentation of array accesses.
+   * @param enable Enable or disable instrumentation.
+   * @see ArrayAccessTransformer
+   * @since 0.4
+   */
+  public void instrumentArrays(boolean enable) {
+    _settings.setProperty(AgentFacade.ARRAYS_SETTING, Boolean.toString(enable));
+  }
+
   /**
    * Save configuration to a file in XML format.
    * 
@@ -308,7 +323,7 @@ public final class WeavingConfiguration {
     // Handle aspects to use
     for (CFeature fh : CAllFeatures.getFeatures()) {
       Class<?> aspectClass = fh.getInstrumentationAspect();
-      if (aspectClass != null) {
+      if (aspectClass != null && fh.isInstrumentationEnabled(config)) {
         if (aspectClass.getAnnotation(org.aspectj.lang.annotation.Aspect.class) == null) {
           throw new CInternalError("Aspect class " + aspectClass
               + " is not annotated with @Aspect");
@@ -343,11 +358,18 @@ public final class WeavingConfiguration {
       wc.weave(p + ".*");
     }
     
+    // Handle complementary instrumentation
+    wc.instrumentArrays(config.arrays());
+
     // Handle dump option
     if (config.ltwDump()) {
       wc.enableDumpForAllClasses();
     }
     // Handle weaver options
+    if (config.ltwVerbose()) {
+      wc.addWeaverOption("-verbose");
+      wc.addWeaverOption("-debug");
+    }
     wc.addWeaverOption("-Xjoinpoints:synchronization");
     wc.addWeaverOption("-XmessageHandlerClass:" + AgentMessageHandler.class.getCanonicalName());
 
@@ -399,6 +421,9 @@ public final class WeavingConfiguration {
       jos.putNextEntry(new JarEntry("META-INF/aop-ajc.xml"));
       print(jos);
       jos.closeEntry();
+      jos.putNextEntry(new JarEntry(AgentFacade.SETTINGS_RESOURCE));
+      _settings.store(jos, null);
+      jos.closeEntry();
       while (jEntries.hasMoreElements()) {
         JarEntry entry = jEntries.nextElement();
         if (entry.getName().endsWith(".class")) {
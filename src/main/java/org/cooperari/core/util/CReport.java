@@ -16,12 +16,25 @@
 
 package org.cooperari.core.util;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
-import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import org.cooperari.errors.CInternalError;
 
 /**
  * Report file. 
+ * 
+ * <p>
+ * Output is written through a buffered writer on top of a file channel. 
+ * I/O errors are signaled using {@link CInternalError}.
+ * </p>
  *
  * @since 0.2 
  */
@@ -33,9 +46,19 @@ public class CReport {
   private final File _file;
   
   /**
-   * Output stream. 
+   * Output buffer size.
+   */
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Output channel. 
+   */
+  private final FileChannel _channel;
+
+  /**
+   * Buffered output writer. 
    */
-  private final PrintStream _out;
+  private final Writer _out;
   
   /**
    * Create a report using a given file for output.
@@ -44,7 +67,11 @@ public class CReport {
    */
   public CReport(File file) throws IOException {
     _file = file;
-    _out = new PrintStream(file);
+    _channel = FileChannel.open(file.toPath(), 
+                                StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE,
+                                StandardOpenOption.TRUNCATE_EXISTING);
+    _out = new BufferedWriter(Channels.newWriter(_channel, StandardCharsets.UTF_8.newEncoder(), -1), BUFFER_SIZE);
   }
 
   /**
@@ -61,7 +88,7 @@ public class CReport {
    * @param columnHeaders Column headers.
    */
   public void beginSection(String title, Object... columnHeaders) {
-    _out.printf("# %s%n", title);   
+    print("# " + title);   
     if (columnHeaders != null && columnHeaders.length != 0) {
       write(columnHeaders);
     }
@@ -79,7 +106,11 @@ public class CReport {
    * Flush the underlying output stream.
    */
   public void flush() {
-    _out.flush();
+    try {
+      _out.flush();
+    } catch (IOException e) {
+      throw new CInternalError(e);
+    }
   }
   
   /**
@@ -87,7 +118,11 @@ public class CReport {
    * The report should not be used after a call to this method.
    */
   public void close() {
-    _out.close();
+    try {
+      _out.close();
+    } catch (IOException e) {
+      throw new CInternalError(e);
+    } 
   }
   
   /**
@@ -100,7 +135,19 @@ public class CReport {
     for (int i = 1; i < row.length ; i++ ) { 
       sb.append('\t').append(row[i]);
     }
-    _out.println(sb.toString());
+    print(sb);
+  }
+
+  /**
+   * Write a line to the report.
+   * @param line Line contents.
+   */
+  private void print(CharSequence line) {
+    try {
+      _out.append(line).append(System.lineSeparator());
+    } catch (IOException e) {
+      throw new CInternalError(e);
+    }
   }
 
   /**
@@ -108,7 +155,9 @@ public class CReport {
    * @param throwable The exception.
    */
   public void dumpStackTrace(Throwable throwable) {
-    throwable.printStackTrace(_out);    
+    PrintWriter pw = new PrintWriter(_out);
+    throwable.printStackTrace(pw);
+    pw.flush();
   }
 
 }
@@ -0,0 +1,421 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Directed acyclic graph over integer nodes with online cycle detection.
+ * 
+ * <p>
+ * Edges that would create a cycle are rejected by {@link #addEdge(int, int)}, 
+ * and the cycle is then available through {@link #getCycle()}.
+ * The implementation follows the dynamic topological ordering algorithm of 
+ * Pearce and Kelly (ACM JEA, 2006): a topological order of the nodes is maintained, 
+ * and inserting an edge that agrees with the order costs no more than checking 
+ * for a duplicate edge. Otherwise, only the nodes in the affected region of the order are
+ * visited and reordered.
+ * </p>
+ * 
+ * <p>
+ * Nodes are dense integer identifiers obtained from {@link #newNode()}, 
+ * and may be recycled through {@link #freeNode(int)} once they have no edges.
+ * Successor and predecessor lists are plain <code>int</code> arrays, and searches 
+ * use preallocated work arrays, hence no memory is allocated per edge insertion
+ * unless internal arrays need to grow or a cycle is found.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class IntResourceGraph {
+
+  /**
+   * Empty adjacency list.
+   */
+  private static final int[] NO_NODES = new int[0];
+
+  /**
+   * Successor lists.
+   */
+  private int[][] _succ = new int[0][];
+
+  /**
+   * Successor list sizes.
+   */
+  private int[] _succCount = new int[0];
+
+  /**
+   * Predecessor lists.
+   */
+  private int[][] _pred = new int[0][];
+
+  /**
+   * Predecessor list sizes.
+   */
+  private int[] _predCount = new int[0];
+
+  /**
+   * Position of each node in the topological order.
+   */
+  private int[] _ord = new int[0];
+
+  /**
+   * Visit marks for nodes.
+   */
+  private int[] _mark = new int[0];
+
+  /**
+   * Parent of each node in forward search (used to rebuild cycles).
+   */
+  private int[] _parent = new int[0];
+
+  /**
+   * Current visit mark.
+   */
+  private int _stamp;
+
+  /**
+   * Free node list (stack).
+   */
+  private int[] _free = new int[0];
+
+  /**
+   * Number of free nodes.
+   */
+  private int _freeCount;
+
+  /**
+   * Number of allocated node identifiers (including free ones).
+   */
+  private int _capacity;
+
+  /**
+   * Number of edges.
+   */
+  private int _edges;
+
+  /**
+   * Search stack.
+   */
+  private int[] _stack = new int[0];
+
+  /**
+   * Nodes found by forward search.
+   */
+  private long[] _forward = new long[0];
+
+  /**
+   * Nodes found by backward search.
+   */
+  private long[] _backward = new long[0];
+
+  /**
+   * Order positions to reassign.
+   */
+  private int[] _positions = new int[0];
+
+  /**
+   * Cycle found by last rejected edge insertion.
+   */
+  private int[] _cycle = NO_NODES;
+
+  /**
+   * Constructs an empty graph.
+   */
+  public IntResourceGraph() {
+
+  }
+
+  /**
+   * Create a node.
+   * @return Node identifier, possibly one that was freed before.
+   */
+  public int newNode() {
+    if (_freeCount > 0) {
+      return _free[--_freeCount];
+    }
+    int n = _capacity;
+    if (n == _ord.length) {
+      grow(Math.max(16, 2 * n));
+    }
+    _capacity++;
+    _ord[n] = n;
+    _succ[n] = NO_NODES;
+    _pred[n] = NO_NODES;
+    return n;
+  }
+
+  /**
+   * Free a node, so that its identifier may be returned by {@link #newNode()}.
+   * @param n Node.
+   * @throws IllegalStateException if the node has edges.
+   */
+  public void freeNode(int n) {
+    if (degree(n) != 0) {
+      throw new IllegalStateException("Node has edges: " + n);
+    }
+    if (_freeCount == _free.length) {
+      _free = Arrays.copyOf(_free, Math.max(16, 2 * _freeCount));
+    }
+    _free[_freeCount++] = n;
+  }
+
+  /**
+   * Get number of nodes in use.
+   * @return Number of nodes.
+   */
+  public int nodes() {
+    return _capacity - _freeCount;
+  }
+
+  /**
+   * Get number of edges.
+   * @return Number of edges.
+   */
+  public int edges() {
+    return _edges;
+  }
+
+  /**
+   * Get number of edges to or from a node.
+   * @param n Node.
+   * @return Sum of in-degree and out-degree for the node.
+   */
+  public int degree(int n) {
+    return _succCount[n] + _predCount[n];
+  }
+
+  /**
+   * Test if an edge exists.
+   * @param from Source node.
+   * @param to Destination node.
+   * @return <code>true</code> if edge exists.
+   */
+  public boolean hasEdge(int from, int to) {
+    return indexOf(_succ[from], _succCount[from], to) >= 0;
+  }
+
+  /**
+   * Add an edge, unless it would create a cycle.
+   * @param from Source node.
+   * @param to Destination node.
+   * @return <code>true</code> if the edge was added or already existed, 
+   *   <code>false</code> if the edge would create a cycle, in which case
+   *   the graph is left unchanged and the cycle may be obtained through {@link #getCycle()}.
+   */
+  public boolean addEdge(int from, int to) {
+    if (hasEdge(from, to)) {
+      return true;
+    }
+    if (from == to) {
+      _cycle = new int[] { to, to };
+      return false;
+    }
+    int lb = _ord[to];
+    int ub = _ord[from];
+    if (lb < ub) {
+      int nf = searchForward(to, from, ub);
+      if (nf < 0) {
+        return false;
+      }
+      int nb = searchBackward(from, lb);
+      reorder(nf, nb);
+    }
+    _succ[from] = append(_succ[from], _succCount[from]++, to);
+    _pred[to] = append(_pred[to], _predCount[to]++, from);
+    _edges++;
+    return true;
+  }
+
+  /**
+   * Remove an edge.
+   * @param from Source node.
+   * @param to Destination node.
+   * @return <code>true</code> if the edge existed.
+   */
+  public boolean removeEdge(int from, int to) {
+    int i = indexOf(_succ[from], _succCount[from], to);
+    if (i < 0) {
+      return false;
+    }
+    _succ[from][i] = _succ[from][--_succCount[from]];
+    int j = indexOf(_pred[to], _predCount[to], from);
+    _pred[to][j] = _pred[to][--_predCount[to]];
+    _edges--;
+    return true;
+  }
+
+  /**
+   * Get the cycle found by the last call to {@link #addEdge(int, int)} that returned <code>false</code>.
+   * For a rejected edge <code>(from, to)</code>, the cycle is a path from <code>to</code> to <code>from</code>
+   * followed by <code>to</code> again.
+   * @return Cycle (a fresh array), or an empty array if no edge was rejected yet.
+   */
+  public int[] getCycle() {
+    return _cycle.clone();
+  }
+
+  /**
+   * Test if a node precedes another in the topological order maintained for the graph.
+   * If there is a path from <code>a</code> to <code>b</code>, then <code>a</code> precedes <code>b</code>.
+   * @param a Node.
+   * @param b Node.
+   * @return <code>true</code> if <code>a</code> precedes <code>b</code>.
+   */
+  public boolean precedes(int a, int b) {
+    return _ord[a] < _ord[b];
+  }
+
+  /**
+   * Forward search from the destination of a new edge, 
+   * restricted to nodes up to the order position of the source.
+   * @param start Start node (destination of new edge).
+   * @param target Source of new edge.
+   * @param ub Order position of source node.
+   * @return Number of nodes visited, or <code>-1</code> if the target was reached (a cycle).
+   */
+  private int searchForward(int start, int target, int ub) {
+    int mark = ++_stamp;
+    int sp = 0;
+    int n = 0;
+    _stack[sp++] = start;
+    _mark[start] = mark;
+    _parent[start] = -1;
+    while (sp > 0) {
+      int w = _stack[--sp];
+      _forward[n++] = ((long) _ord[w] << 32) | w;
+      int[] succ = _succ[w];
+      for (int i = 0, c = _succCount[w]; i < c; i++) {
+        int s = succ[i];
+        if (s == target) {
+          _parent[s] = w;
+          buildCycle(start, target);
+          return -1;
+        }
+        if (_mark[s] != mark && _ord[s] < ub) {
+          _mark[s] = mark;
+          _parent[s] = w;
+          _stack[sp++] = s;
+        }
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Backward search from the source of a new edge, 
+   * restricted to nodes from the order position of the destination.
+   * @param start Start node (source of new edge).
+   * @param lb Order position of destination node.
+   * @return Number of nodes visited.
+   */
+  private int searchBackward(int start, int lb) {
+    int mark = ++_stamp;
+    int sp = 0;
+    int n = 0;
+    _stack[sp++] = start;
+    _mark[start] = mark;
+    while (sp > 0) {
+      int w = _stack[--sp];
+      _backward[n++] = ((long) _ord[w] << 32) | w;
+      int[] pred = _pred[w];
+      for (int i = 0, c = _predCount[w]; i < c; i++) {
+        int p = pred[i];
+        if (_mark[p] != mark && _ord[p] > lb) {
+          _mark[p] = mark;
+          _stack[sp++] = p;
+        }
+      }
+    }
+    return n;
+  }
+
+  /**
+   * Reassign order positions to the nodes found in forward and backward searches,
+   * such that all nodes found by the backward search precede those found by the forward search. 
+   * @param nf Number of nodes found by forward search.
+   * @param nb Number of nodes found by backward search.
+   */
+  private void reorder(int nf, int nb) {
+    Arrays.sort(_backward, 0, nb);
+    Arrays.sort(_forward, 0, nf);
+    int n = 0;
+    for (int i = 0; i < nb; i++) {
+      _positions[n++] = (int) (_backward[i] >>> 32);
+    }
+    for (int i = 0; i < nf; i++) {
+      _positions[n++] = (int) (_forward[i] >>> 32);
+    }
+    Arrays.sort(_positions, 0, n);
+    n = 0;
+    for (int i = 0; i < nb; i++) {
+      _ord[(int) _backward[i]] = _positions[n++];
+    }
+    for (int i = 0; i < nf; i++) {
+      _ord[(int) _forward[i]] = _positions[n++];
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void buildCycle(int start, int target) {
+    int length = 2;
+    for (int w = target; w != start; w = _parent[w]) {
+      length++;
+    }
+    int[] cycle = new int[length];
+    cycle[0] = start;
+    cycle[length - 1] = start;
+    for (int w = target, i = length - 2; w != start; w = _parent[w], i--) {
+      cycle[i] = w;
+    }
+    _cycle = cycle;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void grow(int size) {
+    _succ = Arrays.copyOf(_succ, size);
+    _succCount = Arrays.copyOf(_succCount, size);
+    _pred = Arrays.copyOf(_pred, size);
+    _predCount = Arrays.copyOf(_predCount, size);
+    _ord = Arrays.copyOf(_ord, size);
+    _mark = Arrays.copyOf(_mark, size);
+    _parent = Arrays.copyOf(_parent, size);
+    _stack = new int[size];
+    _forward = new long[size];
+    _backward = new long[size];
+    _positions = new int[size];
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int indexOf(int[] list, int count, int n) {
+    for (int i = 0; i < count; i++) {
+      if (list[i] == n) {
+        return i;
+      }
+    }
+    return -1;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int[] append(int[] list, int count, int n) {
+    if (count == list.length) {
+      list = Arrays.copyOf(list, Math.max(4, 2 * count));
+    }
+    list[count] = n;
+    return list;
+  }
+}
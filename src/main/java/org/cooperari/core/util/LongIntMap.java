@@ -0,0 +1,164 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Map from <code>long</code> keys to <code>int</code> values.
+ * 
+ * <p>
+ * The implementation uses open addressing with linear probing over plain arrays,
+ * like {@link LongSet}, hence neither keys nor values are boxed, and 
+ * lookups allocate no memory.
+ * </p>
+ * 
+ * @since 0.4 
+ */
+public final class LongIntMap {
+
+  /**
+   * Key used to mark free table slots.
+   */
+  private static final long FREE = 0L;
+
+  /**
+   * Key table.
+   */
+  private long[] _keys;
+
+  /**
+   * Value table.
+   */
+  private int[] _values;
+
+  /**
+   * Number of entries in the map.
+   */
+  private int _size;
+
+  /**
+   * Indicates if the map contains the key used to mark free slots.
+   */
+  private boolean _containsFree;
+
+  /**
+   * Value for the key used to mark free slots.
+   */
+  private int _freeValue;
+
+  /**
+   * Constructs an empty map.
+   */
+  public LongIntMap() {
+    _keys = new long[16];
+    _values = new int[16];
+  }
+
+  /**
+   * Get number of entries in the map.
+   * @return Size of map.
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Get the value for a key.
+   * @param k Key.
+   * @param absent Value to return if the key is not in the map.
+   * @return The value for <code>k</code>, or <code>absent</code> if the key is not in the map.
+   */
+  public int get(long k, int absent) {
+    if (k == FREE) {
+      return _containsFree ? _freeValue : absent;
+    }
+    int mask = _keys.length - 1;
+    for (int i = hash(k) & mask; ; i = (i + 1) & mask) {
+      long e = _keys[i];
+      if (e == k) {
+        return _values[i];
+      }
+      if (e == FREE) {
+        return absent;
+      }
+    }
+  }
+
+  /**
+   * Set the value for a key.
+   * @param k Key.
+   * @param v Value.
+   */
+  public void put(long k, int v) {
+    if (k == FREE) {
+      if (!_containsFree) {
+        _containsFree = true;
+        _size++;
+      }
+      _freeValue = v;
+      return;
+    }
+    if (!insert(_keys, _values, k, v)) {
+      return;
+    }
+    _size++;
+    if (2 * _size > _keys.length) {
+      long[] newKeys = new long[2 * _keys.length];
+      int[] newValues = new int[newKeys.length];
+      for (int i = 0; i < _keys.length; i++) {
+        if (_keys[i] != FREE) {
+          insert(newKeys, newValues, _keys[i], _values[i]);
+        }
+      }
+      _keys = newKeys;
+      _values = newValues;
+    }
+  }
+
+  /**
+   * Remove all entries from the map.
+   */
+  public void clear() {
+    Arrays.fill(_keys, FREE);
+    _containsFree = false;
+    _size = 0;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean insert(long[] keys, int[] values, long k, int v) {
+    int mask = keys.length - 1;
+    for (int i = hash(k) & mask; ; i = (i + 1) & mask) {
+      long e = keys[i];
+      if (e == k) {
+        values[i] = v;
+        return false;
+      }
+      if (e == FREE) {
+        keys[i] = k;
+        values[i] = v;
+        return true;
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int hash(long k) {
+    long h = k * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
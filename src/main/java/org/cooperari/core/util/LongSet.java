@@ -0,0 +1,194 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core.util;
+
+import java.util.Arrays;
+import java.util.function.LongConsumer;
+
+/**
+ * Set of <code>long</code> values.
+ * 
+ * <p>
+ * The implementation uses open addressing with linear probing over a plain <code>long</code> array,
+ * hence values are not boxed and adding a value allocates no memory unless the table needs to grow.
+ * </p>
+ * 
+ * @since 0.4 
+ */
+public final class LongSet {
+
+  /**
+   * Value used to mark free table slots.
+   */
+  private static final long FREE = 0L;
+
+  /**
+   * Hash table.
+   */
+  private long[] _table;
+
+  /**
+   * Number of values in the set.
+   */
+  private int _size;
+
+  /**
+   * Indicates if the set contains the value used to mark free slots.
+   */
+  private boolean _containsFree;
+
+  /**
+   * Constructs an empty set.
+   */
+  public LongSet() {
+    _table = new long[16];
+  }
+
+  /**
+   * Get number of values in the set.
+   * @return Size of set.
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Test if a value is in the set.
+   * @param v Value.
+   * @return <code>true</code> if <code>v</code> is in the set.
+   */
+  public boolean contains(long v) {
+    if (v == FREE) {
+      return _containsFree;
+    }
+    int mask = _table.length - 1;
+    for (int i = hash(v) & mask; ; i = (i + 1) & mask) {
+      long e = _table[i];
+      if (e == v) {
+        return true;
+      }
+      if (e == FREE) {
+        return false;
+      }
+    }
+  }
+
+  /**
+   * Add a value to the set.
+   * @param v Value.
+   * @return <code>true</code> if the value was not in the set before.
+   */
+  public boolean add(long v) {
+    if (v == FREE) {
+      if (_containsFree) {
+        return false;
+      }
+      _containsFree = true;
+      _size++;
+      return true;
+    }
+    if (!insert(_table, v)) {
+      return false;
+    }
+    _size++;
+    if (2 * _size > _table.length) {
+      long[] newTable = new long[2 * _table.length];
+      for (long e : _table) {
+        if (e != FREE) {
+          insert(newTable, e);
+        }
+      }
+      _table = newTable;
+    }
+    return true;
+  }
+
+  /**
+   * Add all values of another set to this set.
+   * @param other The other set.
+   * @return <code>true</code> if this set changed.
+   */
+  public boolean addAll(LongSet other) {
+    boolean changed = false;
+    if (other._containsFree) {
+      changed = add(FREE);
+    }
+    for (long e : other._table) {
+      if (e != FREE) {
+        changed |= add(e);
+      }
+    }
+    return changed;
+  }
+
+  /**
+   * Perform an action for each value in the set (in no particular order).
+   * @param action Action.
+   */
+  public void forEach(LongConsumer action) {
+    if (_containsFree) {
+      action.accept(FREE);
+    }
+    for (long e : _table) {
+      if (e != FREE) {
+        action.accept(e);
+      }
+    }
+  }
+
+  /**
+   * Get the values in the set as a sorted array.
+   * @return A new array.
+   */
+  public long[] toSortedArray() {
+    long[] values = new long[_size];
+    int[] n = { 0 };
+    forEach(v -> values[n[0]++] = v);
+    Arrays.sort(values);
+    return values;
+  }
+
+  /**
+   * Remove all values from the set.
+   */
+  public void clear() {
+    Arrays.fill(_table, FREE);
+    _containsFree = false;
+    _size = 0;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean insert(long[] table, long v) {
+    int mask = table.length - 1;
+    for (int i = hash(v) & mask; ; i = (i + 1) & mask) {
+      long e = table[i];
+      if (e == v) {
+        return false;
+      }
+      if (e == FREE) {
+        table[i] = v;
+        return true;
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int hash(long v) {
+    long h = v * 0x9E3779B97F4A7C15L;
+    return (int) (h ^ (h >>> 32));
+  }
+}
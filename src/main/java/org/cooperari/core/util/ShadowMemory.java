@@ -0,0 +1,258 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.core.util;
+
+import java.util.Arrays;
+
+/**
+ * Shadow memory.
+ * 
+ * <p>
+ * A shadow memory associates state to memory locations, 
+ * each identified by an object (compared by identity) and an integer field identifier.
+ * The state of each location comprises a fixed number of <code>long</code> words 
+ * and, optionally, an object attachment.
+ * </p>
+ * 
+ * <p>
+ * The implementation uses open addressing with linear probing over plain arrays, 
+ * and removal by backward shifting, hence there are no entry objects or tombstones. 
+ * Locations are accessed through slot indexes, obtained from {@link #slot(Object, int)} 
+ * or {@link #find(Object, int)}. 
+ * A slot index is only valid until the next call to {@link #slot(Object, int)} or {@link #remove(int)}.
+ * No memory is allocated when looking up or creating locations, unless the table needs to grow.
+ * </p>
+ * 
+ * @since 0.4 
+ */
+public final class ShadowMemory {
+
+  /**
+   * Objects for locations (<code>null</code> for free slots).
+   */
+  private Object[] _objects;
+
+  /**
+   * Field identifiers for locations.
+   */
+  private int[] _fields;
+
+  /**
+   * State words for locations.
+   */
+  private long[] _words;
+
+  /**
+   * Attachments for locations.
+   */
+  private Object[] _attachments;
+
+  /**
+   * Number of state words per location.
+   */
+  private final int _width;
+
+  /**
+   * Number of locations in use.
+   */
+  private int _size;
+
+  /**
+   * Constructs an empty shadow memory.
+   * @param width Number of state words per location.
+   */
+  public ShadowMemory(int width) {
+    _width = width;
+    allocate(64);
+  }
+
+  /**
+   * Get number of locations in use.
+   * @return Number of locations.
+   */
+  public int size() {
+    return _size;
+  }
+
+  /**
+   * Find slot for a location.
+   * @param o Object.
+   * @param field Field identifier.
+   * @return Slot index, or <code>-1</code> if the location is not in use.
+   */
+  public int find(Object o, int field) {
+    int mask = _objects.length - 1;
+    for (int i = hash(o, field) & mask; ; i = (i + 1) & mask) {
+      Object e = _objects[i];
+      if (e == null) {
+        return -1;
+      }
+      if (e == o && _fields[i] == field) {
+        return i;
+      }
+    }
+  }
+
+  /**
+   * Get slot for a location, creating it with all state words set to <code>0</code> 
+   * and a <code>null</code> attachment if it is not in use.
+   * @param o Object.
+   * @param field Field identifier.
+   * @return Slot index.
+   */
+  public int slot(Object o, int field) {
+    if (2 * (_size + 1) > _objects.length) {
+      rehash(2 * _objects.length);
+    }
+    int mask = _objects.length - 1;
+    for (int i = hash(o, field) & mask; ; i = (i + 1) & mask) {
+      Object e = _objects[i];
+      if (e == null) {
+        _objects[i] = o;
+        _fields[i] = field;
+        _size++;
+        return i;
+      }
+      if (e == o && _fields[i] == field) {
+        return i;
+      }
+    }
+  }
+
+  /**
+   * Get state word.
+   * @param slot Slot index.
+   * @param word Word index.
+   * @return Value of state word.
+   */
+  public long get(int slot, int word) {
+    return _words[slot * _width + word];
+  }
+
+  /**
+   * Set state word.
+   * @param slot Slot index.
+   * @param word Word index.
+   * @param value Value to set.
+   */
+  public void set(int slot, int word, long value) {
+    _words[slot * _width + word] = value;
+  }
+
+  /**
+   * Get attachment.
+   * @param slot Slot index.
+   * @return Attachment object (<code>null</code> if not set).
+   */
+  public Object getAttachment(int slot) {
+    return _attachments[slot];
+  }
+
+  /**
+   * Set attachment.
+   * @param slot Slot index.
+   * @param attachment Attachment object.
+   */
+  public void setAttachment(int slot, Object attachment) {
+    _attachments[slot] = attachment;
+  }
+
+  /**
+   * Remove a location.
+   * @param slot Slot index.
+   */
+  public void remove(int slot) {
+    int mask = _objects.length - 1;
+    int free = slot;
+    // Shift back entries in the same probe sequence.
+    for (int i = (free + 1) & mask; _objects[i] != null; i = (i + 1) & mask) {
+      int home = hash(_objects[i], _fields[i]) & mask;
+      if (((i - home) & mask) >= ((i - free) & mask)) {
+        move(i, free);
+        free = i;
+      }
+    }
+    clearSlot(free);
+    _size--;
+  }
+
+  /**
+   * Remove all locations.
+   */
+  public void clear() {
+    if (_size > 0) {
+      Arrays.fill(_objects, null);
+      Arrays.fill(_attachments, null);
+      Arrays.fill(_words, 0L);
+      _size = 0;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void move(int from, int to) {
+    _objects[to] = _objects[from];
+    _fields[to] = _fields[from];
+    _attachments[to] = _attachments[from];
+    System.arraycopy(_words, from * _width, _words, to * _width, _width);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void clearSlot(int slot) {
+    _objects[slot] = null;
+    _attachments[slot] = null;
+    Arrays.fill(_words, slot * _width, (slot + 1) * _width, 0L);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void allocate(int capacity) {
+    _objects = new Object[capacity];
+    _fields = new int[capacity];
+    _words = new long[capacity * _width];
+    _attachments = new Object[capacity];
+  }
+
+  @SuppressWarnings("javadoc")
+  private void rehash(int capacity) {
+    Object[] objects = _objects;
+    int[] fields = _fields;
+    long[] words = _words;
+    Object[] attachments = _attachments;
+    allocate(capacity);
+    int mask = capacity - 1;
+    for (int j = 0; j < objects.length; j++) {
+      if (objects[j] != null) {
+        int i = hash(objects[j], fields[j]) & mask;
+        while (_objects[i] != null) {
+          i = (i + 1) & mask;
+        }
+        _objects[i] = objects[j];
+        _fields[i] = fields[j];
+        _attachments[i] = attachments[j];
+        System.arraycopy(words, j * _width, _words, i * _width, _width);
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int hash(Object o, int field) {
+    int h = System.identityHashCode(o) * 0x9E3779B9 + field;
+    h ^= h >>> 16;
+    h *= 0x85EBCA6B;
+    h ^= h >>> 13;
+    return h;
+  }
+}
@@ -33,7 +33,11 @@ public final class CAllFeatures {
       Collections.unmodifiableList(
           Arrays.asList(
               new org.cooperari.feature.atomic.CAtomicObjectsFeature(),
+              new org.cooperari.feature.collections.CConcurrentCollectionsFeature(),
               new org.cooperari.feature.data.CDataAccessFeature(),
+              new org.cooperari.feature.locks.CLocksFeature(),
+              new org.cooperari.feature.sync.CSynchronizersFeature(),
+              new org.cooperari.feature.executor.CExecutorFeature(),
               new org.cooperari.feature.monitor.CMonitorFeature(),
               new org.cooperari.feature.hotspots.CHotspotFeature(),
               new org.cooperari.feature.thread.CThreadFeature(),
@@ -18,6 +18,7 @@ package org.cooperari.feature;
 
 import java.util.List;
 
+import org.cooperari.config.CInstrument;
 import org.cooperari.core.CRuntime;
 import org.cooperari.core.CustomYieldPoint;
 
@@ -59,6 +60,20 @@ public interface CFeature {
   default void shutdown(CRuntime env) {
     
   }
+  /**
+   * Signal the start of a test trial.
+   * <p>
+   * Any per-trial state kept by the feature should be reset by this method.
+   * The default implementation does nothing.
+   * </p>
+   * 
+   * @param env A {@link CRuntime} object.
+   * @since 0.4
+   */
+  default void startTestTrial(CRuntime env) {
+    
+  }
+
   /**
    * Get aspect class for feature.
    * 
@@ -74,6 +89,19 @@ public interface CFeature {
   default Class<?> getInstrumentationAspect() {
     return null;
   }
+
+  /**
+   * Indicates if the feature's instrumentation aspect should be used for a given instrumentation configuration.
+   * <p>
+   * The default implementation returns <code>true</code>.
+   * </p>
+   * @param config Instrumentation configuration.
+   * @return <code>true</code> if the aspect given by {@link #getInstrumentationAspect()} should be woven.
+   * @since 0.4
+   */
+  default boolean isInstrumentationEnabled(CInstrument config) {
+    return true;
+  }
   
   /**
    * Add custom yield points to given list.
@@ -0,0 +1,43 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.collections;
+
+import org.cooperari.config.CInstrument;
+import org.cooperari.feature.CFeature;
+
+/**
+ * Handler for concurrent collection yield points.
+ * 
+ * <p>
+ * Instrumentation is only enabled if {@link CInstrument#concurrentCollections()} is set.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class CConcurrentCollectionsFeature implements CFeature {
+
+  @Override
+  public Class<?> getInstrumentationAspect() {
+    return YieldPoints.class;
+  }
+
+  @Override
+  public boolean isInstrumentationEnabled(CInstrument config) {
+    return config.concurrentCollections();
+  }
+
+}
@@ -0,0 +1,84 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.collections;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operation for a non-blocking call to a concurrent collection.
+ * 
+ * <p>
+ * The operation is a yield point, after which the actual call proceeds without further yield points. 
+ * Since concurrent collection operations are linearizable, the operation is also recorded 
+ * as a synchronization on the collection for race detection purposes, hence objects 
+ * handed over through a collection are not reported as racy.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class CollectionOperation extends COperation<Void> {
+
+  /**
+   * Thread.
+   */
+  private final CThread _thread;
+
+  /**
+   * Collection.
+   */
+  private final Object _collection;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param c Collection.
+   */
+  private CollectionOperation(CThread t, Object c) {
+    _thread = t;
+    _collection = c;
+  }
+
+  @Override
+  public void execute() {
+    record(_thread, _collection);
+  }
+
+  /**
+   * Record a synchronization on a collection, without yielding.
+   * @param t This thread.
+   * @param c Collection.
+   */
+  static void record(CThread t, Object c) {
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onSynchronize(t, c);
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param c Collection.
+   */
+  static void execute(CThread t, Object c) {
+    t.cYield(new CollectionOperation(t, c));
+  }
+}
@@ -0,0 +1,113 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.collections;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.SynchronousQueue;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.sync.BlockingOperation;
+
+/**
+ * Operations for blocking queue calls, e.g., <code>BlockingQueue.take()</code> or <code>BlockingQueue.put()</code>.
+ * 
+ * <p>
+ * The actual queue state is used as the model: an operation waits until 
+ * the queue is not empty (for removals) or has remaining capacity (for insertions),
+ * after which the actual call can proceed without blocking.
+ * <code>SynchronousQueue</code> and <code>DelayQueue</code> objects are not modeled, 
+ * as their blocking conditions do not depend only on size and capacity;
+ * for these, the operation is a plain yield point.
+ * </p>
+ * 
+ * @since 0.4
+ */
+abstract class QueueWait extends BlockingOperation {
+
+  /**
+   * Queue.
+   */
+  protected final BlockingQueue<?> _queue;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param q Queue.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  private QueueWait(CThread t, BlockingQueue<?> q, long timeout) {
+    super(t, true, timeout);
+    _queue = q;
+  }
+
+  @Override
+  protected void complete() {
+    CollectionOperation.record(_thread, _queue);
+  }
+
+  /**
+   * Test if a queue is modeled.
+   * @param q Queue.
+   * @return <code>true</code> if the queue is modeled.
+   */
+  private static boolean isModeled(BlockingQueue<?> q) {
+    return !(q instanceof SynchronousQueue) && !(q instanceof DelayQueue);
+  }
+
+  /**
+   * Wait for a queue to have an element to remove.
+   * @param t This thread.
+   * @param q Queue.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the queue has an element (or is not modeled), <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  static boolean removal(CThread t, final BlockingQueue<?> q, long timeout) throws InterruptedException {
+    if (!isModeled(q)) {
+      CollectionOperation.execute(t, q);
+      return true;
+    }
+    return execute(new QueueWait(t, q, timeout) {
+      @Override
+      protected boolean isAvailable() {
+        return !q.isEmpty();
+      }
+    });
+  }
+
+  /**
+   * Wait for a queue to have capacity for an element.
+   * @param t This thread.
+   * @param q Queue.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the queue has capacity (or is not modeled), <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  static boolean insertion(CThread t, final BlockingQueue<?> q, long timeout) throws InterruptedException {
+    if (!isModeled(q)) {
+      CollectionOperation.execute(t, q);
+      return true;
+    }
+    return execute(new QueueWait(t, q, timeout) {
+      @Override
+      protected boolean isAvailable() {
+        return q.remainingCapacity() > 0;
+      }
+    });
+  }
+}
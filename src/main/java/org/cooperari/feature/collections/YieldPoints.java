@@ -0,0 +1,186 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.collections;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Pointcut;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.sync.BlockingOperation;
+
+/**
+ * AspectJ instrumentation for concurrent collections.
+ * 
+ * <p>
+ * Calls to <code>Collection</code> and <code>Map</code> methods made from woven code 
+ * on concurrent collections of <code>java.util.concurrent</code>
+ * are single cooperative operations. Blocking queue insertions and removals 
+ * wait cooperatively until the actual call can proceed without blocking.
+ * </p>
+ * 
+ * @since 0.4
+ */
+@Aspect
+public final class YieldPoints {
+
+  /**
+   * Pointcut for calls to concurrent collections.
+   */
+  @Pointcut("(call(public * java.util.Collection+.*(..)) || call(public * java.util.Map+.*(..)))"
+      + " && (target(java.util.concurrent.ConcurrentMap)"
+      + " || target(java.util.concurrent.BlockingQueue)"
+      + " || target(java.util.concurrent.ConcurrentLinkedQueue)"
+      + " || target(java.util.concurrent.ConcurrentLinkedDeque)"
+      + " || target(java.util.concurrent.ConcurrentSkipListSet)"
+      + " || target(java.util.concurrent.CopyOnWriteArrayList)"
+      + " || target(java.util.concurrent.CopyOnWriteArraySet))")
+  public void collectionCall() { }
+
+  /**
+   * Pointcut for blocking queue removals.
+   * @param q Target queue.
+   */
+  @Pointcut("(call(* java.util.concurrent.BlockingQueue+.take())"
+      + " || call(* java.util.concurrent.BlockingDeque+.takeFirst())"
+      + " || call(* java.util.concurrent.BlockingDeque+.takeLast())) && target(q)")
+  public void removal(BlockingQueue<?> q) { }
+
+  /**
+   * Pointcut for blocking queue insertions.
+   * @param q Target queue.
+   */
+  @Pointcut("(call(void java.util.concurrent.BlockingQueue+.put(*))"
+      + " || call(void java.util.concurrent.BlockingDeque+.putFirst(*))"
+      + " || call(void java.util.concurrent.BlockingDeque+.putLast(*))) && target(q)")
+  public void insertion(BlockingQueue<?> q) { }
+
+  /**
+   * Pointcut for blocking queue removals with a timeout.
+   * @param q Target queue.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   */
+  @Pointcut("(call(* java.util.concurrent.BlockingQueue+.poll(long,java.util.concurrent.TimeUnit))"
+      + " || call(* java.util.concurrent.BlockingDeque+.pollFirst(long,java.util.concurrent.TimeUnit))"
+      + " || call(* java.util.concurrent.BlockingDeque+.pollLast(long,java.util.concurrent.TimeUnit)))"
+      + " && target(q) && args(time,unit)")
+  public void timedRemoval(BlockingQueue<?> q, long time, TimeUnit unit) { }
+
+  /**
+   * Pointcut for blocking queue insertions with a timeout.
+   * @param q Target queue.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   */
+  @Pointcut("(call(boolean java.util.concurrent.BlockingQueue+.offer(*,long,java.util.concurrent.TimeUnit))"
+      + " || call(boolean java.util.concurrent.BlockingDeque+.offerFirst(*,long,java.util.concurrent.TimeUnit))"
+      + " || call(boolean java.util.concurrent.BlockingDeque+.offerLast(*,long,java.util.concurrent.TimeUnit)))"
+      + " && target(q) && args(*,time,unit)")
+  public void timedInsertion(BlockingQueue<?> q, long time, TimeUnit unit) { }
+
+  /**
+   * Around advice executed in place of non-blocking calls to concurrent collections.
+   * @param thisJoinPoint Join point.
+   * @return The result of the call.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("collectionCall() && !removal(*) && !insertion(*) && !timedRemoval(*,*,*) && !timedInsertion(*,*,*)")
+  public Object aroundCall(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      CollectionOperation.execute(t, thisJoinPoint.getTarget());
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of blocking queue removals, e.g., <code>BlockingQueue.take()</code>.
+   * @param thisJoinPoint Join point.
+   * @param q Target queue.
+   * @return The removed element.
+   * @throws InterruptedException If the thread is interrupted.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("removal(q)")
+  public Object aroundRemoval(ProceedingJoinPoint thisJoinPoint, BlockingQueue<?> q) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      QueueWait.removal(t, q, BlockingOperation.NO_TIMEOUT);
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of blocking queue insertions, e.g., <code>BlockingQueue.put()</code>.
+   * @param thisJoinPoint Join point.
+   * @param q Target queue.
+   * @throws InterruptedException If the thread is interrupted.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("insertion(q)")
+  public void aroundInsertion(ProceedingJoinPoint thisJoinPoint, BlockingQueue<?> q) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      QueueWait.insertion(t, q, BlockingOperation.NO_TIMEOUT);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of blocking queue removals with a timeout, 
+   * e.g., <code>BlockingQueue.poll(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param q Target queue.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return The removed element, or <code>null</code> if the waiting time elapsed.
+   * @throws InterruptedException If the thread is interrupted.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("timedRemoval(q,time,unit)")
+  public Object aroundTimedRemoval(ProceedingJoinPoint thisJoinPoint, BlockingQueue<?> q, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !QueueWait.removal(t, q, unit.toNanos(time))) {
+      return null;
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of blocking queue insertions with a timeout, 
+   * e.g., <code>BlockingQueue.offer(Object,long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param q Target queue.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return <code>true</code> if the element was inserted, <code>false</code> if the waiting time elapsed.
+   * @throws InterruptedException If the thread is interrupted.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("timedInsertion(q,time,unit)")
+  public boolean aroundTimedInsertion(ProceedingJoinPoint thisJoinPoint, BlockingQueue<?> q, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !QueueWait.insertion(t, q, unit.toNanos(time))) {
+      return false;
+    }
+    return (Boolean) thisJoinPoint.proceed();
+  }
+}
@@ -0,0 +1,24 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+/**
+ * Models for concurrent collections in <code>java.util.concurrent</code>, where each
+ * call is a single cooperative operation, enabled through 
+ * {@link org.cooperari.config.CInstrument#concurrentCollections()}.
+ *
+ * @since 0.4
+ */
+package org.cooperari.feature.collections;
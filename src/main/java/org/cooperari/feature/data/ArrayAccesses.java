@@ -0,0 +1,100 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.util.Arrays;
+
+import org.cooperari.core.CThread;
+import org.cooperari.core.CYieldPointTable;
+import org.cooperari.core.scheduling.CYieldPoint;
+
+/**
+ * Hooks for array element accesses instrumented at the bytecode level.
+ * 
+ * <p>
+ * Calls to these methods are inserted before array loads and stores 
+ * in woven classes when {@link org.cooperari.config.CInstrument#arrays()} is set
+ * (see {@link org.cooperari.core.aspectj.ArrayAccessTransformer}).
+ * Each call identifies the yield point for the access by its identifier in 
+ * the yield point table (see {@link CYieldPointTable}).
+ * The hooks have the same effect as the advice for {@link org.cooperari.CArray} methods
+ * defined in {@link YieldPoints}.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class ArrayAccesses {
+
+  /**
+   * Yield points indexed by identifier, cached from the yield point table.
+   */
+  private static volatile CYieldPoint[] SITES = new CYieldPoint[0];
+
+  /**
+   * Hook for array loads.
+   * @param array Array.
+   * @param index Index.
+   * @param site Yield point identifier.
+   */
+  public static void load(Object array, int index, int site) {
+    if (array != null && index >= 0 && CThread.self() != null) {
+      CThread t = CThread.intercept(yieldPoint(site));
+      Read.before(t, array, index);
+      Read.after(t, array, index);
+    }
+  }
+
+  /**
+   * Hook for array stores.
+   * @param array Array.
+   * @param index Index.
+   * @param site Yield point identifier.
+   */
+  public static void store(Object array, int index, int site) {
+    if (array != null && index >= 0 && CThread.self() != null) {
+      CThread t = CThread.intercept(yieldPoint(site));
+      Write.before(t, array, index);
+      Write.after(t, array, index);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static CYieldPoint yieldPoint(int site) {
+    CYieldPoint[] sites = SITES;
+    if (site < sites.length && sites[site] != null) {
+      return sites[site];
+    }
+    synchronized (ArrayAccesses.class) {
+      sites = SITES;
+      if (site >= sites.length) {
+        sites = Arrays.copyOf(sites, Math.max(site + 1, 2 * sites.length));
+      } else {
+        sites = sites.clone();
+      }
+      sites[site] = CYieldPointTable.INSTANCE.get(site);
+      SITES = sites;
+      return sites[site];
+    }
+  }
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private ArrayAccesses() {
+
+  }
+}
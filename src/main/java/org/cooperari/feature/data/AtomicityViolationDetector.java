@@ -0,0 +1,281 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.util.Arrays;
+
+import org.cooperari.config.CDetectAtomicityViolations;
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.CYieldPointTable;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.core.util.ShadowMemory;
+import org.cooperari.errors.CAtomicityViolationError;
+
+/**
+ * Atomicity violation detector.
+ * 
+ * <p>
+ * The detector follows the access interleaving patterns of AVIO (Lu et al., ASPLOS'06). 
+ * For each access by a thread to some data, the previous access by the same thread 
+ * and the interleaving accesses by another thread in between are considered. 
+ * Four of the eight possible patterns are not serializable and flagged as violations:
+ * read-write-read (two reads observe different values), write-write-read (a read does not observe the thread's own write),
+ * write-read-write (a remote read observes an intermediate value), and read-write-write (a remote write is lost).
+ * </p>
+ * 
+ * <p>
+ * Accesses are signaled through {@link #onAccess(CThread, Object, int, boolean)} when they complete,
+ * hence in the order in which they actually take effect during cooperative execution.
+ * A pair of accesses by a thread is not considered if the thread forked or joined other threads in between
+ * (signaled through {@link #onFork} and {@link #onJoin}), since the interleaving accesses are then
+ * ordered by design.
+ * </p>
+ * 
+ * <p>
+ * Implementation note: the state of each data location is kept in a {@link ShadowMemory}
+ * as two words, each describing a run of consecutive accesses by the same thread 
+ * (thread id, site of the last access, kind of the last access, and if any access in the run was a read or a write): 
+ * the last run, and the run before it. When more than two threads interleave accesses 
+ * to the same data, only the last interleaving thread is taken into account.
+ * The fork/join epoch of the thread for each run is kept in full in two additional words,
+ * rather than truncated in the run word, so that runs of a thread that forked or joined many threads
+ * in between are never mistaken for runs in the current epoch.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class AtomicityViolationDetector {
+
+  /**
+   * Index of word for the last run of accesses in shadow memory.
+   */
+  private static final int LAST = 0;
+
+  /**
+   * Index of word for the run of accesses before the last one in shadow memory.
+   */
+  private static final int PREV = 1;
+
+  /**
+   * Index of word for the fork/join epoch of the last run of accesses in shadow memory.
+   */
+  private static final int LAST_EPOCH = 2;
+
+  /**
+   * Index of word for the fork/join epoch of the run of accesses before the last one in shadow memory.
+   */
+  private static final int PREV_EPOCH = 3;
+
+  /**
+   * Mask for the site in a run word (stored plus one, <code>0</code> standing for unknown).
+   */
+  private static final long SITE_MASK = 0xFFFFFFFFL;
+
+  /**
+   * Shift for the thread id in a run word (stored plus one, so that <code>0</code> stands for no run).
+   */
+  private static final int THREAD_SHIFT = 32;
+
+  /**
+   * Mask for thread id in a run word after shifting.
+   */
+  private static final long THREAD_MASK = 0xFFFFL;
+
+  /**
+   * Flag in run word indicating that the last access in the run is a write.
+   */
+  private static final long LAST_WRITE = 1L << 56;
+
+  /**
+   * Flag in run word indicating that some access in the run is a write.
+   */
+  private static final long ANY_WRITE = 1L << 57;
+
+  /**
+   * Flag in run word indicating that some access in the run is a read.
+   */
+  private static final long ANY_READ = 1L << 58;
+
+  /**
+   * Internal state.
+   */
+  private final ShadowMemory _state = new ShadowMemory(4);
+
+  /**
+   * Exception throwing flag.
+   */
+  private final boolean _throwErrors;
+
+  /**
+   * Fork/join epochs for threads, indexed by thread id.
+   */
+  private int[] _epochs = new int[0];
+
+  /**
+   * Constructor.
+   * @param config Configuration.
+   */
+  public AtomicityViolationDetector(CDetectAtomicityViolations config) {
+    _throwErrors = config.throwErrors();
+    assert CWorkspace.debug("AVD initialized | throwErrors=%s", _throwErrors);
+  }
+
+  /**
+   * Signal the start of a test trial.
+   */
+  public void startTestTrial() {
+    _state.clear();
+    Arrays.fill(_epochs, 0);
+  }
+
+  /**
+   * Signal thread creation.
+   * @param t Parent thread.
+   * @param child Child thread.
+   */
+  public void onFork(CThread t, CThread child) {
+    nextEpoch(t);
+  }
+
+  /**
+   * Signal thread join.
+   * @param t Thread.
+   * @param joined Thread that terminated.
+   */
+  public void onJoin(CThread t, CThread joined) {
+    nextEpoch(t);
+  }
+
+  /**
+   * Signal a completed data access.
+   * @param t Thread.
+   * @param o Object.
+   * @param key Data key, a field identifier or an array index.
+   * @param write <code>true</code> for a write access, <code>false</code> for a read.
+   */
+  public void onAccess(CThread t, Object o, int key, boolean write) {
+    int cid = t.getCID();
+    int epoch = cid < _epochs.length ? _epochs[cid] : 0;
+    int site = t.getYieldPointId();
+    int slot = _state.slot(o, key);
+    long last = _state.get(slot, LAST);
+    boolean anyWrite = write, anyRead = !write;
+    long lastEpoch = _state.get(slot, LAST_EPOCH);
+    if (last == 0L || sameThread(last, lastEpoch, cid, epoch)) {
+      anyWrite |= (last & ANY_WRITE) != 0;
+      anyRead |= (last & ANY_READ) != 0;
+    } else {
+      long prev = _state.get(slot, PREV);
+      long prevEpoch = _state.get(slot, PREV_EPOCH);
+      _state.set(slot, PREV, last);
+      _state.set(slot, PREV_EPOCH, lastEpoch);
+      _state.set(slot, LAST, run(cid, site, write, anyWrite, anyRead));
+      _state.set(slot, LAST_EPOCH, epoch);
+      if (prev != 0L && sameThread(prev, prevEpoch, cid, epoch)) {
+        boolean p = (prev & LAST_WRITE) != 0, remoteWrite = (last & ANY_WRITE) != 0, remoteRead = (last & ANY_READ) != 0;
+        if (unserializable(p, remoteWrite, remoteRead, write)) {
+          // A remote read between local writes is reported as W-R-W, even if the remote run also writes.
+          boolean remoteKind = !(p && write && remoteRead);
+          reportViolation(t, o, key, prev, last, kind(p) + "-" + kind(remoteKind) + "-" + kind(write));
+        }
+      }
+      return;
+    }
+    _state.set(slot, LAST, run(cid, site, write, anyWrite, anyRead));
+    _state.set(slot, LAST_EPOCH, epoch);
+  }
+
+  /**
+   * Test if an access pattern is not serializable.
+   * @param p <code>true</code> if the previous local access is a write.
+   * @param remoteWrite <code>true</code> if the interleaving remote accesses include a write.
+   * @param remoteRead <code>true</code> if the interleaving remote accesses include a read.
+   * @param c <code>true</code> if the current local access is a write.
+   * @return <code>true</code> for the R-W-R, W-W-R, W-R-W and R-W-W patterns.
+   */
+  static boolean unserializable(boolean p, boolean remoteWrite, boolean remoteRead, boolean c) {
+    return (remoteWrite && (!p || !c)) || (remoteRead && p && c);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void reportViolation(CThread t, Object o, int key, long prev, long remote, String pattern) {
+    CRuntime.getRuntime().get(CTrace.class).record(t, CTrace.EventType.ATOMICITY_VIOLATION);
+    assert CWorkspace.debug("AVD violation | %s %s %s", o.getClass(), key, pattern);
+    if (_throwErrors) {
+      String msg = 
+          String.format
+          ("Atomicity violation: %s at %s:%d over %s, %s pattern after %s and interleaving access at %s", 
+              t.getName(), 
+              t.getLocation().getYieldPoint().getSourceFile(),
+              t.getLocation().getYieldPoint().getSourceLine(),
+              FieldIds.describe(o, key),
+              pattern, 
+              location(prev),
+              location(remote));
+      throw new CAtomicityViolationError(msg);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void nextEpoch(CThread t) {
+    int cid = t.getCID();
+    if (cid >= _epochs.length) {
+      _epochs = Arrays.copyOf(_epochs, Math.max(cid + 1, 2 * _epochs.length));
+    }
+    _epochs[cid]++;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static long run(int cid, int site, boolean lastWrite, boolean anyWrite, boolean anyRead) {
+    long w = ((site + 1L) & SITE_MASK) 
+           | (((cid + 1L) & THREAD_MASK) << THREAD_SHIFT);
+    if (lastWrite) {
+      w |= LAST_WRITE;
+    }
+    if (anyWrite) {
+      w |= ANY_WRITE;
+    }
+    if (anyRead) {
+      w |= ANY_READ;
+    }
+    return w;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean sameThread(long run, long runEpoch, int cid, int epoch) {
+    return (int) ((run >>> THREAD_SHIFT) & THREAD_MASK) - 1 == cid
+        && runEpoch == epoch;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String location(long run) {
+    int site = (int) (run & SITE_MASK) - 1;
+    if (site < 0) {
+      return "?";
+    }
+    CYieldPoint yp = CYieldPointTable.INSTANCE.get(site);
+    return yp.getSourceFile() + ":" + yp.getSourceLine();
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String kind(boolean write) {
+    return write ? "W" : "R";
+  }
+}
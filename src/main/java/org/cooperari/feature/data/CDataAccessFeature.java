@@ -16,6 +16,7 @@
 
 package org.cooperari.feature.data;
 
+import org.cooperari.config.CDetectAtomicityViolations;
 import org.cooperari.config.CRaceDetection;
 import org.cooperari.core.CRuntime;
 import org.cooperari.feature.CFeature;
@@ -32,8 +33,25 @@ public final class CDataAccessFeature implements CFeature {
   public void init(CRuntime env) {
     CRaceDetection config = env.getConfiguration(CRaceDetection.class);
     if (config.value()) {
-      env.register(new RaceDetector(config));
+      env.register(RaceDetector.class, 
+          config.happensBefore() ? new HappensBeforeRaceDetector(config) : new RaceDetector(config));
     } 
+    CDetectAtomicityViolations avConfig = env.getConfiguration(CDetectAtomicityViolations.class);
+    if (avConfig.value()) {
+      env.register(AtomicityViolationDetector.class, new AtomicityViolationDetector(avConfig));
+    }
+  }
+
+  @Override
+  public void startTestTrial(CRuntime env) {
+    RaceDetector rd = env.get(RaceDetector.class);
+    if (rd != null) {
+      rd.startTestTrial();
+    }
+    AtomicityViolationDetector avd = env.get(AtomicityViolationDetector.class);
+    if (avd != null) {
+      avd.startTestTrial();
+    }
   }
 
   @Override
@@ -41,6 +59,9 @@ public final class CDataAccessFeature implements CFeature {
     if (env.get(RaceDetector.class) != null) {
       env.unregister(RaceDetector.class);
     }
+    if (env.get(AtomicityViolationDetector.class) != null) {
+      env.unregister(AtomicityViolationDetector.class);
+    }
   }
 
   @Override
@@ -0,0 +1,121 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.Signature;
+import org.aspectj.lang.reflect.FieldSignature;
+
+/**
+ * Registry of interned field identifiers.
+ * 
+ * <p>
+ * Every woven field is identified by a unique negative integer, determined by 
+ * its declaring class and name, so that field identifiers never clash with 
+ * array indexes, which are used as data keys for array accesses.
+ * The identifier is computed once per static join point, hence per-access
+ * lookups do not require string hashing or comparison.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class FieldIds {
+
+  /**
+   * Identifiers per static join point.
+   */
+  private static final ConcurrentHashMap<JoinPoint.StaticPart, Integer> JOIN_POINT_CACHE = new ConcurrentHashMap<>();
+
+  /**
+   * Identifiers per field.
+   */
+  private static final HashMap<Object, Integer> FIELD_IDS = new HashMap<>();
+
+  /**
+   * Field names, indexed by <code>-1-id</code>.
+   */
+  private static final ArrayList<String> FIELD_NAMES = new ArrayList<>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private FieldIds() {
+
+  }
+
+  /**
+   * Get identifier of the field accessed at a join point.
+   * @param jpsp Join point information.
+   * @return Field identifier (a negative value).
+   */
+  static int of(JoinPoint.StaticPart jpsp) {
+    Integer id = JOIN_POINT_CACHE.get(jpsp);
+    if (id == null) {
+      id = intern(jpsp.getSignature());
+      JOIN_POINT_CACHE.putIfAbsent(jpsp, id);
+    }
+    return id;
+  }
+
+  /**
+   * Get name of field for an identifier.
+   * @param id Field identifier.
+   * @return Qualified name for the field, i.e., the declaring class name followed by the field name.
+   */
+  static String nameOf(int id) {
+    synchronized (FIELD_IDS) {
+      return FIELD_NAMES.get(-1 - id);
+    }
+  }
+
+  /**
+   * Describe data being accessed, for use in error messages.
+   * @param o Object.
+   * @param key Data key, a field identifier or an array index.
+   * @return Qualified field name, or array type followed by the index.
+   */
+  static String describe(Object o, int key) {
+    return key < 0 ? nameOf(key) : o.getClass().getCanonicalName() + "[" + key + "]";
+  }
+
+  @SuppressWarnings("javadoc")
+  private static int intern(Signature sig) {
+    Field f = sig instanceof FieldSignature ? ((FieldSignature) sig).getField() : null;
+    Object key;
+    String name;
+    if (f != null) {
+      key = f;
+      name = f.getDeclaringClass().getName() + '.' + f.getName();
+    } else {
+      key = name = sig.getDeclaringTypeName() + '.' + sig.getName();
+    }
+    synchronized (FIELD_IDS) {
+      Integer id = FIELD_IDS.get(key);
+      if (id == null) {
+        id = -1 - FIELD_NAMES.size();
+        FIELD_IDS.put(key, id);
+        FIELD_NAMES.add(name);
+      }
+      return id;
+    }
+  }
+}
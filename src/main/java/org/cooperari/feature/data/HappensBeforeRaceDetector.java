@@ -0,0 +1,314 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.util.ShadowMemory;
+
+/**
+ * Happens-before race detector.
+ * 
+ * <p>
+ * This detector follows the FastTrack algorithm 
+ * (C. Flanagan and S. N. Freund, "FastTrack: efficient and precise dynamic race detection", PLDI 2009).
+ * Each thread has a vector clock, updated on lock acquisition and release (including
+ * the release and re-acquisition of a monitor by <code>wait()</code>), 
+ * thread start and join, and atomic operations. 
+ * For each data item, the last write is represented by an epoch (a thread identifier and clock value pair), 
+ * and so are reads unless they are concurrent, in which case a vector clock is used.
+ * Epochs are kept in a {@link ShadowMemory}.
+ * A race is reported when an access is not ordered by happens-before with a previous conflicting access, 
+ * even if these accesses took place in different steps of the cooperative execution.
+ * </p>
+ * 
+ * <p>
+ * All state is reset at the start of each test trial.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class HappensBeforeRaceDetector extends RaceDetector {
+
+  /**
+   * Word index for write epoch in shadow memory.
+   */
+  private static final int WRITE = 0;
+
+  /**
+   * Word index for read epoch in shadow memory.
+   */
+  private static final int READ = 1;
+
+  /**
+   * Word index for the site of the last write in shadow memory.
+   */
+  private static final int WRITE_SITE = 2;
+
+  /**
+   * Word index for the site of the read epoch in shadow memory.
+   */
+  private static final int READ_SITE = 3;
+
+  /**
+   * Access state for each data item: last write epoch and last read epoch, 
+   * the sites of the last write and of the read epoch,
+   * plus a {@link SharedReads} attachment when reads are shared.
+   * Epochs are encoded by {@link #epoch(int, int)}, <code>0</code> meaning no access.
+   */
+  private final ShadowMemory _accessState = new ShadowMemory(4);
+
+  /**
+   * Vector clocks for synchronization objects (locks and atomic objects).
+   */
+  private final IdentityHashMap<Object, VectorClock> _syncClocks = new IdentityHashMap<>();
+
+  /**
+   * Vector clocks for threads indexed by cooperative thread identifier.
+   */
+  private VectorClock[] _threadClocks = new VectorClock[8];
+
+  /**
+   * Constructor.
+   * @param config Configuration.
+   */
+  public HappensBeforeRaceDetector(CRaceDetection config) {
+    super(config);
+  }
+
+  @Override
+  public void startTestTrial() {
+    super.startTestTrial();
+    _accessState.clear();
+    _syncClocks.clear();
+    Arrays.fill(_threadClocks, null);
+  }
+
+  @Override
+  public void beginRead(Object o, int key) {
+    CThread t = (CThread) Thread.currentThread();
+    int tid = t.getCID();
+    VectorClock c = clockOf(t);
+    int slot = _accessState.slot(o, key);
+    long now = epoch(tid, c.get(tid));
+    SharedReads readers = (SharedReads) _accessState.getAttachment(slot);
+    long read = _accessState.get(slot, READ);
+    if (readers != null ? readers._clock.get(tid) == c.get(tid) : read == now) {
+      return; // same epoch
+    }
+    boolean race = !ordered(_accessState.get(slot, WRITE), c);
+    int otherSite = decodeSite(_accessState.get(slot, WRITE_SITE));
+    int site = t.getYieldPointId();
+    if (readers != null) {
+      readers.set(tid, c.get(tid), site);
+    } else if (ordered(read, c)) {
+      _accessState.set(slot, READ, now);
+      _accessState.set(slot, READ_SITE, encodeSite(site));
+    } else {
+      readers = new SharedReads();
+      readers.set((int) (read >>> 32), (int) read, decodeSite(_accessState.get(slot, READ_SITE)));
+      readers.set(tid, c.get(tid), site);
+      _accessState.setAttachment(slot, readers);
+      _accessState.set(slot, READ, 0L);
+      _accessState.set(slot, READ_SITE, 0L);
+    }
+    assert CWorkspace.debug("HB read | %s %s %s %s", o.getClass(), key, c, race);
+    if (race) {
+      reportRace(o, key, otherSite);
+    }
+  }
+
+  @Override
+  public void endRead(Object o, int key) {
+    // Nothing to do. 
+  }
+
+  @Override
+  public void beginWrite(Object o, int key) {
+    CThread t = (CThread) Thread.currentThread();
+    int tid = t.getCID();
+    VectorClock c = clockOf(t);
+    int slot = _accessState.slot(o, key);
+    long now = epoch(tid, c.get(tid));
+    long write = _accessState.get(slot, WRITE);
+    if (write == now) {
+      return; // same epoch
+    }
+    boolean race = !ordered(write, c);
+    int otherSite = race ? decodeSite(_accessState.get(slot, WRITE_SITE)) : -1;
+    SharedReads readers = (SharedReads) _accessState.getAttachment(slot);
+    if (race) {
+      _accessState.setAttachment(slot, null);
+    } else if (readers != null) {
+      // Site of a read by another thread that is not ordered before this write, if any.
+      otherSite = readers.unorderedSite(c);
+      race = otherSite != SharedReads.NONE;
+      _accessState.setAttachment(slot, null);
+    } else if (!ordered(_accessState.get(slot, READ), c)) {
+      // The read epoch is not ordered, hence it is from another thread.
+      race = true;
+      otherSite = decodeSite(_accessState.get(slot, READ_SITE));
+    }
+    _accessState.set(slot, READ, 0L);
+    _accessState.set(slot, READ_SITE, 0L);
+    _accessState.set(slot, WRITE, now);
+    _accessState.set(slot, WRITE_SITE, encodeSite(t.getYieldPointId()));
+    assert CWorkspace.debug("HB write | %s %s %s %s", o.getClass(), key, c, race);
+    if (race) {
+      reportRace(o, key, otherSite);
+    }
+  }
+
+  @Override
+  public void endWrite(Object o, int key) {
+    // Nothing to do. 
+  }
+
+  @Override
+  public void onAcquire(CThread t, Object lock) {
+    VectorClock l = _syncClocks.get(lock);
+    if (l != null) {
+      clockOf(t).join(l);
+    }
+  }
+
+  @Override
+  public void onRelease(CThread t, Object lock) {
+    VectorClock c = clockOf(t);
+    VectorClock l = _syncClocks.get(lock);
+    if (l == null) {
+      _syncClocks.put(lock, new VectorClock(c));
+    } else {
+      l.assign(c);
+    }
+    c.increment(t.getCID());
+  }
+
+  @Override
+  public void onSynchronize(CThread t, Object o) {
+    VectorClock c = clockOf(t);
+    VectorClock l = _syncClocks.get(o);
+    if (l == null) {
+      _syncClocks.put(o, new VectorClock(c));
+    } else {
+      c.join(l);
+      l.assign(c);
+    }
+    c.increment(t.getCID());
+  }
+
+  @Override
+  public void onFork(CThread t, CThread child) {
+    VectorClock c = clockOf(t);
+    clockOf(child).join(c);
+    c.increment(t.getCID());
+  }
+
+  @Override
+  public void onJoin(CThread t, CThread joined) {
+    VectorClock c = clockOf(joined);
+    clockOf(t).join(c);
+    c.increment(joined.getCID());
+  }
+
+  /**
+   * Encode an epoch.
+   * @param tid Thread identifier.
+   * @param clock Clock value for the thread (always greater than <code>0</code>).
+   * @return A <code>long</code> value combining both arguments.
+   */
+  private static long epoch(int tid, int clock) {
+    return ((long) tid << 32) | clock;
+  }
+
+  /**
+   * Test if an epoch happens-before the current time of a thread.
+   * @param epoch Epoch (<code>0</code> if not defined).
+   * @param c Vector clock of thread.
+   * @return <code>true</code> if the epoch is undefined or ordered before the thread's current time. 
+   */
+  private static boolean ordered(long epoch, VectorClock c) {
+    return epoch == 0L || (int) epoch <= c.get((int) (epoch >>> 32));
+  }
+
+  /**
+   * Concurrent reads of a data item: the vector clock of reads, and the site of the last read by each thread.
+   */
+  private static final class SharedReads {
+    /**
+     * Value returned by {@link #unorderedSite(VectorClock)} when all reads are ordered.
+     */
+    static final int NONE = -2;
+
+    /**
+     * Vector clock of reads.
+     */
+    final VectorClock _clock = new VectorClock();
+
+    /**
+     * Encoded sites of reads indexed by thread identifier.
+     */
+    long[] _sites = new long[4];
+
+    /**
+     * Record a read.
+     * @param tid Thread identifier.
+     * @param clock Clock value for the thread.
+     * @param site Yield point identifier for the read, or <code>-1</code> if unknown.
+     */
+    void set(int tid, int clock, int site) {
+      _clock.set(tid, clock);
+      if (tid >= _sites.length) {
+        _sites = Arrays.copyOf(_sites, Math.max(tid + 1, 2 * _sites.length));
+      }
+      _sites[tid] = encodeSite(site);
+    }
+
+    /**
+     * Find a read that is not ordered before the current time of a thread.
+     * @param c Vector clock of thread.
+     * @return Yield point identifier of the read (<code>-1</code> if unknown), or {@link #NONE} if all reads are ordered.
+     */
+    int unorderedSite(VectorClock c) {
+      for (int tid = 0; tid < _sites.length; tid++) {
+        if (_clock.get(tid) > c.get(tid)) {
+          return decodeSite(_sites[tid]);
+        }
+      }
+      return NONE;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private VectorClock clockOf(CThread t) {
+    int tid = t.getCID();
+    if (tid >= _threadClocks.length) {
+      _threadClocks = Arrays.copyOf(_threadClocks, Math.max(tid + 1, 2 * _threadClocks.length));
+    }
+    VectorClock c = _threadClocks[tid];
+    if (c == null) {
+      c = new VectorClock();
+      c.set(tid, 1);
+      _threadClocks[tid] = c;
+    }
+    return c;
+  }
+}
@@ -17,322 +17,428 @@
 package org.cooperari.feature.data;
 
 
-import java.util.HashMap;
+import java.util.Arrays;
 
 import org.cooperari.config.CRaceDetection;
+import org.cooperari.core.CRaceRegistry;
 import org.cooperari.core.CRuntime;
 import org.cooperari.core.CThread;
 import org.cooperari.core.CTrace;
 import org.cooperari.core.CWorkspace;
+import org.cooperari.core.util.ShadowMemory;
 import org.cooperari.errors.CInternalError;
 import org.cooperari.errors.CRaceError;
 
 
 /**
  * Race detector.
+ * 
+ * <p>
+ * This detector flags a race when accesses to the same data by different threads
+ * overlap in time, i.e., when a thread accesses data between the beginning and end of 
+ * a conflicting access by another thread. Synchronization events are signaled 
+ * through {@link #onAcquire}, {@link #onRelease}, {@link #onSynchronize}, {@link #onFork} and {@link #onJoin},
+ * but are ignored by this detector. They are taken into account by {@link HappensBeforeRaceDetector}.
+ * </p>
+ * 
+ * <p>
+ * Implementation note: the state of data being accessed is kept in a {@link ShadowMemory},
+ * keyed by object and data key (an interned field identifier or an array index), 
+ * with reader and writer counts and a race flag packed into a single <code>long</code> word.
+ * For reads and writes, the last access and the last access by a different thread
+ * are kept as well, so that a race is reported along with a conflicting access by another thread.
+ * No memory is allocated per access.
+ * </p>
+ * 
+ * <p>
+ * If sampling is enabled through {@link CRaceDetection#sampling()}, callers
+ * use {@link #sample(CThread)} and {@link #sampled(CThread)} to decide 
+ * which accesses are signaled to the detector.
+ * </p>
  *
  * @since 0.2
  */
 public class RaceDetector {
+  /**
+   * Increment in status word for a reader.
+   */
+  private static final long READER = 1L;
+
+  /**
+   * Increment in status word for a writer.
+   */
+  private static final long WRITER = 1L << 30;
+
+  /**
+   * Mask for reader or writer count in status word.
+   */
+  private static final long COUNT_MASK = WRITER - 1;
+
+  /**
+   * Race flag in status word.
+   */
+  private static final long RACE = 1L << 62;
+
+  /**
+   * Data identifier used in the race registry for array accesses, 
+   * so that array races are aggregated per array type and pair of sites.
+   */
+  private static final int ARRAY_DATA_ID = 0;
+
+  /**
+   * Index of status word in shadow memory.
+   */
+  private static final int STATUS = 0;
+
+  /**
+   * Index of word holding the last write to begin in shadow memory.
+   */
+  private static final int LAST_WRITE = 1;
+
+  /**
+   * Index of word holding the last write by a thread other than that of {@link #LAST_WRITE} in shadow memory.
+   */
+  private static final int OTHER_WRITE = 2;
+
+  /**
+   * Index of word holding the last read to begin in shadow memory.
+   */
+  private static final int LAST_READ = 3;
+
+  /**
+   * Index of word holding the last read by a thread other than that of {@link #LAST_READ} in shadow memory.
+   */
+  private static final int OTHER_READ = 4;
+
   /**
    * Internal state.
    */
-  private final HashMap<Data, Status> _monitoring = new HashMap<>();
+  private final ShadowMemory _monitoring = new ShadowMemory(5);
 
   /**
    * Exception throwing flag.
    */
   private final boolean _throwRaceErrors;
 
+  /**
+   * Sampler, if sampling is enabled.
+   */
+  private final RaceSampler _sampler;
+
+  /**
+   * Sampling decision for the current access of each thread, indexed by thread id.
+   */
+  private boolean[] _sampledAccess = new boolean[0];
+
   /**
    * Constructor.
    * @param config Configuration.
    */
   public RaceDetector(CRaceDetection config) {
     _throwRaceErrors = config.throwErrors(); 
-    assert CWorkspace.debug("RD initialized | throwErrors=%s", _throwRaceErrors);
+    _sampler = config.sampling() ? new RaceSampler(config) : null;
+    assert CWorkspace.debug("RD initialized | throwErrors=%s sampling=%s", _throwRaceErrors, config.sampling());
+  }
+
+  /**
+   * Decide if a data access by a thread should be checked.
+   * The decision applies to the access at the yield point last intercepted 
+   * for the thread, and is retained for the matching call to {@link #sampled(CThread)}
+   * when the access ends.
+   * If sampling is disabled, all accesses are checked.
+   * @param t Thread.
+   * @return <code>true</code> if the access should be checked.
+   * @since 0.4
+   */
+  public final boolean sample(CThread t) {
+    if (_sampler == null) {
+      return true;
+    }
+    boolean decision = _sampler.sample(t.getYieldPointId());
+    int cid = t.getCID();
+    if (cid >= _sampledAccess.length) {
+      _sampledAccess = Arrays.copyOf(_sampledAccess, Math.max(cid + 1, 2 * _sampledAccess.length));
+    }
+    _sampledAccess[cid] = decision;
+    return decision;
+  }
+
+  /**
+   * Test if the current data access of a thread was selected for checking 
+   * by the last call to {@link #sample(CThread)}.
+   * @param t Thread.
+   * @return <code>true</code> if the access is being checked.
+   * @since 0.4
+   */
+  public final boolean sampled(CThread t) {
+    if (_sampler == null) {
+      return true;
+    }
+    int cid = t.getCID();
+    return cid < _sampledAccess.length && _sampledAccess[cid];
   }
 
   /**
    * Signal beginning of read access.
    * @param o Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public void beginRead(Object o, Object key) {
-    beginRead(new Data(o, key));
+  public void beginRead(Object o, int key) {
+    int slot = _monitoring.slot(o, key);
+    long status = _monitoring.get(slot, STATUS);
+    if (writers(status) > 0) {
+      status |= RACE;
+    }
+    status += READER;
+    _monitoring.set(slot, STATUS, status);
+    recordAccess(slot, LAST_READ, OTHER_READ);
+    assert CWorkspace.debug("begin read | %s %s %x", o.getClass(), key, status);
   }
 
   /**
    * Signal end of read access.
    * @param o Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public void endRead(Object o, Object key) {
-    endRead(new Data(o, key));
+  public void endRead(Object o, int key) {
+    int slot = _monitoring.find(o, key);
+    long status = slot >= 0 ? _monitoring.get(slot, STATUS) : 0L;
+    // Only writes conflict with a read.
+    int otherSite = conflictingSite(slot, LAST_WRITE, OTHER_WRITE);
+    if (readers(status) == 0) {
+      throw new CInternalError();
+    }
+    status -= READER;
+    update(slot, status);
+    assert CWorkspace.debug("end read | %s %s %x", o.getClass(), key, status);
+    if ((status & RACE) != 0) {
+      reportRace(o, key, otherSite);
+    }
   }
 
   /**
    * Signal beginning of write access.
    * @param o Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public void beginWrite(Object o, Object key) {
-    beginWrite(new Data(o,key));
+  public void beginWrite(Object o, int key) {
+    int slot = _monitoring.slot(o, key);
+    long status = _monitoring.get(slot, STATUS);
+    if (writers(status) > 0 || readers(status) > 0) {
+      status |= RACE;
+    }
+    status += WRITER;
+    _monitoring.set(slot, STATUS, status);
+    recordAccess(slot, LAST_WRITE, OTHER_WRITE);
+    assert CWorkspace.debug("begin write | %s %s %x", o.getClass(), key, status);
   }
 
   /**
    * Signal end of write access to object field.
    * @param o Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public void endWrite(Object o, Object key) {
-    endWrite(new Data(o,key));
-  }
-
-
-
-  @SuppressWarnings("javadoc")
-  private void beginRead(Data d) {
-    Status status = _monitoring.get(d);
-    if (status == null) {
-      status = new Status();
-      _monitoring.put(d, status);
-    } 
-    status.incrementReaders();
-    assert CWorkspace.debug("begin read | %s %s", d, status);
+  public void endWrite(Object o, int key) {
+    int slot = _monitoring.find(o, key);
+    long status = slot >= 0 ? _monitoring.get(slot, STATUS) : 0L;
+    int otherSite = conflictingSite(slot, LAST_WRITE, OTHER_WRITE);
+    if (otherSite < 0) {
+      otherSite = conflictingSite(slot, LAST_READ, OTHER_READ);
+    }
+    if (writers(status) == 0) {
+      throw new CInternalError();
+    }
+    status -= WRITER;
+    update(slot, status);
+    assert CWorkspace.debug("end write | %s %s %x", o.getClass(), key, status);
+    if ((status & RACE) != 0) {
+      reportRace(o, key, otherSite);
+    }
   }
 
-  @SuppressWarnings("javadoc")
-  private void endRead(Data d) {
-    Status status = _monitoring.get(d);
-    if (status == null || status.readers() == 0) {
-      throw new CInternalError();
+  /**
+   * Signal the start of a test trial.
+   * @since 0.4
+   */
+  public void startTestTrial() {
+    _monitoring.clear();
+    Arrays.fill(_sampledAccess, false);
+    if (_sampler != null) {
+      assert CWorkspace.debug("RD sampling | %d of %d accesses checked", _sampler.sampled(), _sampler.total());
     }
+  }
 
-    if (status.decrementReaders() == 0) {
-      _monitoring.remove(d);
-    } 
-    assert CWorkspace.debug("end read | %s %s", d, status);
+  /**
+   * Signal lock acquisition. 
+   * The default implementation does nothing.
+   * @param t Thread.
+   * @param lock Object being locked.
+   * @since 0.4
+   */
+  public void onAcquire(CThread t, Object lock) {
+    
+  }
 
-    if (status.raceCondition()){
-      reportRace(d);
-    }
+  /**
+   * Signal lock release. 
+   * The default implementation does nothing.
+   * @param t Thread.
+   * @param lock Object being unlocked.
+   * @since 0.4
+   */
+  public void onRelease(CThread t, Object lock) {
+    
   }
 
- 
-  @SuppressWarnings("javadoc")
-  private void beginWrite(Data d) {
-    Status status = _monitoring.get(d);
-    if (status == null) {
-      status = new Status();
-      _monitoring.put(d, status);
-    }
-    status.incrementWriters();
-    assert CWorkspace.debug("begin write | %s %s", d, status);
+  /**
+   * Signal an operation that both acquires and releases
+   * an object, e.g., an atomic read-modify-write operation.
+   * The default implementation does nothing.
+   * @param t Thread.
+   * @param o Object.
+   * @since 0.4
+   */
+  public void onSynchronize(CThread t, Object o) {
+    
+  }
 
+  /**
+   * Signal thread creation. 
+   * The default implementation does nothing.
+   * @param t Parent thread.
+   * @param child Child thread.
+   * @since 0.4
+   */
+  public void onFork(CThread t, CThread child) {
+    
   }
 
-  @SuppressWarnings("javadoc")
-  private void endWrite(Data d) {
-    Status status = _monitoring.get(d);
-    if (status == null || status.writers() == 0) {
-      throw new CInternalError();
-    }
-    if (status.decrementWriters() == 0) {
-      _monitoring.remove(d);
-    } 
-    assert CWorkspace.debug("end write | %s %s", d, status);
-    if (status.raceCondition()){
-      reportRace(d);
-    }
+  /**
+   * Signal thread join. 
+   * The default implementation does nothing.
+   * @param t Thread.
+   * @param joined Thread that terminated.
+   * @since 0.4
+   */
+  public void onJoin(CThread t, CThread joined) {
+    
   }
 
-  @SuppressWarnings("javadoc")
-  private void reportRace(Data d) {
+
+
+  /**
+   * Report a race for the current thread.
+   * The race is recorded in the trace, and in the race registry if one is set up 
+   * (see {@link CRaceRegistry}).
+   * @param o Object.
+   * @param key Data key, a field identifier or an array index.
+   * @param otherSite Yield point identifier for the conflicting access, or <code>-1</code> if unknown.
+   */
+  protected void reportRace(Object o, int key, int otherSite) {
     CThread t = (CThread) Thread.currentThread();
     CTrace trace = CRuntime.getRuntime().get(CTrace.class);
     trace.record(t, CTrace.EventType.RACE);
+    int site = t.getYieldPointId();
+    if (_sampler != null) {
+      _sampler.raceAt(site);
+    }
+    CRaceRegistry registry = CRuntime.getRuntime().get(CRaceRegistry.class);
+    if (registry != null) {
+      if (key < 0) {
+        registry.record(key, FieldIds.nameOf(key), site, otherSite);
+      } else {
+        registry.record(ARRAY_DATA_ID, o.getClass().getCanonicalName(), site, otherSite);
+      }
+    }
     if (_throwRaceErrors) {
       String msg = 
           String.format
-          ("Race: %s at %s:%d over %s.%s", 
+          ("Race: %s at %s:%d over %s", 
               t.getName(), 
               t.getLocation().getYieldPoint().getSourceFile(),
               t.getLocation().getYieldPoint().getSourceLine(),
-              d._object.getClass().getCanonicalName(), 
-              d._key);
+              FieldIds.describe(o, key));
       throw new CRaceError(msg);
     }
   }
 
   /**
-   * Field representation, and (object, field name) name pair.
-   */
-  private static class Data {
-    /**
-     * Object.
-     */
-    private Object _object;
-    /**
-     * Key (field name or array index).
-     */
-    private Object _key;
-    /**
-     * Cached hash code.
-     */
-    private int _hash;
-    /**
-     * Constructor.
-     * @param object Object.
-     * @param key Data access key.
-     */
-    public Data(Object object, Object key) {
-      _object = object;
-      _key = key;
-      _hash = System.identityHashCode(_object) ^ key.hashCode();
-    }
-
-    /*
-     * (non-Javadoc)
-     * @see java.lang.Object#toString()
-     */
-    @Override
-    public String toString() {
-      return new StringBuilder()
-      .append(_object.getClass())
-      .append('(')
-      .append(_hash)
-      .append(')')
-      .append(',')
-      .append(_key)
-      .toString();
-
-    }
-    /*
-     * (non-Javadoc)
-     * @see java.lang.Object#equals(java.lang.Object)
-     */
-    @Override
-    public boolean equals(Object o) {
-      if (!(o instanceof Data))
-        return false;
-
-      Data d = (Data) o;
-
-      return  _object == d._object && _key.equals(d._key);
-    }
-
-    /*
-     * (non-Javadoc)
-     * @see java.lang.Object#hashCode()
-     */
-    @Override
-    public int hashCode() {
-      return _hash;
-    }
+   * Encode a site for storage in shadow memory, such that <code>0</code> stands for no site.
+   * @param site Yield point identifier or <code>-1</code>.
+   * @return Encoded value.
+   * @see #decodeSite(long)
+   */
+  protected static long encodeSite(int site) {
+    return site + 1L;
   }
+
   /**
-   * Status information per field.
-   */
-  private static class Status {
-    /**
-     * Number of readers.
-     */
-    private int _readers;
-    /**
-     * Number of writers.
-     */
-    private int _writers;
-    /**
-     * Race flag.
-     */
-    private boolean _race;
-
-    /**
-     * Constructor.
-     */
-    public Status() {
-      _readers = 0;
-      _writers = 0;
-      _race = false;
-    }
-    /*
-     * (non-Javadoc)
-     * @see java.lang.Object#toString()
-     */
-    @Override
-    public String toString() {
-      return new StringBuilder()
-      .append("[")
-      .append(_race)
-      .append(',')
-      .append(_readers)
-      .append(',')
-      .append(_writers)
-      .append(']')
-      .toString();
-    }
-    /**
-     * Increment number of writers.
-     */
-    public void incrementWriters() {
-      if (_writers != 0 || _readers != 0) {
-        _race = true;
-      }
-      _writers++;
-    }
+   * Decode a site stored in shadow memory.
+   * @param value Encoded value.
+   * @return Yield point identifier or <code>-1</code>.
+   * @see #encodeSite(int)
+   */
+  protected static int decodeSite(long value) {
+    return (int) value - 1;
+  }
 
-    /**
-     * Increment number of writers.
-     */
-    public void incrementReaders() {
-      _readers++;
-      if (_writers > 0) {
-        _race = true;
-      }
+  /**
+   * Record the beginning of an access by the current thread.
+   * The previous access is kept if it was performed by another thread.
+   * @param slot Slot in shadow memory.
+   * @param last Index of word for the last access.
+   * @param other Index of word for the last access by another thread.
+   */
+  private void recordAccess(int slot, int last, int other) {
+    CThread t = (CThread) Thread.currentThread();
+    long previous = _monitoring.get(slot, last);
+    if (previous != 0L && accessThread(previous) != t.getCID()) {
+      _monitoring.set(slot, other, previous);
     }
+    _monitoring.set(slot, last, ((long) (t.getCID() + 1) << 32) | encodeSite(t.getYieldPointId()));
+  }
 
-    /**
-     * Decrement number of readers.
-     * @return Updated reference count (readers + writers).
-     */
-    public int decrementReaders() {
-      _readers --;
-      return _readers + _writers;
+  /**
+   * Get the site of the last access by a thread other than the current one.
+   * @param slot Slot in shadow memory, or a negative value if the data is not being monitored.
+   * @param last Index of word for the last access.
+   * @param other Index of word for the last access by another thread.
+   * @return Yield point identifier for the access, or <code>-1</code> if there is no such access or its site is unknown.
+   */
+  private int conflictingSite(int slot, int last, int other) {
+    if (slot < 0) {
+      return -1;
     }
-
-    /**
-     * Decrement number of readers.
-     * @return Updated reference count (readers + writers).
-     */
-    public int decrementWriters() {
-      _writers --;
-      return _readers + _writers;
+    int tid = ((CThread) Thread.currentThread()).getCID();
+    long access = _monitoring.get(slot, last);
+    if (access != 0L && accessThread(access) == tid) {
+      // Invariant: the other access, if defined, is by a thread other than that of the last access.
+      access = _monitoring.get(slot, other);
     }
+    return access != 0L ? decodeSite(access & 0xFFFFFFFFL) : -1;
+  }
 
-    /**
-     * Get number of readers.
-     * @return Reader count.
-     */
-    public int readers() {
-      return _readers;
-    }
+  @SuppressWarnings("javadoc")
+  private static int accessThread(long access) {
+    return (int) (access >>> 32) - 1;
+  }
 
-    /**
-     * Get number of writers.
-     * @return Writer count.
-     */
-    public int writers() {
-      return _writers;
+  @SuppressWarnings("javadoc")
+  private void update(int slot, long status) {
+    if ((status & ~RACE) == 0) {
+      _monitoring.remove(slot);
+    } else {
+      _monitoring.set(slot, STATUS, status);
     }
+  }
 
-    /**
-     * Check if race condition occurred.
-     * @return Race condition flag.
-     */
-    public boolean raceCondition() {
-      return _race;
-    }
+  @SuppressWarnings("javadoc")
+  private static long readers(long status) {
+    return status & COUNT_MASK;
+  }
 
+  @SuppressWarnings("javadoc")
+  private static long writers(long status) {
+    return (status >>> 30) & COUNT_MASK;
   }
 }
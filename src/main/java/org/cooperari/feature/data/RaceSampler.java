@@ -0,0 +1,174 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.errors.CConfigurationError;
+
+/**
+ * Adaptive sampler for race detection, in the spirit of LiteRace.
+ * 
+ * <p>
+ * Sampling decisions are taken per access site (yield point). Each site starts with
+ * a sampling rate of 100%. After a site has been checked a number of times given 
+ * by the sampling budget without a race being found, its rate is halved, down to a minimum rate.
+ * Cold code (sites executed fewer times than the budget) is thus always checked, and 
+ * sites where a race is found are checked always from then on.
+ * Sampling is deterministic (every <i>n</i>-th execution of a site is checked), hence 
+ * it does not interfere with the reproducibility of test executions.
+ * </p>
+ * 
+ * <p>
+ * Sampler state is kept across trials of a test, so that hot sites
+ * progressively back off during a test session.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class RaceSampler {
+
+  /**
+   * Maximum sampling period (inverse of minimum sampling rate).
+   */
+  private final int _maxPeriod;
+
+  /**
+   * Sampling budget.
+   */
+  private final int _budget;
+
+  /**
+   * Current sampling period per site.
+   */
+  private int[] _period = new int[0];
+
+  /**
+   * Executions to skip before next check per site.
+   */
+  private int[] _skip = new int[0];
+
+  /**
+   * Checks since last change of sampling period per site.
+   */
+  private int[] _checks = new int[0];
+
+  /**
+   * Sites where a race was found.
+   */
+  private final BitSet _racy = new BitSet();
+
+  /**
+   * Total number of sampling decisions.
+   */
+  private long _total;
+
+  /**
+   * Number of sampled accesses.
+   */
+  private long _sampled;
+
+  /**
+   * Constructor.
+   * @param config Configuration.
+   * @throws CConfigurationError If the sampling rate or budget are invalid.
+   */
+  RaceSampler(CRaceDetection config) {
+    double rate = config.samplingRate();
+    if (!(rate > 0.0 && rate <= 1.0)) {
+      throw new CConfigurationError("Invalid sampling rate: " + rate);
+    }
+    if (config.samplingBudget() <= 0) {
+      throw new CConfigurationError("Invalid sampling budget: " + config.samplingBudget());
+    }
+    _maxPeriod = (int) Math.min(Integer.MAX_VALUE, Math.ceil(1.0 / rate));
+    _budget = config.samplingBudget();
+  }
+
+  /**
+   * Decide if an execution of a site should be checked.
+   * @param site Site identifier.
+   * @return <code>true</code> if the access should be checked.
+   */
+  boolean sample(int site) {
+    _total++;
+    if (site < 0) {
+      _sampled++;
+      return true;
+    }
+    if (site >= _period.length) {
+      grow(site);
+    }
+    if (_skip[site] > 0) {
+      _skip[site]--;
+      return false;
+    }
+    int period = _period[site];
+    _skip[site] = period - 1;
+    if (++_checks[site] >= _budget && period < _maxPeriod && !_racy.get(site)) {
+      _period[site] = (int) Math.min(_maxPeriod, 2L * period);
+      _checks[site] = 0;
+    }
+    _sampled++;
+    return true;
+  }
+
+  /**
+   * Signal that a race was found at a site.
+   * The site will be checked on every execution from now on.
+   * @param site Site identifier.
+   */
+  void raceAt(int site) {
+    if (site >= 0) {
+      if (site >= _period.length) {
+        grow(site);
+      }
+      _racy.set(site);
+      _period[site] = 1;
+      _skip[site] = 0;
+      _checks[site] = 0;
+    }
+  }
+
+  /**
+   * Get total number of sampling decisions.
+   * @return Number of decisions.
+   */
+  long total() {
+    return _total;
+  }
+
+  /**
+   * Get number of sampled accesses.
+   * @return Number of accesses that were checked.
+   */
+  long sampled() {
+    return _sampled;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void grow(int site) {
+    int n = Math.max(site + 1, 2 * _period.length);
+    int old = _period.length;
+    _period = Arrays.copyOf(_period, n);
+    _skip = Arrays.copyOf(_skip, n);
+    _checks = Arrays.copyOf(_checks, n);
+    Arrays.fill(_period, old, n, 1);
+  }
+}
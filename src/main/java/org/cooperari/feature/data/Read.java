@@ -29,14 +29,15 @@ public final class Read extends DataOperation {
 
   /**
    * Constructs the operation.
+   * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  private Read(Object object, Object key) {
+  private Read(CThread thisThread, Object object, int key) {
     super(object, key);
     if (object != null) {
       RaceDetector rd = getRuntime().get(RaceDetector.class);
-      if (rd != null) {
+      if (rd != null && rd.sample(thisThread)) {
         rd.beginRead(object, key);
       }
     }
@@ -46,23 +47,27 @@ public final class Read extends DataOperation {
    * Yield on data read.
    * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public static void before(CThread thisThread, Object object, Object key) {
-    thisThread.cYield(new Read(object, key));
+  public static void before(CThread thisThread, Object object, int key) {
+    thisThread.cYield(new Read(thisThread, object, key));
   }
   
   /**
    * Execute actions after data read without yielding.
    * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public static void after(CThread thisThread, Object object, Object key) {
+  public static void after(CThread thisThread, Object object, int key) {
     RaceDetector rd = getRuntime().get(RaceDetector.class);
-    if (rd != null) {
+    if (rd != null && rd.sampled(thisThread)) {
       rd.endRead(object, key);
     }
+    AtomicityViolationDetector avd = getRuntime().get(AtomicityViolationDetector.class);
+    if (avd != null && object != null) {
+      avd.onAccess(thisThread, object, key, false);
+    }
   }
  
 }
@@ -0,0 +1,115 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.data;
+
+import java.util.Arrays;
+
+/**
+ * Vector clock, indexed by cooperative thread identifier.
+ * 
+ * @since 0.4
+ */
+final class VectorClock {
+
+  /**
+   * Clock values.
+   */
+  private int[] _clock;
+
+  /**
+   * Constructs a vector clock with all entries set to <code>0</code>.
+   */
+  VectorClock() {
+    _clock = new int[4];
+  }
+
+  /**
+   * Constructs a copy of another vector clock.
+   * @param other Other vector clock.
+   */
+  VectorClock(VectorClock other) {
+    _clock = other._clock.clone();
+  }
+
+  /**
+   * Get entry for a thread.
+   * @param tid Thread identifier.
+   * @return Clock value for the thread.
+   */
+  int get(int tid) {
+    return tid < _clock.length ? _clock[tid] : 0;
+  }
+
+  /**
+   * Set entry for a thread.
+   * @param tid Thread identifier.
+   * @param value Clock value.
+   */
+  void set(int tid, int value) {
+    ensureCapacity(tid + 1);
+    _clock[tid] = value;
+  }
+
+  /**
+   * Increment entry for a thread.
+   * @param tid Thread identifier.
+   */
+  void increment(int tid) {
+    ensureCapacity(tid + 1);
+    _clock[tid]++;
+  }
+
+  /**
+   * Join with another vector clock (point-wise maximum).
+   * @param other Other vector clock.
+   */
+  void join(VectorClock other) {
+    int[] o = other._clock;
+    ensureCapacity(o.length);
+    for (int i = 0; i < o.length; i++) {
+      if (o[i] > _clock[i]) {
+        _clock[i] = o[i];
+      }
+    }
+  }
+
+  /**
+   * Copy another vector clock to this one.
+   * @param other Other vector clock.
+   */
+  void assign(VectorClock other) {
+    ensureCapacity(other._clock.length);
+    System.arraycopy(other._clock, 0, _clock, 0, other._clock.length);
+    Arrays.fill(_clock, other._clock.length, _clock.length, 0);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void ensureCapacity(int n) {
+    if (n > _clock.length) {
+      _clock = Arrays.copyOf(_clock, Math.max(n, 2 * _clock.length));
+    }
+  }
+
+  /*
+   * (non-Javadoc)
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return Arrays.toString(_clock);
+  }
+}
@@ -28,14 +28,15 @@ public final class Write extends DataOperation {
 
   /**
    * Constructs the operation.
+   * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public Write(Object object, Object key) {
+  public Write(CThread thisThread, Object object, int key) {
     super(object, key);
     if (object != null) {
       RaceDetector rd = getRuntime().get(RaceDetector.class);
-      if (rd != null) {
+      if (rd != null && rd.sample(thisThread)) {
         rd.beginWrite(object, key);
       }
     }
@@ -45,22 +46,26 @@ public final class Write extends DataOperation {
    * Yield on data write.
    * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public static void before(CThread thisThread, Object object, Object key) {
-    thisThread.cYield(new Write(object, key));
+  public static void before(CThread thisThread, Object object, int key) {
+    thisThread.cYield(new Write(thisThread, object, key));
   }
   
   /**
    * Execute actions after data write without yielding.
    * @param thisThread Current thread.
    * @param object Object.
-   * @param key Data key.
+   * @param key Data key, a field identifier or an array index.
    */
-  public static void after(CThread thisThread, Object object, Object key) {
+  public static void after(CThread thisThread, Object object, int key) {
     RaceDetector rd = getRuntime().get(RaceDetector.class);
-    if (rd != null) {
+    if (rd != null && rd.sampled(thisThread)) {
       rd.endWrite(object, key);
     }
+    AtomicityViolationDetector avd = getRuntime().get(AtomicityViolationDetector.class);
+    if (avd != null && object != null) {
+      avd.onAccess(thisThread, object, key, true);
+    }
   }
 }
@@ -32,7 +32,9 @@ import org.cooperari.core.CThread;
 public class YieldPoints {
 
   /**
-   * Constant used to denote a static field access.
+   * Constant used as the object for static field accesses.
+   * Static fields are told apart by their field identifiers, which are unique per declaring class and field name.
+   * @see FieldIds
    */
   private static final String STATIC_FIELD = "<static>";
   
@@ -44,7 +46,7 @@ public class YieldPoints {
   public void beforeGetStaticField(JoinPoint thisJoinPoint) {
     CThread t = CThread.intercept(thisJoinPoint);
     if (t != null) {
-      Read.before(t, STATIC_FIELD, thisJoinPoint.getSignature().getName());
+      Read.before(t, STATIC_FIELD, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -56,7 +58,7 @@ public class YieldPoints {
   public void afterGetStaticField(JoinPoint thisJoinPoint) {
     CThread t = CThread.self();
     if (t != null) {
-      Read.after(t, STATIC_FIELD, thisJoinPoint.getSignature().getName());
+      Read.after(t, STATIC_FIELD, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -69,7 +71,7 @@ public class YieldPoints {
   public void beforeGetField(JoinPoint thisJoinPoint, Object o) {
     CThread t = CThread.intercept(thisJoinPoint);
     if (o != null && t != null) {
-      Read.before(t, o, thisJoinPoint.getSignature().getName());
+      Read.before(t, o, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -85,7 +87,7 @@ public class YieldPoints {
     }
     CThread t = CThread.self();
     if (t != null) {
-      Read.after(t, o, thisJoinPoint.getSignature().getName());
+      Read.after(t, o, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -97,7 +99,7 @@ public class YieldPoints {
   public void beforeSetStaticField(JoinPoint thisJoinPoint) {
     CThread t = CThread.intercept(thisJoinPoint);
     if (t != null) {
-      Write.before(t, STATIC_FIELD, thisJoinPoint.getSignature().getName());
+      Write.before(t, STATIC_FIELD, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -109,7 +111,7 @@ public class YieldPoints {
   public void afterSetStaticField(JoinPoint thisJoinPoint) {
     CThread t = CThread.self();
     if (t != null) {
-      Write.after(t, STATIC_FIELD, thisJoinPoint.getSignature().getName());
+      Write.after(t, STATIC_FIELD, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   /**
@@ -121,7 +123,7 @@ public class YieldPoints {
   public void beforeSetField(JoinPoint thisJoinPoint, Object o) {
     CThread t = CThread.intercept(thisJoinPoint);
     if (o != null && t != null) {
-      Write.before(t, o, thisJoinPoint.getSignature().getName());
+      Write.before(t, o, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
   
@@ -137,7 +139,7 @@ public class YieldPoints {
     }
     CThread t = CThread.self();
     if (t != null) {
-      Write.after(t, o, thisJoinPoint.getSignature().getName());
+      Write.after(t, o, FieldIds.of(thisJoinPoint.getStaticPart()));
     }
   }
 
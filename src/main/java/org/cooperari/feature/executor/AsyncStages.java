@@ -0,0 +1,107 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Support for routing asynchronous <code>CompletableFuture</code> stages to a cooperative executor service.
+ * 
+ * <p>
+ * Asynchronous methods without an executor argument (e.g., <code>supplyAsync(Supplier)</code> or
+ * <code>thenApplyAsync(Function)</code>) are replaced by calls to the corresponding methods that take 
+ * an executor argument (e.g., <code>supplyAsync(Supplier,Executor)</code>).
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class AsyncStages {
+
+  /**
+   * Cache of methods with an executor argument, indexed by the corresponding method without one.
+   */
+  private static final ConcurrentHashMap<Method, Method> METHODS = new ConcurrentHashMap<>();
+
+  /**
+   * Private constructor to prevent instantiation.
+   */
+  private AsyncStages() {
+
+  }
+
+  /**
+   * Get the variant of an asynchronous method that takes an executor as the last argument.
+   * @param m Method.
+   * @return The method variant.
+   * @throws NoSuchMethodException If there is no such variant.
+   */
+  static Method withExecutor(Method m) throws NoSuchMethodException {
+    Method v = METHODS.get(m);
+    if (v == null) {
+      Class<?>[] types = Arrays.copyOf(m.getParameterTypes(), m.getParameterCount() + 1);
+      types[types.length - 1] = Executor.class;
+      v = m.getDeclaringClass().getMethod(m.getName(), types);
+      METHODS.put(m, v);
+    }
+    return v;
+  }
+
+  /**
+   * Invoke a method, propagating exceptions thrown by it.
+   * @param m Method.
+   * @param target Target object (<code>null</code> for static methods).
+   * @param args Arguments.
+   * @return The method's result.
+   * @throws Throwable If thrown by the method.
+   */
+  static Object invoke(Method m, Object target, Object[] args) throws Throwable {
+    try {
+      return m.invoke(target, args);
+    } catch (InvocationTargetException e) {
+      throw e.getCause();
+    }
+  }
+
+  /**
+   * Record the completion of a future for race detection purposes, when it happens.
+   * @param f Future.
+   */
+  static void recordCompletion(final CompletableFuture<?> f) {
+    CRuntime env = getRuntime();
+    if (env == null || env.get(RaceDetector.class) == null) {
+      return;
+    }
+    f.whenComplete((result, exception) -> {
+      CThread t = CThread.self();
+      RaceDetector rd = t != null ? getRuntime().get(RaceDetector.class) : null;
+      if (rd != null) {
+        rd.onSynchronize(t, f);
+      }
+    });
+  }
+}
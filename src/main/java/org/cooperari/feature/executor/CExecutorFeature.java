@@ -0,0 +1,88 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+
+import org.cooperari.core.CRuntime;
+import org.cooperari.feature.CFeature;
+
+/**
+ * Handler for executor service yield points.
+ * 
+ * <p>
+ * A cooperative executor service that takes the role of the <code>ForkJoinPool</code> common pool
+ * is created for each test trial.
+ * </p>
+ *
+ * @since 0.4
+ */
+public final class CExecutorFeature implements CFeature {
+
+  /**
+   * Registration key for the common pool.
+   */
+  private static final Object COMMON_POOL_KEY = new Object();
+
+  /**
+   * Registration key for the executor service used for asynchronous <code>CompletableFuture</code> stages.
+   */
+  private static final Object ASYNC_POOL_KEY = new Object();
+
+  /**
+   * Get the cooperative executor service that takes the role of the common pool.
+   * @param env Runtime environment.
+   * @return The common pool executor service, or <code>null</code> if not set.
+   */
+  static CExecutorService getCommonPool(CRuntime env) {
+    return (CExecutorService) env.get(COMMON_POOL_KEY);
+  }
+
+  /**
+   * Get the cooperative executor service used for asynchronous <code>CompletableFuture</code> stages
+   * that do not specify an executor. 
+   * As for <code>CompletableFuture</code>, this is the common pool unless the common pool 
+   * parallelism is lower than 2, in which case a new thread is used for each task.
+   * @param env Runtime environment.
+   * @return The executor service, or <code>null</code> if not set.
+   */
+  static CExecutorService getAsyncPool(CRuntime env) {
+    return (CExecutorService) env.get(ASYNC_POOL_KEY);
+  }
+
+  @Override
+  public void startTestTrial(CRuntime env) {
+    int parallelism = ForkJoinPool.getCommonPoolParallelism();
+    CExecutorService commonPool = new CExecutorService(parallelism, Executors.defaultThreadFactory());
+    env.register(COMMON_POOL_KEY, commonPool);
+    env.register(ASYNC_POOL_KEY, parallelism > 1 ? 
+        commonPool : new CExecutorService(Integer.MAX_VALUE, Executors.defaultThreadFactory()));
+  }
+
+  @Override
+  public void shutdown(CRuntime env) {
+    env.unregister(COMMON_POOL_KEY);
+    env.unregister(ASYNC_POOL_KEY);
+  }
+
+  @Override
+  public Class<?> getInstrumentationAspect() {
+    return YieldPoints.class;
+  }
+
+}
@@ -0,0 +1,349 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+import org.cooperari.feature.sync.BlockingOperation;
+import org.cooperari.feature.thread.Interrupt;
+import org.cooperari.feature.thread.Start;
+
+/**
+ * Cooperative executor service.
+ * 
+ * <p>
+ * Tasks are kept in a FIFO queue. Worker threads are created using a thread factory 
+ * and started as cooperative threads when tasks are submitted, up to a maximum number of workers,
+ * in which case the submitted task is handed directly to the new worker.
+ * A worker runs queued tasks until the queue is empty, and then terminates, hence 
+ * idle workers never linger in a waiting state. Each step of the task queue model
+ * (submission, removal by a worker, shutdown) is a cooperative operation.
+ * Waiting for tasks (e.g., <code>invokeAll</code> or <code>awaitTermination</code>) is
+ * modeled by cooperative waiting operations.
+ * </p>
+ * 
+ * <p>
+ * The executor service may only be used by cooperative threads.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class CExecutorService extends AbstractExecutorService {
+
+  /**
+   * Maximum number of workers.
+   */
+  private final int _maxWorkers;
+
+  /**
+   * Thread factory.
+   */
+  private final ThreadFactory _threadFactory;
+
+  /**
+   * Task queue.
+   */
+  private final ArrayDeque<Runnable> _queue = new ArrayDeque<>();
+
+  /**
+   * Live worker threads.
+   */
+  private final ArrayList<Thread> _workers = new ArrayList<>();
+
+  /**
+   * Shutdown flag.
+   */
+  private boolean _shutdown;
+
+  /**
+   * Constructor.
+   * @param maxWorkers Maximum number of worker threads.
+   * @param threadFactory Thread factory for worker threads.
+   * @throws IllegalArgumentException If <code>maxWorkers</code> is not positive.
+   */
+  public CExecutorService(int maxWorkers, ThreadFactory threadFactory) {
+    if (maxWorkers <= 0) {
+      throw new IllegalArgumentException("Invalid number of workers: " + maxWorkers);
+    }
+    if (threadFactory == null) {
+      throw new NullPointerException();
+    }
+    _maxWorkers = maxWorkers;
+    _threadFactory = threadFactory;
+  }
+
+  /**
+   * Get the current cooperative thread.
+   * @return The current thread.
+   * @throws IllegalStateException If the current thread is not cooperative.
+   */
+  private static CThread self() {
+    CThread t = CThread.self();
+    if (t == null) {
+      throw new IllegalStateException("Cooperative executor service used by a non-cooperative thread.");
+    }
+    return t;
+  }
+
+  @Override
+  public void execute(Runnable task) {
+    if (task == null) {
+      throw new NullPointerException();
+    }
+    CThread t = CThread.self();
+    if (t == null) {
+      throw new RejectedExecutionException("Task submitted by a non-cooperative thread.");
+    }
+    Thread worker = Submit.execute(t, this, task);
+    if (worker != null) {
+      Start.execute(t, worker);
+    }
+  }
+
+  @Override
+  public void shutdown() {
+    Shutdown.execute(self(), this, false);
+  }
+
+  @Override
+  public List<Runnable> shutdownNow() {
+    CThread t = self();
+    List<Runnable> pending = Shutdown.execute(t, this, true);
+    for (Thread w : new ArrayList<>(_workers)) {
+      Interrupt.execute(t, w);
+    }
+    return pending;
+  }
+
+  @Override
+  public boolean isShutdown() {
+    return _shutdown;
+  }
+
+  @Override
+  public boolean isTerminated() {
+    return _shutdown && _workers.isEmpty() && _queue.isEmpty();
+  }
+
+  @Override
+  public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+    CThread t = self();
+    return new Termination(t, this, unit.toNanos(timeout)).await();
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) throws InterruptedException {
+    return invokeAll(tasks, BlockingOperation.NO_TIMEOUT);
+  }
+
+  @Override
+  public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException {
+    return invokeAll(tasks, unit.toNanos(timeout));
+  }
+
+  @SuppressWarnings("javadoc")
+  private <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout) throws InterruptedException {
+    CThread t = self();
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> c : tasks) {
+        futures.add(submit(c));
+      }
+      new TaskWait(t, futures, false, timeout).await();
+      return futures;
+    } finally {
+      for (Future<T> f : futures) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks) throws InterruptedException, ExecutionException {
+    try {
+      return invokeAny(tasks, BlockingOperation.NO_TIMEOUT);
+    } catch (TimeoutException e) {
+      throw new ExecutionException(e);
+    }
+  }
+
+  @Override
+  public <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+    return invokeAny(tasks, unit.toNanos(timeout));
+  }
+
+  @SuppressWarnings("javadoc")
+  private <T> T invokeAny(Collection<? extends Callable<T>> tasks, long timeout) throws InterruptedException, ExecutionException, TimeoutException {
+    if (tasks.isEmpty()) {
+      throw new IllegalArgumentException();
+    }
+    CThread t = self();
+    List<Future<T>> futures = new ArrayList<>(tasks.size());
+    try {
+      for (Callable<T> c : tasks) {
+        futures.add(submit(c));
+      }
+      ExecutionException lastFailure = null;
+      List<Future<T>> pending = new ArrayList<>(futures);
+      while (!pending.isEmpty()) {
+        if (!new TaskWait(t, pending, true, timeout).await()) {
+          throw new TimeoutException();
+        }
+        for (int i = 0; i < pending.size(); i++) {
+          Future<T> f = pending.get(i);
+          if (f.isDone()) {
+            try {
+              return f.get();
+            } catch (ExecutionException e) {
+              lastFailure = e;
+            } catch (CancellationException e) {
+              lastFailure = new ExecutionException(e);
+            }
+            pending.remove(i--);
+          }
+        }
+      }
+      throw lastFailure;
+    } finally {
+      for (Future<T> f : futures) {
+        f.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Enqueue a task. If possible, a new worker thread is created instead, with the task as its first task.
+   * @param task Task.
+   * @return A new worker thread that should be started, or <code>null</code>.
+   * @throws RejectedExecutionException If the executor service has been shut down.
+   */
+  Thread enqueue(Runnable task) throws RejectedExecutionException {
+    if (_shutdown) {
+      throw new RejectedExecutionException("Executor service has been shut down.");
+    }
+    if (_workers.size() == _maxWorkers) {
+      _queue.addLast(task);
+      return null;
+    }
+    Worker w = new Worker(task);
+    Thread thread = _threadFactory.newThread(w);
+    w._thread = thread;
+    _workers.add(thread);
+    return thread;
+  }
+
+  /**
+   * Dequeue a task for a worker. If the queue is empty, the worker terminates.
+   * @param worker Worker thread.
+   * @return A task, or <code>null</code> if the queue is empty.
+   */
+  Runnable dequeue(Thread worker) {
+    Runnable task = _queue.pollFirst();
+    if (task == null) {
+      _workers.remove(worker);
+    }
+    return task;
+  }
+
+  /**
+   * Shut down the executor service.
+   * @param now If <code>true</code>, queued tasks are removed.
+   * @return List of removed tasks.
+   */
+  List<Runnable> markShutdown(boolean now) {
+    _shutdown = true;
+    List<Runnable> pending = new ArrayList<>();
+    if (now) {
+      pending.addAll(_queue);
+      _queue.clear();
+    }
+    return pending;
+  }
+
+  /**
+   * Worker body.
+   */
+  private final class Worker implements Runnable {
+    /**
+     * Worker thread.
+     */
+    Thread _thread;
+
+    /**
+     * First task, run without going through the queue.
+     */
+    private final Runnable _firstTask;
+
+    @SuppressWarnings("javadoc")
+    Worker(Runnable firstTask) {
+      _firstTask = firstTask;
+    }
+
+    /**
+     * Run tasks until the queue is empty.
+     * Uncaught exceptions thrown by tasks are reported, but do not terminate the worker,
+     * unless the worker thread has been ordered to stop.
+     * Tasks that are <code>ForkJoinTask</code> objects (submitted to the common pool) 
+     * record exceptions in their outcome instead.
+     */
+    @Override
+    public void run() {
+      CThread t = CThread.self();
+      RaceDetector rd = getRuntime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onAcquire(t, _firstTask);
+      }
+      Runnable task = _firstTask;
+      do {
+        try {
+          if (task instanceof ForkJoinTask) {
+            ((ForkJoinTask<?>) task).quietlyInvoke();
+          } else {
+            task.run();
+          }
+        } catch (RuntimeException | Error e) {
+          if (t.isDying()) {
+            // Stop order from the engine (e.g., deadlock): the worker must terminate.
+            _workers.remove(_thread);
+            throw e;
+          }
+          t.getUncaughtExceptionHandler().uncaughtException(t, e);
+        }
+        if (rd != null) {
+          rd.onSynchronize(t, task);
+        }
+      } while ((task = Take.execute(t, CExecutorService.this, _thread)) != null);
+    }
+  }
+}
@@ -0,0 +1,80 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import java.util.List;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+
+/**
+ * Executor service shutdown operation.
+ * 
+ * @since 0.4
+ */
+final class Shutdown extends COperation<List<Runnable>> {
+
+  /**
+   * Executor service.
+   */
+  private final CExecutorService _executor;
+
+  /**
+   * Remove queued tasks or not.
+   */
+  private final boolean _now;
+
+  /**
+   * Removed tasks.
+   */
+  private List<Runnable> _pending;
+
+  /**
+   * Constructor.
+   * @param e Executor service.
+   * @param now Remove queued tasks or not.
+   */
+  private Shutdown(CExecutorService e, boolean now) {
+    _executor = e;
+    _now = now;
+  }
+
+  @Override
+  public void execute() {
+    _pending = _executor.markShutdown(_now);
+  }
+
+  /**
+   * Get operation result.
+   * @return List of removed tasks.
+   */
+  @Override
+  public List<Runnable> getResult() {
+    return _pending;
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param e Executor service.
+   * @param now Remove queued tasks or not.
+   * @return List of removed tasks.
+   */
+  static List<Runnable> execute(CThread t, CExecutorService e, boolean now) {
+    return t.cYield(new Shutdown(e, now));
+  }
+}
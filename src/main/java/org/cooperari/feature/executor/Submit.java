@@ -0,0 +1,95 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Task submission operation.
+ * 
+ * @since 0.4
+ */
+final class Submit extends COperation<Thread> {
+
+  /**
+   * Thread.
+   */
+  private final CThread _thread;
+
+  /**
+   * Executor service.
+   */
+  private final CExecutorService _executor;
+
+  /**
+   * Task.
+   */
+  private final Runnable _task;
+
+  /**
+   * New worker thread, if any.
+   */
+  private Thread _worker;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param e Executor service.
+   * @param task Task.
+   */
+  private Submit(CThread t, CExecutorService e, Runnable task) {
+    _thread = t;
+    _executor = e;
+    _task = task;
+  }
+
+  /**
+   * Execute operation, enqueuing the task.
+   */
+  @Override
+  public void execute() {
+    _worker = _executor.enqueue(_task);
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onSynchronize(_thread, _task);
+    }
+  }
+
+  /**
+   * Get operation result.
+   * @return A new worker thread that should be started, or <code>null</code>.
+   */
+  @Override
+  public Thread getResult() {
+    return _worker;
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param e Executor service.
+   * @param task Task.
+   * @return A new worker thread that should be started, or <code>null</code>.
+   */
+  static Thread execute(CThread t, CExecutorService e, Runnable task) {
+    return t.cYield(new Submit(t, e, task));
+  }
+}
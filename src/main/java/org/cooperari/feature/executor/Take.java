@@ -0,0 +1,105 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operation for the removal of a task from the queue by a worker thread.
+ * 
+ * @since 0.4
+ */
+final class Take extends COperation<Runnable> {
+
+  /**
+   * Yield point for task removals, since these are not made from instrumented code.
+   */
+  private static final CYieldPoint YIELD_POINT = new CYieldPointImpl("<executor-worker>", CYieldPointImpl.INTERNAL, 0);
+
+  /**
+   * Thread.
+   */
+  private final CThread _thread;
+
+  /**
+   * Executor service.
+   */
+  private final CExecutorService _executor;
+
+  /**
+   * Worker thread object.
+   */
+  private final Thread _worker;
+
+  /**
+   * Task.
+   */
+  private Runnable _task;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param e Executor service.
+   * @param worker Worker thread object.
+   */
+  private Take(CThread t, CExecutorService e, Thread worker) {
+    _thread = t;
+    _executor = e;
+    _worker = worker;
+  }
+
+  /**
+   * Execute operation, removing a task from the queue.
+   */
+  @Override
+  public void execute() {
+    _task = _executor.dequeue(_worker);
+    if (_task != null) {
+      RaceDetector rd = getRuntime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onAcquire(_thread, _task);
+      }
+    }
+  }
+
+  /**
+   * Get operation result.
+   * @return The task, or <code>null</code> if the queue is empty, in which case the worker should terminate.
+   */
+  @Override
+  public Runnable getResult() {
+    return _task;
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param e Executor service.
+   * @param worker Worker thread object.
+   * @return The task, or <code>null</code> if the queue is empty.
+   */
+  static Runnable execute(CThread t, CExecutorService e, Thread worker) {
+    CThread.intercept(YIELD_POINT);
+    return t.cYield(new Take(t, e, worker));
+  }
+}
@@ -0,0 +1,89 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.Collection;
+import java.util.concurrent.Future;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+import org.cooperari.feature.sync.BlockingOperation;
+
+/**
+ * Operation for waiting on the completion of tasks, used by
+ * <code>ExecutorService.invokeAll()</code> and <code>ExecutorService.invokeAny()</code>.
+ * 
+ * @since 0.4
+ */
+final class TaskWait extends BlockingOperation {
+
+  /**
+   * Futures for tasks.
+   */
+  private final Collection<? extends Future<?>> _futures;
+
+  /**
+   * Wait for any task or for all tasks.
+   */
+  private final boolean _any;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param futures Futures for tasks.
+   * @param any Wait for any task or for all tasks.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  TaskWait(CThread t, Collection<? extends Future<?>> futures, boolean any, long timeout) {
+    super(t, true, timeout);
+    _futures = futures;
+    _any = any;
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    for (Future<?> f : _futures) {
+      if (f.isDone() == _any) {
+        return _any;
+      }
+    }
+    return !_any;
+  }
+
+  @Override
+  protected void complete() {
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      for (Future<?> f : _futures) {
+        if (f.isDone()) {
+          rd.onAcquire(_thread, f);
+        }
+      }
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @return <code>true</code> if the tasks completed, <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  boolean await() throws InterruptedException {
+    return execute(this);
+  }
+}
@@ -0,0 +1,58 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.sync.BlockingOperation;
+
+/**
+ * Operation for <code>ExecutorService.awaitTermination()</code>.
+ * 
+ * @since 0.4
+ */
+final class Termination extends BlockingOperation {
+
+  /**
+   * Executor service.
+   */
+  private final CExecutorService _executor;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param e Executor service.
+   * @param timeout Timeout in nanoseconds.
+   */
+  Termination(CThread t, CExecutorService e, long timeout) {
+    super(t, true, timeout);
+    _executor = e;
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return _executor.isTerminated();
+  }
+
+  /**
+   * Execute operation.
+   * @return <code>true</code> if the executor service terminated, <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  boolean await() throws InterruptedException {
+    return execute(this);
+  }
+}
@@ -0,0 +1,241 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.executor;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ThreadFactory;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.annotation.Before;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.CThread;
+
+/**
+ * AspectJ instrumentation for executor services.
+ * 
+ * <p>
+ * Thread pools created through <code>Executors</code> factory methods by cooperative threads
+ * are replaced by {@link CExecutorService} instances, and <code>Runnable</code> or <code>Callable</code> tasks
+ * submitted to the <code>ForkJoinPool</code> common pool are redirected to a cooperative executor service,
+ * as well as asynchronous <code>CompletableFuture</code> stages that would run in the common pool.
+ * <code>ForkJoinTask</code> submissions and scheduled executors are not handled.
+ * </p>
+ * 
+ * @since 0.4
+ */
+@Aspect
+public final class YieldPoints {
+
+  /**
+   * Get the thread factory for an <code>Executors</code> factory method call.
+   * @param jp Join point.
+   * @return The thread factory given by the last argument, or the default thread factory if there is none.
+   */
+  private static ThreadFactory threadFactory(JoinPoint jp) {
+    Object[] args = jp.getArgs();
+    return args.length > 0 && args[args.length - 1] instanceof ThreadFactory ?
+        (ThreadFactory) args[args.length - 1] : Executors.defaultThreadFactory();
+  }
+
+  /**
+   * Get the number of threads for an <code>Executors</code> factory method call.
+   * @param jp Join point.
+   * @param defaultValue Value to use if there is no argument for the number of threads.
+   * @return The number of threads given by the first argument, or <code>defaultValue</code> if there is none.
+   */
+  private static int threads(JoinPoint jp, int defaultValue) {
+    Object[] args = jp.getArgs();
+    return args.length > 0 && args[0] instanceof Integer ? (Integer) args[0] : defaultValue;
+  }
+
+  /**
+   * Around advice executed in place of <code>Executors.newFixedThreadPool</code> methods.
+   * @param thisJoinPoint Join point.
+   * @return A new executor service.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Executors.newFixedThreadPool(..))")
+  public ExecutorService aroundNewFixedThreadPool(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    if (CThread.self() == null) {
+      return (ExecutorService) thisJoinPoint.proceed();
+    }
+    return new CExecutorService(threads(thisJoinPoint, 1), threadFactory(thisJoinPoint));
+  }
+
+  /**
+   * Around advice executed in place of <code>Executors.newCachedThreadPool</code> methods.
+   * @param thisJoinPoint Join point.
+   * @return A new executor service.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Executors.newCachedThreadPool(..))")
+  public ExecutorService aroundNewCachedThreadPool(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    if (CThread.self() == null) {
+      return (ExecutorService) thisJoinPoint.proceed();
+    }
+    return new CExecutorService(Integer.MAX_VALUE, threadFactory(thisJoinPoint));
+  }
+
+  /**
+   * Around advice executed in place of <code>Executors.newSingleThreadExecutor</code> methods.
+   * @param thisJoinPoint Join point.
+   * @return A new executor service.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Executors.newSingleThreadExecutor(..))")
+  public ExecutorService aroundNewSingleThreadExecutor(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    if (CThread.self() == null) {
+      return (ExecutorService) thisJoinPoint.proceed();
+    }
+    return new CExecutorService(1, threadFactory(thisJoinPoint));
+  }
+
+  /**
+   * Around advice executed in place of <code>Executors.newWorkStealingPool</code> methods.
+   * @param thisJoinPoint Join point.
+   * @return A new executor service.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Executors.newWorkStealingPool(..))")
+  public ExecutorService aroundNewWorkStealingPool(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    if (CThread.self() == null) {
+      return (ExecutorService) thisJoinPoint.proceed();
+    }
+    return new CExecutorService(threads(thisJoinPoint, Runtime.getRuntime().availableProcessors()), 
+                                Executors.defaultThreadFactory());
+  }
+
+  /**
+   * Advice executed before calls to {@link CExecutorService} methods, 
+   * defining the yield point for the cooperative operations they comprise.
+   * @param thisJoinPoint Join point.
+   */
+  @Before("call(* java.util.concurrent.Executor+.*(..)) && target(org.cooperari.feature.executor.CExecutorService)"
+      + " && !within(org.cooperari.feature.executor.YieldPoints)")
+  public void beforeExecutorCall(JoinPoint thisJoinPoint) {
+    CThread.intercept(thisJoinPoint);
+  }
+
+  /**
+   * Get the cooperative executor service that replaces the common pool, if applicable.
+   * @param pool Target pool.
+   * @return The cooperative executor service, or <code>null</code> if <code>pool</code> is not the 
+   *   common pool or the current thread is not cooperative.
+   */
+  private static CExecutorService commonPool(Object pool) {
+    CRuntime env = getRuntime();
+    return env != null && CThread.self() != null && pool == ForkJoinPool.commonPool() ? 
+        CExecutorFeature.getCommonPool(env) : null;
+  }
+
+  /**
+   * Around advice executed in place of <code>ForkJoinPool.execute(Runnable)</code>.
+   * @param thisJoinPoint Join point.
+   * @param pool Target pool.
+   * @param task Task.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.Executor+.execute(Runnable)) && target(pool) && args(task)")
+  public void aroundCommonPoolExecute(ProceedingJoinPoint thisJoinPoint, ForkJoinPool pool, Runnable task) throws Throwable {
+    CExecutorService e = commonPool(pool);
+    if (e == null || task instanceof ForkJoinTask) {
+      thisJoinPoint.proceed();
+    } else {
+      CThread.intercept(thisJoinPoint);
+      e.execute(task);
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>ForkJoinPool.submit</code> methods 
+   * for <code>Runnable</code> and <code>Callable</code> tasks.
+   * @param thisJoinPoint Join point.
+   * @param pool Target pool.
+   * @return A future for the task.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.ExecutorService+.submit(..)) && target(pool)")
+  public Object aroundCommonPoolSubmit(ProceedingJoinPoint thisJoinPoint, ForkJoinPool pool) throws Throwable {
+    CExecutorService e = commonPool(pool);
+    Object[] args = thisJoinPoint.getArgs();
+    if (e == null || args[0] instanceof ForkJoinTask) {
+      return thisJoinPoint.proceed();
+    }
+    ForkJoinTask<?> task;
+    if (args[0] instanceof Callable) {
+      task = ForkJoinTask.adapt((Callable<?>) args[0]);
+    } else if (args.length == 1) {
+      task = ForkJoinTask.adapt((Runnable) args[0]);
+    } else {
+      task = ForkJoinTask.adapt((Runnable) args[0], args[1]);
+    }
+    CThread.intercept(thisJoinPoint);
+    // Adapted tasks are also Runnable, and fit both Future and ForkJoinTask result types.
+    e.execute((Runnable) task);
+    return task;
+  }
+
+  /**
+   * Around advice executed in place of asynchronous <code>CompletableFuture</code> methods,
+   * e.g., <code>supplyAsync</code> or <code>thenApplyAsync</code>, routing asynchronous stages that 
+   * would run in the common pool to a cooperative executor service.
+   * @param thisJoinPoint Join point.
+   * @return The result of the call.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.CompletionStage+.*Async(..))")
+  public Object aroundAsync(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    CRuntime env = getRuntime();
+    if (env == null || CThread.self() == null) {
+      return thisJoinPoint.proceed();
+    }
+    Method m = ((MethodSignature) thisJoinPoint.getSignature()).getMethod();
+    Object[] args = thisJoinPoint.getArgs();
+    int n = args.length;
+    if (n > 0 && m.getParameterTypes()[n - 1] == Executor.class) {
+      CExecutorService e = commonPool(args[n - 1]);
+      if (e == null) {
+        return thisJoinPoint.proceed();
+      }
+      args[n - 1] = e;
+    } else {
+      m = AsyncStages.withExecutor(m);
+      args = Arrays.copyOf(args, n + 1);
+      args[n] = CExecutorFeature.getAsyncPool(env);
+    }
+    CThread.intercept(thisJoinPoint);
+    Object result = AsyncStages.invoke(m, thisJoinPoint.getTarget(), args);
+    if (result instanceof CompletableFuture) {
+      AsyncStages.recordCompletion((CompletableFuture<?>) result);
+    }
+    return result;
+  }
+}
@@ -0,0 +1,205 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+import static org.cooperari.core.CThreadState.CBLOCKED;
+import static org.cooperari.core.CThreadState.CREADY;
+import static org.cooperari.core.CThreadState.CTIMED_WAITING;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.cooperari.core.CThread;
+import org.cooperari.core.CThreadState;
+import org.cooperari.feature.data.RaceDetector;
+import org.cooperari.feature.monitor.DeadlockDetector;
+
+/**
+ * Lock acquisition operation.
+ * 
+ * @since 0.4
+ */
+final class Acquire extends LockOperation<Boolean> {
+
+  /**
+   * Timeout value for acquisitions that wait indefinitely.
+   */
+  static final long NO_TIMEOUT = -1L;
+
+  /**
+   * Shared or exclusive acquisition.
+   */
+  private final boolean _shared;
+
+  /**
+   * Indicates if acquisition can be interrupted.
+   */
+  private final boolean _interruptible;
+
+  /**
+   * Deadline, meaningful only if the acquisition has a timeout.
+   */
+  private final long _deadline;
+
+  /**
+   * Indicates if the acquisition has a timeout.
+   */
+  private final boolean _timed;
+
+  /**
+   * Indicates if thread was interrupted.
+   */
+  private boolean _interrupted;
+
+  /**
+   * Result.
+   */
+  private boolean _result;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param v Lock view.
+   * @param interruptible Indicates if acquisition can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  private Acquire(CThread t, LockPool.View v, boolean interruptible, long timeout) {
+    super(t, v.model);
+    _shared = v.shared;
+    _interruptible = interruptible;
+    _timed = timeout != NO_TIMEOUT;
+    _deadline = _timed ? System.nanoTime() + Math.max(0L, timeout) : 0L;
+    if (!_timed && !_shared && v.model.getOwner() != t) {
+      DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+      if (dd != null) {
+        dd.onMonitorEnter(t, v.model.getMonitor());
+      }
+    }
+  }
+
+  /**
+   * Get operation state.
+   * @return <code>CREADY</code> if the lock can be acquired, the thread is interrupted
+   * (for interruptible acquisitions) or the deadline expired (for acquisitions with a timeout);
+   * <code>CTIMED_WAITING</code> or <code>CBLOCKED</code> otherwise, depending on 
+   * whether there is a timeout or not.
+   */
+  @Override
+  public CThreadState getState() {
+    if (_lock.isAvailable(_thread, _shared) 
+        || (_interruptible && _thread.getInterruptStatus())) {
+      return CREADY;
+    }
+    if (_timed) {
+      return System.nanoTime() - _deadline >= 0 ? CREADY : CTIMED_WAITING;
+    }
+    return CBLOCKED;
+  }
+
+  /**
+   * Complete operation, acquiring the lock if possible.
+   */
+  @Override
+  public void execute() {
+    if (_interruptible && _thread.testAndClearInterruptStatus()) {
+      _interrupted = true;
+    } else if (_lock.isAvailable(_thread, _shared)) {
+      boolean firstHold = _shared || _lock.getOwner() != _thread;
+      _lock.acquire(_thread, _shared);
+      _result = true;
+      if (firstHold) {
+        if (_timed && !_shared) {
+          DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+          if (dd != null) {
+            dd.onMonitorEnter(_thread, _lock.getMonitor());
+          }
+        }
+        RaceDetector rd = getRuntime().get(RaceDetector.class);
+        if (rd != null) {
+          rd.onAcquire(_thread, _lock.getLock());
+        }
+      }
+    }
+    if (!_result && !_timed && !_shared) {
+      DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+      if (dd != null) {
+        dd.onMonitorExit(_thread, _lock.getMonitor());
+      }
+    }
+  }
+
+  /**
+   * Get operation result.
+   * @return <code>true</code> if the lock was acquired.
+   */
+  @Override
+  public Boolean getResult() {
+    return _result;
+  }
+
+  /**
+   * Execute operation for a <code>Lock</code> object.
+   * 
+   * <p>
+   * For lock objects that are not modeled, the operation is a plain yield point,
+   * and <code>true</code> is returned such that the actual lock operation proceeds.
+   * </p>
+   * 
+   * @param t This thread.
+   * @param l Lock object.
+   * @param interruptible Indicates if acquisition can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the lock was acquired in the model (or is not modeled), 
+   *    i.e., the actual lock operation should proceed.
+   * @throws InterruptedException If the thread is interrupted (for interruptible acquisitions).
+   */
+  static boolean execute(CThread t, Lock l, boolean interruptible, long timeout) throws InterruptedException {
+    return execute(t, getRuntime().get(LockPool.class).getView(l), interruptible, timeout);
+  }
+
+  /**
+   * Execute operation for a <code>StampedLock</code> object.
+   * 
+   * @param t This thread.
+   * @param sl Lock object.
+   * @param shared Shared (read) or exclusive (write) acquisition.
+   * @param interruptible Indicates if acquisition can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the lock was acquired in the model, 
+   *    i.e., the actual lock operation should proceed.
+   * @throws InterruptedException If the thread is interrupted (for interruptible acquisitions).
+   */
+  static boolean executeStamped(CThread t, StampedLock sl, boolean shared, boolean interruptible, long timeout) throws InterruptedException {
+    return execute(t, getRuntime().get(LockPool.class).getStampedView(sl, shared), interruptible, timeout);
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean execute(CThread t, LockPool.View v, boolean interruptible, long timeout) throws InterruptedException {
+    if (v == null) {
+      t.cYield(CThread.NOP);
+      return true;
+    }
+    Acquire op = new Acquire(t, v, interruptible, timeout);
+    boolean result = t.cYield(op);
+    if (op._interrupted) {
+      throw new InterruptedException();
+    }
+    return result;
+  }
+
+}
@@ -0,0 +1,317 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import static org.cooperari.core.CBlockingOperationEvent.INTERRUPTION_EVENT;
+import static org.cooperari.core.CBlockingOperationEvent.TIMEOUT_EVENT;
+import static org.cooperari.core.CRuntime.getRuntime;
+import static org.cooperari.core.CThreadState.CBLOCKED;
+import static org.cooperari.core.CThreadState.CREADY;
+import static org.cooperari.core.CThreadState.CTIMED_WAITING;
+import static org.cooperari.core.CThreadState.CWAITING;
+
+import org.cooperari.core.CBlockingOperationEvent;
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CThreadState;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operations for <code>Condition.await()</code> and its variants.
+ * 
+ * @since 0.4
+ */
+final class Await {
+
+  /**
+   * Private constructor to avoid unintended construction.
+   */
+  private Await() { }
+
+  /**
+   * Operation for the ownership release step.
+   */
+  private static final class ReleaseOwnership extends LockOperation<Integer> {
+    /**
+     * Condition.
+     */
+    private final ConditionModel _condition;
+
+    /**
+     * Result.
+     */
+    private int _result = -1;
+
+    /**
+     * Constructor.
+     * @param t Thread.
+     * @param c Condition.
+     */
+    ReleaseOwnership(CThread t, ConditionModel c) {
+      super(t, c.getLock());
+      _condition = c;
+    }
+
+    /**
+     * Complete operation, fully releasing the lock both in the model and 
+     * for the actual lock object.
+     */
+    @Override
+    public void execute() {
+      if (_lock.getOwner() != _thread) {
+        throw new IllegalMonitorStateException("Lock is not owned by current thread.");
+      }
+      RaceDetector rd = getRuntime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onRelease(_thread, _lock.getLock());
+      }
+      int holds = _lock.getMonitor().getOwnerLockCount();
+      for (int i = 0; i != holds; i++) {
+        _lock.release(_thread, false);
+        _condition.getLockObject().unlock();
+      }
+      _condition.addWaiter();
+      _result = holds;
+    }
+
+    /**
+     * Get operation result.
+     * @return The hold count before releasing.
+     */
+    @Override
+    public Integer getResult() {
+      return _result;
+    }
+  }
+
+  /**
+   * Operation for the signal step.
+   */
+  private static final class AwaitSignal extends LockOperation<CBlockingOperationEvent> {
+    /**
+     * Condition.
+     */
+    private final ConditionModel _condition;
+    /**
+     * Signal epoch.
+     */
+    private final int _epoch;
+    /**
+     * Deadline.
+     */
+    private final long _deadline;
+    /**
+     * Indicates if waiting has a timeout.
+     */
+    private final boolean _timed;
+    /**
+     * Hold count.
+     */
+    private final int _holds;
+    /**
+     * Indicates if waiting can be interrupted.
+     */
+    private final boolean _interruptible;
+    /**
+     * Possible event during operation.
+     */
+    private CBlockingOperationEvent _event = null;
+
+    /**
+     * Constructor.
+     * @param t Thread.
+     * @param c Condition.
+     * @param timeout Timeout in nanoseconds, or {@link Acquire#NO_TIMEOUT}.
+     * @param holds Hold count.
+     * @param interruptible Indicates if waiting can be interrupted.
+     */
+    AwaitSignal(CThread t, ConditionModel c, long timeout, int holds, boolean interruptible) {
+      super(t, c.getLock());
+      _condition = c;
+      _epoch = c.getEpoch();
+      _timed = timeout != Acquire.NO_TIMEOUT;
+      _deadline = _timed ? System.nanoTime() + Math.max(0L, timeout) : 0L;
+      _holds = holds;
+      _interruptible = interruptible;
+      t.enableSpuriousWakeups();
+    }
+
+    /**
+     * Get operation state.
+     * @return {@link CThreadState#CWAITING} or {@link CThreadState#CTIMED_WAITING} (for time-based variants)
+     * until either: (1) a signal is available, (2) deadline is set and expires; (3) interrupt status for the thread 
+     * is set (for interruptible variants), or (4) a simulated spurious wakeup is received by the thread. 
+     * The state will be {@link CThreadState#CREADY} in cases (1)-(4).
+     */
+    @Override
+    public CThreadState getState() {
+      if (_event != null || _condition.availableSignal(_epoch)) {
+        return CREADY;
+      }
+      if (_interruptible || !_thread.getInterruptStatus()) {
+        CBlockingOperationEvent e = _thread.testAndClearWakeupEvents();
+        if (e != null) {
+          _event = e;
+          return CREADY;
+        }
+      }
+      if (_timed) {
+        if (System.nanoTime() - _deadline >= 0) {
+          _event = TIMEOUT_EVENT;
+          return CREADY;
+        }
+        return CTIMED_WAITING;
+      }
+      return CWAITING;
+    }
+
+    /**
+     * Get abort operation.
+     * The abort operation will re-acquire the lock.
+     * @return A {@link RegainOwnership} operation.
+     */
+    @Override
+    public COperation<Void> getAbortOperation() {
+      return new RegainOwnership(_thread, _condition, _holds);
+    }
+
+    /**
+     * Get yield point stage.
+     * @return <code>1</code>
+     */
+    @Override
+    public int getStage() {
+      return 1;
+    }
+
+    /**
+     * Complete operation.
+     */
+    @Override
+    public void execute() {
+      if (_event == null) {
+        _condition.consumeSignal();
+      } else {
+        _condition.removeWaiter();
+      }
+    }
+
+    /**
+     * Get operation result.
+     * @return <code>null</code> if a signal was received, the completion event otherwise.
+     */
+    @Override
+    public CBlockingOperationEvent getResult() {
+      return _event;
+    }
+  }
+
+  /**
+   * Operation for the ownership re-acquisition step.
+   */
+  private static final class RegainOwnership extends LockOperation<Void> {
+    /**
+     * Condition.
+     */
+    private final ConditionModel _condition;
+
+    /**
+     * Hold count to re-establish.
+     */
+    private final int _holds;
+
+    /**
+     * Constructor.
+     * @param t Thread.
+     * @param c Condition.
+     * @param holds Hold count on ownership release.
+     */
+    RegainOwnership(CThread t, ConditionModel c, int holds) {
+      super(t, c.getLock());
+      _condition = c;
+      _holds = holds;
+    }
+
+    /**
+     * Get operation state.
+     * @return <code>CREADY</code> when the lock is available,  <code>CBLOCKED</code> otherwise.
+     */
+    @Override
+    public CThreadState getState() {
+      return _lock.isAvailable(_thread, false) ? CREADY : CBLOCKED;
+    }
+
+    /**
+     * Get yield point stage.
+     * @return <code>2</code>
+     */
+    @Override
+    public int getStage() {
+      return 2;
+    }
+
+    /**
+     * Complete by re-acquiring the lock, both in the model 
+     * and for the actual lock object.
+     */
+    @Override
+    public void execute() {
+      for (int i = 0; i != _holds; i++) {
+        _lock.acquire(_thread, false);
+        _condition.getLockObject().lock();
+      }
+      RaceDetector rd = getRuntime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onAcquire(_thread, _lock.getLock());
+      }
+    }
+  }
+
+  /**
+   * Execute a wait on a condition.
+   * <p>
+   * As for <code>Object.wait()</code> (see {@link org.cooperari.feature.monitor.Wait}), 
+   * this comprises three yield points: release of the lock, waiting for a signal (or timeout, 
+   * interrupt, or spurious wakeup), and re-acquisition of the lock.
+   * </p>
+   * @param t Current thread.
+   * @param c Condition model.
+   * @param timeout Timeout in nanoseconds, or {@link Acquire#NO_TIMEOUT}.
+   * @param interruptible Indicates if waiting can be interrupted.
+   * @return <code>true</code> if waiting did not time out.
+   * @throws IllegalMonitorStateException If the lock is not held by the thread.
+   * @throws InterruptedException If the thread is interrupted (for interruptible variants).
+   */
+  static boolean execute(CThread t, ConditionModel c, long timeout, boolean interruptible) throws IllegalMonitorStateException, InterruptedException {
+    if (interruptible && t.testAndClearInterruptStatus()) {
+      throw new InterruptedException();
+    }
+    // Release ownership
+    int holds = t.cYield(new ReleaseOwnership(t, c));
+
+    // Await signal.
+    CBlockingOperationEvent e = t.cYield(new AwaitSignal(t, c, timeout, holds, interruptible));
+
+    // Regain ownership.
+    t.cYield(new RegainOwnership(t, c, holds));
+
+    if (e == INTERRUPTION_EVENT) {
+      throw new InterruptedException();
+    }
+    return e != TIMEOUT_EVENT;
+  }
+}
@@ -0,0 +1,44 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import org.cooperari.core.CRuntime;
+import org.cooperari.feature.CFeature;
+
+/**
+ * Handler for <code>java.util.concurrent.locks</code> yield points.
+ *
+ * @since 0.4
+ */
+public final class CLocksFeature implements CFeature {
+
+  @Override
+  public void init(CRuntime env) {
+    env.register(new LockPool());
+  }
+
+  @Override
+  public void shutdown(CRuntime env) {
+    env.unregister(LockPool.class);
+  }
+
+  @Override
+  public Class<?> getInstrumentationAspect() {
+    return YieldPoints.class;
+  }
+
+}
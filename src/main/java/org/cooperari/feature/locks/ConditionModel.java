@@ -0,0 +1,150 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Cooperative model of a lock condition.
+ * 
+ * <p>
+ * Signals are delivered as in {@link org.cooperari.feature.monitor.Monitor}: 
+ * each waiting thread records the current signal epoch, and may consume 
+ * a signal delivered at the same epoch or later.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class ConditionModel {
+
+  /**
+   * Associated lock model.
+   */
+  private final LockModel _lock;
+
+  /**
+   * Lock object that created the condition.
+   */
+  private final Lock _lockObject;
+
+  /**
+   * Number of waiting threads.
+   */
+  private int _waitCount;
+
+  /**
+   * Signal sequence counter.
+   */
+  private int _epoch;
+
+  /**
+   * Pending signals (epochs at which they were delivered).
+   */
+  private final ArrayDeque<Integer> _signals = new ArrayDeque<>();
+
+  /**
+   * Constructor.
+   * @param lock Associated lock model.
+   * @param lockObject Lock object that created the condition.
+   */
+  ConditionModel(LockModel lock, Lock lockObject) {
+    _lock = lock;
+    _lockObject = lockObject;
+  }
+
+  /**
+   * Get associated lock model.
+   * @return Lock model.
+   */
+  LockModel getLock() {
+    return _lock;
+  }
+
+  /**
+   * Get the associated lock object (the lock that created the condition).
+   * @return The lock object.
+   */
+  Lock getLockObject() {
+    return _lockObject;
+  }
+
+  /**
+   * Get current signal epoch.
+   * @return Current value of the signal sequence number.
+   */
+  int getEpoch() {
+    return _epoch;
+  }
+
+  /**
+   * Register a waiting thread.
+   */
+  void addWaiter() {
+    _waitCount++;
+  }
+
+  /**
+   * Unregister a waiting thread that stopped waiting 
+   * without consuming a signal.
+   */
+  void removeWaiter() {
+    if (_waitCount > 0) {
+      _waitCount--;
+    }
+  }
+
+  /**
+   * Test if a signal is available for a thread.
+   * @param epoch Epoch when the thread started waiting.
+   * @return <code>true</code> if a signal can be consumed.
+   */
+  boolean availableSignal(int epoch) {
+    return !_signals.isEmpty() && _signals.peek() >= epoch;
+  }
+
+  /**
+   * Consume a signal.
+   */
+  void consumeSignal() {
+    _signals.remove();
+  }
+
+  /**
+   * Deliver a signal for one waiting thread, if any.
+   */
+  void signal() {
+    if (_waitCount > 0) {
+      _waitCount--;
+      _signals.offer(_epoch);
+      _epoch++;
+    }
+  }
+
+  /**
+   * Deliver one signal per each waiting thread.
+   */
+  void signalAll() {
+    if (_waitCount > 0) {
+      for (int i = 0; i != _waitCount; i++) {
+        _signals.offer(_epoch);
+      }
+      _waitCount = 0;
+      _epoch++;
+    }
+  }
+}
@@ -0,0 +1,156 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import org.cooperari.core.CThread;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.feature.monitor.Monitor;
+
+/**
+ * Cooperative model of a lock.
+ * 
+ * <p>
+ * Exclusive ownership is represented by a {@link Monitor} instance that is not associated
+ * with the intrinsic monitor of the lock object, such that exclusive acquisitions 
+ * can be tracked by the deadlock detector. Shared (read) ownership is represented
+ * by a count of holders.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class LockModel {
+
+  /**
+   * Lock object (for read-write locks, the object that owns the read and write views).
+   */
+  private final Object _lock;
+
+  /**
+   * Monitor for exclusive ownership.
+   */
+  private final Monitor _monitor;
+
+  /**
+   * Indicates if the lock is reentrant.
+   */
+  private final boolean _reentrant;
+
+  /**
+   * Number of shared holds.
+   */
+  private int _readers;
+
+  /**
+   * Constructor.
+   * @param id Identifier.
+   * @param lock Lock object.
+   * @param reentrant Indicates if lock is reentrant.
+   */
+  LockModel(int id, Object lock, boolean reentrant) {
+    _lock = lock;
+    _monitor = new Monitor(id, lock);
+    _reentrant = reentrant;
+  }
+
+  /**
+   * Get lock object.
+   * @return The lock object.
+   */
+  Object getLock() {
+    return _lock;
+  }
+
+  /**
+   * Get monitor representing exclusive ownership.
+   * @return The monitor.
+   */
+  Monitor getMonitor() {
+    return _monitor;
+  }
+
+  /**
+   * Test if lock is reentrant.
+   * @return <code>true</code> if lock is reentrant.
+   */
+  boolean isReentrant() {
+    return _reentrant;
+  }
+
+  /**
+   * Get exclusive owner.
+   * @return Owner thread or <code>null</code>.
+   */
+  CThread getOwner() {
+    return _monitor.getOwner();
+  }
+
+  /**
+   * Test if lock can be acquired by a thread.
+   * @param t Thread.
+   * @param shared Shared or exclusive acquisition.
+   * @return <code>true</code> if acquisition would not block.
+   */
+  boolean isAvailable(CThread t, boolean shared) {
+    CThread owner = _monitor.getOwner();
+    if (shared) {
+      return owner == null || (owner == t && _reentrant);
+    }
+    return owner == null ? _readers == 0 : owner == t && _reentrant;
+  }
+
+  /**
+   * Acquire the lock.
+   * @param t Thread.
+   * @param shared Shared or exclusive acquisition.
+   */
+  void acquire(CThread t, boolean shared) {
+    if (shared) {
+      _readers++;
+    } else {
+      _monitor.enter(t);
+    }
+    assert CWorkspace.debug("lock acquire | %s %s %d", _monitor, shared, _readers);
+  }
+
+  /**
+   * Release the lock.
+   * @param t Thread.
+   * @param shared Shared or exclusive release.
+   * @return <code>true</code> if the lock is no longer held in the given mode by the thread.
+   * @throws IllegalMonitorStateException if the lock is not held in the given mode, 
+   *   or, for exclusive release of a reentrant lock, is not held by the thread.
+   */
+  boolean release(CThread t, boolean shared) throws IllegalMonitorStateException {
+    boolean released;
+    if (shared) {
+      if (_readers == 0) {
+        throw new IllegalMonitorStateException();
+      }
+      _readers--;
+      released = true;
+    } else {
+      CThread owner = _monitor.getOwner();
+      if (owner == null || (_reentrant && owner != t)) {
+        throw new IllegalMonitorStateException();
+      }
+      _monitor.exit();
+      released = !_monitor.isLocked();
+    }
+    assert CWorkspace.debug("lock release | %s %s %d", _monitor, shared, _readers);
+    return released;
+  }
+}
@@ -0,0 +1,183 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import java.util.IdentityHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.cooperari.core.CWorkspace;
+
+/**
+ * Runtime pool for lock and condition models.
+ * 
+ * <p>
+ * Models are created on demand for <code>ReentrantLock</code>, <code>ReentrantReadWriteLock</code>
+ * and <code>StampedLock</code> objects. Read and write views of read-write locks 
+ * (including those of <code>StampedLock</code>), and conditions, 
+ * are associated to models when they are obtained in instrumented code, e.g., through
+ * <code>ReadWriteLock.readLock()</code> or <code>Lock.newCondition()</code>.
+ * Other lock objects are not modeled.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class LockPool {
+
+  /**
+   * View of a lock model, as exclusive or shared.
+   */
+  static final class View {
+    /**
+     * Lock model.
+     */
+    final LockModel model;
+    /**
+     * Shared or exclusive mode.
+     */
+    final boolean shared;
+
+    @SuppressWarnings("javadoc")
+    View(LockModel model, boolean shared) {
+      this.model = model;
+      this.shared = shared;
+    }
+  }
+
+  /**
+   * Lock models, indexed by lock object (including read-write lock views).
+   */
+  private final IdentityHashMap<Object, LockModel> _models = new IdentityHashMap<>();
+
+  /**
+   * Lock views, indexed by lock object.
+   */
+  private final IdentityHashMap<Object, View> _views = new IdentityHashMap<>();
+
+  /**
+   * Condition models, indexed by condition object.
+   */
+  private final IdentityHashMap<Object, ConditionModel> _conditions = new IdentityHashMap<>();
+
+  /**
+   * Model id counter.
+   */
+  private int _counter = 0;
+
+  /**
+   * Constructor.
+   */
+  public LockPool() {
+
+  }
+
+  /**
+   * Get model for a lock object. A model is created if the object is a
+   * <code>ReentrantLock</code>, <code>ReentrantReadWriteLock</code> or <code>StampedLock</code>.
+   * @param o Lock object, or read-write lock view.
+   * @return Lock model, or <code>null</code> if the object is not modeled.
+   */
+  LockModel getModel(Object o) {
+    LockModel m = _models.get(o);
+    if (m == null) {
+      if (o instanceof ReentrantLock || o instanceof ReentrantReadWriteLock) {
+        m = new LockModel(_counter++, o, true);
+      } else if (o instanceof StampedLock) {
+        m = new LockModel(_counter++, o, false);
+      } else {
+        return null;
+      }
+      _models.put(o, m);
+      assert CWorkspace.debug("lock model %d created", m.getMonitor().getId());
+    }
+    return m;
+  }
+
+  /**
+   * Get view for a <code>Lock</code> object.
+   * @param l Lock object.
+   * @return Lock view, or <code>null</code> if the object is not modeled.
+   */
+  View getView(Lock l) {
+    View v = _views.get(l);
+    if (v == null && l instanceof ReentrantLock) {
+      v = new View(getModel(l), false);
+      _views.put(l, v);
+    }
+    return v;
+  }
+
+  /**
+   * Get view for a <code>StampedLock</code> object.
+   * @param sl Lock object.
+   * @param shared Shared or exclusive mode.
+   * @return Lock view.
+   */
+  View getStampedView(StampedLock sl, boolean shared) {
+    return new View(getModel(sl), shared);
+  }
+
+  /**
+   * Associate a view object to the model of another lock object.
+   * The call has no effect if the owner object is not modeled.
+   * @param owner Owner object (the read-write lock, or a registered read-write lock view).
+   * @param view View object.
+   * @param shared Shared or exclusive mode, or <code>null</code> if the view is itself a read-write lock.
+   */
+  void registerView(Object owner, Object view, Boolean shared) {
+    LockModel m = getModel(owner);
+    if (m != null && view != null) {
+      if (shared == null) {
+        _models.put(view, m);
+      } else {
+        _views.put(view, new View(m, shared));
+      }
+    }
+  }
+
+  /**
+   * Associate a condition object to the lock object that created it.
+   * The call has no effect if the lock is not modeled or is not exclusive.
+   * @param l Lock object.
+   * @param c Condition object.
+   */
+  void registerCondition(Lock l, Object c) {
+    View v = getView(l);
+    if (v != null && !v.shared && c != null) {
+      _conditions.put(c, new ConditionModel(v.model, l));
+    }
+  }
+
+  /**
+   * Get model for a condition object.
+   * @param c Condition object.
+   * @return Condition model, or <code>null</code> if the condition is not modeled.
+   */
+  ConditionModel getCondition(Object c) {
+    return _conditions.get(c);
+  }
+
+  /**
+   * Get lock count.
+   * @return The number of lock models created.
+   */
+  public int lockCount() {
+    return _counter;
+  }
+}
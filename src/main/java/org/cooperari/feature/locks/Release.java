@@ -0,0 +1,104 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+import org.cooperari.feature.monitor.DeadlockDetector;
+
+/**
+ * Lock release operation.
+ * 
+ * @since 0.4
+ */
+final class Release extends LockOperation<Void> {
+
+  /**
+   * Shared or exclusive release.
+   */
+  private final boolean _shared;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param v Lock view.
+   */
+  private Release(CThread t, LockPool.View v) {
+    super(t, v.model);
+    _shared = v.shared;
+  }
+
+  /**
+   * Execute operation by releasing the lock.
+   * @throws IllegalMonitorStateException If the lock is not held in the expected mode.
+   */
+  @Override
+  public void execute() {
+    CThread owner = _lock.getOwner();
+    if (!_lock.release(_thread, _shared)) {
+      return;
+    }
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (_shared) {
+      // Shared holders may release in any order: merge rather than overwrite.
+      if (rd != null) {
+        rd.onSynchronize(_thread, _lock.getLock());
+      }
+    } else {
+      DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+      if (dd != null) {
+        dd.onMonitorExit(owner, _lock.getMonitor());
+      }
+      if (rd != null) {
+        rd.onRelease(_thread, _lock.getLock());
+      }
+    }
+  }
+
+  /**
+   * Execute operation for a <code>Lock</code> object.
+   * For lock objects that are not modeled, the operation is a plain yield point.
+   * @param t This thread.
+   * @param l Lock object.
+   * @throws IllegalMonitorStateException If the lock is not held in the expected mode.
+   */
+  static void execute(CThread t, Lock l) throws IllegalMonitorStateException {
+    LockPool.View v = getRuntime().get(LockPool.class).getView(l);
+    t.cYield(v != null ? new Release(t, v) : CThread.NOP);
+  }
+
+  /**
+   * Execute operation for a <code>StampedLock</code> object.
+   * @param t This thread.
+   * @param sl Lock object.
+   * @param shared Shared (read) or exclusive (write) release, or <code>null</code> if the
+   *   mode should be inferred from the current state of the lock (as for <code>StampedLock.unlock(long)</code>).
+   * @throws IllegalMonitorStateException If the lock is not held in the expected mode.
+   */
+  static void executeStamped(CThread t, StampedLock sl, Boolean shared) throws IllegalMonitorStateException {
+    LockPool pool = getRuntime().get(LockPool.class);
+    if (shared == null) {
+      shared = pool.getModel(sl).getOwner() == null;
+    }
+    t.cYield(new Release(t, pool.getStampedView(sl, shared)));
+  }
+}
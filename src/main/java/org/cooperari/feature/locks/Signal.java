@@ -0,0 +1,76 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import org.cooperari.core.CThread;
+
+/**
+ * Operation for <code>Condition.signal()</code> and <code>Condition.signalAll()</code>.
+ * 
+ * @since 0.4
+ */
+final class Signal extends LockOperation<Void> {
+
+  /**
+   * Condition.
+   */
+  private final ConditionModel _condition;
+
+  /**
+   * Signal all waiting threads or only one.
+   */
+  private final boolean _all;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param c Condition.
+   * @param all Signal all waiting threads or only one.
+   */
+  private Signal(CThread t, ConditionModel c, boolean all) {
+    super(t, c.getLock());
+    _condition = c;
+    _all = all;
+  }
+
+  /**
+   * Execute operation.
+   * @throws IllegalMonitorStateException If the lock is not held by the thread.
+   */
+  @Override
+  public void execute() {
+    if (_lock.getOwner() != _thread) {
+      throw new IllegalMonitorStateException("Lock is not owned by current thread.");
+    }
+    if (_all) {
+      _condition.signalAll();
+    } else {
+      _condition.signal();
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param c Condition model.
+   * @param all Signal all waiting threads or only one.
+   * @throws IllegalMonitorStateException If the lock is not held by the thread.
+   */
+  static void execute(CThread t, ConditionModel c, boolean all) throws IllegalMonitorStateException {
+    t.cYield(new Signal(t, c, all));
+  }
+}
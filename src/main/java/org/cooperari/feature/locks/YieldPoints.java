@@ -0,0 +1,433 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.locks;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.Date;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.CThread;
+
+/**
+ * AspectJ instrumentation for <code>java.util.concurrent.locks</code> operations.
+ * 
+ * <p>
+ * Implementation note: advice for <code>Lock</code> and <code>StampedLock</code> objects 
+ * calls differently named methods, since the AspectJ compiler fails to generate 
+ * stack map frames for this aspect when they call overloads that differ only in these types.
+ * </p>
+ * 
+ * @since 0.4
+ */
+@Aspect
+public final class YieldPoints {
+
+  /**
+   * Get the lock pool for the current thread.
+   * @return Lock pool, or <code>null</code> if not in a cooperative runtime context.
+   */
+  private static LockPool pool() {
+    CRuntime env = getRuntime();
+    return env != null ? env.get(LockPool.class) : null;
+  }
+
+  // LOCK
+  
+  /**
+   * Around advice executed in place of <code>Lock.lock()</code>.
+   * @param thisJoinPoint Join point.
+   * @param l Target lock.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Lock+.lock()) && target(l)")
+  public void aroundLock(ProceedingJoinPoint thisJoinPoint, Lock l) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Acquire.execute(t, l, false, Acquire.NO_TIMEOUT);
+    } 
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Lock.lockInterruptibly()</code>.
+   * @param thisJoinPoint Join point.
+   * @param l Target lock.
+   * @throws InterruptedException In accordance to <code>Lock.lockInterruptibly()</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Lock+.lockInterruptibly()) && target(l)")
+  public void aroundLockInterruptibly(ProceedingJoinPoint thisJoinPoint, Lock l) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Acquire.execute(t, l, true, Acquire.NO_TIMEOUT);
+    } 
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Lock.tryLock()</code>.
+   * @param thisJoinPoint Join point.
+   * @param l Target lock.
+   * @return <code>true</code> if the lock was acquired.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.locks.Lock+.tryLock()) && target(l)")
+  public boolean aroundTryLock(ProceedingJoinPoint thisJoinPoint, Lock l) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !Acquire.execute(t, l, false, 0L)) {
+      return false;
+    } 
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Lock.tryLock(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param l Target lock.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return <code>true</code> if the lock was acquired.
+   * @throws InterruptedException In accordance to <code>Lock.tryLock(long,TimeUnit)</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.locks.Lock+.tryLock(long,java.util.concurrent.TimeUnit)) && target(l) && args(time,unit)")
+  public boolean aroundTryLock(ProceedingJoinPoint thisJoinPoint, Lock l, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !Acquire.execute(t, l, true, unit.toNanos(time))) {
+      return false;
+    } 
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Lock.unlock()</code>.
+   * @param thisJoinPoint Join point.
+   * @param l Target lock.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Lock+.unlock()) && target(l)")
+  public void aroundUnlock(ProceedingJoinPoint thisJoinPoint, Lock l) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Release.execute(t, l);
+    } 
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Advice executed after <code>Lock.newCondition()</code>, associating the condition to the lock.
+   * @param l Target lock.
+   * @param c Condition.
+   */
+  @AfterReturning(pointcut="call(* java.util.concurrent.locks.Lock+.newCondition()) && target(l)", returning="c")
+  public void afterNewCondition(Lock l, Condition c) {
+    LockPool pool = pool();
+    if (pool != null) {
+      pool.registerCondition(l, c);
+    }
+  }
+
+  /**
+   * Advice executed after <code>ReadWriteLock.readLock()</code> or <code>ReadWriteLock.writeLock()</code>, 
+   * associating the lock view to the read-write lock.
+   * @param rw Target read-write lock.
+   * @param l Lock view.
+   */
+  @AfterReturning(pointcut="call(* java.util.concurrent.locks.ReadWriteLock+.readLock()) && target(rw)", returning="l")
+  public void afterReadLock(Object rw, Lock l) {
+    LockPool pool = pool();
+    if (pool != null) {
+      pool.registerView(rw, l, true);
+    }
+  }
+
+  /**
+   * Advice executed after <code>ReadWriteLock.writeLock()</code>, associating the lock view to the read-write lock.
+   * @param rw Target read-write lock.
+   * @param l Lock view.
+   */
+  @AfterReturning(pointcut="call(* java.util.concurrent.locks.ReadWriteLock+.writeLock()) && target(rw)", returning="l")
+  public void afterWriteLock(Object rw, Lock l) {
+    LockPool pool = pool();
+    if (pool != null) {
+      pool.registerView(rw, l, false);
+    }
+  }
+
+  // CONDITION
+
+  /**
+   * Around advice executed in place of <code>Condition.await()</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @throws InterruptedException In accordance to <code>Condition.await()</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Condition+.await()) && target(c)")
+  public void aroundAwait(ProceedingJoinPoint thisJoinPoint, Condition c) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      Await.execute(t, cm, Acquire.NO_TIMEOUT, true);
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.awaitUninterruptibly()</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Condition+.awaitUninterruptibly()) && target(c)")
+  public void aroundAwaitUninterruptibly(ProceedingJoinPoint thisJoinPoint, Condition c) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      Await.execute(t, cm, Acquire.NO_TIMEOUT, false);
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.await(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return <code>false</code> if the waiting time elapsed.
+   * @throws InterruptedException In accordance to <code>Condition.await(long,TimeUnit)</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.locks.Condition+.await(long,java.util.concurrent.TimeUnit)) && target(c) && args(time,unit)")
+  public boolean aroundAwait(ProceedingJoinPoint thisJoinPoint, Condition c, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      return Await.execute(t, cm, unit.toNanos(time), true);
+    } 
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.awaitNanos(long)</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @param nanos Maximum time to wait.
+   * @return An estimate of the remaining waiting time.
+   * @throws InterruptedException In accordance to <code>Condition.awaitNanos(long)</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(long java.util.concurrent.locks.Condition+.awaitNanos(long)) && target(c) && args(nanos)")
+  public long aroundAwaitNanos(ProceedingJoinPoint thisJoinPoint, Condition c, long nanos) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      long start = System.nanoTime();
+      boolean signaled = Await.execute(t, cm, nanos, true);
+      long remaining = nanos - (System.nanoTime() - start);
+      return signaled ? remaining : Math.min(remaining, 0L);
+    } 
+    return (Long) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.awaitUntil(Date)</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @param deadline Deadline.
+   * @return <code>false</code> if the deadline elapsed.
+   * @throws InterruptedException In accordance to <code>Condition.awaitUntil(Date)</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.locks.Condition+.awaitUntil(java.util.Date)) && target(c) && args(deadline)")
+  public boolean aroundAwaitUntil(ProceedingJoinPoint thisJoinPoint, Condition c, Date deadline) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      long millis = deadline.getTime() - System.currentTimeMillis();
+      return Await.execute(t, cm, TimeUnit.MILLISECONDS.toNanos(millis), true);
+    } 
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.signal()</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Condition+.signal()) && target(c)")
+  public void aroundSignal(ProceedingJoinPoint thisJoinPoint, Condition c) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      Signal.execute(t, cm, false);
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>Condition.signalAll()</code>.
+   * @param thisJoinPoint Join point.
+   * @param c Target condition.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.Condition+.signalAll()) && target(c)")
+  public void aroundSignalAll(ProceedingJoinPoint thisJoinPoint, Condition c) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    ConditionModel cm = t != null ? pool().getCondition(c) : null;
+    if (cm != null) {
+      Signal.execute(t, cm, true);
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  // STAMPED LOCK
+
+  /**
+   * Around advice executed in place of <code>StampedLock.writeLock()</code>, 
+   * <code>StampedLock.readLock()</code> and their interruptible variants.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @return Stamp.
+   * @throws InterruptedException In accordance to the interruptible variants.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(long java.util.concurrent.locks.StampedLock.writeLock()) || call(long java.util.concurrent.locks.StampedLock.readLock())"
+      + " || call(long java.util.concurrent.locks.StampedLock.writeLockInterruptibly()) || call(long java.util.concurrent.locks.StampedLock.readLockInterruptibly()))"
+      + " && target(sl)")
+  public long aroundStampedLock(ProceedingJoinPoint thisJoinPoint, StampedLock sl) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      String name = thisJoinPoint.getSignature().getName();
+      Acquire.executeStamped(t, sl, name.startsWith("read"), name.endsWith("Interruptibly"), Acquire.NO_TIMEOUT);
+    }
+    return (Long) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>StampedLock.tryWriteLock()</code> and 
+   * <code>StampedLock.tryReadLock()</code>.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @return Stamp, or <code>0</code> if the lock is not available.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(long java.util.concurrent.locks.StampedLock.tryWriteLock()) || call(long java.util.concurrent.locks.StampedLock.tryReadLock()))"
+      + " && target(sl)")
+  public long aroundStampedTryLock(ProceedingJoinPoint thisJoinPoint, StampedLock sl) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null 
+        && !Acquire.executeStamped(t, sl, thisJoinPoint.getSignature().getName().equals("tryReadLock"), false, 0L)) {
+      return 0L;
+    }
+    return (Long) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>StampedLock.tryWriteLock(long,TimeUnit)</code> and 
+   * <code>StampedLock.tryReadLock(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return Stamp, or <code>0</code> if the lock is not available.
+   * @throws InterruptedException In accordance to <code>StampedLock</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(long java.util.concurrent.locks.StampedLock.tryWriteLock(long,java.util.concurrent.TimeUnit))"
+      + " || call(long java.util.concurrent.locks.StampedLock.tryReadLock(long,java.util.concurrent.TimeUnit)))"
+      + " && target(sl) && args(time,unit)")
+  public long aroundStampedTryLock(ProceedingJoinPoint thisJoinPoint, StampedLock sl, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null 
+        && !Acquire.executeStamped(t, sl, thisJoinPoint.getSignature().getName().equals("tryReadLock"), true, unit.toNanos(time))) {
+      return 0L;
+    }
+    return (Long) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>StampedLock.unlockWrite(long)</code>, 
+   * <code>StampedLock.unlockRead(long)</code> and <code>StampedLock.unlock(long)</code>.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @param stamp Stamp.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(void java.util.concurrent.locks.StampedLock.unlockWrite(long)) || call(void java.util.concurrent.locks.StampedLock.unlockRead(long))"
+      + " || call(void java.util.concurrent.locks.StampedLock.unlock(long)))"
+      + " && target(sl) && args(stamp)")
+  public void aroundStampedUnlock(ProceedingJoinPoint thisJoinPoint, StampedLock sl, long stamp) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      String name = thisJoinPoint.getSignature().getName();
+      Release.executeStamped(t, sl, name.equals("unlock") ? null : name.equals("unlockRead"));
+    }
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>StampedLock.tryOptimisticRead()</code> and 
+   * <code>StampedLock.validate(long)</code>, which are yield points but do not block.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @return Result of the original call.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(long java.util.concurrent.locks.StampedLock.tryOptimisticRead()) || call(boolean java.util.concurrent.locks.StampedLock.validate(long)))"
+      + " && target(sl)")
+  public Object aroundStampedOptimisticRead(ProceedingJoinPoint thisJoinPoint, StampedLock sl) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      t.cYield(CThread.NOP);
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Advice executed after <code>StampedLock.asReadLock()</code>, <code>StampedLock.asWriteLock()</code> 
+   * or <code>StampedLock.asReadWriteLock()</code>, associating the view to the lock.
+   * @param thisJoinPoint Join point.
+   * @param sl Target lock.
+   * @param view Lock view.
+   */
+  @AfterReturning(pointcut="(call(* java.util.concurrent.locks.StampedLock.asReadLock()) || call(* java.util.concurrent.locks.StampedLock.asWriteLock())"
+      + " || call(* java.util.concurrent.locks.StampedLock.asReadWriteLock())) && target(sl)", returning="view")
+  public void afterStampedLockView(JoinPoint thisJoinPoint, StampedLock sl, Object view) {
+    LockPool pool = pool();
+    if (pool != null) {
+      String name = thisJoinPoint.getSignature().getName();
+      pool.registerView(sl, view, name.equals("asReadWriteLock") ? null : name.equals("asReadLock"));
+    }
+  }
+}
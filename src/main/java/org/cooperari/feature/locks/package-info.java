@@ -0,0 +1,24 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+/**
+ * Yield point support for locks in <code>java.util.concurrent.locks</code> 
+ * (<code>ReentrantLock</code>, <code>ReentrantReadWriteLock</code>, <code>StampedLock</code> and 
+ * conditions of <code>ReentrantLock</code> and write locks), modeled as cooperative operations.
+ *
+ * @since 0.4
+ */
+package org.cooperari.feature.locks;
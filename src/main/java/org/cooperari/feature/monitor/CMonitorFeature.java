@@ -34,6 +34,11 @@ public final class CMonitorFeature implements CFeature {
     env.register(new DeadlockDetector(config));
   }
 
+  @Override
+  public void startTestTrial(CRuntime env) {
+    env.get(DeadlockDetector.class).startTestTrial();
+  }
+
   @Override
   public void shutdown(CRuntime env) {
     env.unregister(MonitorPool.class);
@@ -0,0 +1,56 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.monitor;
+
+import java.util.List;
+
+import org.cooperari.core.CThread;
+import org.cooperari.errors.CDeadlockError;
+
+/**
+ * Exception thrown due to a potential deadlock, 
+ * when predictive deadlock detection is enabled.
+ * 
+ * @see org.cooperari.config.CDetectResourceDeadlocks#predictive()
+ * @since 0.4
+ */
+@SuppressWarnings("serial")
+public class CPotentialDeadlockError extends CDeadlockError {
+
+  /**
+   * Constructor.
+   * 
+   * @param t Thread where the potential deadlock is detected.
+   * @param cycle Cycle in lock-order graph, given by abstract lock names.
+   */
+  public CPotentialDeadlockError(CThread t, List<String> cycle) {
+    super(formatMessage(t, cycle));
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String formatMessage(CThread t, List<String> cycle) {
+    StringBuilder sb = new StringBuilder("Potential deadlock: ");
+    sb.append(t.getName()).append(" locks ");
+    for (int i = 0; i < cycle.size(); i++) {
+      if (i > 0) {
+        sb.append(' ').append('>').append(' ');
+      }
+      sb.append(cycle.get(i));
+    }
+    return sb.toString();
+  }
+}
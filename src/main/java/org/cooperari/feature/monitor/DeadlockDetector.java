@@ -16,20 +16,49 @@
 
 package org.cooperari.feature.monitor;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.LinkedList;
-import java.util.List;
 
+import org.aspectj.lang.JoinPoint;
 import org.cooperari.config.CDetectResourceDeadlocks;
 import org.cooperari.core.CRuntime;
 import org.cooperari.core.CThread;
 import org.cooperari.core.CTrace;
-import org.cooperari.core.util.ResourceGraph;
+import org.cooperari.core.util.IntResourceGraph;
 
 
 /**
  * Monitor acquisition deadlock detector.
  * 
+ * <p>
+ * Implementation note: monitors involved in nested acquisitions are assigned 
+ * nodes in an {@link IntResourceGraph}, which detects cycles incrementally as edges are added.
+ * Nodes are released when monitors no longer have edges.
+ * </p>
+ * 
+ * <p>
+ * If predictive detection is enabled (see {@link CDetectResourceDeadlocks#predictive()}), 
+ * a GoodLock-style lock-order graph is also accumulated over all trials of a test.
+ * Nodes in this graph are abstract locks, which must be the same across trials 
+ * (allocation sites would do, but allocations are not instrumented). 
+ * A locked object is identified by the field that holds it, when found among the static fields 
+ * of the class where the lock is acquired (or of its enclosing classes) and the instance fields 
+ * of the object executing the acquisition. 
+ * Otherwise, the object is identified by its class (or as <code>C.class</code>, for the class object of 
+ * a class <code>C</code>), hence distinct objects of the same class may share a node. 
+ * An edge is added from the last lock held by a thread to each lock it acquires, along with the set
+ * of other locks held by the thread (the guard locks). 
+ * {@link CPotentialDeadlockError} is thrown if the edge closes a cycle 
+ * involving edges produced by other threads, unless two edges in the cycle share a guard lock, 
+ * since the threads at stake are then serialized by that lock.
+ * </p>
+ * 
  * @since 0.2
  */
 public class DeadlockDetector {
@@ -37,19 +66,63 @@ public class DeadlockDetector {
   /**
    * Resource graph.
    */
-  private final ResourceGraph<Monitor> _graph = new ResourceGraph<>();
+  private final IntResourceGraph _graph = new IntResourceGraph();
+
+  /**
+   * Monitors indexed by graph node.
+   */
+  private Monitor[] _monitors = new Monitor[16];
 
   /**
    * Lock chain per thread.
    */
   private final IdentityHashMap<CThread, LinkedList<Monitor>> _lockChain = new IdentityHashMap<>();
 
+  /**
+   * Lock-order graph, if predictive detection is enabled.
+   */
+  private final IntResourceGraph _lockOrder;
+
+  /**
+   * Abstract lock names, indexed by lock-order graph node.
+   */
+  private final ArrayList<String> _lockNames = new ArrayList<>();
+
+  /**
+   * Lock-order graph nodes, indexed by abstract lock name.
+   */
+  private final HashMap<String, Integer> _lockNodes = new HashMap<>();
+
+  /**
+   * Lock-order graph nodes for objects locked in the current trial.
+   */
+  private final IdentityHashMap<Object, Integer> _trialLockNodes = new IdentityHashMap<>();
+
+  /**
+   * Threads that produced each lock-order graph edge, as bit masks over thread ids (modulo 64).
+   */
+  private final HashMap<Long, Long> _edgeThreads = new HashMap<>();
+
+  /**
+   * Guard locks for each lock-order graph edge, i.e., the locks held 
+   * every time the edge was produced (other than the edge's own locks).
+   */
+  private final HashMap<Long, BitSet> _edgeGuards = new HashMap<>();
+
   /**
    * Constructs a new deadlock detector.
    * @param config Configuration options.
    */
   public DeadlockDetector(CDetectResourceDeadlocks config) {
-    
+    _lockOrder = config.predictive() ? new IntResourceGraph() : null;
+  }
+
+  /**
+   * Signal the start of a test trial.
+   * @since 0.4
+   */
+  public void startTestTrial() {
+    _trialLockNodes.clear();
   }
 
   /**
@@ -60,16 +133,20 @@ public class DeadlockDetector {
    */
   public void onMonitorEnter(CThread t, Monitor m) {
     LinkedList<Monitor> chain = _lockChain.get(t);
+    int lock = _lockOrder != null ? lockNode(t, m) : -1;
     if (chain == null) {
       chain = new LinkedList<>();
       chain.add(m);
       _lockChain.put(t, chain);
     } else {
       Monitor from = chain.getLast();
-      _graph.addEdge(from, m);
-      List<Monitor> deadlock = _graph.findCycle(m);
-      if (!deadlock.isEmpty()) {
-        _graph.removeEdge(from, m);
+      if (!_graph.addEdge(node(from), node(m))) {
+        ArrayList<Monitor> deadlock = new ArrayList<>();
+        for (int n : _graph.getCycle()) {
+          deadlock.add(_monitors[n]);
+        }
+        release(from);
+        release(m);
         CResourceDeadlockError error = new CResourceDeadlockError(t, deadlock);
         for (Monitor m2 : deadlock) {
           CThread t2 = m2.getOwner();
@@ -79,9 +156,11 @@ public class DeadlockDetector {
           }
         }
         throw error;
-      } else {
-        chain.addLast(m);
+      } 
+      if (lock >= 0) {
+        checkLockOrder(t, chain, m, lock);
       }
+      chain.addLast(m);
     }
   }
 
@@ -96,9 +175,199 @@ public class DeadlockDetector {
 
     Monitor m = chain.removeLast();
     if (!chain.isEmpty()) {
-      _graph.removeEdge(chain.getLast(), m);
+      unlink(chain.getLast(), m);
     } else {
       _lockChain.remove(t);
     }
   }
+
+  /**
+   * Signal release of a given monitor by a thread, or withdrawal of a previously signaled
+   * acquisition intent. Unlike {@link #onMonitorExit(CThread)}, the monitor need not
+   * be the last one acquired by the thread, as for locks that are not released
+   * in nested order (e.g., <code>java.util.concurrent.locks</code> locks). 
+   * The call has no effect if the monitor is not in the lock chain of the thread.
+   * 
+   * @param t The releasing thread.
+   * @param m The monitor.
+   * @since 0.4
+   */
+  public void onMonitorExit(CThread t, Monitor m) {
+    LinkedList<Monitor> chain = _lockChain.get(t);
+    int i = chain != null ? chain.lastIndexOf(m) : -1;
+    if (i < 0) {
+      return;
+    }
+    if (i == chain.size() - 1) {
+      onMonitorExit(t);
+      return;
+    }
+    Monitor next = chain.get(i + 1);
+    unlink(m, next);
+    if (i > 0) {
+      Monitor prev = chain.get(i - 1);
+      unlink(prev, m);
+      // Preserve the acquisition order between the remaining monitors.
+      if (!_graph.addEdge(node(prev), node(next))) {
+        release(prev);
+        release(next);
+      }
+    }
+    chain.remove(i);
+  }
+
+  @SuppressWarnings("javadoc")
+  private void checkLockOrder(CThread t, LinkedList<Monitor> chain, Monitor m, int lock) {
+    Monitor from = chain.getLast();
+    Integer prevLock = _trialLockNodes.get(from.getObject());
+    if (prevLock == null || prevLock == lock) {
+      return;
+    }
+    BitSet guards = new BitSet();
+    for (Monitor held : chain) {
+      Integer n = _trialLockNodes.get(held.getObject());
+      if (n != null && n.intValue() != prevLock.intValue() && n.intValue() != lock) {
+        guards.set(n);
+      }
+    }
+    long threadMask = 1L << t.getCID();
+    Long edge = ((long) prevLock << 32) | lock;
+    if (_lockOrder.addEdge(prevLock, lock)) {
+      Long mask = _edgeThreads.get(edge);
+      _edgeThreads.put(edge, mask == null ? threadMask : mask | threadMask);
+      BitSet edgeGuards = _edgeGuards.get(edge);
+      if (edgeGuards == null) {
+        _edgeGuards.put(edge, guards);
+      } else {
+        edgeGuards.and(guards);
+      }
+      return;
+    }
+    int[] cycle = _lockOrder.getCycle();
+    BitSet[] cycleGuards = new BitSet[cycle.length - 1];
+    boolean otherThreads = false;
+    for (int i = 0; i + 2 < cycle.length; i++) {
+      Long e = ((long) cycle[i] << 32) | cycle[i + 1];
+      if ((_edgeThreads.get(e) & ~threadMask) != 0L) {
+        otherThreads = true;
+      }
+      cycleGuards[i] = _edgeGuards.get(e);
+    }
+    cycleGuards[cycle.length - 2] = guards;
+    if (otherThreads && !sharedGuard(cycleGuards)) {
+      _graph.removeEdge(from.getNode(), m.getNode());
+      release(from);
+      release(m);
+      ArrayList<String> names = new ArrayList<>(cycle.length);
+      for (int n : cycle) {
+        names.add(_lockNames.get(n));
+      }
+      CRuntime.getRuntime().get(CTrace.class).record(t, CTrace.EventType.DEADLOCK);
+      throw new CPotentialDeadlockError(t, names);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static boolean sharedGuard(BitSet[] guards) {
+    for (int i = 0; i < guards.length; i++) {
+      for (int j = i + 1; j < guards.length; j++) {
+        if (guards[i].intersects(guards[j])) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  @SuppressWarnings("javadoc")
+  private int lockNode(CThread t, Monitor m) {
+    Integer n = _trialLockNodes.get(m.getObject());
+    if (n == null) {
+      String name = lockName(t.getJoinPoint(), m.getObject());
+      n = _lockNodes.get(name);
+      if (n == null) {
+        n = _lockOrder.newNode();
+        _lockNodes.put(name, n);
+        _lockNames.add(name);
+      }
+      _trialLockNodes.put(m.getObject(), n);
+    }
+    return n;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String lockName(JoinPoint jp, Object o) {
+    if (o instanceof Class) {
+      return ((Class<?>) o).getName() + ".class";
+    }
+    if (jp != null) {
+      Object self = jp.getThis();
+      if (self != null && self != o) {
+        for (Class<?> c = self.getClass(); c != null; c = c.getSuperclass()) {
+          String name = fieldHolding(c, self, o);
+          if (name != null) {
+            return name;
+          }
+        }
+      }
+      for (Class<?> c = jp.getStaticPart().getSourceLocation().getWithinType(); c != null; c = c.getEnclosingClass()) {
+        String name = fieldHolding(c, null, o);
+        if (name != null) {
+          return name;
+        }
+      }
+    }
+    return o.getClass().getName();
+  }
+
+  @SuppressWarnings("javadoc")
+  private static String fieldHolding(Class<?> c, Object self, Object o) {
+    for (Field f : c.getDeclaredFields()) {
+      if (f.getType().isPrimitive() || f.isSynthetic() || Modifier.isStatic(f.getModifiers()) == (self != null)) {
+        continue;
+      }
+      try {
+        f.setAccessible(true);
+        if (f.get(self) == o) {
+          return c.getName() + '.' + f.getName();
+        }
+      } catch (RuntimeException | IllegalAccessException e) {
+        // Inaccessible field, ignore.
+      }
+    }
+    return null;
+  }
+
+  @SuppressWarnings("javadoc")
+  private int node(Monitor m) {
+    int n = m.getNode();
+    if (n < 0) {
+      n = _graph.newNode();
+      if (n >= _monitors.length) {
+        _monitors = Arrays.copyOf(_monitors, 2 * n);
+      }
+      _monitors[n] = m;
+      m.setNode(n);
+    }
+    return n;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void unlink(Monitor from, Monitor to) {
+    if (from.getNode() >= 0 && to.getNode() >= 0) {
+      _graph.removeEdge(from.getNode(), to.getNode());
+      release(from);
+      release(to);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void release(Monitor m) {
+    int n = m.getNode();
+    if (n >= 0 && _graph.degree(n) == 0) {
+      _graph.freeNode(n);
+      _monitors[n] = null;
+      m.setNode(-1);
+    }
+  }
 }
@@ -16,12 +16,12 @@
 
 package org.cooperari.feature.monitor;
 
-import static org.cooperari.core.CRuntime.getRuntime;
 import static org.cooperari.core.CThreadState.CBLOCKED;
 import static org.cooperari.core.CThreadState.CREADY;
 
 import org.cooperari.core.CThread;
 import org.cooperari.core.CThreadState;
+import org.cooperari.feature.data.RaceDetector;
 
 /**
  * Monitor enter operation (lock acquisition).
@@ -40,7 +40,7 @@ final class Enter extends MonitorOperation<Void> {
     super(t, m);
     _monitor.addReference();
     if (m.getOwner() != t) {
-      DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+      DeadlockDetector dd = runtime().get(DeadlockDetector.class);
       if (dd != null) {
         dd.onMonitorEnter(t, m);
       }
@@ -66,6 +66,12 @@ final class Enter extends MonitorOperation<Void> {
   @Override
   public void execute() {
     _monitor.enter(_thread);
+    if (_monitor.getOwnerLockCount() == 1) {
+      RaceDetector rd = runtime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onAcquire(_thread, _monitor.getObject());
+      }
+    }
   }
   
   /**
@@ -75,7 +81,7 @@ final class Enter extends MonitorOperation<Void> {
    */
   public static void execute(CThread t, Object o) {
     if (o != null) {
-      Monitor m = getRuntime().get(MonitorPool.class).get(o, true);
+      Monitor m = MonitorPool.of(t).get(t, o, true);
       t.cYield(new Enter(t,m));
     }
   }
@@ -16,9 +16,9 @@
 
 package org.cooperari.feature.monitor;
 
-import static org.cooperari.core.CRuntime.getRuntime;
 
 import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
 
 /**
  * Monitor exit operation (lock release).
@@ -44,10 +44,14 @@ final class Exit extends MonitorOperation<Void> {
   public void execute() {
     _monitor.exit();
     if (_monitor.getOwner() != _thread) {
-      DeadlockDetector dd = getRuntime().get(DeadlockDetector.class);
+      DeadlockDetector dd = runtime().get(DeadlockDetector.class);
       if (dd != null) {
         dd.onMonitorExit(_thread);
       }
+      RaceDetector rd = runtime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onRelease(_thread, _monitor.getObject());
+      }
     }
   }
 
@@ -59,8 +63,8 @@ final class Exit extends MonitorOperation<Void> {
    */
   public static void execute(CThread t, Object o) {
     if (o != null) {
-      MonitorPool ms = getRuntime().get(MonitorPool.class);
-      Monitor m = ms.get(o);
+      MonitorPool ms = MonitorPool.of(t);
+      Monitor m = ms.get(t, o, false);
       t.cYield(new Exit(t, m)); 
       ms.release(m); 
     }
@@ -18,9 +18,6 @@ package org.cooperari.feature.monitor;
 
 import static org.cooperari.core.util.UnsafeVMOperations.UNSAFE;
 
-import java.util.LinkedList;
-import java.util.Queue;
-
 import org.cooperari.core.CThread;
 import org.cooperari.core.CWorkspace;
 import org.cooperari.errors.CInternalError;
@@ -71,9 +68,25 @@ public final class Monitor {
    */
   private int _notifyEpoch;
   /**
-   * Notification queue.
+   * Notification queue, kept as a ring buffer of notification epochs.
+   */
+  private int[] _notifications;
+  /**
+   * Index of the first notification in the ring buffer.
+   */
+  private int _notificationsHead;
+  /**
+   * Number of notifications in the ring buffer.
+   */
+  private int _notificationsSize;
+  /**
+   * Number of per-thread cache slots in {@link MonitorPool} holding this monitor.
+   */
+  private int _cacheSlots;
+  /**
+   * Node in deadlock detector graph, <code>-1</code> if none.
    */
-  private Queue<Integer> _notifications;
+  private int _node = -1;
 
   // BASIC METHODS
   /**
@@ -102,6 +115,26 @@ public final class Monitor {
   public Object getObject() {
     return _theObject;
   }
+
+  /**
+   * Get node for this monitor in deadlock detection graph.
+   * @return Node identifier, or <code>-1</code> if none is assigned.
+   * @see DeadlockDetector
+   * @since 0.4
+   */
+  int getNode() {
+    return _node;
+  }
+
+  /**
+   * Set node for this monitor in deadlock detection graph.
+   * @param node Node identifier, or <code>-1</code>.
+   * @see DeadlockDetector
+   * @since 0.4
+   */
+  void setNode(int node) {
+    _node = node;
+  }
   
   // REFERENCE COUNT METHODS
   /**
@@ -126,6 +159,32 @@ public final class Monitor {
     return -- _refCount;
   }
   
+  /**
+   * Get number of per-thread cache slots holding this monitor.
+   * @return A value greater or equal to <code>0</code>.
+   * @see MonitorPool
+   * @since 0.4
+   */
+  int cacheSlots() {
+    return _cacheSlots;
+  }
+  /**
+   * Increment number of cache slots holding this monitor.
+   * @return Updated number of cache slots.
+   * @since 0.4
+   */
+  int addCacheSlot() {
+    return ++ _cacheSlots;
+  }
+  /**
+   * Decrement number of cache slots holding this monitor.
+   * @return Updated number of cache slots.
+   * @since 0.4
+   */
+  int removeCacheSlot() {
+    return -- _cacheSlots;
+  }
+  
   // OWNERSHIP METHODS
   /**
    * Test if monitor is currently locked.
@@ -228,23 +287,24 @@ public final class Monitor {
    * @return Sequence number for removed notification.
    */
   public int consumeNotification() {
-    int seq = _notifications.remove();
+    if (_notificationsSize == 0) {
+      throw new CInternalError("No notification available.");
+    }
+    int seq = _notifications[_notificationsHead];
+    _notificationsHead = (_notificationsHead + 1) % _notifications.length;
+    _notificationsSize--;
     assert CWorkspace.debug("consume | %s", toString());
     return seq;
   }
 
-
   /**
    * Deliver a notification for one thread waiting on this monitor.
    */
   public void notifyOneThread() {
     if (_waitCount > 0) {
       assert CWorkspace.debug("1 out of %d threads will be awakened", _waitCount);
-      if (_notifications == null) {
-        _notifications = new LinkedList<>();
-      }
       _waitCount --;
-      _notifications.offer(_notifyEpoch);
+      offerNotifications(1);
       _notifyEpoch ++;
       assert CWorkspace.debug("notify (1) | %s", toString());
     } else {
@@ -257,12 +317,7 @@ public final class Monitor {
    */
   public void notifyAllThreads() {
     if (_waitCount > 0) {
-      if (_notifications == null) {
-        _notifications = new LinkedList<>();
-      }
-      for (int i=0; i != _waitCount; i++) {
-        _notifications.offer(_notifyEpoch);
-      }
+      offerNotifications(_waitCount);
       _waitCount = 0;
       _notifyEpoch ++;
       assert CWorkspace.debug("notifyAll | %s", toString());
@@ -270,6 +325,44 @@ public final class Monitor {
       assert CWorkspace.debug("notifyAll (lost) | %s", toString());
     }    
   }
+
+  /**
+   * Append notifications with the current epoch to the ring buffer, growing it if necessary.
+   * @param n Number of notifications.
+   */
+  private void offerNotifications(int n) {
+    int size = _notificationsSize + n;
+    if (_notifications == null) {
+      _notifications = new int[Math.max(4, n)];
+    } else if (size > _notifications.length) {
+      int capacity = 2 * _notifications.length;
+      while (capacity < size) {
+        capacity *= 2;
+      }
+      int[] a = new int[capacity];
+      for (int i = 0; i != _notificationsSize; i++) {
+        a[i] = _notifications[(_notificationsHead + i) % _notifications.length];
+      }
+      _notifications = a;
+      _notificationsHead = 0;
+    }
+    int tail = _notificationsHead + _notificationsSize;
+    for (int i = 0; i != n; i++, tail++) {
+      _notifications[tail % _notifications.length] = _notifyEpoch;
+    }
+    _notificationsSize = size;
+  }
+
+  /**
+   * Discard pending notifications and reset the wait count.
+   * This is called when the monitor is no longer referenced by any thread.
+   * @since 0.4
+   */
+  void clearNotifications() {
+    _waitCount = 0;
+    _notificationsHead = 0;
+    _notificationsSize = 0;
+  }
   
   /**
    * Get available notifications greater or equal than a given sequence number.
@@ -277,9 +370,8 @@ public final class Monitor {
    * @return <code>true</code> iff such a notification exists.
    */
   public boolean availableNotification(int seq) {
-    return _notifications != null
-        && _notifications.size() > 0 
-        && _notifications.peek() >= seq;  
+    return _notificationsSize > 0 
+        && _notifications[_notificationsHead] >= seq;  
   }
 
   // COMPLEMENTARY METHODS
@@ -313,7 +405,7 @@ public final class Monitor {
     .append(' ')
     .append('Q')
     .append('=')
-    .append(_notifications == null ? 0 : _notifications.size())
+    .append(_notificationsSize)
     .append(']').toString();
   }    
 }
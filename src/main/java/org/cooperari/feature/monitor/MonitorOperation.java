@@ -17,6 +17,7 @@
 package org.cooperari.feature.monitor;
 
 import org.cooperari.core.COperation;
+import org.cooperari.core.CRuntime;
 import org.cooperari.core.CThread;
 
 /**
@@ -48,4 +49,13 @@ abstract class MonitorOperation<T> extends COperation<T> {
     _monitor = m;
   }
 
+  /**
+   * Get runtime for the operation's thread, without a thread-local lookup.
+   * @return The runtime of the thread's engine.
+   * @since 0.4
+   */
+  protected final CRuntime runtime() {
+    return _thread.getEngine().getRuntime();
+  }
+
 }
@@ -16,13 +16,23 @@
 
 package org.cooperari.feature.monitor;
 
+import java.util.Arrays;
 import java.util.IdentityHashMap;
 
+import org.cooperari.core.CThread;
 import org.cooperari.core.CWorkspace;
 
 /**
  * Runtime pool for {@link Monitor} objects.
  * 
+ * <p>
+ * Besides the object-to-monitor map, the pool keeps the last monitor 
+ * looked up by each cooperative thread, indexed by thread id. 
+ * Consecutive operations by a thread on the same monitor (e.g., 
+ * a <code>synchronized</code> block enter/exit pair) are then resolved without
+ * a map lookup.
+ * </p>
+ * 
  * @since 0.2
  */
 public final class MonitorPool {
@@ -31,6 +41,12 @@ public final class MonitorPool {
    * Object-to-monitor map.
    */
   private final IdentityHashMap<Object, Monitor> _pool = new IdentityHashMap<>();
+
+  /**
+   * Last monitor looked up by each thread, indexed by thread id.
+   * @see Monitor#cacheSlots()
+   */
+  private Monitor[] _lastMonitor = new Monitor[8];
   
   /**
    * Monitor id counter.
@@ -80,18 +96,72 @@ public final class MonitorPool {
     return m;
   }
 
+  /**
+   * Get monitor for an object, as looked up by a given thread.
+   * The result is the same as for <code>get(o, create)</code>, but the
+   * last monitor looked up by the thread is checked first.
+   * @param t Thread.
+   * @param o Object.
+   * @param create Create monitor if undefined.
+   * @return A <code>CMonitor</code> object.
+   * @since 0.4
+   */
+  public Monitor get(CThread t, Object o, boolean create) {
+    int cid = t.getCID();
+    if (cid >= _lastMonitor.length) {
+      _lastMonitor = Arrays.copyOf(_lastMonitor, Math.max(cid + 1, 2 * _lastMonitor.length));
+    }
+    Monitor m = _lastMonitor[cid];
+    if (m != null && m.getObject() == o) {
+      if (create) {
+        m.addReference();
+      }
+      return m;
+    }
+    Monitor prev = m;
+    m = get(o, create);
+    if (m != Monitor.NULL && m != Monitor.UNREFERENCED_MONITOR) {
+      _lastMonitor[cid] = m;
+      m.addCacheSlot();
+      if (prev != null && prev.removeCacheSlot() == 0 && prev.references() == 0) {
+        dispose(prev);
+      }
+    }
+    return m;
+  }
+
+  /**
+   * Get the monitor pool for a thread's runtime.
+   * @param t Thread.
+   * @return The monitor pool registered in the runtime of the thread's engine.
+   * @since 0.4
+   */
+  public static MonitorPool of(CThread t) {
+    return t.getEngine().getRuntime().get(MonitorPool.class);
+  }
+
   /**
    * Release monitor. 
    * 
-   * This will dispose the monitor if the reference count of the monitor reaches <code>0</code>.
+   * This will dispose the monitor if the reference count of the monitor reaches <code>0</code>,
+   * unless it is the last monitor looked up by some thread. In that case, the monitor
+   * is only disposed when evicted from the cache of all such threads.
    * @param m Monitor.
    */
   public void release(Monitor m) {
     if (m.removeReference() == 0) {
-      assert CWorkspace.debug("disposed of monitor " + m.getId());
-      _pool.remove(m.getObject());
+      m.clearNotifications();
+      if (m.cacheSlots() == 0) {
+        dispose(m);
+      }
     }
   }
+
+  @SuppressWarnings("javadoc")
+  private void dispose(Monitor m) {
+    assert CWorkspace.debug("disposed of monitor " + m.getId());
+    _pool.remove(m.getObject());
+  }
   
   /**
    * Get monitor count.
@@ -16,7 +16,6 @@
 
 package org.cooperari.feature.monitor;
 
-import static org.cooperari.core.CRuntime.getRuntime;
 
 import org.cooperari.core.CThread;
 
@@ -55,8 +54,8 @@ public final class NotifyAll extends MonitorOperation<Void> {
    * @throws IllegalMonitorStateException As described for <code>Object.notifyAll</code>.
    */
   public static void execute(CThread t, Object o)  throws IllegalMonitorStateException {
-    MonitorPool ms = getRuntime().get(MonitorPool.class);
-    Monitor m = ms.get(o);
+    MonitorPool ms = MonitorPool.of(t);
+    Monitor m = ms.get(t, o, false);
     t.cYield(new NotifyAll(t, m));
   }
 }
\ No newline at end of file
@@ -16,7 +16,6 @@
 
 package org.cooperari.feature.monitor;
 
-import static org.cooperari.core.CRuntime.getRuntime;
 
 import org.cooperari.core.CThread;
 
@@ -51,7 +50,7 @@ public final class ThreadHoldsLock extends MonitorOperation<Boolean> {
    * @throws NullPointerException As described for <code>Thread.holdsLock(Object)</code>.
    */
   public static boolean execute(CThread t, Object o) throws NullPointerException {
-    MonitorPool ms = getRuntime().get(MonitorPool.class);
-    return t.cYield(new ThreadHoldsLock(t, ms.get(o)));
+    MonitorPool ms = MonitorPool.of(t);
+    return t.cYield(new ThreadHoldsLock(t, ms.get(t, o, false)));
   }
 }
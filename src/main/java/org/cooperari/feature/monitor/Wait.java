@@ -19,7 +19,6 @@ package org.cooperari.feature.monitor;
 
 import static org.cooperari.core.CBlockingOperationEvent.INTERRUPTION_EVENT;
 import static org.cooperari.core.CBlockingOperationEvent.TIMEOUT_EVENT;
-import static org.cooperari.core.CRuntime.getRuntime;
 import static org.cooperari.core.CThreadState.CBLOCKED;
 import static org.cooperari.core.CThreadState.CREADY;
 import static org.cooperari.core.CThreadState.CTIMED_WAITING;
@@ -29,6 +28,7 @@ import org.cooperari.core.CBlockingOperationEvent;
 import org.cooperari.core.COperation;
 import org.cooperari.core.CThread;
 import org.cooperari.core.CThreadState;
+import org.cooperari.feature.data.RaceDetector;
 
 
 
@@ -73,6 +73,10 @@ public final class Wait {
       if (_monitor.getOwner() != _thread) {
         throw new IllegalMonitorStateException("Monitor is not owned by current thread.");
       }
+      RaceDetector rd = runtime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onRelease(_thread, _monitor.getObject());
+      }
       _result = _monitor.relinquish(_thread, true);
     }
 
@@ -234,6 +238,10 @@ public final class Wait {
     @Override
     public void execute() {
       _monitor.reacquire(_thread, _lockCount);
+      RaceDetector rd = runtime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onAcquire(_thread, _monitor.getObject());
+      }
     }
   }
 
@@ -259,8 +267,8 @@ public final class Wait {
    * @throws InterruptedException In accordance to the contract of <code>Object.wait()</code>.
    */
   public static void execute(CThread t, Object o, long timeout) throws IllegalMonitorStateException, InterruptedException {
-    MonitorPool ms = getRuntime().get(MonitorPool.class);
-    Monitor m = ms.get(o);
+    MonitorPool ms = MonitorPool.of(t);
+    Monitor m = ms.get(t, o, false);
     // Release ownership
     int lockCount = t.cYield(new ReleaseOwnership(t, m));
     
@@ -0,0 +1,134 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operations that wait on the state of a synchronizer: 
+ * <code>CountDownLatch.await</code>, <code>Semaphore.acquire</code>
+ * and <code>Future.get</code> methods.
+ * 
+ * <p>
+ * The actual synchronizer state is used as the model: an operation completes 
+ * when the corresponding actual operation can proceed without blocking 
+ * (the latch count is zero, enough permits are available, or the future is done).
+ * </p>
+ * 
+ * @since 0.4
+ */
+abstract class Await extends BlockingOperation {
+
+  /**
+   * Synchronizer object.
+   */
+  protected final Object _synchronizer;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param o Synchronizer object.
+   * @param interruptible Indicates if the operation can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  private Await(CThread t, Object o, boolean interruptible, long timeout) {
+    super(t, interruptible, timeout);
+    _synchronizer = o;
+  }
+
+  @Override
+  protected void complete() {
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onAcquire(_thread, _synchronizer);
+    }
+  }
+
+  /**
+   * Await for a latch count to reach zero.
+   * @param t This thread.
+   * @param latch Latch.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the latch count reached zero, <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted.
+   */
+  static boolean latch(CThread t, final CountDownLatch latch, long timeout) throws InterruptedException {
+    return execute(new Await(t, latch, true, timeout) {
+      @Override
+      protected boolean isAvailable() {
+        return latch.getCount() == 0L;
+      }
+    });
+  }
+
+  /**
+   * Await for semaphore permits to be available.
+   * @param t This thread.
+   * @param sem Semaphore.
+   * @param permits Number of permits.
+   * @param interruptible Indicates if the operation can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the permits are available, <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted (for interruptible operations).
+   */
+  static boolean semaphore(CThread t, final Semaphore sem, final int permits, boolean interruptible, long timeout) throws InterruptedException {
+    return execute(new Await(t, sem, interruptible, timeout) {
+      @Override
+      protected boolean isAvailable() {
+        return sem.availablePermits() >= permits;
+      }
+    });
+  }
+
+  /**
+   * Await for a future to be done.
+   * 
+   * <p>
+   * Only <code>FutureTask</code>, <code>CompletableFuture</code> and <code>ForkJoinTask</code> objects are modeled;
+   * for other futures the operation is a plain yield point.
+   * </p>
+   * 
+   * @param t This thread.
+   * @param f Future.
+   * @param interruptible Indicates if the operation can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   * @return <code>true</code> if the future is done (or is not modeled), <code>false</code> if the operation timed out.
+   * @throws InterruptedException If the thread is interrupted (for interruptible operations).
+   */
+  static boolean future(CThread t, final Future<?> f, boolean interruptible, long timeout) throws InterruptedException {
+    if (!(f instanceof FutureTask) && !(f instanceof CompletableFuture) && !(f instanceof ForkJoinTask)) {
+      t.cYield(CThread.NOP);
+      return true;
+    }
+    return execute(new Await(t, f, interruptible, timeout) {
+      @Override
+      protected boolean isAvailable() {
+        return f.isDone();
+      }
+    });
+  }
+}
@@ -0,0 +1,164 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CThreadState.CREADY;
+import static org.cooperari.core.CThreadState.CTIMED_WAITING;
+import static org.cooperari.core.CThreadState.CWAITING;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CThreadState;
+
+/**
+ * Base class for operations that wait for a synchronizer condition.
+ * 
+ * <p>
+ * Subclasses define when the condition holds through {@link #isAvailable()},
+ * and the actions taken when the operation completes through {@link #complete()}.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public abstract class BlockingOperation extends COperation<Boolean> {
+
+  /**
+   * Timeout value for operations that wait indefinitely.
+   */
+  public static final long NO_TIMEOUT = -1L;
+
+  /**
+   * Thread.
+   */
+  protected final CThread _thread;
+
+  /**
+   * Indicates if the operation can be interrupted.
+   */
+  private final boolean _interruptible;
+
+  /**
+   * Indicates if the operation has a timeout.
+   */
+  private final boolean _timed;
+
+  /**
+   * Deadline, meaningful only if the operation has a timeout.
+   */
+  private final long _deadline;
+
+  /**
+   * Indicates if thread was interrupted.
+   */
+  private boolean _interrupted;
+
+  /**
+   * Indicates if the operation completed.
+   */
+  private boolean _completed;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param interruptible Indicates if the operation can be interrupted.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  protected BlockingOperation(CThread t, boolean interruptible, long timeout) {
+    _thread = t;
+    _interruptible = interruptible;
+    _timed = timeout != NO_TIMEOUT;
+    _deadline = _timed ? System.nanoTime() + Math.max(0L, timeout) : 0L;
+  }
+
+  /**
+   * Test if the condition the operation waits for holds.
+   * @return <code>true</code> if the operation may complete.
+   */
+  protected abstract boolean isAvailable();
+
+  /**
+   * Actions taken when the operation completes. The default implementation does nothing.
+   */
+  protected void complete() {
+
+  }
+
+  /**
+   * Test if a pending interrupt makes the operation ready. 
+   * The default implementation returns <code>true</code> if the operation
+   * is interruptible and the thread is interrupted.
+   * @return <code>true</code> if the operation should be ready due to an interrupt.
+   */
+  protected boolean isInterrupted() {
+    return _interruptible && _thread.getInterruptStatus();
+  }
+
+  /**
+   * Get operation state.
+   * @return <code>CREADY</code> if the operation may complete, the thread is interrupted
+   * (for interruptible operations) or the deadline expired (for operations with a timeout);
+   * <code>CTIMED_WAITING</code> or <code>CWAITING</code> otherwise, depending on 
+   * whether there is a timeout or not.
+   */
+  @Override
+  public final CThreadState getState() {
+    if (isAvailable() || isInterrupted()) {
+      return CREADY;
+    }
+    if (_timed) {
+      return System.nanoTime() - _deadline >= 0 ? CREADY : CTIMED_WAITING;
+    }
+    return CWAITING;
+  }
+
+  /**
+   * Execute operation, completing it if possible.
+   */
+  @Override
+  public final void execute() {
+    if (_interruptible && _thread.testAndClearInterruptStatus()) {
+      _interrupted = true;
+    } else if (isAvailable()) {
+      complete();
+      _completed = true;
+    }
+  }
+
+  /**
+   * Get operation result.
+   * @return <code>true</code> if the operation completed, 
+   *   <code>false</code> if it timed out or was interrupted.
+   */
+  @Override
+  public final Boolean getResult() {
+    return _completed;
+  }
+
+  /**
+   * Execute a blocking operation.
+   * @param op Operation.
+   * @return <code>true</code> if the operation completed, <code>false</code> if it timed out.
+   * @throws InterruptedException If the thread is interrupted (for interruptible operations).
+   */
+  protected static boolean execute(BlockingOperation op) throws InterruptedException {
+    boolean result = op._thread.cYield(op);
+    if (op._interrupted) {
+      throw new InterruptedException();
+    }
+    return result;
+  }
+}
@@ -0,0 +1,79 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operation for <code>LockSupport.park</code> methods.
+ * 
+ * <p>
+ * The operation completes when the thread's permit is available, consuming it. 
+ * As for <code>LockSupport</code>, the operation also completes when the thread is interrupted,
+ * without clearing its interrupt status, and when the deadline expires for timed variants.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class Park extends BlockingOperation {
+
+  /**
+   * Permits.
+   */
+  private final ParkingPermits _permits;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  private Park(CThread t, long timeout) {
+    super(t, false, timeout);
+    _permits = getRuntime().get(ParkingPermits.class);
+  }
+
+  @Override
+  protected boolean isAvailable() {
+    return _permits.isAvailable(_thread);
+  }
+
+  @Override
+  protected boolean isInterrupted() {
+    return _thread.getInterruptStatus();
+  }
+
+  @Override
+  protected void complete() {
+    _permits.consume(_thread);
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onAcquire(_thread, _thread);
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param timeout Timeout in nanoseconds, or {@link #NO_TIMEOUT}.
+   */
+  static void execute(CThread t, long timeout) {
+    t.cYield(new Park(t, timeout));
+  }
+}
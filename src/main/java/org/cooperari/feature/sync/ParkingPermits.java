@@ -0,0 +1,75 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import org.cooperari.core.CThread;
+
+/**
+ * Runtime record of <code>LockSupport</code> permits for cooperative threads.
+ * 
+ * <p>
+ * As for <code>LockSupport</code>, each thread has at most one permit:
+ * it is made available by <code>unpark</code>, and consumed by <code>park</code>.
+ * </p>
+ * 
+ * @since 0.4
+ */
+public final class ParkingPermits {
+
+  /**
+   * Threads with an available permit.
+   */
+  private final Set<CThread> _permits = Collections.newSetFromMap(new IdentityHashMap<CThread, Boolean>());
+
+  /**
+   * Constructor.
+   */
+  public ParkingPermits() {
+
+  }
+
+  /**
+   * Make the permit of a thread available.
+   * @param t Thread.
+   */
+  void grant(CThread t) {
+    _permits.add(t);
+  }
+
+  /**
+   * Test if a thread has an available permit.
+   * @param t Thread.
+   * @return <code>true</code> if the permit is available.
+   */
+  boolean isAvailable(CThread t) {
+    return _permits.contains(t);
+  }
+
+  /**
+   * Consume the permit of a thread, if available.
+   * @param t Thread.
+   * @return <code>true</code> if the permit was available.
+   */
+  boolean consume(CThread t) {
+    return _permits.remove(t);
+  }
+
+}
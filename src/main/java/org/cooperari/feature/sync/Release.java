@@ -0,0 +1,84 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operation for synchronizer releases, e.g., <code>CountDownLatch.countDown()</code> 
+ * or <code>Semaphore.release()</code>.
+ * 
+ * <p>
+ * The operation is a yield point that records a synchronization on the synchronizer object,
+ * such that subsequent acquisitions are ordered after the release for race detection purposes.
+ * The actual release proceeds afterwards.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class Release extends COperation<Void> {
+
+  /**
+   * Thread.
+   */
+  private final CThread _thread;
+
+  /**
+   * Synchronizer object.
+   */
+  private final Object _synchronizer;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param o Synchronizer object.
+   */
+  private Release(CThread t, Object o) {
+    _thread = t;
+    _synchronizer = o;
+  }
+
+  @Override
+  public void execute() {
+    record(_thread, _synchronizer);
+  }
+
+  /**
+   * Record a release on a synchronizer object, without yielding.
+   * @param t This thread.
+   * @param o Synchronizer object.
+   */
+  static void record(CThread t, Object o) {
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onSynchronize(t, o);
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param o Synchronizer object.
+   */
+  static void execute(CThread t, Object o) {
+    t.cYield(new Release(t, o));
+  }
+}
@@ -0,0 +1,73 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import org.cooperari.core.COperation;
+import org.cooperari.core.CThread;
+import org.cooperari.feature.data.RaceDetector;
+
+/**
+ * Operation for <code>LockSupport.unpark(Thread)</code> 
+ * when the target is a cooperative thread.
+ * 
+ * @since 0.4
+ */
+final class Unpark extends COperation<Void> {
+
+  /**
+   * Thread.
+   */
+  private final CThread _thread;
+
+  /**
+   * Target thread.
+   */
+  private final CThread _target;
+
+  /**
+   * Constructor.
+   * @param t Thread.
+   * @param target Target thread.
+   */
+  private Unpark(CThread t, CThread target) {
+    _thread = t;
+    _target = target;
+  }
+
+  /**
+   * Execute operation, making the permit of the target thread available.
+   */
+  @Override
+  public void execute() {
+    getRuntime().get(ParkingPermits.class).grant(_target);
+    RaceDetector rd = getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      rd.onSynchronize(_thread, _target);
+    }
+  }
+
+  /**
+   * Execute operation.
+   * @param t This thread.
+   * @param target Target thread.
+   */
+  static void execute(CThread t, CThread target) {
+    t.cYield(new Unpark(t, target));
+  }
+}
@@ -0,0 +1,353 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.feature.sync;
+
+import static org.cooperari.core.CRuntime.getRuntime;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.AfterReturning;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.cooperari.core.CThread;
+import org.cooperari.core.CThreadMappings;
+
+/**
+ * AspectJ instrumentation for <code>LockSupport</code> and <code>java.util.concurrent</code> synchronizers.
+ * 
+ * <p>
+ * Only calls made from instrumented code are intercepted. In particular, 
+ * <code>LockSupport</code> calls made internally by JDK synchronizers are not, hence 
+ * <code>CountDownLatch</code>, <code>Semaphore</code> and <code>Future</code> objects
+ * are modeled directly: a blocking call is turned into a cooperative operation that waits until 
+ * the actual call can proceed without blocking.
+ * </p>
+ * 
+ * @since 0.4
+ */
+@Aspect
+public final class YieldPoints {
+
+  /**
+   * Get the number of permits for a <code>Semaphore</code> method call. 
+   * @param jp Join point.
+   * @return The number of permits, given by the first argument if it is an <code>int</code>, or 1 otherwise.
+   */
+  private static int permits(JoinPoint jp) {
+    Object[] args = jp.getArgs();
+    return args.length > 0 && args[0] instanceof Integer ? (Integer) args[0] : 1;
+  }
+
+  /**
+   * Get the timeout for a method call, given by its two last arguments.
+   * @param jp Join point.
+   * @return The timeout in nanoseconds, or {@link BlockingOperation#NO_TIMEOUT}
+   *   if the call has no timeout arguments.
+   */
+  private static long timeout(JoinPoint jp) {
+    Object[] args = jp.getArgs();
+    int n = args.length;
+    if (n >= 2 && args[n - 1] instanceof TimeUnit) {
+      return ((TimeUnit) args[n - 1]).toNanos((Long) args[n - 2]);
+    }
+    return BlockingOperation.NO_TIMEOUT;
+  }
+
+  // LOCK SUPPORT
+
+  /**
+   * Around advice executed in place of <code>LockSupport.park</code> methods.
+   * @param thisJoinPoint Join point.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.LockSupport.park(..))")
+  public void aroundPark(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Park.execute(t, BlockingOperation.NO_TIMEOUT);
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>LockSupport.parkNanos</code> methods.
+   * @param thisJoinPoint Join point.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.LockSupport.parkNanos(..))")
+  public void aroundParkNanos(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Object[] args = thisJoinPoint.getArgs();
+      Park.execute(t, Math.max(0L, (Long) args[args.length - 1]));
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>LockSupport.parkUntil</code> methods.
+   * @param thisJoinPoint Join point.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.LockSupport.parkUntil(..))")
+  public void aroundParkUntil(ProceedingJoinPoint thisJoinPoint) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Object[] args = thisJoinPoint.getArgs();
+      long millis = (Long) args[args.length - 1] - System.currentTimeMillis();
+      Park.execute(t, TimeUnit.MILLISECONDS.toNanos(Math.max(0L, millis)));
+    } else {
+      thisJoinPoint.proceed();
+    }
+  }
+
+  /**
+   * Around advice executed in place of <code>LockSupport.unpark(Thread)</code>.
+   * @param thisJoinPoint Join point.
+   * @param target Target thread.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.locks.LockSupport.unpark(Thread)) && args(target)")
+  public void aroundUnpark(ProceedingJoinPoint thisJoinPoint, Thread target) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    CThread ct = t != null && target != null ? getRuntime().get(CThreadMappings.class).findCThread(target) : null;
+    if (ct != null) {
+      Unpark.execute(t, ct);
+    } else {
+      if (t != null) {
+        t.cYield(CThread.NOP);
+      }
+      thisJoinPoint.proceed();
+    }
+  }
+
+  // COUNTDOWNLATCH
+
+  /**
+   * Around advice executed in place of <code>CountDownLatch.await()</code>.
+   * @param thisJoinPoint Join point.
+   * @param latch Target latch.
+   * @throws InterruptedException In accordance to <code>CountDownLatch.await()</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.CountDownLatch+.await()) && target(latch)")
+  public void aroundLatchAwait(ProceedingJoinPoint thisJoinPoint, CountDownLatch latch) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Await.latch(t, latch, BlockingOperation.NO_TIMEOUT);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>CountDownLatch.await(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param latch Target latch.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return <code>true</code> if the count reached zero, <code>false</code> if the waiting time elapsed.
+   * @throws InterruptedException In accordance to <code>CountDownLatch.await(long,TimeUnit)</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.CountDownLatch+.await(long,java.util.concurrent.TimeUnit)) && target(latch) && args(time,unit)")
+  public boolean aroundLatchAwait(ProceedingJoinPoint thisJoinPoint, CountDownLatch latch, long time, TimeUnit unit) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !Await.latch(t, latch, unit.toNanos(time))) {
+      return false;
+    }
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>CountDownLatch.countDown()</code>.
+   * @param thisJoinPoint Join point.
+   * @param latch Target latch.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.CountDownLatch+.countDown()) && target(latch)")
+  public void aroundCountDown(ProceedingJoinPoint thisJoinPoint, CountDownLatch latch) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Release.execute(t, latch);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  // SEMAPHORE
+
+  /**
+   * Around advice executed in place of <code>Semaphore.acquire()</code> and <code>Semaphore.acquire(int)</code>.
+   * @param thisJoinPoint Join point.
+   * @param sem Target semaphore.
+   * @throws InterruptedException In accordance to <code>Semaphore.acquire</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.Semaphore+.acquire(..)) && target(sem)")
+  public void aroundAcquire(ProceedingJoinPoint thisJoinPoint, Semaphore sem) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Await.semaphore(t, sem, permits(thisJoinPoint), true, BlockingOperation.NO_TIMEOUT);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Semaphore.acquireUninterruptibly()</code> 
+   * and <code>Semaphore.acquireUninterruptibly(int)</code>.
+   * @param thisJoinPoint Join point.
+   * @param sem Target semaphore.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.Semaphore+.acquireUninterruptibly(..)) && target(sem)")
+  public void aroundAcquireUninterruptibly(ProceedingJoinPoint thisJoinPoint, Semaphore sem) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Await.semaphore(t, sem, permits(thisJoinPoint), false, BlockingOperation.NO_TIMEOUT);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Semaphore.tryAcquire</code> methods.
+   * Variants without a timeout are plain yield points.
+   * @param thisJoinPoint Join point.
+   * @param sem Target semaphore.
+   * @return <code>true</code> if the permits were acquired.
+   * @throws InterruptedException In accordance to <code>Semaphore.tryAcquire</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(boolean java.util.concurrent.Semaphore+.tryAcquire(..)) && target(sem)")
+  public boolean aroundTryAcquire(ProceedingJoinPoint thisJoinPoint, Semaphore sem) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      long timeout = timeout(thisJoinPoint);
+      if (timeout == BlockingOperation.NO_TIMEOUT) {
+        t.cYield(CThread.NOP);
+      } else if (!Await.semaphore(t, sem, permits(thisJoinPoint), true, timeout)) {
+        return false;
+      }
+    }
+    return (Boolean) thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Semaphore.release()</code> and <code>Semaphore.release(int)</code>.
+   * @param thisJoinPoint Join point.
+   * @param sem Target semaphore.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(void java.util.concurrent.Semaphore+.release(..)) && target(sem)")
+  public void aroundRelease(ProceedingJoinPoint thisJoinPoint, Semaphore sem) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Release.execute(t, sem);
+    }
+    thisJoinPoint.proceed();
+  }
+
+  // FUTURE
+
+  /**
+   * Around advice executed in place of <code>Future.get()</code>.
+   * @param thisJoinPoint Join point.
+   * @param f Target future.
+   * @return The future's result.
+   * @throws InterruptedException In accordance to <code>Future.get()</code>.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Future+.get()) && target(f)")
+  public Object aroundGet(ProceedingJoinPoint thisJoinPoint, Future<?> f) throws InterruptedException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Await.future(t, f, true, BlockingOperation.NO_TIMEOUT);
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>Future.get(long,TimeUnit)</code>.
+   * @param thisJoinPoint Join point.
+   * @param f Target future.
+   * @param time Maximum time to wait.
+   * @param unit Time unit.
+   * @return The future's result.
+   * @throws InterruptedException In accordance to <code>Future.get(long,TimeUnit)</code>.
+   * @throws TimeoutException If the waiting time elapsed.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("call(* java.util.concurrent.Future+.get(long,java.util.concurrent.TimeUnit)) && target(f) && args(time,unit)")
+  public Object aroundGet(ProceedingJoinPoint thisJoinPoint, Future<?> f, long time, TimeUnit unit) throws InterruptedException, TimeoutException, Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null && !Await.future(t, f, true, unit.toNanos(time))) {
+      throw new TimeoutException();
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Around advice executed in place of <code>ForkJoinTask.join()</code> and <code>CompletableFuture.join()</code>.
+   * @param thisJoinPoint Join point.
+   * @param f Target future.
+   * @return The future's result.
+   * @throws Throwable In accordance to <code>ProceedingJoinPoint.proceed()</code>.
+   */
+  @Around("(call(* java.util.concurrent.ForkJoinTask+.join()) || call(* java.util.concurrent.CompletableFuture+.join())) && target(f)")
+  public Object aroundJoin(ProceedingJoinPoint thisJoinPoint, Future<?> f) throws Throwable {
+    CThread t = CThread.intercept(thisJoinPoint);
+    if (t != null) {
+      Await.future(t, f, false, BlockingOperation.NO_TIMEOUT);
+    }
+    return thisJoinPoint.proceed();
+  }
+
+  /**
+   * Advice executed after <code>RunnableFuture.run()</code>, recording the completion
+   * of the future for race detection purposes.
+   * @param f Target future.
+   */
+  @AfterReturning("call(void Runnable+.run()) && target(f)")
+  public void afterRun(RunnableFuture<?> f) {
+    CThread t = CThread.self();
+    if (t != null) {
+      Release.record(t, f);
+    }
+  }
+
+  /**
+   * Advice executed after <code>CompletableFuture</code> completion methods, recording the completion
+   * of the future for race detection purposes.
+   * @param f Target future.
+   */
+  @AfterReturning("(call(boolean java.util.concurrent.CompletableFuture+.complete(..)) "
+      + "|| call(boolean java.util.concurrent.CompletableFuture+.completeExceptionally(..))) && target(f)")
+  public void afterComplete(CompletableFuture<?> f) {
+    CThread t = CThread.self();
+    if (t != null) {
+      Release.record(t, f);
+    }
+  }
+}
@@ -16,6 +16,7 @@
 
 package org.cooperari.feature.thread;
 
+import static org.cooperari.core.CRuntime.getRuntime;
 import static org.cooperari.core.CThreadState.CREADY;
 import static org.cooperari.core.CThreadState.CTERMINATED;
 import static org.cooperari.core.CThreadState.CTIMED_WAITING;
@@ -23,6 +24,8 @@ import static org.cooperari.core.CThreadState.CWAITING;
 
 import org.cooperari.core.CThread;
 import org.cooperari.core.CThreadState;
+import org.cooperari.feature.data.AtomicityViolationDetector;
+import org.cooperari.feature.data.RaceDetector;
 
 /**
  * Cooperative operation for {@link Thread#join()}, {@link Thread#join(long)} and {@link Thread#join(long, int)}.
@@ -104,6 +107,16 @@ public final class Join extends ThreadOperation<Boolean> {
     if (_deadline < 0L) {
       throw new IllegalArgumentException("Invalid join timeout argument.");
     }
+    if (!_interrupted && _joinThread.getCState() == CTERMINATED) {
+      RaceDetector rd = getRuntime().get(RaceDetector.class);
+      if (rd != null) {
+        rd.onJoin(_thisThread, _joinThread);
+      }
+      AtomicityViolationDetector avd = getRuntime().get(AtomicityViolationDetector.class);
+      if (avd != null) {
+        avd.onJoin(_thisThread, _joinThread);
+      }
+    }
   }
   
   /**
@@ -28,6 +28,8 @@ import org.cooperari.core.CRuntime;
 import org.cooperari.core.CThread;
 import org.cooperari.core.CThreadState;
 import org.cooperari.core.CUncaughtExceptionHandler;
+import org.cooperari.feature.data.AtomicityViolationDetector;
+import org.cooperari.feature.data.RaceDetector;
 
 /**
  * Thread runner operation.
@@ -58,7 +60,7 @@ final class ThreadRunnerOperation extends COperation<Void> {
         }
       }
     }
-    thisThread.cYield(new ThreadRunnerOperation(runnables));
+    thisThread.cYield(new ThreadRunnerOperation(thisThread, runnables));
   }
   /**
    * Uncaught exception handler.
@@ -70,15 +72,36 @@ final class ThreadRunnerOperation extends COperation<Void> {
    */
   private final LinkedList<CThread> _threadList = new LinkedList<>();
 
+  /**
+   * Thread that executes the operation.
+   */
+  private final CThread _thisThread;
+
+  /**
+   * All threads created by the operation.
+   */
+  private final CThread[] _threads;
+
   /**
    * Create service.
    * @param runnables Array of {@link Runnable} instances for the threads for execute.
    */
-  private ThreadRunnerOperation(Runnable[] runnables) {
+  private ThreadRunnerOperation(CThread thisThread, Runnable[] runnables) {
     CRuntime rt = CRuntime.getRuntime();
     CEngine s = rt.get(CEngine.class);
+    RaceDetector rd = rt.get(RaceDetector.class);
+    AtomicityViolationDetector avd = rt.get(AtomicityViolationDetector.class);
+    _thisThread = thisThread;
+    _threads = new CThread[runnables.length];
     for (int i = 0; i < runnables.length; i++) {
-      _threadList.add(s.createNewThread(runnables[i], _excHandler));
+      _threads[i] = s.createNewThread(runnables[i], _excHandler);
+      _threadList.add(_threads[i]);
+      if (rd != null) {
+        rd.onFork(thisThread, _threads[i]);
+      }
+      if (avd != null) {
+        avd.onFork(thisThread, _threads[i]);
+      }
     }
   }
   
@@ -114,6 +137,18 @@ final class ThreadRunnerOperation extends COperation<Void> {
    */
   @Override
   public void execute() {
+    RaceDetector rd = CRuntime.getRuntime().get(RaceDetector.class);
+    if (rd != null) {
+      for (CThread t : _threads) {
+        rd.onJoin(_thisThread, t);
+      }
+    }
+    AtomicityViolationDetector avd = CRuntime.getRuntime().get(AtomicityViolationDetector.class);
+    if (avd != null) {
+      for (CThread t : _threads) {
+        avd.onJoin(_thisThread, t);
+      }
+    }
     _excHandler.rethrowExceptionsIfAny();
   }
 }
@@ -18,19 +18,92 @@ package org.cooperari.tools.cinfo;
 
 import static java.lang.System.getProperty;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
 import org.cooperari.CVersion;
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CCoverageStore;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.util.IO;
 
  
 /**
  * Main class for the <code>cinfo</code> utility program.
  * 
+ * <p>
+ * When invoked without arguments, the program prints version and environment information.
+ * Otherwise, the first argument selects a query over one or more trace files 
+ * (directories are searched recursively for trace files):
+ * </p>
+ * <ul>
+ * <li><code>index traces...</code> - summary of steps per thread, event type, source location, and yield point;</li>
+ * <li><code>threads traces...</code> - per-thread step counts;</li>
+ * <li><code>thread name traces...</code> - steps of the thread(s) with the given name or id;</li>
+ * <li><code>at file:line traces...</code> - steps at a given source code location;</li>
+ * <li><code>yieldpoint text traces...</code> - steps at yield points whose signature contains the given text;</li>
+ * <li><code>event type traces...</code> - steps for events of the given type (e.g. <code>RACE</code>);</li>
+ * <li><code>before type n traces...</code> - the last <code>n</code> steps before each event of the given type.</li>
+ * </ul>
+ * <p>
+ * The <code>coverage dir stores...</code> command merges one or more coverage stores 
+ * (e.g. produced by several <code>cjunit</code> runs, possibly in different JVMs),
+ * and writes the merged coverage report in directory <code>dir</code>
+ * (directories are searched recursively for coverage stores).
+ * </p>
+ * <p>
+ * Trace files are processed in streaming fashion, 
+ * hence there is no need to load them into memory.
+ * The index of each trace file is persisted next to it (in a file with the
+ * <code>.idx</code> suffix appended to the trace file name), and reused 
+ * by later queries while the trace file is unchanged. Queries skip trace files
+ * whose index shows no matching steps, and otherwise start reading each trace file
+ * from the first trace line that the index associates with a matching step.
+ * Malformed trace files are reported as I/O errors.
+ * </p>
+ * 
  * @since 0.2
  */
 public class Main {
 
+  /**
+   * Suffix for trace files.
+   */
+  private static final String TRACE_FILE_SUFFIX = ".trace.log";
+
+  /**
+   * Suffix for coverage stores.
+   */
+  private static final String COVERAGE_STORE_SUFFIX = ".cdb";
+
+  /**
+   * Report id for merged coverage.
+   */
+  private static final String MERGED_COVERAGE_REPORT_ID = "merged_yield_points";
+
+  /**
+   * Exit code for normal termination.
+   */
+  private static final int OK = 0;
+
+  /**
+   * Exit code for invalid arguments.
+   */
+  private static final int INVALID_ARGUMENTS = 2;
+
+  /**
+   * Exit code for I/O errors.
+   */
+  private static final int IO_ERROR = 3;
+
   /**
    * Private constructor to avoid instantiation.
    */
@@ -55,9 +128,224 @@ public class Main {
   /**
    * Program entry point.
    * 
-   * @param args Program arguments are ignored.
+   * @param args Program arguments.
    */
   public static void main(String[] args) {
+    if (args.length == 0) {
+      printInfo();
+    } else {
+      System.exit(query(args, System.out));
+    }
+  }
+
+  /**
+   * Execute a trace query.
+   * @param args Program arguments.
+   * @param out Output stream.
+   * @return A suggested program exit code, <code>0</code> for normal termination,
+   *         non-zero in the case of errors.
+   */
+  public static int query(String[] args, PrintStream out) {
+    String cmd = args[0];
+    int nParams;
+    switch (cmd) {
+      case "index":
+      case "threads":
+        nParams = 0;
+        break;
+      case "thread":
+      case "at":
+      case "yieldpoint":
+      case "event":
+      case "coverage":
+        nParams = 1;
+        break;
+      case "before":
+        nParams = 2;
+        break;
+      default:
+        out.println("Invalid query: " + cmd);
+        return INVALID_ARGUMENTS;
+    }
+    if (args.length < 2 + nParams) {
+      out.println("Invalid arguments!");
+      return INVALID_ARGUMENTS;
+    }
+    String[] params = Arrays.copyOfRange(args, 1, 1 + nParams);
+    String suffix = cmd.equals("coverage") ? COVERAGE_STORE_SUFFIX : TRACE_FILE_SUFFIX;
+    List<File> traces = new ArrayList<>();
+    for (int i = 1 + nParams; i < args.length; i++) {
+      collectFiles(new File(args[i]), suffix, traces);
+    }
+    try {
+      switch (cmd) {
+        case "index":
+        case "threads": {
+          TraceIndex index = new TraceIndex();
+          for (File f : traces) {
+            index.merge(TraceIndex.of(f));
+          }
+          if (cmd.equals("index")) {
+            index.print(out);
+          } else {
+            index.printThreads(out);
+          }
+          break;
+        }
+        case "thread": {
+          String name = params[0];
+          filter(traces, out, 
+                 index -> index.threadOffset(name),
+                 s -> s._threadName.equals(name) || Integer.toString(s._threadId).equals(name));
+          break;
+        }
+        case "at": {
+          int sep = params[0].lastIndexOf(':');
+          if (sep < 0) {
+            out.println("Invalid source location: " + params[0]);
+            return INVALID_ARGUMENTS;
+          }
+          String sourceFile = params[0].substring(0, sep);
+          int line = Integer.parseInt(params[0].substring(sep + 1));
+          filter(traces, out, 
+                 index -> index.locationOffset(sourceFile, line),
+                 s -> s._line == line && s._sourceFile.equals(sourceFile));
+          break;
+        }
+        case "yieldpoint": {
+          String text = params[0];
+          filter(traces, out, 
+                 index -> index.yieldPointOffset(text),
+                 s -> s._yieldPoint.contains(text));
+          break;
+        }
+        case "event": {
+          char marker = eventMarker(params[0]);
+          filter(traces, out, 
+                 index -> index.eventOffset(marker),
+                 s -> s._event == marker);
+          break;
+        }
+        case "before": {
+          char marker = eventMarker(params[0]);
+          int n = Integer.parseInt(params[1]);
+          before(traces, out, marker, n);
+          break;
+        }
+        case "coverage": {
+          mergeCoverage(traces, new File(params[0]), out);
+          break;
+        }
+      }
+    } catch (NumberFormatException e) {
+      out.println("Invalid number: " + e.getMessage());
+      return INVALID_ARGUMENTS;
+    } catch (IOException e) {
+      out.println("I/O error: " + e.getMessage());
+      return IO_ERROR;
+    }
+    return OK;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void collectFiles(File f, String suffix, List<File> files) {
+    if (f.isDirectory()) {
+      File[] children = f.listFiles();
+      if (children != null) {
+        Arrays.sort(children);
+        for (File child : children) {
+          if (child.isDirectory() || child.getName().endsWith(suffix)) {
+            collectFiles(child, suffix, files);
+          }
+        }
+      }
+    } else {
+      files.add(f);
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void mergeCoverage(List<File> stores, File dir, PrintStream out) throws IOException {
+    CCoverageLog log = new CCoverageLog();
+    int segments = 0;
+    for (File f : stores) {
+      segments += CCoverageStore.load(f, log);
+    }
+    CWorkspace.INSTANCE.initializeIfNecessary(dir);
+    File report = log.produceCoverageReport(".", MERGED_COVERAGE_REPORT_ID);
+    out.printf("Merged %d segment(s) from %d store(s)%n", segments, stores.size());
+    out.printf("Coverage rate: %4.1f %% (%d / %d yp)%n", 
+        log.getCoverageRate(),
+        log.getCoveredYieldPoints(),
+        log.getTotalYieldPoints());
+    out.printf("Interleaving pairs: %d%n", log.getCoveredInterleavingPairs());
+    out.printf("Merged coverage report: '%s'%n", IO.fullPath(report));
+  }
+
+  @SuppressWarnings("javadoc")
+  private static char eventMarker(String type) {
+    for (CTrace.EventType e : CTrace.EventType.values()) {
+      if (e.name().equalsIgnoreCase(type)) {
+        return e.getTraceMarker();
+      }
+    }
+    return type.charAt(0);
+  }
+
+  @SuppressWarnings("javadoc")
+  private interface StepFilter {
+    boolean accept(TraceReader.Step step);
+  }
+
+  @SuppressWarnings("javadoc")
+  private interface IndexFilter {
+    // Offset to start reading from, or a negative value if there are no matching steps.
+    long offset(TraceIndex index);
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void filter(List<File> traces, PrintStream out, IndexFilter indexFilter, StepFilter filter) throws IOException {
+    for (File f : traces) {
+      long offset = indexFilter.offset(TraceIndex.of(f));
+      if (offset < 0) {
+        continue;
+      }
+      TraceReader.read(f, offset, s -> {
+        if (filter.accept(s)) {
+          out.println(s);
+        }
+      });
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void before(List<File> traces, PrintStream out, char marker, int n) throws IOException {
+    for (File f : traces) {
+      // Read from the start, since the steps before the first event are needed.
+      if (TraceIndex.of(f).eventOffset(marker) < 0) {
+        continue;
+      }
+      ArrayDeque<String> window = new ArrayDeque<>(n + 1);
+      TraceReader.read(f, s -> {
+        if (s._event == marker) {
+          for (String previous : window) {
+            out.println(previous);
+          }
+          out.println(s);
+          out.println("--");
+          window.clear();
+        } else if (n > 0) {
+          if (window.size() == n) {
+            window.removeFirst();
+          }
+          window.addLast(s.toString());
+        }
+      });
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void printInfo() {
     System.out
         .println("== Cooperari version ==%n"
             + CVersion.ID
@@ -0,0 +1,330 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.tools.cinfo;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Index of trace steps, holding step counts per thread, yield point, 
+ * source code location, and event type. 
+ * 
+ * <p>
+ * The index holds only aggregate information, hence its size 
+ * depends on the number of distinct keys and not on the size of the traces at stake.
+ * Along with each count, the index of a single trace file holds the byte offset of 
+ * the first trace line with a step for the key at stake, such that queries may 
+ * start reading the trace file from that point (see {@link TraceReader#read(File, long, TraceReader.StepVisitor)}).
+ * Offsets are meaningless for indexes that merge several trace files.
+ * </p>
+ * 
+ * <p>
+ * The index of each trace file is persisted in a side file (with suffix <code>{@value #INDEX_FILE_SUFFIX}</code>),
+ * and reused while the trace file is unchanged. Queries use it to skip trace files that contain 
+ * no matching steps, and summary queries do not need to read trace files at all.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class TraceIndex {
+
+  /**
+   * Suffix for index files, appended to the name of the trace file.
+   */
+  static final String INDEX_FILE_SUFFIX = ".idx";
+
+  /**
+   * Header for index files.
+   */
+  private static final String INDEX_FILE_HEADER = "# COOPERARI TRACE INDEX 2";
+
+  /**
+   * Position of step count in index entries.
+   */
+  private static final int COUNT = 0;
+
+  /**
+   * Position of first line offset in index entries.
+   */
+  private static final int OFFSET = 1;
+
+  /**
+   * Number of trace files.
+   */
+  private int _traces;
+
+  /**
+   * Total number of steps.
+   */
+  private long _steps;
+
+  /**
+   * Step count and first line offset per thread (name).
+   */
+  private final HashMap<String, long[]> _threads = new HashMap<>();
+
+  /**
+   * Step count and first line offset per yield point.
+   */
+  private final HashMap<String, long[]> _yieldPoints = new HashMap<>();
+
+  /**
+   * Step count and first line offset per source code location.
+   */
+  private final HashMap<String, long[]> _sourceLocations = new HashMap<>();
+
+  /**
+   * Step count and first line offset per event marker.
+   */
+  private final HashMap<String, long[]> _events = new HashMap<>();
+
+  /**
+   * Get the index for a trace file. 
+   * The persisted index is used if it is up to date, otherwise the index
+   * is built by reading the trace file and then persisted.
+   * @param trace Trace file.
+   * @return The index for the trace file.
+   * @throws IOException If an I/O error occurs reading the trace file.
+   */
+  static TraceIndex of(File trace) throws IOException {
+    File indexFile = new File(trace.getPath() + INDEX_FILE_SUFFIX);
+    String stamp = trace.length() + "\t" + trace.lastModified();
+    TraceIndex index = load(indexFile, stamp);
+    if (index == null) {
+      index = new TraceIndex();
+      index._traces = 1;
+      TraceReader.read(trace, index::add);
+      try {
+        index.store(indexFile, stamp);
+      } catch (IOException e) {
+        // Persisting the index is optional (e.g., read-only directory).
+        indexFile.delete();
+      }
+    }
+    return index;
+  }
+
+  /**
+   * Merge the contents of another index into this one.
+   * @param other Other index.
+   */
+  void merge(TraceIndex other) {
+    _traces += other._traces;
+    _steps += other._steps;
+    merge(_threads, other._threads);
+    merge(_yieldPoints, other._yieldPoints);
+    merge(_sourceLocations, other._sourceLocations);
+    merge(_events, other._events);
+  }
+
+  /**
+   * Get the offset of the first trace line that may hold a step of a given thread.
+   * @param thread Thread name or id.
+   * @return The line offset, or <code>-1</code> if no step of the thread is indexed.
+   */
+  long threadOffset(String thread) {
+    if (thread.chars().allMatch(Character::isDigit)) {
+      // Thread ids are not indexed.
+      return _steps > 0 ? 0 : -1;
+    }
+    return offset(_threads.get(thread));
+  }
+
+  /**
+   * Get the offset of the first trace line with a step at a given source code location.
+   * @param sourceFile Source file.
+   * @param line Line.
+   * @return The line offset, or <code>-1</code> if no such step is indexed.
+   */
+  long locationOffset(String sourceFile, int line) {
+    return offset(_sourceLocations.get(sourceFile + ':' + line));
+  }
+
+  /**
+   * Get the offset of the first trace line with a step at a yield point whose signature contains the given text.
+   * @param text Text.
+   * @return The line offset, or <code>-1</code> if no such step is indexed.
+   */
+  long yieldPointOffset(String text) {
+    long offset = -1;
+    for (Map.Entry<String, long[]> e : _yieldPoints.entrySet()) {
+      if (e.getKey().contains(text) && (offset < 0 || e.getValue()[OFFSET] < offset)) {
+        offset = e.getValue()[OFFSET];
+      }
+    }
+    return offset;
+  }
+
+  /**
+   * Get the offset of the first trace line with an event of the given type.
+   * @param marker Event marker.
+   * @return The line offset, or <code>-1</code> if no such step is indexed.
+   */
+  long eventOffset(char marker) {
+    if (marker == '-') {
+      // Plain steps (without events) are not indexed.
+      return _steps > 0 ? 0 : -1;
+    }
+    return offset(_events.get(String.valueOf(marker)));
+  }
+
+  /**
+   * Add a step to the index.
+   * @param step Trace step.
+   */
+  void add(TraceReader.Step step) {
+    _steps++;
+    increment(_threads, step._threadName, step._offset);
+    increment(_yieldPoints, step._yieldPoint, step._offset);
+    increment(_sourceLocations, step._sourceFile + ':' + step._line, step._offset);
+    if (step._event != '-') {
+      increment(_events, String.valueOf(step._event), step._offset);
+    }
+  }
+
+  /**
+   * Print per-thread step counts.
+   * @param out Output stream.
+   */
+  void printThreads(PrintStream out) {
+    print(out, "STEPS PER THREAD", _threads);
+  }
+
+  /**
+   * Print the entire index.
+   * @param out Output stream.
+   */
+  void print(PrintStream out) {
+    out.printf("# SUMMARY%nTRACES\tSTEPS%n%d\t%d%n", _traces, _steps);
+    printThreads(out);
+    print(out, "STEPS PER EVENT TYPE", _events);
+    print(out, "STEPS PER SOURCE LOCATION", _sourceLocations);
+    print(out, "STEPS PER YIELD POINT", _yieldPoints);
+  }
+
+  @SuppressWarnings("javadoc")
+  private static TraceIndex load(File indexFile, String stamp) {
+    if (!indexFile.isFile()) {
+      return null;
+    }
+    try (BufferedReader in = Files.newBufferedReader(indexFile.toPath(), StandardCharsets.UTF_8)) {
+      if (!INDEX_FILE_HEADER.equals(in.readLine()) || !stamp.equals(in.readLine())) {
+        return null;
+      }
+      TraceIndex index = new TraceIndex();
+      index._traces = 1;
+      index._steps = Long.parseLong(in.readLine());
+      String line;
+      while ((line = in.readLine()) != null) {
+        int sep1 = line.indexOf('\t'), sep2 = line.indexOf('\t', sep1 + 1), sep3 = line.indexOf('\t', sep2 + 1);
+        long[] counter = { 
+            Long.parseLong(line.substring(sep1 + 1, sep2)), 
+            Long.parseLong(line.substring(sep2 + 1, sep3))
+        };
+        String key = line.substring(sep3 + 1);
+        switch (line.substring(0, sep1)) {
+          case "T": index._threads.put(key, counter); break;
+          case "Y": index._yieldPoints.put(key, counter); break;
+          case "L": index._sourceLocations.put(key, counter); break;
+          case "E": index._events.put(key, counter); break;
+          default: return null;
+        }
+      }
+      return index;
+    } catch (IOException | RuntimeException e) {
+      // Unreadable or corrupt index, it will be rebuilt.
+      return null;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void store(File indexFile, String stamp) throws IOException {
+    try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(indexFile.toPath(), StandardCharsets.UTF_8))) {
+      out.println(INDEX_FILE_HEADER);
+      out.println(stamp);
+      out.println(_steps);
+      store(out, "T", _threads);
+      store(out, "Y", _yieldPoints);
+      store(out, "L", _sourceLocations);
+      store(out, "E", _events);
+      if (out.checkError()) {
+        throw new IOException("Error writing " + indexFile);
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void store(PrintWriter out, String kind, HashMap<String, long[]> map) {
+    for (Map.Entry<String, long[]> e : map.entrySet()) {
+      out.print(kind);
+      out.print('\t');
+      out.print(e.getValue()[COUNT]);
+      out.print('\t');
+      out.print(e.getValue()[OFFSET]);
+      out.print('\t');
+      out.println(e.getKey());
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void merge(HashMap<String, long[]> map, HashMap<String, long[]> other) {
+    for (Map.Entry<String, long[]> e : other.entrySet()) {
+      long[] counter = map.get(e.getKey());
+      if (counter == null) {
+        map.put(e.getKey(), e.getValue().clone());
+      } else {
+        counter[COUNT] += e.getValue()[COUNT];
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void increment(HashMap<String, long[]> map, String key, long offset) {
+    long[] counter = map.get(key);
+    if (counter == null) {
+      counter = new long[] { 0, offset };
+      map.put(key, counter);
+    }
+    counter[COUNT]++;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static long offset(long[] counter) {
+    return counter != null ? counter[OFFSET] : -1;
+  }
+
+  @SuppressWarnings("javadoc")
+  private static void print(PrintStream out, String title, HashMap<String, long[]> map) {
+    ArrayList<Map.Entry<String, long[]>> entries = new ArrayList<>(map.entrySet());
+    entries.sort((a, b) -> {
+      int cmp = Long.compare(b.getValue()[COUNT], a.getValue()[COUNT]);
+      return cmp != 0 ? cmp : a.getKey().compareTo(b.getKey());
+    });
+    out.printf("# %s%nSTEPS\tKEY%n", title);
+    for (Map.Entry<String, long[]> e : entries) {
+      out.printf("%d\t%s%n", e.getValue()[COUNT], e.getKey());
+    }
+  }
+}
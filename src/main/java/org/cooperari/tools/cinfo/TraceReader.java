@@ -0,0 +1,323 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.tools.cinfo;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Streaming reader for trace files.
+ * 
+ * <p>
+ * Trace files are read line by line, and steps are handed over 
+ * to a {@link StepVisitor} one at a time, such that traces of arbitrary size
+ * can be processed without loading them to memory.
+ * Both the plain and compact trace formats are supported
+ * (see {@link org.cooperari.config.CTraceOptions#compact()}). 
+ * For the compact format, only the location and chunk dictionaries are kept in memory.
+ * </p>
+ * 
+ * <p>
+ * Each step carries the byte offset of the trace line that holds it. Given such an offset,
+ * the reader jumps straight to it once the thread and dictionary sections have been read,
+ * hence queries that use a {@link TraceIndex} need not scan the steps that precede the first match.
+ * Malformed trace lines are reported as an {@link IOException} that identifies 
+ * the file, line number, and section at stake.
+ * </p>
+ * 
+ * @since 0.4
+ */
+final class TraceReader {
+
+  /**
+   * Trace step. 
+   * The same object is reused for all steps in a trace, hence
+   * visitors should copy any values that must be retained.
+   */
+  static final class Step {
+    /**
+     * Trace file.
+     */
+    File _file;
+    /**
+     * Byte offset of the trace line holding the step.
+     */
+    long _offset;
+    /**
+     * Index of step in the trace.
+     */
+    int _index;
+    /**
+     * Thread id.
+     */
+    int _threadId;
+    /**
+     * Thread name.
+     */
+    String _threadName;
+    /**
+     * Thread step.
+     */
+    int _threadStep;
+    /**
+     * Event marker.
+     */
+    char _event;
+    /**
+     * Source file.
+     */
+    String _sourceFile;
+    /**
+     * Source line.
+     */
+    int _line;
+    /**
+     * Yield point signature.
+     */
+    String _yieldPoint;
+    /**
+     * Stage.
+     */
+    int _stage;
+
+    @Override
+    public String toString() {
+      return _file.getName() + '\t' + _index + '\t' + _threadId + '\t' + _threadName + '\t' + _threadStep 
+          + '\t' + _event + '\t' + _sourceFile + '\t' + _line + '\t' + _yieldPoint + '\t' + _stage;
+    }
+  }
+
+  /**
+   * Step visitor.
+   */
+  @FunctionalInterface
+  interface StepVisitor {
+    /**
+     * Visit a step.
+     * @param step The step.
+     */
+    void visit(Step step);
+  }
+
+  /**
+   * Trace file.
+   */
+  private final File _file;
+
+  /**
+   * Thread names.
+   */
+  private final HashMap<Integer, String> _threadNames = new HashMap<>();
+
+  /**
+   * Location dictionary (compact format only).
+   */
+  private final ArrayList<String[]> _locations = new ArrayList<>();
+
+  /**
+   * Chunk dictionary (compact format only).
+   */
+  private final ArrayList<int[]> _chunks = new ArrayList<>();
+
+  /**
+   * Reused step object.
+   */
+  private final Step _step = new Step();
+
+  /**
+   * Byte offset of the current line.
+   */
+  private long _lineOffset;
+
+  /**
+   * Number of the current line (starting at 1), or <code>-1</code> if unknown.
+   */
+  private int _lineNumber;
+
+  /**
+   * Byte offset of the next line.
+   */
+  private long _position;
+
+  /**
+   * Line buffer.
+   */
+  private final ByteArrayOutputStream _lineBuffer = new ByteArrayOutputStream();
+
+  /**
+   * Read a trace file.
+   * @param file Trace file.
+   * @param visitor Visitor for steps.
+   * @throws IOException If an I/O error occurs or the trace file is malformed.
+   */
+  static void read(File file, StepVisitor visitor) throws IOException {
+    read(file, 0, visitor);
+  }
+
+  /**
+   * Read a trace file, skipping the steps held by lines before the given offset.
+   * @param file Trace file.
+   * @param offset Byte offset of the first trace line to read (e.g. as given by {@link Step#_offset}).
+   * @param visitor Visitor for steps.
+   * @throws IOException If an I/O error occurs or the trace file is malformed.
+   */
+  static void read(File file, long offset, StepVisitor visitor) throws IOException {
+    new TraceReader(file).read(offset, visitor);
+  }
+
+  /**
+   * Constructor.
+   * @param file Trace file.
+   */
+  private TraceReader(File file) {
+    _file = file;
+    _step._file = file;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void read(long offset, StepVisitor visitor) throws IOException {
+    try (FileChannel channel = FileChannel.open(_file.toPath(), StandardOpenOption.READ)) {
+      InputStream in = new BufferedInputStream(Channels.newInputStream(channel));
+      String section = "";
+      String line;
+      boolean header = false;
+      while ((line = readLine(in)) != null) {
+        if (line.startsWith("# ")) {
+          section = line.substring(2);
+          header = true;
+          continue;
+        }
+        if (header) {
+          header = false;
+          if (offset > _position && section.endsWith("EXECUTION TRACE")) {
+            // Jump to the given offset. Line numbers are unknown from here on.
+            channel.position(offset);
+            in = new BufferedInputStream(Channels.newInputStream(channel));
+            _position = offset;
+            _lineNumber = -1;
+          }
+          continue;
+        }
+        try {
+          parse(section, line.split("\t"), visitor);
+        } catch (RuntimeException e) {
+          throw new IOException(String.format("%s:%s: malformed entry in section '%s' (%s): %s",
+              _file.getPath(), 
+              _lineNumber > 0 ? Integer.toString(_lineNumber) : "offset " + _lineOffset,
+              section, 
+              e.getClass().getSimpleName(),
+              line),
+              e);
+        }
+      }
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private void parse(String section, String[] fields, StepVisitor visitor) {
+    switch (section) {
+      case "THREADS":
+        _threadNames.put(Integer.parseInt(fields[0]), fields[1]);
+        break;
+      case "EXECUTION TRACE":
+        setThread(Integer.parseInt(fields[1]));
+        _step._offset = _lineOffset;
+        _step._index = Integer.parseInt(fields[0]);
+        _step._threadStep = Integer.parseInt(fields[2]);
+        _step._event = fields[3].charAt(0);
+        setLocation(fields, 4);
+        visitor.visit(_step);
+        break;
+      case "LOCATIONS":
+        _locations.add(fields);
+        break;
+      case "CHUNKS":
+        String[] ids = fields[1].split(" ");
+        int[] chunk = new int[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+          chunk[i] = Integer.parseInt(ids[i]);
+        }
+        _chunks.add(chunk);
+        break;
+      case "COMPACT EXECUTION TRACE":
+        setThread(Integer.parseInt(fields[1]));
+        _step._offset = _lineOffset;
+        int index = Integer.parseInt(fields[0]);
+        int threadStep = Integer.parseInt(fields[2]);
+        _step._event = fields[3].charAt(0);
+        int[] locations = _chunks.get(Integer.parseInt(fields[4]));
+        int repeat = Integer.parseInt(fields[5]);
+        for (int r = 0; r < repeat; r++) {
+          for (int locId : locations) {
+            _step._index = index++;
+            _step._threadStep = threadStep++;
+            setLocation(_locations.get(locId), 1);
+            visitor.visit(_step);
+          }
+        }
+        break;
+      default:
+        // Ignore (e.g. stack trace)
+        break;
+    }
+  }
+
+  @SuppressWarnings("javadoc")
+  private String readLine(InputStream in) throws IOException {
+    _lineBuffer.reset();
+    _lineOffset = _position;
+    int b;
+    while ((b = in.read()) != -1) {
+      _position++;
+      if (b == '\n') {
+        break;
+      }
+      _lineBuffer.write(b);
+    }
+    if (b == -1 && _lineBuffer.size() == 0) {
+      return null;
+    }
+    if (_lineNumber >= 0) {
+      _lineNumber++;
+    }
+    String line = new String(_lineBuffer.toByteArray(), StandardCharsets.UTF_8);
+    return line.endsWith("\r") ? line.substring(0, line.length() - 1) : line;
+  }
+
+  @SuppressWarnings("javadoc")
+  private void setThread(int tid) {
+    _step._threadId = tid;
+    _step._threadName = _threadNames.getOrDefault(tid, "?");
+  }
+
+  @SuppressWarnings("javadoc")
+  private void setLocation(String[] fields, int offset) {
+    _step._sourceFile = fields[offset];
+    _step._line = Integer.parseInt(fields[offset + 1]);
+    _step._yieldPoint = fields[offset + 2];
+    _step._stage = Integer.parseInt(fields[offset + 3]);
+  }
+}
@@ -24,6 +24,7 @@ import org.cooperari.CTestResult;
 import org.cooperari.app.CApplication;
 import org.cooperari.core.CSession;
 import org.cooperari.core.CWorkspace;
+import org.cooperari.core.aspectj.AgentFacade;
 import org.cooperari.errors.CInternalError;
 
 /**
@@ -84,6 +85,8 @@ public final class Main {
         CWorkspace.INSTANCE.initialize(new File(args[0]));
       }
 
+      AgentFacade.INSTANCE.installExtraInstrumentation();
+
       String javaClassName = args[1];
       Class<?>  javaClass; 
 
@@ -24,6 +24,7 @@ import org.cooperari.CCoverage;
 import org.cooperari.CSystem;
 import org.cooperari.CTestResult;
 import org.cooperari.CVersion;
+import org.cooperari.core.CFailureBuckets;
 import org.cooperari.core.util.IO;
 import org.cooperari.errors.CInternalError;
 import org.cooperari.junit.CTestResultPool;
@@ -71,6 +72,7 @@ public class CJUnitRunListener extends RunListener {
     _out.printf("== Cooperari %s - JUnit test execution - mode: %s ==%n", 
         CVersion.ID, _cooperativeExec ? "cooperative" : "preemptive");
     _currentClassName = "";
+    CFailureBuckets.INSTANCE.reset();
   }
 
 
@@ -107,6 +109,16 @@ public class CJUnitRunListener extends RunListener {
       try {
         File report = CSystem.generateGlobalCoverageReport();
         _out.printf("Global coverage report: '%s'%n", IO.fullPath(report));
+        File store = CSystem.saveGlobalCoverageInfo();
+        _out.printf("Coverage store: '%s'%n", IO.fullPath(store));
+        if (CFailureBuckets.INSTANCE.size() > 0) {
+          _out.println("== Failure buckets ==");
+          for (String line : CFailureBuckets.INSTANCE.getSummary()) {
+            _out.println(line);
+          }
+          report = CFailureBuckets.INSTANCE.produceReport();
+          _out.printf("Failure bucket report: '%s'%n", IO.fullPath(report));
+        }
       }
       catch (IOException e) {
         throw new CInternalError(e);
@@ -163,6 +175,9 @@ public class CJUnitRunListener extends RunListener {
       _out.printf("    > trials: %d time: %d ms coverage: %4.1f %% (%d / %d yp)", 
           result.trials(), result.getExecutionTime(),
           result.getCoverageRate(), result.getCoveredYieldPoints(), result.getTotalYieldPoints());
+      if (!result.getRaces().isEmpty()) {
+        _out.printf(" races: %d", result.getRaces().size());
+      }
 
       if (result.failed() && result.getFailureTrace() != null) {
         _out.println();
@@ -21,6 +21,7 @@ import java.io.PrintStream;
 
 import org.cooperari.CSystem;
 import org.cooperari.core.CWorkspace;
+import org.cooperari.core.aspectj.AgentFacade;
 import org.junit.runner.JUnitCore;
 import org.junit.runner.Result;
 
@@ -82,6 +83,8 @@ public final class Main {
         CWorkspace.INSTANCE.initialize(new File(args[0]));
       }
       
+      AgentFacade.INSTANCE.installExtraInstrumentation();
+
       Class<?>[] classes = new Class<?>[args.length-1];
       for (int i = 1; i < args.length; i++) {
         try {
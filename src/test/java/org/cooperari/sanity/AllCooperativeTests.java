@@ -17,10 +17,14 @@
 package org.cooperari.sanity;
 
 import org.cooperari.sanity.feature.atomic.AtomicTestSuite;
+import org.cooperari.sanity.feature.collections.CollectionsTestSuite;
 import org.cooperari.sanity.feature.data.DataTestSuite;
+import org.cooperari.sanity.feature.executor.ExecutorTestSuite;
 import org.cooperari.sanity.feature.hotspot.HotspotTestSuite;
 import org.cooperari.sanity.feature.junit.CJUnitRunnerSanityTestSuite;
+import org.cooperari.sanity.feature.locks.LocksTestSuite;
 import org.cooperari.sanity.feature.monitors.MonitorTestSuite;
+import org.cooperari.sanity.feature.sync.SynchronizersTestSuite;
 import org.cooperari.sanity.feature.thread.ThreadTestSuite;
 import org.cooperari.sanity.feature.threadrunner.ThreadRunnerSuite;
 import org.junit.runner.RunWith;
@@ -35,6 +39,10 @@ import org.junit.runners.Suite.SuiteClasses;
     DataTestSuite.class,
     AtomicTestSuite.class, 
     MonitorTestSuite.class, 
+    LocksTestSuite.class,
+    CollectionsTestSuite.class,
+    SynchronizersTestSuite.class,
+    ExecutorTestSuite.class,
     ThreadTestSuite.class,
     ThreadRunnerSuite.class
     })
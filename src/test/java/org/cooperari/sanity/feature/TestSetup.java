@@ -19,7 +19,7 @@ package org.cooperari.sanity.feature;
 import org.cooperari.config.CInstrument;
 
 @SuppressWarnings("javadoc")
-@CInstrument()
+@CInstrument(arrays=true, concurrentCollections=true)
 public class TestSetup {
 
 }
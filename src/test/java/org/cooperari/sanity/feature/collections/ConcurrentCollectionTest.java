@@ -0,0 +1,105 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.collections;
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CSometimes;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class ConcurrentCollectionTest {
+
+  @Test @CSometimes({"a", "b"})
+  public final void testMap() {
+    final ConcurrentMap<String, String> map = new ConcurrentHashMap<>();
+    Runnable r1 = new Runnable() {
+      public void run() {
+        if (map.putIfAbsent("k", "a") == null) {
+          hotspot("a");
+        }
+      }
+    };
+    Runnable r2 = new Runnable() {
+      public void run() {
+        if (map.putIfAbsent("k", "b") == null) {
+          hotspot("b");
+        }
+      }
+    };
+    CSystem.forkAndJoin(r1, r2);
+    assertEquals(1, map.size());
+  }
+
+  @Test
+  public final void testProducerConsumer() {
+    final BlockingQueue<Integer> q = new ArrayBlockingQueue<>(1);
+    final Data d = new Data();
+    Runnable producer = new Runnable() {
+      public void run() {
+        try {
+          for (int i = 1; i <= 3; i++) {
+            q.put(i);
+          }
+        } catch (InterruptedException e) {
+          fail(e.getMessage());
+        }
+      }
+    };
+    Runnable consumer = new Runnable() {
+      public void run() {
+        try {
+          for (int i = 1; i <= 3; i++) {
+            d.x += q.take();
+          }
+        } catch (InterruptedException e) {
+          fail(e.getMessage());
+        }
+      }
+    };
+    CSystem.forkAndJoin(producer, consumer);
+    assertEquals(6, d.x);
+    assertEquals(0, q.size());
+  }
+
+  @Test
+  public final void testTimeouts() throws InterruptedException {
+    BlockingQueue<Integer> q = new LinkedBlockingQueue<>(1);
+    assertNull(q.poll(0, TimeUnit.MILLISECONDS));
+    q.add(1);
+    assertFalse(q.offer(2, 0, TimeUnit.MILLISECONDS));
+  }
+}
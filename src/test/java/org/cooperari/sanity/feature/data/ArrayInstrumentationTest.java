@@ -0,0 +1,242 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.data;
+
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.cooperari.CRace;
+import org.cooperari.CSystem;
+import org.cooperari.config.CAlways;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.config.CSometimes;
+import org.cooperari.core.CRaceRegistry;
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.errors.CRaceError;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+@CRaceDetection(value=true,throwErrors=true,happensBefore=true)
+public class ArrayInstrumentationTest {
+
+  static final int[] SHARED = new int[4];
+
+  static final long[] SHARED_LONGS = new long[4];
+
+  static final Object[] SHARED_OBJECTS = new Object[4];
+
+  static final Object LOCK = new Object();
+
+  static final class Holder {
+    int[] array;
+  }
+
+  static final Holder HOLDER = new Holder();
+
+  private static final Runnable WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED[0] = 1;  
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          int v = SHARED[0];  
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable OTHER_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED[1] = 1;  
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable LONG_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED_LONGS[0] = 1L;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable OBJECT_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED_OBJECTS[0] = this;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable SYNC_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          synchronized (LOCK) {
+            SHARED[0]++;
+          }
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable LOCAL_ARRAYS = 
+    new Runnable() {
+      @Override
+      public void run() {
+        int[] a = new int[8];
+        long[] b = { 1L, 2L, 3L };
+        for (int i = 0; i < a.length; i++) {
+          a[i] = i + (int) b[i % b.length];
+        }
+        b[0] += a[7];
+        hotspot("done");
+      } 
+    };
+
+  // Array is published through a field, and then written using a local variable.
+  private static final Runnable PUBLISHER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        int[] a;
+        HOLDER.array = (a = new int[1]);
+        a[0] = 1;
+      } 
+    };
+
+  private static final Runnable SUBSCRIBER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        int[] a = HOLDER.array;
+        if (a != null) {
+          a[0] = 2;
+        }
+      } 
+    };
+
+  // Number of array yield points in the trace of the current trial.
+  private static int arrayYieldPoints() {
+    int n = 0;
+    for (CYieldPoint yp : CRuntime.getRuntime().get(CTrace.class).getLastYieldPoints(1000)) {
+      if (yp.getSignature().startsWith("array-")) {
+        n++;
+      }
+    }
+    return n;
+  }
+
+  @Test
+  @CAlways("race")
+  public void testReadWriteRace() {
+    CSystem.forkAndJoin(READER, WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testWriteWriteRace() {
+    CSystem.forkAndJoin(WRITER, WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testLongElementRace() {
+    CSystem.forkAndJoin(LONG_WRITER, LONG_WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testObjectElementRace() {
+    CSystem.forkAndJoin(OBJECT_WRITER, OBJECT_WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceOnDistinctElements() {
+    CSystem.forkAndJoin(WRITER, OTHER_WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceWithLock() {
+    CSystem.forkAndJoin(SYNC_WRITER, SYNC_WRITER);
+  }
+
+  @Test
+  @CAlways("done")
+  public void testLocalArrays() {
+    CSystem.forkAndJoin(LOCAL_ARRAYS, LOCAL_ARRAYS);
+    assertEquals(0, arrayYieldPoints());
+    assertEquals(0, CRuntime.getRuntime().get(CRaceRegistry.class).size());
+  }
+
+  @Test
+  @CRaceDetection(value=true,throwErrors=false,happensBefore=true)
+  @CSometimes("array race")
+  public void testPublishedArrays() {
+    HOLDER.array = null;
+    CSystem.forkAndJoin(PUBLISHER, SUBSCRIBER);
+    assertTrue(arrayYieldPoints() > 0);
+    for (CRace race : CRuntime.getRuntime().get(CRaceRegistry.class).getRaces()) {
+      if (race.getData().equals("int[]")) {
+        assertEquals("array-store(int[])", race.getFirstYieldPoint().getSignature());
+        assertEquals("array-store(int[])", race.getSecondYieldPoint().getSignature());
+        hotspot("array race");
+      }
+    }
+  }
+}
@@ -0,0 +1,197 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.data;
+
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertTrue;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CDetectAtomicityViolations;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CSometimes;
+import org.cooperari.errors.CAtomicityViolationError;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+@CDetectAtomicityViolations
+public class AtomicityViolationTest {
+
+  static class Cell {
+    int value;
+  }
+
+  static final Cell SHARED = new Cell();
+
+  static final Object LOCK = new Object();
+
+  static boolean violation;
+
+  static int observed;
+
+  private static final Runnable INCREMENTER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = SHARED.value + 1;  
+        } catch(CAtomicityViolationError e) {
+          violation = true;
+          hotspot("violation");
+        }
+      } 
+    };
+
+  private static final Runnable SYNC_INCREMENTER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          synchronized (LOCK) {
+            SHARED.value = SHARED.value + 1;
+          }
+        } catch(CAtomicityViolationError e) {
+          hotspot("violation");
+        }
+      } 
+    };
+
+  private static final Runnable DOUBLE_READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          int a = SHARED.value;
+          int b = SHARED.value;
+        } catch(CAtomicityViolationError e) {
+          hotspot("violation");
+        }
+      } 
+    };
+
+  private static final Runnable DOUBLE_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;
+          SHARED.value = 2;
+        } catch(CAtomicityViolationError e) {
+          violation = true;
+        }
+      } 
+    };
+
+  private static final Runnable OBSERVER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          int v = SHARED.value;
+          observed = v;
+          SHARED.value = v + 10;
+        } catch(CAtomicityViolationError e) {
+          // R-W-W pattern, not at stake
+        }
+      } 
+    };
+
+  private static final Runnable WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;
+        } catch(CAtomicityViolationError e) {
+          hotspot("violation");
+        }
+      } 
+    };
+
+  private static final Runnable NOP = 
+    new Runnable() {
+      @Override
+      public void run() { } 
+    };
+
+  @Test
+  @CSometimes("violation")
+  public void testLostUpdate() {
+    SHARED.value = 0;
+    violation = false;
+    CSystem.forkAndJoin(INCREMENTER, INCREMENTER);
+    assertTrue(SHARED.value == 2 || violation);
+  }
+
+  @Test
+  @CSometimes("violation")
+  public void testStaleRead() {
+    CSystem.forkAndJoin(DOUBLE_READER, WRITER);
+  }
+
+  @Test
+  @CSometimes("intermediate read")
+  public void testIntermediateRead() {
+    SHARED.value = 0;
+    violation = false;
+    observed = -1;
+    CSystem.forkAndJoin(DOUBLE_WRITER, OBSERVER);
+    if (observed == 1) {
+      // W-R-W for the double writer, also if the observer writes before the second write.
+      hotspot("intermediate read");
+      assertTrue(violation);
+    }
+  }
+
+  @Test
+  @CNever("violation")
+  public void testNoViolationReaders() {
+    CSystem.forkAndJoin(DOUBLE_READER, DOUBLE_READER);
+  }
+
+  @Test
+  @CNever("violation")
+  public void testNoViolationWithLock() {
+    SHARED.value = 0;
+    CSystem.forkAndJoin(SYNC_INCREMENTER, SYNC_INCREMENTER);
+  }
+
+  @Test
+  @CNever("violation")
+  public void testNoViolationAcrossEpochs() {
+    try {
+      @SuppressWarnings("unused")
+      int a = SHARED.value;
+      CSystem.forkAndJoin(WRITER);
+      // Each fork/join pair takes two epochs, 256 in total.
+      for (int i = 0; i < 127; i++) {
+        CSystem.forkAndJoin(NOP);
+      }
+      @SuppressWarnings("unused")
+      int b = SHARED.value;
+    } catch(CAtomicityViolationError e) {
+      hotspot("violation");
+    }
+  }
+}
@@ -22,7 +22,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @SuppressWarnings("javadoc")
 @RunWith(Suite.class)
-@SuiteClasses({ FieldAccessTest.class, FieldRaceDetectionTest.class, ArrayAccessTest.class, ArrayRaceDetectionTest.class })
+@SuiteClasses({ FieldAccessTest.class, FieldRaceDetectionTest.class, ArrayAccessTest.class, ArrayRaceDetectionTest.class, HappensBeforeRaceDetectionTest.class, SamplingRaceDetectionTest.class, RacePairTest.class, ArrayInstrumentationTest.class, AtomicityViolationTest.class })
 public class DataTestSuite {
 
 }
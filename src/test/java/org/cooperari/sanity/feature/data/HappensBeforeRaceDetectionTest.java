@@ -0,0 +1,267 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.data;
+
+
+import static org.cooperari.CSystem.hotspot;
+
+import java.lang.reflect.Field;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CAlways;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.errors.CRaceError;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+import sun.misc.Unsafe;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+@CRaceDetection(value=true,throwErrors=true,happensBefore=true)
+public class HappensBeforeRaceDetectionTest {
+
+  static class Cell {
+    int value;
+  }
+
+  static final Cell SHARED = new Cell();
+
+  static class StaticA {
+    static int count;
+  }
+
+  static class StaticB {
+    static int count;
+  }
+
+  static final Object LOCK = new Object();
+
+  static final AtomicInteger FLAG = new AtomicInteger();
+
+  static final Unsafe UNSAFE;
+
+  static {
+    try {
+      Field f = Unsafe.class.getDeclaredField("theUnsafe");
+      f.setAccessible(true);
+      UNSAFE = (Unsafe) f.get(null);
+    } catch (Exception e) {
+      throw new Error(e);
+    }
+  }
+
+  private static final Runnable WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;  
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          int v = SHARED.value;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable SYNC_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          synchronized (LOCK) {
+            SHARED.value = 1;
+          }
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable SYNC_READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          synchronized (LOCK) {
+            int v = SHARED.value;
+          }
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable ATOMIC_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;
+          FLAG.set(1);
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable ATOMIC_READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          if (FLAG.get() == 1) {
+            int v = SHARED.value;
+          }
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  // Unsafe calls do not synchronize, even if all threads use the same Unsafe instance.
+  private static final Runnable UNSAFE_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;
+          UNSAFE.addressSize();
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable UNSAFE_READER = 
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        try {
+          UNSAFE.addressSize();
+          int v = SHARED.value;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable STATIC_A_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          StaticA.count = 1;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable STATIC_B_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          StaticB.count = 1;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  @Test
+  @CAlways("race")
+  public void testReadWriteRace() {
+    CSystem.forkAndJoin(READER, WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testWriteWriteRace() {
+    CSystem.forkAndJoin(WRITER, WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceReaders() {
+    CSystem.forkAndJoin(READER, READER, READER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceWithLock() {
+    CSystem.forkAndJoin(SYNC_READER, SYNC_WRITER, SYNC_WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceWithAtomic() {
+    FLAG.set(0);
+    CSystem.forkAndJoin(ATOMIC_READER, ATOMIC_WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testRaceWithUnsafe() {
+    CSystem.forkAndJoin(UNSAFE_READER, UNSAFE_WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceWithForkAndJoin() throws InterruptedException {
+    SHARED.value = 0;
+    CSystem.forkAndJoin(WRITER);
+    Thread t = new Thread(READER);
+    t.start();
+    t.join();
+    SHARED.value = 2;
+  }
+
+  @Test
+  @CAlways("race")
+  public void testStaticFieldRace() {
+    CSystem.forkAndJoin(STATIC_A_WRITER, STATIC_A_WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceOnStaticFieldsOfDistinctClasses() {
+    CSystem.forkAndJoin(STATIC_A_WRITER, STATIC_B_WRITER);
+  }
+}
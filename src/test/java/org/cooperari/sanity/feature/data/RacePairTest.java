@@ -0,0 +1,125 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.data;
+
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.cooperari.CRace;
+import org.cooperari.CSystem;
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.config.CSometimes;
+import org.cooperari.core.CRaceRegistry;
+import org.cooperari.core.CRuntime;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+/*
+ * Checks the pairs of accesses recorded in the race registry.
+ * Each runnable accesses the shared data at a single source line,
+ * and there is a single writer in each test, hence a pair of accesses
+ * at the same line would not be from different threads.
+ */
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class RacePairTest {
+
+  static class Cell {
+    int value;
+  }
+
+  static final Cell SHARED = new Cell();
+
+  private static final Runnable WRITER =
+    new Runnable() {
+      @Override
+      public void run() {
+        SHARED.value = 1;
+      }
+    };
+
+  private static final Runnable READER =
+    new Runnable() {
+      @SuppressWarnings("unused")
+      @Override
+      public void run() {
+        int v = SHARED.value;
+      }
+    };
+
+  private static final Runnable INCREMENTER =
+    new Runnable() {
+      @Override
+      public void run() {
+        SHARED.value = SHARED.value + 1;
+      }
+    };
+
+  private static void checkPairs() {
+    CRaceRegistry registry = CRuntime.getRuntime().get(CRaceRegistry.class);
+    for (CRace race : registry.getRaces()) {
+      CYieldPoint a = race.getFirstYieldPoint(), b = race.getSecondYieldPoint();
+      assertNotNull(a);
+      assertNotNull(b);
+      assertTrue(a.getSignature().startsWith("field-set") || b.getSignature().startsWith("field-set"));
+      assertNotEquals(a.getSourceLine(), b.getSourceLine());
+    }
+    if (registry.size() > 0) {
+      hotspot("race");
+    }
+  }
+
+  @Test
+  @CRaceDetection(value=true)
+  @CSometimes("race")
+  public void testReadWrite() {
+    CSystem.forkAndJoin(READER, WRITER);
+    checkPairs();
+  }
+
+  @Test
+  @CRaceDetection(value=true)
+  @CSometimes("race")
+  public void testReadReadWrite() {
+    CSystem.forkAndJoin(READER, READER, WRITER);
+    checkPairs();
+  }
+
+  @Test
+  @CRaceDetection(value=true,happensBefore=true)
+  @CSometimes("race")
+  public void testHappensBeforeReadWrite() {
+    CSystem.forkAndJoin(READER, WRITER);
+    checkPairs();
+  }
+
+  @Test
+  @CRaceDetection(value=true,happensBefore=true)
+  @CSometimes("race")
+  public void testHappensBeforeReadersAndIncrementer() {
+    CSystem.forkAndJoin(READER, READER, INCREMENTER);
+    checkPairs();
+  }
+}
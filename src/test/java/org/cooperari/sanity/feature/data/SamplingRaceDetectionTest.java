@@ -0,0 +1,111 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.data;
+
+
+import static org.cooperari.CSystem.hotspot;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CAlways;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CRaceDetection;
+import org.cooperari.errors.CRaceError;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+@CRaceDetection(value=true,throwErrors=true,happensBefore=true,sampling=true,samplingRate=0.01,samplingBudget=10)
+public class SamplingRaceDetectionTest {
+
+  static final int ITERATIONS = 200;
+
+  static class Cell {
+    int value;
+  }
+
+  static final Cell SHARED = new Cell();
+
+  static final Object LOCK = new Object();
+
+  private static final Runnable WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          SHARED.value = 1;  
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable HOT_SYNC_WRITER = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < ITERATIONS; i++) {
+            synchronized (LOCK) {
+              SHARED.value++;
+            }
+          }
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  private static final Runnable HOT_WRITER_THEN_RACE = 
+    new Runnable() {
+      @Override
+      public void run() {
+        try {
+          for (int i = 0; i < ITERATIONS; i++) {
+            synchronized (LOCK) {
+              SHARED.value++;
+            }
+          }
+          SHARED.value = 0;
+        } catch(CRaceError e) {
+          hotspot("race");
+        }
+      } 
+    };
+
+  @Test
+  @CAlways("race")
+  public void testColdRace() {
+    CSystem.forkAndJoin(WRITER, WRITER);
+  }
+
+  @Test
+  @CNever("race")
+  public void testNoRaceInHotCode() {
+    CSystem.forkAndJoin(HOT_SYNC_WRITER, HOT_SYNC_WRITER);
+  }
+
+  @Test
+  @CAlways("race")
+  public void testColdRaceAfterHotCode() {
+    CSystem.forkAndJoin(HOT_WRITER_THEN_RACE, HOT_WRITER_THEN_RACE);
+  }
+}
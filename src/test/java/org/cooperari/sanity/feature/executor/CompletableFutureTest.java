@@ -0,0 +1,74 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.executor;
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import org.cooperari.config.CSometimes;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class CompletableFutureTest {
+
+  @Test
+  public final void testPipeline() throws InterruptedException, ExecutionException {
+    CompletableFuture<Integer> f = CompletableFuture.supplyAsync(new Supplier<Integer>() {
+      public Integer get() {
+        assertFalse(Thread.currentThread() instanceof ForkJoinWorkerThread);
+        return 6;
+      }
+    }).thenApplyAsync(new Function<Integer, Integer>() {
+      public Integer apply(Integer x) {
+        return x * 7;
+      }
+    });
+    assertEquals(42, (int) f.join());
+    assertEquals(42, (int) f.get());
+  }
+
+  @Test @CSometimes({"not done", "done"})
+  public final void testAsynchrony() {
+    final Data d = new Data();
+    CompletableFuture<Void> f = CompletableFuture.runAsync(new Runnable() {
+      public void run() {
+        d.x = 1;
+      }
+    });
+    if (d.x == 0) {
+      hotspot("not done");
+    } else {
+      hotspot("done");
+    }
+    f.join();
+    assertEquals(1, d.x);
+  }
+}
@@ -0,0 +1,135 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.executor;
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.cooperari.config.CNever;
+import org.cooperari.config.CSometimes;
+import org.cooperari.errors.CWaitDeadlockError;
+import org.cooperari.feature.executor.CExecutorService;
+import org.cooperari.junit.CCooperativeOnly;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class ExecutorServiceTest {
+
+  private static Callable<Integer> square(final int x) {
+    return new Callable<Integer>() {
+      public Integer call() {
+        return x * x;
+      }
+    };
+  }
+
+  @Test
+  public final void testSubmit() throws InterruptedException, ExecutionException {
+    ExecutorService e = Executors.newFixedThreadPool(2);
+    assertTrue(e instanceof CExecutorService);
+    Future<Integer> f1 = e.submit(square(2));
+    Future<Integer> f2 = e.submit(square(3));
+    Future<Integer> f3 = e.submit(square(4));
+    assertEquals(4, (int) f1.get());
+    assertEquals(9, (int) f2.get());
+    assertEquals(16, (int) f3.get());
+    e.shutdown();
+    assertTrue(e.awaitTermination(1, TimeUnit.SECONDS));
+    assertTrue(e.isTerminated());
+  }
+
+  @Test
+  public final void testInvokeAll() throws InterruptedException, ExecutionException {
+    ExecutorService e = Executors.newCachedThreadPool();
+    List<Callable<Integer>> tasks = new ArrayList<>();
+    for (int i = 1; i <= 3; i++) {
+      tasks.add(square(i));
+    }
+    int sum = 0;
+    for (Future<Integer> f : e.invokeAll(tasks)) {
+      sum += f.get();
+    }
+    assertEquals(14, sum);
+    assertEquals(9, (int) e.invokeAny(tasks.subList(2, 3)));
+    e.shutdown();
+  }
+
+  @Test @CSometimes({"lost update"})
+  public final void testInterleaving() throws InterruptedException {
+    ExecutorService e = Executors.newFixedThreadPool(2);
+    final Data d = new Data();
+    Runnable r = new Runnable() {
+      public void run() {
+        int v = d.x;
+        d.x = v + 1;
+      }
+    };
+    e.execute(r);
+    e.execute(r);
+    e.shutdown();
+    assertTrue(e.awaitTermination(1, TimeUnit.SECONDS));
+    if (d.x == 1) {
+      hotspot("lost update");
+    }
+  }
+
+  @Test(expected=CWaitDeadlockError.class) @CCooperativeOnly @CNever("DONE")
+  public final void testDeadlockedWorker() {
+    ExecutorService e = Executors.newFixedThreadPool(1);
+    Runnable r = new Runnable() {
+      public void run() {
+        Object o = new Object();
+        synchronized (o) {
+          try {
+            o.wait();
+            hotspot("DONE");
+          } catch (InterruptedException x) {
+            // ignore
+          }
+        }
+      }
+    };
+    // The worker must stop on the deadlock in the first task, rather than block again in the second one.
+    e.execute(r);
+    e.execute(r);
+  }
+
+  @Test
+  public final void testCommonPool() throws InterruptedException, ExecutionException {
+    Future<Integer> f = ForkJoinPool.commonPool().submit(square(5));
+    assertEquals(25, (int) f.get());
+    assertEquals(36, (int) ForkJoinPool.commonPool().submit(square(6)).join());
+  }
+}
@@ -0,0 +1,64 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.junit;
+
+import static org.junit.Assert.assertTrue;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CInterleavingCoverage;
+import org.cooperari.config.CMaxTrials;
+import org.cooperari.config.CScheduling;
+import org.cooperari.core.scheduling.CSchedulerFactory;
+import org.cooperari.junit.CCooperativeOnly;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings({ "javadoc" })
+@RunWith(CJUnitRunner.class)
+public class CInterleavingCoverageTest {
+
+  private static final int MAX_TRIALS = 1000;
+
+  private static int trials = 0;
+
+  private static final Data DATA = new Data();
+
+  private static final Runnable R = new Runnable() {
+    @Override
+    public void run() {
+      DATA.x = DATA.x + 1;
+    }
+  };
+
+  // The random scheduler never stops trials by itself,
+  // hence only the saturation criterion prevents MAX_TRIALS from being reached.
+  @Test
+  @CCooperativeOnly
+  @CScheduling(schedulerFactory=CSchedulerFactory.OBLITUS)
+  @CMaxTrials(MAX_TRIALS)
+  @CInterleavingCoverage(saturation=5)
+  public void testSaturation() {
+    trials++;
+    assertTrue("trials: " + trials, trials < MAX_TRIALS / 2);
+    CSystem.forkAndJoin(R, R);
+  }
+}
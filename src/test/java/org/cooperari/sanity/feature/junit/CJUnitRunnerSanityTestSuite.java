@@ -22,7 +22,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @SuppressWarnings("javadoc")
 @RunWith(Suite.class)
-@SuiteClasses({ CJUnitRunnerSanityTest1.class, CJUnitRunnerSanityTest2.class })
+@SuiteClasses({ CJUnitRunnerSanityTest1.class, CJUnitRunnerSanityTest2.class, CInterleavingCoverageTest.class })
 public class CJUnitRunnerSanityTestSuite {
 
 }
@@ -0,0 +1,151 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.locks;
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.concurrent.locks.StampedLock;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CSometimes;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class ReadWriteLockTest {
+
+  @Test @CSometimes({"shared"}) @CNever({"conflict"})
+  public final void testReadersAndWriter() {
+    final ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    final Lock r = rw.readLock();
+    final Lock w = rw.writeLock();
+    final AtomicInteger readers = new AtomicInteger();
+    final Data value = new Data();
+    Runnable reader = new Runnable() {
+      public void run() {
+        r.lock();
+        try {
+          if (readers.incrementAndGet() == 2) {
+            hotspot("shared");
+          }
+          int v = value.x;
+          if (v != 0 && v != 1) {
+            hotspot("conflict");
+          }
+          readers.decrementAndGet();
+        } finally {
+          r.unlock();
+        }
+      }
+    };
+    Runnable writer = new Runnable() {
+      public void run() {
+        w.lock();
+        try {
+          if (readers.get() != 0) {
+            hotspot("conflict");
+          }
+          value.x = -1;
+          value.x = 1;
+        } finally {
+          w.unlock();
+        }
+      }
+    };
+    CSystem.forkAndJoin(reader, reader, writer);
+    assertEquals(1, value.x);
+  }
+
+  @Test
+  public final void testDowngrade() {
+    ReentrantReadWriteLock rw = new ReentrantReadWriteLock();
+    rw.writeLock().lock();
+    rw.readLock().lock();
+    rw.writeLock().unlock();
+    assertEquals(1, rw.getReadLockCount());
+    rw.readLock().unlock();
+    assertEquals(0, rw.getReadLockCount());
+  }
+
+  @Test @CNever({"conflict"})
+  public final void testStampedLock() {
+    final StampedLock sl = new StampedLock();
+    final Data value = new Data();
+    Runnable writer = new Runnable() {
+      public void run() {
+        long stamp = sl.writeLock();
+        try {
+          int v = value.x;
+          value.x = -1;
+          value.x = v + 1;
+        } finally {
+          sl.unlockWrite(stamp);
+        }
+      }
+    };
+    Runnable reader = new Runnable() {
+      public void run() {
+        long stamp = sl.tryOptimisticRead();
+        int v = value.x;
+        if (!sl.validate(stamp)) {
+          stamp = sl.readLock();
+          try {
+            v = value.x;
+          } finally {
+            sl.unlockRead(stamp);
+          }
+        }
+        if (v < 0) {
+          hotspot("conflict");
+        }
+      }
+    };
+    CSystem.forkAndJoin(writer, writer, reader);
+    assertEquals(2, value.x);
+  }
+
+  @Test
+  public final void testStampedLockViews() {
+    final StampedLock sl = new StampedLock();
+    final Lock w = sl.asWriteLock();
+    final Data value = new Data();
+    Runnable r = new Runnable() {
+      public void run() {
+        w.lock();
+        try {
+          int v = value.x;
+          value.x = v + 1;
+        } finally {
+          w.unlock();
+        }
+      }
+    };
+    CSystem.forkAndJoin(r, r);
+    assertEquals(2, value.x);
+  }
+}
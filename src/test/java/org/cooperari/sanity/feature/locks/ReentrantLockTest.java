@@ -0,0 +1,189 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.locks;
+
+import static org.cooperari.CSystem.hotspot;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CSometimes;
+import org.cooperari.feature.monitor.CResourceDeadlockError;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class ReentrantLockTest {
+
+  @Test
+  public final void testMutualExclusion() {
+    final ReentrantLock lock = new ReentrantLock();
+    final Data d = new Data();
+    Runnable r = new Runnable() {
+      public void run() {
+        lock.lock();
+        try {
+          int v = d.x;
+          d.x = v + 1;
+        } finally {
+          lock.unlock();
+        }
+      }
+    };
+    CSystem.forkAndJoin(r, r);
+    assertEquals(2, d.x);
+    assertFalse(lock.isLocked());
+  }
+
+  @Test
+  public final void testReentrancy() {
+    ReentrantLock lock = new ReentrantLock();
+    lock.lock();
+    lock.lock();
+    assertEquals(2, lock.getHoldCount());
+    lock.unlock();
+    lock.unlock();
+    assertFalse(lock.isLocked());
+  }
+
+  @Test(expected=IllegalMonitorStateException.class)
+  public final void testUnlockNotHeld() {
+    new ReentrantLock().unlock();
+  }
+
+  @Test @CSometimes({"busy"}) @CNever({"timeout"})
+  public final void testTryLock() {
+    final ReentrantLock lock = new ReentrantLock();
+    Runnable r = new Runnable() {
+      public void run() {
+        if (lock.tryLock()) {
+          lock.unlock();
+        } else {
+          hotspot("busy");
+        }
+        try {
+          if (lock.tryLock(1, TimeUnit.MINUTES)) {
+            lock.unlock();
+          } else {
+            hotspot("timeout");
+          }
+        } catch (InterruptedException e) {
+          fail("unexpected interrupt");
+        }
+      }
+    };
+    CSystem.forkAndJoin(r, r);
+  }
+
+  @Test
+  public final void testCondition() {
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition cond = lock.newCondition();
+    final Data d = new Data();
+    CSystem.forkAndJoin(new Runnable() {
+      public void run() {
+        lock.lock();
+        try {
+          while (d.x == 0) {
+            cond.awaitUninterruptibly();
+          }
+          assertEquals(1, lock.getHoldCount());
+          d.x = 2;
+        } finally {
+          lock.unlock();
+        }
+      }
+    }, new Runnable() {
+      public void run() {
+        lock.lock();
+        try {
+          d.x = 1;
+          cond.signal();
+        } finally {
+          lock.unlock();
+        }
+      }
+    });
+    assertEquals(2, d.x);
+  }
+
+  @Test(expected=IllegalMonitorStateException.class)
+  public final void testSignalNotHeld() {
+    new ReentrantLock().newCondition().signalAll();
+  }
+
+  @Test @CSometimes({"deadlock"})
+  public final void testDeadlock() {
+    final ReentrantLock a = new ReentrantLock();
+    final ReentrantLock b = new ReentrantLock();
+    CSystem.forkAndJoin(new Runnable() {
+      public void run() {
+        nested(a, b);
+      }
+    }, new Runnable() {
+      public void run() {
+        nested(b, a);
+      }
+    });
+  }
+
+  private static void nested(ReentrantLock outer, ReentrantLock inner) {
+    outer.lock();
+    try {
+      inner.lock();
+      inner.unlock();
+    } catch (CResourceDeadlockError e) {
+      hotspot("deadlock");
+    } finally {
+      outer.unlock();
+    }
+  }
+
+  @Test @CNever({"deadlock"})
+  public final void testHandOverHand() {
+    final ReentrantLock a = new ReentrantLock();
+    final ReentrantLock b = new ReentrantLock();
+    final ReentrantLock c = new ReentrantLock();
+    Runnable r = new Runnable() {
+      public void run() {
+        try {
+          a.lock();
+          b.lock();
+          a.unlock();
+          c.lock();
+          b.unlock();
+          c.unlock();
+        } catch (CResourceDeadlockError e) {
+          hotspot("deadlock");
+        }
+      }
+    };
+    CSystem.forkAndJoin(r, r);
+  }
+}
@@ -22,7 +22,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @SuppressWarnings("javadoc")
 @RunWith(Suite.class)
-@SuiteClasses({ MonitorLockingTest.class, ResourceDeadlockTest.class,
+@SuiteClasses({ MonitorLockingTest.class, ResourceDeadlockTest.class, PredictiveDeadlockTest.class,
     WaitAndNotifyTest.class })
 public class MonitorTestSuite {
 
@@ -0,0 +1,135 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.monitors;
+
+import static org.cooperari.CSystem.hotspot;
+
+import org.cooperari.CSystem;
+import org.cooperari.config.CAlways;
+import org.cooperari.config.CDetectResourceDeadlocks;
+import org.cooperari.config.CMaxTrials;
+import org.cooperari.config.CNever;
+import org.cooperari.config.CSometimes;
+import org.cooperari.feature.monitor.CPotentialDeadlockError;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+@CDetectResourceDeadlocks(predictive=true)
+public class PredictiveDeadlockTest {
+
+  private static Data A = new Data();
+  private static Data B = new Data();
+  private static Data G = new Data();
+
+  private static int trials;
+
+  private static final Runnable NOP = 
+    new Runnable() {
+      public void run() { }
+    };
+
+  private static final Runnable GAB = 
+    new Runnable() {
+      public void run() {
+        synchronized (G) {
+          AB.run();
+        }
+      }
+    };
+
+  private static final Runnable GBA = 
+    new Runnable() {
+      public void run() {
+        synchronized (G) {
+          BA.run();
+        }
+      }
+    };
+
+  private static final Runnable AB = 
+    new Runnable() {
+      public void run() {
+        synchronized (A) {
+          try {
+            synchronized (B) { }
+          } catch(CPotentialDeadlockError e) {
+            hotspot("potential deadlock");
+          }
+        }
+      }
+    };
+
+  private static final Runnable BA = 
+    new Runnable() {
+      public void run() {
+        synchronized (B) {
+          try {
+            synchronized (A) { }
+          } catch(CPotentialDeadlockError e) {
+            hotspot("potential deadlock");
+          }
+        }
+      }
+    };
+
+  @Test @CAlways({"potential deadlock"})
+  public final void testSequentialThreads() {
+    // Threads never run concurrently, hence they can not deadlock.
+    CSystem.forkAndJoin(AB);
+    CSystem.forkAndJoin(BA);
+  }
+
+  @Test @CSometimes({"potential deadlock"}) @CMaxTrials(4)
+  public final void testAcrossTrials() {
+    // Each lock is first acquired at a different site in each trial.
+    trials++;
+    if (trials % 2 == 1) {
+      CSystem.forkAndJoin(AB);
+    } else {
+      CSystem.forkAndJoin(NOP);
+      CSystem.forkAndJoin(BA);
+    }
+  }
+
+  @Test @CNever({"potential deadlock"})
+  public final void testCommonGuard() {
+    // Threads are serialized by lock G, hence they can not deadlock.
+    CSystem.forkAndJoin(GAB, GBA);
+  }
+
+  @Test @CNever({"potential deadlock"})
+  public final void testSameOrder() {
+    CSystem.forkAndJoin(AB, AB);
+  }
+
+  @Test @CNever({"potential deadlock"})
+  public final void testSingleThread() {
+    CSystem.forkAndJoin(new Runnable() {
+      public void run() {
+        AB.run();
+        BA.run();
+      }
+    });
+  }
+}
@@ -283,6 +283,13 @@ public class WaitAndNotifyTest  {
     Data d = new Data();
     CSystem.forkAndJoin(new Notifier(d,4,true), new Waiter(d, 1), new Waiter(d,1), new Waiter(d, 3), new Waiter(d, 4));
   }
+  @Test @CSometimes({"WAIT","NOWAIT"}) @CNever("INT")
+  public final void testPairedNotifyAllAndEightWaiters() {    
+    Data d = new Data();
+    CSystem.forkAndJoin(new Notifier(d,4,true), 
+        new Waiter(d, 1), new Waiter(d,1), new Waiter(d, 2), new Waiter(d, 2),
+        new Waiter(d, 3), new Waiter(d,3), new Waiter(d, 4), new Waiter(d, 4));
+  }
 
   private static final Runnable[]
       rPairedNotifyAndTimedWait = {
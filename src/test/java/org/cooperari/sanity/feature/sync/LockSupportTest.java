@@ -0,0 +1,78 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.sync;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+import org.cooperari.CSystem;
+import org.cooperari.junit.CJUnitRunner;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class LockSupportTest {
+
+  @Test
+  public final void testHandshake() {
+    final AtomicReference<Thread> waiter = new AtomicReference<>();
+    final AtomicBoolean done = new AtomicBoolean();
+    Runnable r1 = new Runnable() {
+      public void run() {
+        waiter.set(Thread.currentThread());
+        while (!done.get()) {
+          LockSupport.park();
+        }
+      }
+    };
+    Runnable r2 = new Runnable() {
+      public void run() {
+        done.set(true);
+        Thread t = waiter.get();
+        if (t != null) {
+          LockSupport.unpark(t);
+        }
+      }
+    };
+    CSystem.forkAndJoin(r1, r2);
+  }
+
+  @Test
+  public final void testUnparkBeforePark() {
+    LockSupport.unpark(Thread.currentThread());
+    LockSupport.park();
+  }
+
+  @Test
+  public final void testParkNanos() {
+    LockSupport.parkNanos(1000L);
+  }
+
+  @Test
+  public final void testParkInterrupted() {
+    Thread.currentThread().interrupt();
+    LockSupport.park();
+    assertTrue(Thread.interrupted());
+  }
+}
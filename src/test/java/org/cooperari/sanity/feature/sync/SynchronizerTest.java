@@ -0,0 +1,121 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.feature.sync;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.cooperari.CSystem;
+import org.cooperari.junit.CJUnitRunner;
+import org.cooperari.sanity.feature.Data;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+@RunWith(CJUnitRunner.class)
+public class SynchronizerTest {
+
+  @Test
+  public final void testLatch() {
+    final CountDownLatch latch = new CountDownLatch(2);
+    final Data a = new Data(), b = new Data();
+    Runnable r1 = new Runnable() {
+      public void run() {
+        a.x = 1;
+        latch.countDown();
+      }
+    };
+    Runnable r2 = new Runnable() {
+      public void run() {
+        b.x = 1;
+        latch.countDown();
+      }
+    };
+    Runnable r3 = new Runnable() {
+      public void run() {
+        try {
+          latch.await();
+        } catch (InterruptedException e) {
+          fail(e.getMessage());
+        }
+        assertEquals(1, a.x);
+        assertEquals(1, b.x);
+      }
+    };
+    CSystem.forkAndJoin(r1, r2, r3);
+  }
+
+  @Test
+  public final void testLatchTimeout() throws InterruptedException {
+    assertFalse(new CountDownLatch(1).await(0, TimeUnit.MILLISECONDS));
+  }
+
+  @Test
+  public final void testSemaphore() {
+    final Semaphore sem = new Semaphore(1);
+    final Data d = new Data();
+    Runnable r = new Runnable() {
+      public void run() {
+        sem.acquireUninterruptibly();
+        try {
+          int v = d.x;
+          d.x = v + 1;
+        } finally {
+          sem.release();
+        }
+      }
+    };
+    CSystem.forkAndJoin(r, r, r);
+    assertEquals(3, d.x);
+    assertEquals(1, sem.availablePermits());
+  }
+
+  @Test
+  public final void testFutureTask() {
+    final FutureTask<Integer> f = new FutureTask<>(new Callable<Integer>() {
+      public Integer call() {
+        return 42;
+      }
+    });
+    Runnable r1 = new Runnable() {
+      public void run() {
+        f.run();
+      }
+    };
+    Runnable r2 = new Runnable() {
+      public void run() {
+        try {
+          assertEquals(42, (int) f.get());
+        } catch (InterruptedException | ExecutionException e) {
+          fail(e.getMessage());
+        }
+      }
+    };
+    CSystem.forkAndJoin(r1, r2);
+  }
+}
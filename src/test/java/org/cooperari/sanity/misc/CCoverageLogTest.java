@@ -0,0 +1,158 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CCoverageStore;
+import org.cooperari.core.CYieldPointImpl;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CCoverageLogTest {
+
+  private static CYieldPointImpl yp(String file, int line) {
+    return new CYieldPointImpl("sig", file, line);
+  }
+
+  @Test
+  public void testDefinitionAndCoverage() {
+    CCoverageLog log = new CCoverageLog();
+    log.recordDefinition(yp("A.java", 1));
+    log.recordDefinition(yp("A.java", 1));
+    log.recordDefinition(yp("A.java", 2));
+    assertEquals(2, log.getTotalYieldPoints());
+    assertEquals(0, log.getCoveredYieldPoints());
+    log.markAsCovered(yp("A.java", 2));
+    log.markAsCovered(yp("A.java", 2));
+    log.markAsCovered(yp("A.java", 3));
+    assertEquals(3, log.getTotalYieldPoints());
+    assertEquals(2, log.getCoveredYieldPoints());
+  }
+
+  @Test
+  public void testEnrich() {
+    CCoverageLog global = new CCoverageLog();
+    global.recordDefinition(yp("B.java", 1));
+    global.markAsCovered(yp("B.java", 2));
+    global.recordDefinition(yp("C.java", 1));
+    CCoverageLog log = new CCoverageLog();
+    log.markAsCovered(yp("B.java", 3));
+    log.enrich(global, true);
+    assertEquals(3, log.getTotalYieldPoints());
+    assertEquals(1, log.getCoveredYieldPoints());
+    log.enrich(global, false);
+    assertEquals(3, log.getTotalYieldPoints());
+    assertEquals(2, log.getCoveredYieldPoints());
+    global.enrich(log, false);
+    assertEquals(4, global.getTotalYieldPoints());
+    assertEquals(2, global.getCoveredYieldPoints());
+  }
+
+  @Test
+  public void testEnrichPairs() {
+    CCoverageLog global = new CCoverageLog();
+    global.recordDefinition(yp("H.java", 1));
+    CCoverageLog log = new CCoverageLog();
+    log.markAsCovered(yp("H.java", 1));
+    log.markAsCovered(yp("H.java", 2));
+    log.markAsCovered(yp("J.java", 1));
+    log.markInterleavingPair(yp("H.java", 1), yp("H.java", 2));
+    log.markInterleavingPair(yp("H.java", 2), yp("J.java", 1));
+    log.markInterleavingPair(yp("J.java", 1), yp("H.java", 1));
+    global.enrich(log, true);
+    assertEquals(0, global.getCoveredInterleavingPairs());
+    global.enrich(log, false);
+    // Only pairs whose yield points are both defined in the enriched log.
+    assertEquals(2, global.getTotalYieldPoints());
+    assertEquals(1, global.getCoveredInterleavingPairs());
+  }
+
+  @Test
+  public void testMerge() {
+    CCoverageLog a = new CCoverageLog();
+    a.recordDefinition(yp("D.java", 1));
+    a.markAsCovered(yp("D.java", 2));
+    a.markInterleavingPair(yp("D.java", 1), yp("D.java", 2));
+    CCoverageLog b = new CCoverageLog();
+    b.markAsCovered(yp("D.java", 1));
+    b.recordDefinition(yp("E.java", 1));
+    b.markInterleavingPair(yp("D.java", 1), yp("D.java", 2));
+    b.markInterleavingPair(yp("D.java", 2), yp("D.java", 1));
+    a.merge(b);
+    assertEquals(3, a.getTotalYieldPoints());
+    assertEquals(2, a.getCoveredYieldPoints());
+    assertEquals(2, a.getCoveredInterleavingPairs());
+  }
+
+  @Test
+  public void testStore() throws IOException {
+    File f = File.createTempFile("cooperari", CCoverageStore.FILE_NAME);
+    f.delete();
+    try {
+      CCoverageLog a = new CCoverageLog();
+      a.recordDefinition(yp("F.java", 1));
+      a.markAsCovered(yp("F.java", 2));
+      a.markInterleavingPair(yp("F.java", 2), yp("F.java", 1));
+      CCoverageStore.append(f, a);
+      CCoverageLog b = new CCoverageLog();
+      b.markAsCovered(yp("F.java", 1));
+      b.markAsCovered(yp("G.java", 1));
+      CCoverageStore.append(f, b);
+      CCoverageLog merged = new CCoverageLog();
+      assertEquals(2, CCoverageStore.load(f, merged));
+      assertEquals(3, merged.getTotalYieldPoints());
+      assertEquals(3, merged.getCoveredYieldPoints());
+      assertEquals(1, merged.getCoveredInterleavingPairs());
+    } finally {
+      f.delete();
+    }
+  }
+
+  @Test
+  public void testStoreUndefinedPairs() throws IOException {
+    File f = File.createTempFile("cooperari", CCoverageStore.FILE_NAME);
+    f.delete();
+    try {
+      CYieldPointImpl undefined = yp("K.java", 1);
+      undefined.getId();
+      CCoverageLog a = new CCoverageLog();
+      a.markAsCovered(yp("K.java", 2));
+      a.markAsCovered(yp("K.java", 3));
+      a.markInterleavingPair(yp("K.java", 2), yp("K.java", 3));
+      // Yield point not defined in the log, with a lower identifier than those defined. 
+      a.markInterleavingPair(undefined, yp("K.java", 2));
+      // Yield point not defined in the log, with a higher identifier than those defined.
+      a.markInterleavingPair(yp("K.java", 3), yp("K.java", 4));
+      assertEquals(3, a.getCoveredInterleavingPairs());
+      CCoverageStore.append(f, a);
+      CCoverageLog loaded = new CCoverageLog();
+      assertEquals(1, CCoverageStore.load(f, loaded));
+      assertEquals(2, loaded.getTotalYieldPoints());
+      assertEquals(1, loaded.getCoveredInterleavingPairs());
+    } finally {
+      f.delete();
+    }
+  }
+}
@@ -0,0 +1,171 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.cooperari.CTest;
+import org.cooperari.config.CTraceOptions;
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CFailureBuckets;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.scheduling.CThreadLocation;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CFailureBucketsTest {
+
+  @CTraceOptions
+  private static class Options { }
+
+  private static final CTraceOptions OPTIONS = Options.class.getAnnotation(CTraceOptions.class);
+
+  private static final CTest TEST = new CTest() {
+    @Override
+    public String getName() {
+      return "bucketTest";
+    }
+    @Override
+    public String getSuiteName() {
+      return CFailureBucketsTest.class.getName();
+    }
+    @Override
+    public void run() { }
+  };
+
+  private static final CThreadLocation[] LOCATIONS = new CThreadLocation[8];
+
+  static {
+    for (int i = 0; i < LOCATIONS.length; i++) {
+      LOCATIONS[i] = new CThreadLocation(new CYieldPointImpl("sig" + i, "B.java", i + 1));
+    }
+  }
+
+  @BeforeClass
+  public static void initWorkspace() throws IOException {
+    CWorkspace.INSTANCE.initializeIfNecessary(new File("cooperari-test-data"));
+  }
+
+  @Before
+  @After
+  public void reset() {
+    CFailureBuckets.INSTANCE.reset();
+  }
+
+  private static File traceFile(int trial) {
+    return new File(CWorkspace.INSTANCE.getRootDirectory(),
+        TEST.getSuiteName() + "/" + TEST.getName() + "." + trial + ".trace.log");
+  }
+
+  // Trace with a prefix of the given length, followed by steps at the given locations.
+  private static CTrace trace(int prefix, int... locations) {
+    CTrace trace = new CTrace(new CCoverageLog(), OPTIONS);
+    int step = 0;
+    for (int i = 0; i < prefix; i++) {
+      trace.record(0, step++, LOCATIONS[0], null);
+    }
+    for (int l : locations) {
+      trace.record(0, step++, LOCATIONS[l], null);
+    }
+    return trace;
+  }
+
+  // Failure with a stack trace given as (class, method, line) triples.
+  private static Throwable failure(Throwable e, Object... frames) {
+    StackTraceElement[] stack = new StackTraceElement[frames.length / 3];
+    for (int i = 0; i < stack.length; i++) {
+      stack[i] = new StackTraceElement((String) frames[3 * i], (String) frames[3 * i + 1], "X.java", (Integer) frames[3 * i + 2]);
+    }
+    e.setStackTrace(stack);
+    return e;
+  }
+
+  private static File record(int trial, CTrace trace, Throwable failure) {
+    traceFile(trial).delete();
+    return CFailureBuckets.INSTANCE.recordFailure(TEST, trial, trace, failure);
+  }
+
+  @Test
+  public void testFingerprint() {
+    Throwable e = failure(new IllegalStateException(), "app.A", "m", 10, "app.B", "n", 20);
+    record(1, trace(3, 1, 2, 3, 4, 5), e);
+    assertEquals(1, CFailureBuckets.INSTANCE.size());
+    // Line numbers and Cooperari, JUnit and reflection frames are ignored.
+    e = failure(new IllegalStateException(),
+        "app.A", "m", 11, "org.cooperari.core.CThread", "run", 1,
+        "sun.reflect.NativeMethodAccessorImpl", "invoke", 2, "app.B", "n", 21, "org.junit.Assert", "fail", 3);
+    record(2, trace(4, 1, 2, 3, 4, 5), e);
+    assertEquals(1, CFailureBuckets.INSTANCE.size());
+    // Only the last yield points count.
+    record(3, trace(4, 6, 1, 2, 3, 4, 5), e);
+    assertEquals(1, CFailureBuckets.INSTANCE.size());
+    // Different exception type.
+    record(4, trace(3, 1, 2, 3, 4, 5), failure(new IllegalArgumentException(), "app.A", "m", 10, "app.B", "n", 20));
+    assertEquals(2, CFailureBuckets.INSTANCE.size());
+    // Different method.
+    record(5, trace(3, 1, 2, 3, 4, 5), failure(new IllegalStateException(), "app.A", "m2", 10, "app.B", "n", 20));
+    assertEquals(3, CFailureBuckets.INSTANCE.size());
+    // Different yield points at the end of the trace.
+    record(6, trace(3, 1, 2, 3, 5, 4), failure(new IllegalStateException(), "app.A", "m", 10, "app.B", "n", 20));
+    assertEquals(4, CFailureBuckets.INSTANCE.size());
+    assertEquals(4, CFailureBuckets.INSTANCE.getSummary().size());
+  }
+
+  @Test
+  public void testShortestTrace() {
+    Throwable e = failure(new IllegalStateException(), "app.A", "m", 10);
+    File f1 = record(1, trace(10, 1, 2), e);
+    assertEquals(traceFile(1), f1);
+    assertTrue(f1.exists());
+    // Longer trace: not written, the bucket trace is used.
+    File f2 = record(2, trace(20, 1, 2), e);
+    assertEquals(f1, f2);
+    assertFalse(traceFile(2).exists());
+    // Shorter trace: written, and the trace already reported is kept.
+    File f3 = record(3, trace(5, 1, 2), e);
+    assertEquals(traceFile(3), f3);
+    assertTrue(f3.exists());
+    assertTrue(f1.exists());
+    assertEquals(1, CFailureBuckets.INSTANCE.size());
+    assertTrue(CFailureBuckets.INSTANCE.getSummary().get(0).contains(f3.getAbsolutePath()));
+  }
+
+  @Test
+  public void testReset() {
+    record(1, trace(1, 1), failure(new IllegalStateException(), "app.A", "m", 10));
+    assertEquals(1, CFailureBuckets.INSTANCE.size());
+    CFailureBuckets.INSTANCE.reset();
+    assertEquals(0, CFailureBuckets.INSTANCE.size());
+    File f = record(2, trace(3, 1), failure(new IllegalStateException(), "app.A", "m", 10));
+    assertNotEquals(traceFile(1), f);
+    assertEquals(traceFile(2), f);
+  }
+}
@@ -0,0 +1,226 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+import org.cooperari.CTest;
+import org.cooperari.config.CTraceOptions;
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CTraceWriter;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.scheduling.CThreadLocation;
+import org.cooperari.tools.cinfo.Main;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CInfoTest {
+
+  @CTraceOptions
+  private static class Options { }
+
+  @CTraceOptions(compact=true)
+  private static class CompactOptions { }
+
+  private static final CTest TEST = new CTest() {
+    @Override
+    public String getName() {
+      return "cinfoTest";
+    }
+    @Override
+    public String getSuiteName() {
+      return CInfoTest.class.getName();
+    }
+    @Override
+    public void run() { }
+  };
+
+  private static final CThreadLocation[] LOCATIONS = new CThreadLocation[3];
+
+  static {
+    for (int i = 0; i < LOCATIONS.length; i++) {
+      LOCATIONS[i] = new CThreadLocation(new CYieldPointImpl("sig" + i, "I.java", i + 1));
+    }
+  }
+
+  private static final int OK = 0;
+  private static final int IO_ERROR = 3;
+
+  private static File dir;
+
+  @BeforeClass
+  public static void initWorkspace() throws IOException {
+    CWorkspace.INSTANCE.initializeIfNecessary(new File("cooperari-test-data"));
+    dir = new File(CWorkspace.INSTANCE.getRootDirectory(), TEST.getSuiteName());
+  }
+
+  @Before
+  public void clean() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+  }
+
+  // Trace with n steps at each of the given locations, in sequence.
+  // Steps of location 2 are race events.
+  private static File trace(int trial, boolean compact, int n, int... locations) throws IOException {
+    Class<?> options = compact ? CompactOptions.class : Options.class;
+    CTrace trace = new CTrace(new CCoverageLog(), options.getAnnotation(CTraceOptions.class));
+    int step = 0;
+    for (int l : locations) {
+      for (int i = 0; i < n; i++) {
+        trace.record(0, step++, LOCATIONS[l], l == 2 ? CTrace.EventType.RACE : null);
+      }
+    }
+    return CTraceWriter.save(TEST, trial, trace, Optional.empty());
+  }
+
+  private static String output;
+
+  private static int query(String... args) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (PrintStream out = new PrintStream(bytes, true)) {
+      int code = Main.query(args, out);
+      output = new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+      return code;
+    }
+  }
+
+  private static int outputLines() {
+    return output.isEmpty() ? 0 : output.split("\n").length;
+  }
+
+  // Corrupt the first trace entry that contains the given text,
+  // leaving the length and modification time of the trace file unchanged,
+  // hence its persisted index remains valid.
+  private static void corrupt(File f, String text) throws IOException {
+    long lastModified = f.lastModified();
+    List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    for (int i = 0; i < lines.size(); i++) {
+      if (lines.get(i).startsWith("#")) {
+        // Skip column headers.
+        i++;
+      } else if (lines.get(i).contains(text)) {
+        lines.set(i, 'x' + lines.get(i).substring(1));
+        break;
+      }
+    }
+    Files.write(f.toPath(), lines, StandardCharsets.UTF_8);
+    assertTrue(f.setLastModified(lastModified));
+  }
+
+  @Test
+  public void testIndexRoundTrip() throws IOException {
+    File f1 = trace(1, false, 5, 0, 1, 2);
+    File f2 = trace(2, true, 10, 1, 2);
+    assertEquals(OK, query("index", dir.getPath()));
+    String expected = output;
+    assertTrue(expected.contains("TRACES\tSTEPS\n2\t35\n"));
+    assertTrue(expected.contains("15\tI.java:2\n"));
+    assertTrue(expected.contains("15\tR\n"));
+    File idx1 = new File(f1.getPath() + ".idx"), idx2 = new File(f2.getPath() + ".idx");
+    assertTrue(idx1.isFile());
+    assertTrue(idx2.isFile());
+    // Persisted indexes are used, and trace files are not read.
+    corrupt(f1, "I.java");
+    corrupt(f2, "\t-\t");
+    assertEquals(OK, query("index", dir.getPath()));
+    assertEquals(expected, output);
+    assertEquals(OK, query("threads", f1.getPath()));
+    assertTrue(output.contains("15\t?\n"));
+    // Stale index is rebuilt.
+    assertTrue(f1.setLastModified(f1.lastModified() - 2000));
+    assertEquals(IO_ERROR, query("index", f1.getPath()));
+  }
+
+  @Test
+  public void testFileSkipping() throws IOException {
+    File f1 = trace(1, false, 5, 0, 1);
+    File f2 = trace(2, false, 5, 1, 2);
+    assertEquals(OK, query("index", dir.getPath()));
+    corrupt(f1, "I.java");
+    // f1 has no race events nor steps at I.java:3, hence it is not read.
+    assertEquals(OK, query("event", "RACE", dir.getPath()));
+    assertEquals(5, outputLines());
+    assertTrue(output.startsWith(f2.getName()));
+    assertEquals(OK, query("at", "I.java:3", dir.getPath()));
+    assertEquals(5, outputLines());
+    assertEquals(OK, query("yieldpoint", "sig2", dir.getPath()));
+    assertEquals(5, outputLines());
+    assertEquals(IO_ERROR, query("at", "I.java:1", dir.getPath()));
+  }
+
+  @Test
+  public void testSeek() throws IOException {
+    File f1 = trace(1, false, 5, 0, 1, 2);
+    File f2 = trace(2, true, 5, 0, 1, 2);
+    assertEquals(OK, query("index", dir.getPath()));
+    // Corrupt the first step in each trace.
+    corrupt(f1, "I.java\t1");
+    corrupt(f2, "\t-\t");
+    // Steps before the first one at the location at stake are not read.
+    assertEquals(OK, query("at", "I.java:2", dir.getPath()));
+    assertEquals(10, outputLines());
+    assertEquals(OK, query("event", "RACE", dir.getPath()));
+    assertEquals(10, outputLines());
+    assertEquals(OK, query("yieldpoint", "sig1", f1.getPath()));
+    assertEquals(5, outputLines());
+    assertEquals(IO_ERROR, query("yieldpoint", "sig", f1.getPath()));
+    assertTrue(output, output.contains(f1.getPath() + ":"));
+    assertEquals(IO_ERROR, query("at", "I.java:1", f1.getPath()));
+  }
+
+  @Test
+  public void testMalformedTrace() throws IOException {
+    File f = trace(1, false, 2, 0);
+    List<String> lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    int n = lines.indexOf("# EXECUTION TRACE") + 4;
+    lines.set(n - 1, "1\t0\t1\t-\tI.java\tone\tsig0\t0");
+    Files.write(f.toPath(), lines, StandardCharsets.UTF_8);
+    assertEquals(IO_ERROR, query("index", f.getPath()));
+    assertTrue(output, output.contains(f.getPath() + ":" + n + ": malformed entry in section 'EXECUTION TRACE'"));
+    assertTrue(output, output.contains("I.java\tone"));
+    // Truncated entry in a compact trace.
+    f = trace(2, true, 2, 0);
+    lines = Files.readAllLines(f.toPath(), StandardCharsets.UTF_8);
+    n = lines.size();
+    lines.set(n - 1, "0\t0");
+    Files.write(f.toPath(), lines, StandardCharsets.UTF_8);
+    assertEquals(IO_ERROR, query("at", "I.java:1", f.getPath()));
+    assertTrue(output, output.contains(f.getPath() + ":" + n + ": malformed entry in section 'COMPACT EXECUTION TRACE'"));
+  }
+}
@@ -0,0 +1,82 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.cooperari.CRace;
+import org.cooperari.core.CRaceRegistry;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.CYieldPointTable;
+import org.cooperari.core.scheduling.CYieldPoint;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CRaceRegistryTest {
+
+  private static int site(String file, int line) {
+    return CYieldPointTable.INSTANCE.idOf(new CYieldPointImpl("sig", file, line));
+  }
+
+  @Test
+  public void testAggregation() {
+    int a = site("RaceA.java", 1), b = site("RaceA.java", 2), c = site("RaceA.java", 3);
+    CRaceRegistry registry = new CRaceRegistry();
+    registry.startTestTrial();
+    assertTrue(registry.record(-1, "X.f", a, b));
+    assertFalse(registry.record(-1, "X.f", b, a));
+    registry.startTestTrial();
+    assertFalse(registry.record(-1, "X.f", a, b));
+    assertTrue(registry.record(-2, "X.g", a, b));
+    assertTrue(registry.record(-1, "X.f", a, c));
+    registry.startTestTrial();
+    assertFalse(registry.record(-2, "X.g", a, b));
+    assertEquals(3, registry.size());
+    List<CRace> races = registry.getRaces();
+    assertEquals(3, races.size());
+    CRace r = races.get(0);
+    assertEquals("X.f", r.getData());
+    assertEquals(3, r.getCount());
+    assertEquals(1, r.getFirstTrial());
+    CYieldPoint ypA = CYieldPointTable.INSTANCE.get(a), ypB = CYieldPointTable.INSTANCE.get(b);
+    assertSame(ypA, r.getFirstYieldPoint());
+    assertSame(ypB, r.getSecondYieldPoint());
+    assertEquals("X.g", races.get(1).getData());
+    assertEquals(2, races.get(1).getCount());
+    assertEquals(2, races.get(1).getFirstTrial());
+    assertEquals(1, races.get(2).getCount());
+    assertEquals(2, races.get(2).getFirstTrial());
+  }
+
+  @Test
+  public void testUnknownSite() {
+    CRaceRegistry registry = new CRaceRegistry();
+    registry.startTestTrial();
+    assertTrue(registry.record(0, "int[]", site("RaceB.java", 1), -1));
+    CRace r = registry.getRaces().get(0);
+    assertEquals(null, r.getFirstYieldPoint());
+    assertEquals(1, r.getCount());
+  }
+}
@@ -0,0 +1,331 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.cooperari.config.CTraceOptions;
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.scheduling.CThreadLocation;
+import org.cooperari.core.util.CReport;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CTraceTest {
+
+  @CTraceOptions
+  private static class Plain { }
+
+  @CTraceOptions(compact=true)
+  private static class Compact { }
+
+  @CTraceOptions(limit=LIMIT)
+  private static class Limited { }
+
+  private static final int LIMIT = 100;
+
+  private static final CThreadLocation[] LOCATIONS = new CThreadLocation[2048];
+
+  static {
+    for (int i = 0; i < LOCATIONS.length; i++) {
+      LOCATIONS[i] = new CThreadLocation(new CYieldPointImpl("sig" + i, "T.java", i + 1));
+    }
+  }
+
+  private static CTrace newTrace(Class<?> options) {
+    return new CTrace(new CCoverageLog(), options.getAnnotation(CTraceOptions.class));
+  }
+
+  // Steps of a pseudo-random execution with loops, as (tid, step, location, event) tuples.
+  // Locations drift over time, such that old locations stop being used.
+  private static List<int[]> execution(int n) {
+    List<int[]> steps = new ArrayList<>();
+    int[] threadSteps = new int[3];
+    long seed = 12345;
+    while (steps.size() < n) {
+      seed = seed * 6364136223846793005L + 1442695040888963407L;
+      int tid = (int) ((seed >>> 33) % 3);
+      int loops = 1 + (int) ((seed >>> 40) % 5);
+      for (int r = 0; r < loops && steps.size() < n; r++) {
+        for (int i = 0; i < 3 && steps.size() < n; i++) {
+          int event = (seed >>> 50) % 17 == 0 && i == 2 ? 1 : 0;
+          int location = (steps.size() / 50 + tid + i) % LOCATIONS.length;
+          steps.add(new int[] { tid, threadSteps[tid]++, location, event });
+        }
+      }
+    }
+    return steps;
+  }
+
+  private static void record(CTrace trace, List<int[]> steps) {
+    for (int[] s : steps) {
+      trace.record(s[0], s[1], LOCATIONS[s[2]], s[3] == 0 ? null : CTrace.EventType.RACE);
+    }
+  }
+
+  private static List<String> save(CTrace trace, String section) throws IOException {
+    File f = File.createTempFile("cooperari", ".trace.log");
+    try {
+      CReport report = new CReport(f);
+      trace.save(report, Optional.empty());
+      report.close();
+      List<String> lines = Files.readAllLines(f.toPath());
+      int start = lines.indexOf("# " + section);
+      assertTrue(start >= 0);
+      List<String> result = new ArrayList<>();
+      for (int i = start + 2; i < lines.size() && !lines.get(i).startsWith("#"); i++) {
+        result.add(lines.get(i));
+      }
+      return result;
+    } finally {
+      f.delete();
+    }
+  }
+
+  private static String expected(int index, int[] s) {
+    char marker = s[3] == 0 ? '-' : CTrace.EventType.RACE.getTraceMarker();
+    return index + "\t" + s[0] + "\t" + s[1] + "\t" + marker + "\tT.java\t" + (s[2] + 1) + "\tsig" + s[2] + "\t0";
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    List<int[]> steps = execution(5000);
+    CTrace trace = newTrace(Plain.class);
+    record(trace, steps);
+    assertEquals(steps.size(), trace.size());
+    List<String> lines = save(trace, "EXECUTION TRACE");
+    assertEquals(steps.size(), lines.size());
+    for (int i = 0; i < steps.size(); i++) {
+      assertEquals(expected(i, steps.get(i)), lines.get(i));
+    }
+  }
+
+  @Test
+  public void testChunkReuse() throws IOException {
+    CTrace trace = newTrace(Compact.class);
+    int step = 0;
+    for (int r = 0; r < 100; r++) {
+      for (int i = 0; i < 4; i++) {
+        trace.record(0, step++, LOCATIONS[i], null);
+      }
+    }
+    for (int r = 0; r < 10; r++) {
+      for (int tid = 1; tid <= 2; tid++) {
+        for (int i = 0; i < 4; i++) {
+          trace.record(tid, r * 4 + i, LOCATIONS[i], null);
+        }
+      }
+    }
+    assertEquals(480, trace.size());
+    assertEquals(4, save(trace, "LOCATIONS").size());
+    assertEquals(1, save(trace, "CHUNKS").size());
+    List<String> runs = save(trace, "COMPACT EXECUTION TRACE");
+    assertEquals(21, runs.size());
+    assertEquals("0\t0\t0\t-\t0\t100", runs.get(0));
+    assertEquals("400\t1\t0\t-\t0\t1", runs.get(1));
+    assertEquals("404\t2\t0\t-\t0\t1", runs.get(2));
+  }
+
+  @Test
+  public void testInterleavingPairs() {
+    CCoverageLog clog = new CCoverageLog();
+    CTrace trace = new CTrace(clog, Plain.class.getAnnotation(CTraceOptions.class));
+    CThreadLocation internal = new CThreadLocation(CYieldPointImpl.THREAD_INITIALIZATION);
+    trace.record(0, 0, LOCATIONS[0], null);
+    trace.record(0, 1, LOCATIONS[1], null); // same thread: no pair
+    assertEquals(0, clog.getCoveredInterleavingPairs());
+    trace.record(1, 0, LOCATIONS[2], null); // (1, 2)
+    trace.record(0, 2, LOCATIONS[1], null); // (2, 1)
+    trace.record(1, 1, LOCATIONS[2], null); // (1, 2) again
+    assertEquals(2, clog.getCoveredInterleavingPairs());
+    trace.record(0, 3, LOCATIONS[3], CTrace.EventType.RACE); // event: no pair
+    assertEquals(2, clog.getCoveredInterleavingPairs());
+    trace.record(1, 2, internal, null); // internal yield point: no pair
+    trace.record(0, 4, LOCATIONS[4], null); // no pair with internal yield point
+    assertEquals(2, clog.getCoveredInterleavingPairs());
+    trace.record(1, 3, LOCATIONS[5], null); // (4, 5)
+    assertEquals(3, clog.getCoveredInterleavingPairs());
+    trace.reset();
+    trace.record(0, 0, LOCATIONS[5], null); // no pair across trials
+    assertEquals(3, clog.getCoveredInterleavingPairs());
+  }
+
+  @Test
+  public void testLimit() throws IOException {
+    List<int[]> steps = execution(500 * LIMIT);
+    CTrace trace = newTrace(Limited.class);
+    for (int n = 1; n <= steps.size(); n++) {
+      record(trace, steps.subList(n - 1, n));
+      assertEquals(Math.min(n, LIMIT), trace.size());
+    }
+    List<String> lines = save(trace, "EXECUTION TRACE");
+    assertEquals(LIMIT, lines.size());
+    int first = steps.size() - LIMIT;
+    for (int i = 0; i < LIMIT; i++) {
+      assertEquals(expected(i, steps.get(first + i)), lines.get(i));
+    }
+  }
+
+  @Test
+  @SuppressWarnings("unchecked")
+  public void testChromeTrace() throws IOException {
+    List<int[]> steps = execution(1000);
+    CTrace trace = newTrace(Plain.class);
+    record(trace, steps);
+    CThreadLocation odd = new CThreadLocation(new CYieldPointImpl("say(\"a\\b\")\n\t\u0001", "T.java", 0));
+    trace.record(0, 10000, odd, null);
+    StringWriter out = new StringWriter();
+    trace.saveAsChromeTrace(out);
+    Map<String,Object> json = (Map<String,Object>) new JSONParser(out.toString()).parse();
+    assertEquals("ns", json.get("displayTimeUnit"));
+    List<Object> events = (List<Object>) json.get("traceEvents");
+    assertEquals(steps.size() + 1, events.size());
+    double lastTs = -1;
+    for (int i = 0; i < events.size(); i++) {
+      Map<String,Object> e = (Map<String,Object>) events.get(i);
+      double ts = (Double) e.get("ts");
+      assertTrue(ts > lastTs);
+      lastTs = ts;
+      Map<String,Object> args = (Map<String,Object>) e.get("args");
+      if (i < steps.size()) {
+        int[] s = steps.get(i);
+        assertEquals(s[3] == 0 ? "X" : "i", e.get("ph"));
+        assertEquals((double) s[0], e.get("tid"));
+        assertEquals((double) s[1], args.get("step"));
+        assertEquals((double) (s[2] + 1), args.get("line"));
+      }
+    }
+    assertEquals("say(\"a\\b\")\n\t\u0001", ((Map<String,Object>) events.get(steps.size())).get("name"));
+  }
+
+  // Minimal JSON parser, strict enough to reject malformed output.
+  private static final class JSONParser {
+    private final String _text;
+    private int _pos;
+
+    JSONParser(String text) {
+      _text = text;
+    }
+
+    Object parse() {
+      Object v = value();
+      skipWhitespace();
+      assertEquals("trailing content", _text.length(), _pos);
+      return v;
+    }
+
+    private Object value() {
+      skipWhitespace();
+      char c = _text.charAt(_pos);
+      if (c == '{') {
+        Map<String,Object> m = new LinkedHashMap<>();
+        _pos++;
+        skipWhitespace();
+        if (!consume('}')) {
+          do {
+            skipWhitespace();
+            String key = string();
+            skipWhitespace();
+            expect(':');
+            m.put(key, value());
+            skipWhitespace();
+          } while (consume(','));
+          expect('}');
+        }
+        return m;
+      }
+      if (c == '[') {
+        List<Object> l = new ArrayList<>();
+        _pos++;
+        skipWhitespace();
+        if (!consume(']')) {
+          do {
+            l.add(value());
+            skipWhitespace();
+          } while (consume(','));
+          expect(']');
+        }
+        return l;
+      }
+      if (c == '"') {
+        return string();
+      }
+      int start = _pos;
+      while (_pos < _text.length() && "+-0123456789.eE".indexOf(_text.charAt(_pos)) >= 0) {
+        _pos++;
+      }
+      assertTrue("value expected at " + start, _pos > start);
+      return Double.parseDouble(_text.substring(start, _pos));
+    }
+
+    private String string() {
+      expect('"');
+      StringBuilder sb = new StringBuilder();
+      char c;
+      while ((c = _text.charAt(_pos++)) != '"') {
+        assertTrue("control character in string", c >= 0x20);
+        if (c == '\\') {
+          c = _text.charAt(_pos++);
+          switch (c) {
+            case 'n': sb.append('\n'); break;
+            case 't': sb.append('\t'); break;
+            case 'u': sb.append((char) Integer.parseInt(_text.substring(_pos, _pos + 4), 16)); _pos += 4; break;
+            case '"': case '\\': case '/': sb.append(c); break;
+            default: throw new AssertionError("invalid escape: " + c);
+          }
+        } else {
+          sb.append(c);
+        }
+      }
+      return sb.toString();
+    }
+
+    private void skipWhitespace() {
+      while (_pos < _text.length() && Character.isWhitespace(_text.charAt(_pos))) {
+        _pos++;
+      }
+    }
+
+    private boolean consume(char c) {
+      if (_pos < _text.length() && _text.charAt(_pos) == c) {
+        _pos++;
+        return true;
+      }
+      return false;
+    }
+
+    private void expect(char c) {
+      assertTrue("'" + c + "' expected at " + _pos, consume(c));
+    }
+  }
+}
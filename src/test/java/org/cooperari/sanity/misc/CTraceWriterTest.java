@@ -0,0 +1,112 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.misc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Optional;
+
+import org.cooperari.CTest;
+import org.cooperari.config.CTraceOptions;
+import org.cooperari.core.CCoverageLog;
+import org.cooperari.core.CTrace;
+import org.cooperari.core.CTraceWriter;
+import org.cooperari.core.CWorkspace;
+import org.cooperari.core.CYieldPointImpl;
+import org.cooperari.core.scheduling.CThreadLocation;
+import org.junit.BeforeClass;
+import org.junit.FixMethodOrder;
+import org.junit.Test;
+import org.junit.runners.MethodSorters;
+
+@FixMethodOrder(MethodSorters.NAME_ASCENDING)
+@SuppressWarnings("javadoc")
+public class CTraceWriterTest {
+
+  @CTraceOptions(logEveryTrace=true)
+  private static class Options { }
+
+  private static final CTraceOptions OPTIONS = Options.class.getAnnotation(CTraceOptions.class);
+
+  private static final CTest TEST = new CTest() {
+    @Override
+    public String getName() {
+      return "writerTest";
+    }
+    @Override
+    public String getSuiteName() {
+      return CTraceWriterTest.class.getName();
+    }
+    @Override
+    public void run() { }
+  };
+
+  @BeforeClass
+  public static void initWorkspace() throws IOException {
+    CWorkspace.INSTANCE.initializeIfNecessary(new File("cooperari-test-data"));
+  }
+
+  private static File traceFile(int trial) {
+    return new File(CWorkspace.INSTANCE.getRootDirectory(), 
+        TEST.getSuiteName() + "/" + TEST.getName() + "." + trial + ".trace.log");
+  }
+
+  private static int tracedSteps(File f) throws IOException {
+    List<String> lines = Files.readAllLines(f.toPath());
+    int start = lines.indexOf("# EXECUTION TRACE");
+    assertTrue(start >= 0);
+    return lines.size() - start - 2;
+  }
+
+  @Test
+  public void testSubmitAndClose() throws IOException {
+    final int trials = 10;
+    CThreadLocation loc = new CThreadLocation(new CYieldPointImpl("sig", "W.java", 1));
+    CTrace trace = new CTrace(new CCoverageLog(), OPTIONS);
+    CTraceWriter writer = new CTraceWriter(TEST);
+    for (int trial = 1; trial <= trials; trial++) {
+      traceFile(trial).delete();
+      for (int step = 0; step < 100 * trial; step++) {
+        trace.record(step % 2, step / 2, loc, null);
+      }
+      writer.submit(trial, trace.detach());
+      assertEquals(0, trace.size());
+    }
+    writer.close();
+    for (int trial = 1; trial <= trials; trial++) {
+      assertEquals(100 * trial, tracedSteps(traceFile(trial)));
+    }
+  }
+
+  @Test
+  public void testSave() throws IOException {
+    CThreadLocation loc = new CThreadLocation(new CYieldPointImpl("sig", "W.java", 2));
+    CTrace trace = new CTrace(new CCoverageLog(), OPTIONS);
+    for (int step = 0; step < 5; step++) {
+      trace.record(0, step, loc, null);
+    }
+    File f = CTraceWriter.save(TEST, 0, trace, Optional.empty());
+    assertEquals(traceFile(0), f);
+    assertEquals(5, tracedSteps(f));
+    assertEquals(0, trace.size());
+  }
+}
@@ -22,7 +22,7 @@ import org.junit.runners.Suite.SuiteClasses;
 
 @SuppressWarnings("javadoc")
 @RunWith(Suite.class)
-@SuiteClasses({ CConfigurationTest.class, CUncaughtExceptionHandlerTest.class, NonCooperativeThreadRunnerTest.class })
+@SuiteClasses({ CConfigurationTest.class, CCoverageLogTest.class, CFailureBucketsTest.class, CInfoTest.class, CRaceRegistryTest.class, CTraceTest.class, CTraceWriterTest.class, CUncaughtExceptionHandlerTest.class, NonCooperativeThreadRunnerTest.class })
 public class MiscTestSuite {
 
 }
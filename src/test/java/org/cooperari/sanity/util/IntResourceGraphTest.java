@@ -0,0 +1,155 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.cooperari.core.util.IntResourceGraph;
+import org.cooperari.core.util.ResourceGraph;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class IntResourceGraphTest {
+
+  private static IntResourceGraph graph(int nodes) {
+    IntResourceGraph g = new IntResourceGraph();
+    for (int i = 0; i < nodes; i++) {
+      assertEquals(i, g.newNode());
+    }
+    return g;
+  }
+
+  @Test
+  public void testEdges() {
+    IntResourceGraph g = graph(3);
+    assertEquals(0, g.edges());
+    assertTrue(g.addEdge(0, 1));
+    assertTrue(g.addEdge(0, 2));
+    assertTrue(g.addEdge(0, 1));
+    assertEquals(2, g.edges());
+    assertTrue(g.hasEdge(0, 1));
+    assertFalse(g.hasEdge(1, 0));
+    assertEquals(2, g.degree(0));
+    assertTrue(g.removeEdge(0, 1));
+    assertFalse(g.removeEdge(0, 1));
+    assertEquals(1, g.edges());
+    assertEquals(0, g.degree(1));
+  }
+
+  @Test
+  public void testCycle() {
+    IntResourceGraph g = graph(5);
+    assertTrue(g.addEdge(0, 1));
+    assertTrue(g.addEdge(1, 2));
+    assertTrue(g.addEdge(2, 3));
+    assertTrue(g.addEdge(4, 0));
+    assertFalse(g.addEdge(3, 4));
+    assertArrayEquals(new int[] { 4, 0, 1, 2, 3, 4 }, g.getCycle());
+    assertFalse(g.hasEdge(3, 4));
+    assertEquals(4, g.edges());
+    assertFalse(g.addEdge(2, 2));
+    assertArrayEquals(new int[] { 2, 2 }, g.getCycle());
+    assertTrue(g.removeEdge(4, 0));
+    assertTrue(g.addEdge(3, 4));
+    assertFalse(g.addEdge(4, 0));
+    assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 0 }, g.getCycle());
+  }
+
+  @Test
+  public void testNoFalseCycles() {
+    IntResourceGraph g = graph(4);
+    // Diamond: 3 -> {1, 2} -> 0, inserted against initial order.
+    assertTrue(g.addEdge(1, 0));
+    assertTrue(g.addEdge(2, 0));
+    assertTrue(g.addEdge(3, 1));
+    assertTrue(g.addEdge(3, 2));
+    assertTrue(g.precedes(3, 1));
+    assertTrue(g.precedes(1, 0));
+    assertTrue(g.precedes(2, 0));
+  }
+
+  @Test
+  public void testNodeRecycling() {
+    IntResourceGraph g = graph(2);
+    g.addEdge(0, 1);
+    g.removeEdge(0, 1);
+    g.freeNode(1);
+    assertEquals(1, g.nodes());
+    assertEquals(1, g.newNode());
+    assertEquals(2, g.nodes());
+  }
+
+  @Test(expected=IllegalStateException.class)
+  public void testFreeNodeWithEdges() {
+    IntResourceGraph g = graph(2);
+    g.addEdge(0, 1);
+    g.freeNode(0);
+  }
+
+  @Test
+  public void testAgainstResourceGraph() {
+    final int n = 40;
+    Random rng = new Random(1234);
+    IntResourceGraph g = graph(n);
+    ResourceGraph<Integer> r = new ResourceGraph<>();
+    for (int i = 0; i < 2000; i++) {
+      int a = rng.nextInt(n);
+      int b = rng.nextInt(n);
+      if (rng.nextInt(4) == 0) {
+        assertEquals(r.removeEdge(a, b), g.removeEdge(a, b));
+      } else if (!r.hasEdge(a, b)) {
+        r.addEdge(a, b);
+        boolean cycle = reaches(r, b, a, new boolean[n]);
+        assertEquals(!cycle, g.addEdge(a, b));
+        if (cycle) {
+          r.removeEdge(a, b);
+          int[] c = g.getCycle();
+          assertEquals(b, c[0]);
+          assertEquals(b, c[c.length - 1]);
+          assertEquals(a, c[c.length - 2]);
+          for (int k = 0; k + 2 < c.length; k++) {
+            assertTrue(g.hasEdge(c[k], c[k + 1]));
+          }
+        }
+      }
+      assertEquals(r.edges(), g.edges());
+    }
+    for (int a = 0; a < n; a++) {
+      for (int b : r.successors(a)) {
+        assertTrue(g.precedes(a, b));
+      }
+    }
+  }
+
+  private static boolean reaches(ResourceGraph<Integer> r, int from, int to, boolean[] visited) {
+    if (from == to) {
+      return true;
+    }
+    visited[from] = true;
+    for (int s : r.successors(from)) {
+      if (!visited[s] && reaches(r, s, to, visited)) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,75 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.util;
+
+import static org.junit.Assert.assertEquals;
+
+import org.cooperari.core.util.LongIntMap;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class LongIntMapTest {
+
+  @Test
+  public void testEmpty() {
+    LongIntMap m = new LongIntMap();
+    assertEquals(0, m.size());
+    assertEquals(-1, m.get(0L, -1));
+    assertEquals(-1, m.get(1L, -1));
+  }
+
+  @Test
+  public void testPutAndGet() {
+    LongIntMap m = new LongIntMap();
+    m.put(0L, 10);
+    m.put(-1L, 20);
+    m.put(1L << 32, 30);
+    assertEquals(3, m.size());
+    assertEquals(10, m.get(0L, -1));
+    assertEquals(20, m.get(-1L, -1));
+    assertEquals(30, m.get(1L << 32, -1));
+    assertEquals(-1, m.get(1L, -1));
+    m.put(0L, 11);
+    m.put(1L << 32, 31);
+    assertEquals(3, m.size());
+    assertEquals(11, m.get(0L, -1));
+    assertEquals(31, m.get(1L << 32, -1));
+  }
+
+  @Test
+  public void testGrowth() {
+    LongIntMap m = new LongIntMap();
+    for (int i = 0; i < 10000; i++) {
+      m.put((i * 7919L) << 16 | i, i);
+    }
+    assertEquals(10000, m.size());
+    for (int i = 0; i < 10000; i++) {
+      assertEquals(i, m.get((i * 7919L) << 16 | i, -1));
+    }
+  }
+
+  @Test
+  public void testClear() {
+    LongIntMap m = new LongIntMap();
+    m.put(0L, 1);
+    m.put(1L, 2);
+    m.clear();
+    assertEquals(0, m.size());
+    assertEquals(-1, m.get(0L, -1));
+    assertEquals(-1, m.get(1L, -1));
+  }
+}
@@ -0,0 +1,94 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.TreeSet;
+
+import org.cooperari.core.util.LongSet;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class LongSetTest {
+
+  @Test
+  public void testEmpty() {
+    LongSet s = new LongSet();
+    assertEquals(0, s.size());
+    assertFalse(s.contains(0L));
+    assertFalse(s.contains(1L));
+    assertEquals(0, s.toSortedArray().length);
+  }
+
+  @Test
+  public void testAddAndContains() {
+    LongSet s = new LongSet();
+    assertTrue(s.add(0L));
+    assertFalse(s.add(0L));
+    assertTrue(s.add(-1L));
+    assertTrue(s.add(1L << 32));
+    assertFalse(s.add(1L << 32));
+    assertEquals(3, s.size());
+    assertTrue(s.contains(0L));
+    assertTrue(s.contains(-1L));
+    assertTrue(s.contains(1L << 32));
+    assertFalse(s.contains(1L));
+    assertArrayEquals(new long[] { -1L, 0L, 1L << 32 }, s.toSortedArray());
+  }
+
+  @Test
+  public void testGrowth() {
+    LongSet s = new LongSet();
+    TreeSet<Long> expected = new TreeSet<>();
+    for (long i = 0; i < 10000; i++) {
+      long v = (i * 7919L) << 16 | i;
+      assertTrue(s.add(v));
+      expected.add(v);
+    }
+    assertEquals(expected.size(), s.size());
+    for (long v : expected) {
+      assertTrue(s.contains(v));
+      assertFalse(s.add(v));
+    }
+    long[] values = s.toSortedArray();
+    int i = 0;
+    for (long v : expected) {
+      assertEquals(v, values[i++]);
+    }
+  }
+
+  @Test
+  public void testAddAllAndClear() {
+    LongSet a = new LongSet();
+    LongSet b = new LongSet();
+    a.add(1L);
+    b.add(0L);
+    b.add(1L);
+    b.add(2L);
+    assertTrue(a.addAll(b));
+    assertFalse(a.addAll(b));
+    assertArrayEquals(new long[] { 0L, 1L, 2L }, a.toSortedArray());
+    a.clear();
+    assertEquals(0, a.size());
+    assertFalse(a.contains(0L));
+    assertFalse(a.contains(1L));
+  }
+}
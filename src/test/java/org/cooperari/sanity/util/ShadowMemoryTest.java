@@ -0,0 +1,122 @@
+//
+//   Copyright 2014-2019 Eduardo R. B. Marques
+//
+//  Licensed under the Apache License, Version 2.0 (the "License");
+//  you may not use this file except in compliance with the License.
+//  You may obtain a copy of the License at
+//
+//      http://www.apache.org/licenses/LICENSE-2.0
+//
+//  Unless required by applicable law or agreed to in writing, software
+//  distributed under the License is distributed on an "AS IS" BASIS,
+//  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+//  See the License for the specific language governing permissions and
+//  limitations under the License.
+//
+
+package org.cooperari.sanity.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.Random;
+
+import org.cooperari.core.util.ShadowMemory;
+import org.junit.Test;
+
+@SuppressWarnings("javadoc")
+public class ShadowMemoryTest {
+
+  @Test
+  public void testSlotAndFind() {
+    ShadowMemory m = new ShadowMemory(2);
+    Object a = new Object(), b = new Object();
+    assertEquals(-1, m.find(a, 0));
+    int s = m.slot(a, 0);
+    assertEquals(s, m.find(a, 0));
+    assertEquals(s, m.slot(a, 0));
+    assertEquals(0L, m.get(s, 0));
+    assertEquals(0L, m.get(s, 1));
+    m.set(s, 1, 42L);
+    m.setAttachment(s, "x");
+    assertEquals(-1, m.find(a, 1));
+    assertEquals(-1, m.find(b, 0));
+    int s2 = m.slot(b, 0);
+    m.set(s2, 0, 7L);
+    assertEquals(2, m.size());
+    s = m.find(a, 0);
+    assertEquals(42L, m.get(s, 1));
+    assertEquals("x", m.getAttachment(s));
+    m.remove(s);
+    assertEquals(1, m.size());
+    assertEquals(-1, m.find(a, 0));
+    assertEquals(7L, m.get(m.find(b, 0), 0));
+    s = m.slot(a, 0);
+    assertEquals(0L, m.get(s, 1));
+    assertNull(m.getAttachment(s));
+    m.clear();
+    assertEquals(0, m.size());
+    assertEquals(-1, m.find(b, 0));
+  }
+
+  @Test
+  public void testAgainstHashMap() {
+    ShadowMemory m = new ShadowMemory(1);
+    HashMap<String, Long> expected = new HashMap<>();
+    Object[] objects = new Object[50];
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = new Object();
+    }
+    Random rng = new Random(0);
+    for (int step = 0; step < 20000; step++) {
+      int o = rng.nextInt(objects.length);
+      int f = rng.nextInt(20) - 10;
+      String key = o + ":" + f;
+      if (rng.nextInt(3) == 0) {
+        int s = m.find(objects[o], f);
+        if (s >= 0) {
+          m.remove(s);
+        }
+        expected.remove(key);
+      } else {
+        long v = rng.nextLong();
+        m.set(m.slot(objects[o], f), 0, v);
+        expected.put(key, v);
+      }
+      assertEquals(expected.size(), m.size());
+    }
+    for (int o = 0; o < objects.length; o++) {
+      for (int f = -10; f < 10; f++) {
+        Long v = expected.get(o + ":" + f);
+        int s = m.find(objects[o], f);
+        if (v == null) {
+          assertEquals(-1, s);
+        } else {
+          assertTrue(s >= 0);
+          assertEquals(v.longValue(), m.get(s, 0));
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testGrowth() {
+    ShadowMemory m = new ShadowMemory(1);
+    Object[] objects = new Object[1000];
+    for (int i = 0; i < objects.length; i++) {
+      objects[i] = new Object();
+      int s = m.slot(objects[i], i);
+      m.set(s, 0, i);
+      m.setAttachment(s, objects[i]);
+    }
+    assertEquals(objects.length, m.size());
+    for (int i = 0; i < objects.length; i++) {
+      int s = m.find(objects[i], i);
+      assertEquals(i, m.get(s, 0));
+      assertSame(objects[i], m.getAttachment(s));
+    }
+  }
+}
@@ -26,6 +26,10 @@ import org.junit.runners.Suite.SuiteClasses;
    AgentLoaderTest.class, 
    CRawTupleTest.class,
    CResourceGraphTest.class, 
+   IntResourceGraphTest.class,
+   LongIntMapTest.class,
+   LongSetTest.class,
+   ShadowMemoryTest.class,
    UnsafeVMOperationsTest.class })
 public class UtilityTestSuite {
 